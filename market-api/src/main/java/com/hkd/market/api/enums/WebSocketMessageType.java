@@ -15,12 +15,16 @@ public enum WebSocketMessageType {
     /**
      * 订阅消息
      * 格式: {"type":"SUBSCRIBE","channel":"kline","symbol":"BTC-USDT","interval":"1m"}
+     * kline频道可携带 snapshot 请求最近N根K线: {"type":"SUBSCRIBE",...,"snapshot":100}
+     * 增量推送: {"type":"SUBSCRIBE",...,"delta":true}
+     * 批量/通配: {"type":"SUBSCRIBE","topics":["ticker:*","kline:BTC-*:1m"]}
      */
     SUBSCRIBE("subscribe"),
 
     /**
      * 取消订阅
      * 格式: {"type":"UNSUBSCRIBE","channel":"kline","symbol":"BTC-USDT","interval":"1m"}
+     * 批量/通配: {"type":"UNSUBSCRIBE","topics":["ticker:*"]}
      */
     UNSUBSCRIBE("unsubscribe"),
 
@@ -30,6 +34,18 @@ public enum WebSocketMessageType {
      */
     PING("ping"),
 
+    /**
+     * 增量推送丢失后请求重新同步 (下一次推送发送完整K线)
+     * 格式: {"type":"RESYNC","channel":"kline","symbol":"BTC-USDT","interval":"1m"}
+     */
+    RESYNC("resync"),
+
+    /**
+     * 断线重连后恢复订阅，seq / epoch 为该主题最后收到的推送序号及其所属的服务端进程
+     * 格式: {"type":"RESUME","channel":"kline","symbol":"BTC-USDT","interval":"1m","seq":1024,"epoch":1731800000000}
+     */
+    RESUME("resume"),
+
     // ========== 服务端消息 ==========
 
     /**
@@ -44,6 +60,18 @@ public enum WebSocketMessageType {
      */
     KLINE("kline"),
 
+    /**
+     * 订阅时的K线历史快照 (按时间正序，之后的KLINE推送与快照衔接)
+     * 格式: {"type":"KLINE_SNAPSHOT","channel":"kline","symbol":"BTC-USDT","interval":"1m","data":[{...},...]}
+     */
+    KLINE_SNAPSHOT("kline_snapshot"),
+
+    /**
+     * K线增量推送 (只包含相对上一帧变化的字段，seq 与上一帧连续时才能应用)
+     * 格式: {"type":"KLINE_DELTA","symbol":"BTC-USDT","interval":"1m","seq":42,"data":{"openTime":...,"close":...}}
+     */
+    KLINE_DELTA("kline_delta"),
+
     /**
      * 深度数据推送
      * 格式: {"type":"DEPTH","symbol":"BTC-USDT","data":{"bids":[...],"asks":[...]}}
@@ -71,6 +99,7 @@ public enum WebSocketMessageType {
     /**
      * 订阅成功响应
      * 格式: {"type":"SUBSCRIBED","channel":"kline","symbol":"BTC-USDT"}
+     * 批量: {"type":"SUBSCRIBED","topics":[...],"rejected":[...]}
      */
     SUBSCRIBED("subscribed"),
 
@@ -80,6 +109,12 @@ public enum WebSocketMessageType {
      */
     UNSUBSCRIBED("unsubscribed"),
 
+    /**
+     * 恢复订阅成功响应 (之后依次收到重放的推送；gap=true 表示缺口超出重放缓冲或 epoch 不是当前进程，重放的是快照)
+     * 格式: {"type":"RESUMED","channel":"kline","symbol":"BTC-USDT","interval":"1m","seq":1030,"epoch":1731800000000,"data":{"replayed":6,"gap":false}}
+     */
+    RESUMED("resumed"),
+
     /**
      * 错误消息
      * 格式: {"type":"ERROR","code":"INVALID_SYMBOL","message":"Invalid symbol"}
@@ -0,0 +1,104 @@
+package com.hkd.market.application.cache;
+
+import com.hkd.market.domain.entity.Kline;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 待写入Redis的K线缓存批次
+ *
+ * 在一笔成交（或一批成交）的聚合过程中收集所有K线更新，
+ * 同一个Key的多次写入只保留最后一次，最终由 KlineHotCache 一次管道提交。
+ *
+ * 非线程安全，只在单次聚合调用内使用。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+public class KlineCacheBatch {
+
+    /**
+     * Key: Redis Key，保持首次写入顺序
+     */
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * 加入一次写入，覆盖同Key的前一次写入
+     *
+     * @param key Redis Key
+     * @param kline K线
+     * @param ttlSeconds 过期时间（秒）
+     */
+    public void put(String key, Kline kline, long ttlSeconds) {
+        put(key, kline, null, ttlSeconds);
+    }
+
+    /**
+     * 加入一次写入，同时记录本批次在该K线上新增的成交
+     *
+     * @param key Redis Key
+     * @param kline K线
+     * @param delta 本批次新增的成交（volume/amount/tradeCount 为增量），没有新增成交时为null
+     * @param ttlSeconds 过期时间（秒）
+     */
+    public void put(String key, Kline kline, Kline delta, long ttlSeconds) {
+        entries.put(key, new Entry(key, kline, delta, ttlSeconds));
+    }
+
+    /**
+     * 查询批次内尚未提交的K线
+     *
+     * @param key Redis Key
+     * @return K线，批次内没有返回null
+     */
+    public Kline get(String key) {
+        Entry entry = entries.get(key);
+        return entry == null ? null : entry.kline();
+    }
+
+    /**
+     * 查询批次内该K线新增的成交
+     *
+     * @param key Redis Key
+     * @return 成交增量，没有返回null
+     */
+    public Kline getDelta(String key) {
+        Entry entry = entries.get(key);
+        return entry == null ? null : entry.delta();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    Collection<Entry> entries() {
+        return entries.values();
+    }
+
+    /**
+     * 批次内的全部K线（按首次写入顺序）
+     */
+    public List<Kline> klines() {
+        return entries.values().stream().map(Entry::kline).toList();
+    }
+
+    /**
+     * 批次内每根K线新增的成交，与 klines() 顺序一致，没有新增成交的位置为null
+     */
+    public List<Kline> deltas() {
+        return entries.values().stream().map(Entry::delta).toList();
+    }
+
+    /**
+     * 单个Key的写入
+     */
+    record Entry(String key, Kline kline, Kline delta, long ttlSeconds) {
+    }
+}
@@ -0,0 +1,211 @@
+package com.hkd.market.application.cache;
+
+import com.hkd.market.application.resilience.CircuitBreaker;
+import com.hkd.market.domain.entity.Kline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 当前K线Redis缓存
+ *
+ * 聚合路径上对Redis的所有访问都经过这里：
+ * - 单根K线读取一次往返
+ * - 批次写入通过 executePipelined 一次往返提交，每个Key保留各自的TTL
+ * - 同一管道内维护每个 (symbol, interval) 最近 window-size 根K线的有序集合
+ *   (market:kline:window:{symbol}:{interval}，score为开盘时间)，供最新K线查询一次往返读取
+ *
+ * 写入失败只记录日志，不影响数据库事务；窗口缺失的K线由查询方回退数据库补齐。
+ * 所有访问经过Redis熔断器：失败或慢调用累计到阈值后直接跳过Redis（读返回未命中，写丢弃），
+ * 聚合改用进程内状态，不再阻塞在Redis调用上。
+ *
+ * 开启近端缓存（KlineNearCache）时，窗口读取优先走进程内副本，
+ * 批次写入在同一管道内把更新的K线发布到 KlineNearCache.UPDATE_CHANNEL 通知其他副本。
+ *
+ * 每次往返计入 market.redis.round.trips 计数器（按 operation 区分），
+ * 由Prometheus按速率展示每秒往返次数。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+public class KlineHotCache {
+
+    private static final byte[] UPDATE_CHANNEL = KlineNearCache.UPDATE_CHANNEL.getBytes(StandardCharsets.UTF_8);
+
+    private final RedisTemplate<String, Kline> redisTemplate;
+    private final KlineNearCache nearCache;
+    private final CircuitBreaker breaker;
+    private final int windowSize;
+    private final Counter getRoundTrips;
+    private final Counter windowRoundTrips;
+    private final Counter pipelineRoundTrips;
+
+    public KlineHotCache(RedisTemplate<String, Kline> redisTemplate, KlineNearCache nearCache,
+                         @Qualifier("redisCircuitBreaker") CircuitBreaker breaker,
+                         MeterRegistry meterRegistry,
+                         @Value("${hkd.market.kline.window.size:100}") int windowSize) {
+        this.redisTemplate = redisTemplate;
+        this.nearCache = nearCache;
+        this.breaker = breaker;
+        this.windowSize = windowSize;
+        this.getRoundTrips = roundTripCounter(meterRegistry, "get");
+        this.windowRoundTrips = roundTripCounter(meterRegistry, "window");
+        this.pipelineRoundTrips = roundTripCounter(meterRegistry, "pipeline");
+    }
+
+    /**
+     * 读取K线
+     *
+     * @param key Redis Key
+     * @return K线，未命中或熔断时返回null
+     */
+    public Kline get(String key) {
+        if (!breaker.allowRequest()) {
+            return null;
+        }
+
+        getRoundTrips.increment();
+        long start = System.currentTimeMillis();
+        try {
+            Kline kline = redisTemplate.opsForValue().get(key);
+            breaker.record(System.currentTimeMillis() - start, false);
+            return kline;
+        } catch (Exception e) {
+            breaker.recordFailure();
+            log.warn("Failed to read kline from Redis: key={}", key, e);
+            return null;
+        }
+    }
+
+    /**
+     * 管道提交整个批次
+     *
+     * 批次内已按Key合并；每根K线写入自身Key，并替换窗口中同一开盘时间的旧版本后裁剪到 window-size
+     *
+     * @param batch 缓存批次
+     */
+    public void write(KlineCacheBatch batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (!breaker.allowRequest()) {
+            log.debug("Redis circuit open, skipping kline cache batch: keys={}", batch.size());
+            return;
+        }
+
+        pipelineRoundTrips.increment();
+        long start = System.currentTimeMillis();
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, Kline> ops = (RedisOperations<String, Kline>) operations;
+                    for (KlineCacheBatch.Entry entry : batch.entries()) {
+                        Kline kline = entry.kline();
+                        ops.opsForValue().set(entry.key(), kline, entry.ttlSeconds(), TimeUnit.SECONDS);
+
+                        String windowKey = buildWindowKey(kline.getSymbol(), kline.getInterval());
+                        double score = kline.getOpenTime();
+                        ops.opsForZSet().removeRangeByScore(windowKey, score, score);
+                        ops.opsForZSet().add(windowKey, kline, score);
+                        ops.opsForZSet().removeRange(windowKey, 0, -windowSize - 1);
+                    }
+                    if (nearCache.isEnabled()) {
+                        byte[] message = KlineNearCache.encodeUpdates(batch.klines(), klineSerializer());
+                        ops.execute((RedisCallback<Object>) connection -> connection.publish(UPDATE_CHANNEL, message));
+                    }
+                    return null;
+                }
+            });
+            breaker.record(System.currentTimeMillis() - start, false);
+        } catch (Exception e) {
+            breaker.recordFailure();
+            log.warn("Failed to write kline cache batch: keys={}", batch.size(), e);
+            return;
+        }
+
+        for (Kline kline : batch.klines()) {
+            nearCache.apply(kline);
+        }
+
+        log.debug("Pipelined kline cache writes: keys={}", batch.size());
+    }
+
+    /**
+     * 从窗口读取最新K线
+     *
+     * 窗口内不足 limit 根（刚启动尚未积累、或limit超过窗口大小）时返回的数量少于limit，
+     * 调用方据此回退数据库。开启近端缓存时读取并缓存完整窗口，按limit截取。
+     *
+     * @param symbol 交易对
+     * @param interval K线周期
+     * @param limit 返回数量
+     * @return K线列表（按时间倒序），Redis不可用时为空
+     */
+    public List<Kline> findLatestWindow(String symbol, String interval, int limit) {
+        if (limit <= 0 || limit > windowSize) {
+            return List.of();
+        }
+
+        List<Kline> window = nearCache.get(symbol, interval);
+        if (window == null) {
+            if (!breaker.allowRequest()) {
+                return List.of();
+            }
+
+            int fetchSize = nearCache.isEnabled() ? windowSize : limit;
+            windowRoundTrips.increment();
+            long start = System.currentTimeMillis();
+            try {
+                Set<Kline> bars = redisTemplate.opsForZSet()
+                        .reverseRange(buildWindowKey(symbol, interval), 0, fetchSize - 1);
+                window = bars == null ? List.of() : List.copyOf(bars);
+                breaker.record(System.currentTimeMillis() - start, false);
+            } catch (Exception e) {
+                breaker.recordFailure();
+                log.warn("Failed to read kline window: symbol={}, interval={}", symbol, interval, e);
+                return List.of();
+            }
+            nearCache.put(symbol, interval, window);
+        }
+        return window.size() > limit ? window.subList(0, limit) : window;
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedisSerializer<Kline> klineSerializer() {
+        return (RedisSerializer<Kline>) redisTemplate.getValueSerializer();
+    }
+
+    /**
+     * 构建窗口Key
+     *
+     * 格式: market:kline:window:{symbol}:{interval}
+     */
+    private String buildWindowKey(String symbol, String interval) {
+        return "market:kline:window:" + symbol + ":" + interval;
+    }
+
+    private static Counter roundTripCounter(MeterRegistry meterRegistry, String operation) {
+        return Counter.builder("market.redis.round.trips")
+                .description("Redis round trips issued by kline aggregation")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,196 @@
+package com.hkd.market.application.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.hkd.market.domain.entity.Kline;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * 最新K线窗口近端缓存
+ *
+ * 多副本同时服务图表请求时，热门 (symbol, interval) 的Redis窗口会被反复读取。
+ * 近端缓存在进程内保存完整窗口：
+ * - 每个窗口从Redis读取后最多使用 max-staleness 毫秒，之后重新读取，保证陈旧度上界
+ * - 聚合实例写入K线后在 UPDATE_CHANNEL 上发布更新的K线，各副本就地替换窗口内同一开盘时间的K线，
+ *   在陈旧度上界内保持最新
+ *
+ * Redis Pub/Sub 至多一次投递，丢失的消息由陈旧度上界兜底。
+ *
+ * 消息格式：int 数量 + 逐根 (int 长度 + K线值序列化字节)
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+public class KlineNearCache {
+
+    public static final String UPDATE_CHANNEL = "market:kline:updates";
+
+    private final boolean enabled;
+    private final long maxStalenessMillis;
+    private final int windowSize;
+    private final LongSupplier clock;
+
+    private final Cache<String, NearWindow> windows;
+
+    @Autowired
+    public KlineNearCache(@Value("${hkd.market.kline.near-cache.enabled:true}") boolean enabled,
+                          @Value("${hkd.market.kline.near-cache.max-staleness:1000}") long maxStalenessMillis,
+                          @Value("${hkd.market.kline.near-cache.max-entries:10000}") long maxEntries,
+                          @Value("${hkd.market.kline.window.size:100}") int windowSize) {
+        this(enabled, maxStalenessMillis, maxEntries, windowSize, System::currentTimeMillis);
+    }
+
+    KlineNearCache(boolean enabled, long maxStalenessMillis, long maxEntries, int windowSize, LongSupplier clock) {
+        this.enabled = enabled;
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.windowSize = windowSize;
+        this.clock = clock;
+        this.windows = CacheBuilder.newBuilder()
+                .maximumSize(maxEntries)
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 获取未超过陈旧度上界的窗口
+     *
+     * @param symbol 交易对
+     * @param interval K线周期
+     * @return 完整窗口（按时间倒序，不可变），未缓存或已过期返回null
+     */
+    public List<Kline> get(String symbol, String interval) {
+        if (!enabled) {
+            return null;
+        }
+        NearWindow window = windows.getIfPresent(key(symbol, interval));
+        if (window == null || clock.getAsLong() - window.fetchedAt() > maxStalenessMillis) {
+            return null;
+        }
+        return window.bars();
+    }
+
+    /**
+     * 缓存从Redis读取的完整窗口
+     *
+     * @param bars 窗口（按时间倒序）
+     */
+    public void put(String symbol, String interval, List<Kline> bars) {
+        if (enabled) {
+            windows.put(key(symbol, interval), new NearWindow(List.copyOf(bars), clock.getAsLong()));
+        }
+    }
+
+    /**
+     * 应用一根更新的K线
+     *
+     * 只更新已缓存的窗口，不延长窗口的陈旧度期限
+     */
+    public void apply(Kline bar) {
+        if (enabled) {
+            windows.asMap().computeIfPresent(key(bar.getSymbol(), bar.getInterval()),
+                    (key, window) -> window.upsert(bar, windowSize));
+        }
+    }
+
+    /**
+     * 处理 UPDATE_CHANNEL 上收到的消息
+     */
+    public void onMessage(byte[] body, RedisSerializer<Kline> serializer) {
+        try {
+            for (Kline bar : decodeUpdates(body, serializer)) {
+                apply(bar);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to apply kline update message: bytes={}", body.length, e);
+        }
+    }
+
+    /**
+     * 编码更新消息
+     */
+    public static byte[] encodeUpdates(Collection<Kline> bars, RedisSerializer<Kline> serializer) {
+        List<byte[]> encoded = new ArrayList<>(bars.size());
+        int size = 4;
+        for (Kline bar : bars) {
+            byte[] bytes = serializer.serialize(bar);
+            encoded.add(bytes);
+            size += 4 + bytes.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(encoded.size());
+        for (byte[] bytes : encoded) {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 解码更新消息
+     */
+    public static List<Kline> decodeUpdates(byte[] body, RedisSerializer<Kline> serializer) {
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        int count = buffer.getInt();
+        List<Kline> bars = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            bars.add(serializer.deserialize(bytes));
+        }
+        return bars;
+    }
+
+    private static String key(String symbol, String interval) {
+        return symbol + ":" + interval;
+    }
+
+    /**
+     * 缓存的窗口
+     *
+     * @param bars 按开盘时间倒序的K线
+     * @param fetchedAt 从Redis读取的时间（毫秒）
+     */
+    record NearWindow(List<Kline> bars, long fetchedAt) {
+
+        /**
+         * 替换同一开盘时间的K线或按顺序插入，裁剪到窗口大小
+         */
+        NearWindow upsert(Kline bar, int windowSize) {
+            List<Kline> updated = new ArrayList<>(bars.size() + 1);
+            boolean placed = false;
+            for (Kline existing : bars) {
+                if (!placed && bar.getOpenTime() >= existing.getOpenTime()) {
+                    updated.add(bar);
+                    placed = true;
+                    if (bar.getOpenTime().equals(existing.getOpenTime())) {
+                        continue;
+                    }
+                }
+                updated.add(existing);
+            }
+            if (!placed) {
+                updated.add(bar);
+            }
+            if (updated.size() > windowSize) {
+                updated = updated.subList(0, windowSize);
+            }
+            return new NearWindow(List.copyOf(updated), fetchedAt);
+        }
+    }
+}
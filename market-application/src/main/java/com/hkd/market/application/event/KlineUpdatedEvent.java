@@ -0,0 +1,26 @@
+package com.hkd.market.application.event;
+
+import com.hkd.market.domain.entity.Kline;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * K线更新事件（进程内）
+ *
+ * 一笔或一批成交聚合完成、K线持久化并写入缓存后发布，每根K线只出现一次（最终状态）。
+ * 事件中的K线已登记到 OpenKlineRegistry，监听方不得修改。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Getter
+@RequiredArgsConstructor
+public class KlineUpdatedEvent {
+
+    /**
+     * 本次更新的K线
+     */
+    private final List<Kline> klines;
+}
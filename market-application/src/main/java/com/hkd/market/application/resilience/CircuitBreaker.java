@@ -0,0 +1,125 @@
+package com.hkd.market.application.resilience;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 熔断器
+ *
+ * 状态流转：
+ * - CLOSED：正常放行；连续 failureThreshold 次失败（含超过 slowCallThreshold 的慢调用）后进入 OPEN
+ * - OPEN：直接拒绝，调用方走降级路径；openDuration 之后进入 HALF_OPEN
+ * - HALF_OPEN：只放行一次试探调用，成功则 CLOSED，失败则重新 OPEN
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long slowCallThresholdMillis;
+    private final long openDurationMillis;
+    private final LongSupplier clock;
+
+    private volatile State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(String name, int failureThreshold, long slowCallThresholdMillis, long openDurationMillis) {
+        this(name, failureThreshold, slowCallThresholdMillis, openDurationMillis, System::currentTimeMillis);
+    }
+
+    CircuitBreaker(String name, int failureThreshold, long slowCallThresholdMillis, long openDurationMillis,
+                   LongSupplier clock) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.slowCallThresholdMillis = slowCallThresholdMillis;
+        this.openDurationMillis = openDurationMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * 是否放行本次调用
+     *
+     * 返回true后调用方必须调用 recordSuccess / recordFailure / record 之一
+     */
+    public boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+
+        synchronized (this) {
+            if (state == State.OPEN && clock.getAsLong() - openedAt >= openDurationMillis) {
+                state = State.HALF_OPEN;
+                trialInFlight = false;
+            }
+            if (state == State.HALF_OPEN && !trialInFlight) {
+                trialInFlight = true;
+                return true;
+            }
+            return state == State.CLOSED;
+        }
+    }
+
+    /**
+     * 按调用耗时和结果记录，超过慢调用阈值视为失败
+     */
+    public void record(long elapsedMillis, boolean failed) {
+        if (failed || elapsedMillis > slowCallThresholdMillis) {
+            recordFailure();
+        } else {
+            recordSuccess();
+        }
+    }
+
+    public void recordSuccess() {
+        if (state == State.CLOSED && consecutiveFailures == 0) {
+            return;
+        }
+
+        synchronized (this) {
+            consecutiveFailures = 0;
+            trialInFlight = false;
+            if (state != State.CLOSED) {
+                state = State.CLOSED;
+                log.info("Circuit breaker closed: name={}", name);
+            }
+        }
+    }
+
+    public synchronized void recordFailure() {
+        trialInFlight = false;
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+            log.warn("Circuit breaker opened: name={}, consecutiveFailures={}, openDurationMillis={}",
+                    name, consecutiveFailures, openDurationMillis);
+        }
+    }
+
+    /**
+     * 是否处于正常放行状态（不消耗半开试探机会）
+     */
+    public boolean isClosed() {
+        return state == State.CLOSED;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
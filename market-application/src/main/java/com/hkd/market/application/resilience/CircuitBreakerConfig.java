@@ -0,0 +1,45 @@
+package com.hkd.market.application.resilience;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * K线聚合各阶段的熔断器
+ *
+ * - redisCircuitBreaker：缓存阶段（KlineHotCache）
+ * - databaseCircuitBreaker：持久化阶段（KlinePersistenceStage）
+ *
+ * 状态通过 market.circuit.breaker.open 指标暴露（1=非CLOSED）
+ */
+@Configuration
+public class CircuitBreakerConfig {
+
+    @Bean
+    public CircuitBreaker redisCircuitBreaker(
+            MeterRegistry meterRegistry,
+            @Value("${hkd.market.kline.degradation.redis.failure-threshold:5}") int failureThreshold,
+            @Value("${hkd.market.kline.degradation.redis.slow-call-threshold:50}") long slowCallThreshold,
+            @Value("${hkd.market.kline.degradation.redis.open-duration:5000}") long openDuration) {
+        return register(meterRegistry, new CircuitBreaker("redis", failureThreshold, slowCallThreshold, openDuration));
+    }
+
+    @Bean
+    public CircuitBreaker databaseCircuitBreaker(
+            MeterRegistry meterRegistry,
+            @Value("${hkd.market.kline.degradation.database.failure-threshold:3}") int failureThreshold,
+            @Value("${hkd.market.kline.degradation.database.slow-call-threshold:2000}") long slowCallThreshold,
+            @Value("${hkd.market.kline.degradation.database.open-duration:10000}") long openDuration) {
+        return register(meterRegistry, new CircuitBreaker("database", failureThreshold, slowCallThreshold, openDuration));
+    }
+
+    private static CircuitBreaker register(MeterRegistry meterRegistry, CircuitBreaker breaker) {
+        Gauge.builder("market.circuit.breaker.open", breaker, b -> b.isClosed() ? 0 : 1)
+                .description("Whether the kline aggregation circuit breaker is not closed")
+                .tag("name", breaker.getName())
+                .register(meterRegistry);
+        return breaker;
+    }
+}
@@ -0,0 +1,40 @@
+package com.hkd.market.application.resilience;
+
+/**
+ * 溢写日志回放位置
+ *
+ * 记录每个溢写段已提交回放的字节偏移，与回放写入的K线处于同一数据库事务，
+ * 使回放可以在任意时刻崩溃后从已提交的位置继续。具体实现在 market-infrastructure 模块。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+public interface KlineSpillCheckpointStore {
+
+    /**
+     * 查询段的回放位置
+     *
+     * @param segment 段名
+     * @return 已回放到的字节偏移，没有记录时为0
+     */
+    long find(String segment);
+
+    /**
+     * 推进段的回放位置（需要在回放事务内调用）
+     *
+     * 仅当当前位置等于 fromOffset 时推进，防止同一批被回放两次
+     *
+     * @param segment 段名
+     * @param fromOffset 期望的当前位置
+     * @param toOffset 新位置
+     * @return 是否推进成功
+     */
+    boolean advance(String segment, long fromOffset, long toOffset);
+
+    /**
+     * 删除段的回放位置
+     *
+     * @param segment 段名
+     */
+    void remove(String segment);
+}
@@ -0,0 +1,76 @@
+package com.hkd.market.application.resilience;
+
+import com.hkd.market.domain.entity.Kline;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * K线溢写日志
+ *
+ * 数据库不可用时，持久化阶段把待写入K线的新增成交（增量）追加到本地预写文件，
+ * 恢复后按写入顺序回放。具体实现在 market-infrastructure 模块。
+ *
+ * 积压按段（segment）回放，段名全局唯一；每段分批读取，每批连同段的回放位置在同一个数据库事务内提交，
+ * 进程在提交后、删除本地文件前崩溃时，重启后从已提交的位置继续，不会重复累加。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+public interface KlineSpillLog {
+
+    /**
+     * 追加K线（持久化到本地磁盘后返回）
+     *
+     * @param klines K线成交增量
+     */
+    void append(Collection<Kline> klines);
+
+    /**
+     * 是否有待回放的K线
+     */
+    boolean hasBacklog();
+
+    /**
+     * 回放当前积压的K线
+     *
+     * 从 replayer 给出的回放位置开始分批读取；replayer 抛出异常时停止，已提交的批次不再回放，
+     * 其余部分下次继续。整段回放完成后删除本地文件。
+     * 回放期间新追加的K线留到下一次。
+     *
+     * @param replayer 回放逻辑（按追加顺序）
+     * @return 本次回放的K线数量
+     */
+    int drain(Replayer replayer);
+
+    /**
+     * 分批回放逻辑
+     */
+    interface Replayer {
+
+        /**
+         * 段已提交的回放位置
+         *
+         * @param segment 段名
+         * @return 已回放到的字节偏移，没有记录时为0
+         */
+        long replayedOffset(String segment);
+
+        /**
+         * 回放一批K线，并在同一事务内把段的回放位置从 fromOffset 推进到 toOffset
+         *
+         * @param segment 段名
+         * @param fromOffset 本批起始偏移
+         * @param toOffset 本批结束偏移（下一批的起始偏移）
+         * @param klines 本批K线
+         */
+        void replay(String segment, long fromOffset, long toOffset, List<Kline> klines);
+
+        /**
+         * 段已回放完成并删除，清理回放位置
+         *
+         * @param segment 段名
+         */
+        void complete(String segment);
+    }
+}
@@ -1,20 +1,22 @@
 package com.hkd.market.application.service;
 
 import com.hkd.market.api.enums.KlineInterval;
+import com.hkd.market.api.event.TradeExecutedEvent;
+import com.hkd.market.application.cache.KlineCacheBatch;
+import com.hkd.market.application.cache.KlineHotCache;
+import com.hkd.market.application.event.KlineUpdatedEvent;
 import com.hkd.market.domain.entity.Kline;
-import com.hkd.market.domain.repository.KlineRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.TimeUnit;
 
 /**
  * K线聚合服务
@@ -22,8 +24,14 @@ import java.util.concurrent.TimeUnit;
  * 核心功能：
  * 1. 消费成交数据并聚合到各个周期的K线
  * 2. 实时更新K线OHLCV数据
- * 3. Redis缓存热数据
- * 4. PostgreSQL持久化
+ * 3. Redis缓存热数据（一笔或一批成交的所有K线更新合并后一次管道写入）
+ * 4. PostgreSQL持久化（KlinePersistenceStage，一个事务写入本次更新的全部K线）
+ * 5. 发布 KlineUpdatedEvent，由WebSocket模块推送给订阅者
+ *
+ * 降级：
+ * - Redis熔断打开时跳过缓存读写，当前K线取自进程内 OpenKlineRegistry
+ * - 数据库熔断打开时不再查询数据库，持久化阶段把K线溢写到本地文件，恢复后自动回放
+ * - 同一根K线的多个来源（Redis、进程内状态）以成交笔数多者为准，避免恢复后读到过期缓存
  *
  * @author HKD Development Team
  * @version 1.0.0
@@ -33,8 +41,10 @@ import java.util.concurrent.TimeUnit;
 @RequiredArgsConstructor
 public class KlineAggregationService {
 
-    private final KlineRepository klineRepository;
-    private final RedisTemplate<String, Object> redisTemplate;
+    private final KlinePersistenceStage klinePersistenceStage;
+    private final KlineHotCache klineHotCache;
+    private final OpenKlineRegistry openKlineRegistry;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * 聚合成交数据到各个周期的K线
@@ -44,24 +54,66 @@ public class KlineAggregationService {
      * @param quantity 成交数量
      * @param tradeTime 成交时间
      */
-    @Transactional
     public void aggregateTrade(String symbol, BigDecimal price, BigDecimal quantity, Instant tradeTime) {
         log.debug("Aggregating trade: symbol={}, price={}, quantity={}, time={}",
                 symbol, price, quantity, tradeTime);
 
-        // 聚合到所有9种周期
+        KlineCacheBatch cacheBatch = new KlineCacheBatch();
+        aggregateToAllIntervals(symbol, price, quantity, tradeTime, cacheBatch);
+        publish(cacheBatch);
+
+        log.info("Trade aggregated successfully: symbol={}, price={}, quantity={}",
+                symbol, price, quantity);
+    }
+
+    /**
+     * 批量聚合成交数据
+     *
+     * 批次内落在同一根K线上的多次更新只写一次数据库和Redis，所有K线一个事务、一次管道提交
+     *
+     * @param trades 成交列表（按成交时间顺序）
+     */
+    public void aggregateTrades(List<TradeExecutedEvent.TradePayload> trades) {
+        KlineCacheBatch cacheBatch = new KlineCacheBatch();
+        for (TradeExecutedEvent.TradePayload trade : trades) {
+            aggregateToAllIntervals(trade.getSymbol(), new BigDecimal(trade.getPrice()),
+                    new BigDecimal(trade.getQuantity()), trade.getTimestamp(), cacheBatch);
+        }
+        publish(cacheBatch);
+
+        log.info("Trades aggregated successfully: trades={}, cachedKlines={}", trades.size(), cacheBatch.size());
+    }
+
+    /**
+     * 持久化本次更新的K线，登记最新状态后写入Redis，并通知推送
+     */
+    private void publish(KlineCacheBatch cacheBatch) {
+        List<Kline> klines = cacheBatch.klines();
+        klinePersistenceStage.persist(klines, cacheBatch.deltas());
+        klines.forEach(openKlineRegistry::update);
+        klineHotCache.write(cacheBatch);
+        eventPublisher.publishEvent(new KlineUpdatedEvent(klines));
+    }
+
+    /**
+     * 聚合一笔成交到所有9种周期
+     */
+    private void aggregateToAllIntervals(
+            String symbol,
+            BigDecimal price,
+            BigDecimal quantity,
+            Instant tradeTime,
+            KlineCacheBatch cacheBatch
+    ) {
         for (KlineInterval interval : KlineInterval.values()) {
             try {
-                aggregateToInterval(symbol, interval, price, quantity, tradeTime);
+                aggregateToInterval(symbol, interval, price, quantity, tradeTime, cacheBatch);
             } catch (Exception e) {
                 log.error("Failed to aggregate trade to interval {}: symbol={}, price={}, quantity={}",
                         interval, symbol, price, quantity, e);
                 // 不抛出异常，继续处理其他周期
             }
         }
-
-        log.info("Trade aggregated successfully: symbol={}, price={}, quantity={}",
-                symbol, price, quantity);
     }
 
     /**
@@ -72,24 +124,30 @@ public class KlineAggregationService {
      * @param price 成交价格
      * @param quantity 成交数量
      * @param tradeTime 成交时间
+     * @param cacheBatch 待写入的缓存批次
      */
     private void aggregateToInterval(
             String symbol,
             KlineInterval interval,
             BigDecimal price,
             BigDecimal quantity,
-            Instant tradeTime
+            Instant tradeTime,
+            KlineCacheBatch cacheBatch
     ) {
         // 1. 计算K线的开始时间（对齐到周期边界）
         long openTime = alignToInterval(tradeTime, interval);
 
-        // 2. 尝试从Redis获取当前K线（热数据）
+        // 2. 优先取本批次内尚未提交的K线，再从Redis（热数据）和进程内状态中取成交笔数多的一份
+        //    （复制一份，已登记的实例不再修改）
         String cacheKey = buildCacheKey(symbol, interval.getCode(), openTime);
-        Kline currentKline = (Kline) redisTemplate.opsForValue().get(cacheKey);
+        Kline pendingKline = cacheBatch.get(cacheKey);
+        Kline currentKline = pendingKline != null
+                ? pendingKline.toBuilder().build()
+                : newer(klineHotCache.get(cacheKey), registeredKline(symbol, interval.getCode(), openTime));
 
         // 3. 如果Redis没有，从数据库查询
         if (currentKline == null) {
-            Optional<Kline> klineOpt = klineRepository.findBySymbolAndIntervalAndOpenTime(
+            Optional<Kline> klineOpt = klinePersistenceStage.findExisting(
                     symbol, interval.getCode(), openTime
             );
 
@@ -104,18 +162,44 @@ public class KlineAggregationService {
             }
         }
 
-        // 5. 更新K线OHLCV数据
+        // 5. 更新K线OHLCV数据，同时累计本批次的成交增量（写入冲突时按增量合并，不丢成交）
         updateKlineOHLCV(currentKline, price, quantity);
+        Kline delta = cacheBatch.getDelta(cacheKey);
+        if (delta == null) {
+            delta = createNewKline(symbol, interval, openTime, price, quantity, tradeTime);
+        }
+        updateKlineOHLCV(delta, price, quantity);
 
-        // 6. 保存到数据库
-        Kline savedKline = klineRepository.save(currentKline);
-
-        // 7. 更新Redis缓存（TTL = 2 * 周期时间）
+        // 6. 加入批次（Redis TTL = 2 * 周期时间），聚合结束后统一持久化和写入缓存
         long ttlSeconds = interval.getSeconds() * 2;
-        redisTemplate.opsForValue().set(cacheKey, savedKline, ttlSeconds, TimeUnit.SECONDS);
+        cacheBatch.put(cacheKey, currentKline, delta, ttlSeconds);
+
+        log.debug("Kline updated: symbol={}, interval={}, openTime={}, close={}",
+                symbol, interval.getCode(), Instant.ofEpochSecond(openTime), currentKline.getClose());
+    }
+
+    /**
+     * 进程内登记的同一根K线（副本）
+     */
+    private Kline registeredKline(String symbol, String interval, long openTime) {
+        Kline registered = openKlineRegistry.get(symbol, interval);
+        if (registered == null || registered.getOpenTime() != openTime) {
+            return null;
+        }
+        return registered.toBuilder().build();
+    }
 
-        log.debug("Kline updated and cached: symbol={}, interval={}, openTime={}, close={}",
-                symbol, interval.getCode(), Instant.ofEpochSecond(openTime), savedKline.getClose());
+    /**
+     * 同一根K线的两个版本中取成交笔数多的一个
+     */
+    private Kline newer(Kline cached, Kline registered) {
+        if (cached == null) {
+            return registered;
+        }
+        if (registered == null) {
+            return cached;
+        }
+        return registered.getTradeCount() > cached.getTradeCount() ? registered : cached;
     }
 
     /**
@@ -286,17 +370,15 @@ public class KlineAggregationService {
      * @param openTime 开盘时间
      */
     public void markKlineAsCompleted(String symbol, String interval, long openTime) {
-        Optional<Kline> klineOpt = klineRepository.findBySymbolAndIntervalAndOpenTime(
-                symbol, interval, openTime
-        );
+        Optional<Kline> klineOpt = klinePersistenceStage.findExisting(symbol, interval, openTime);
 
         klineOpt.ifPresent(kline -> {
             kline.setCompleted(true);
-            klineRepository.save(kline);
 
-            // 更新Redis缓存
-            String cacheKey = buildCacheKey(symbol, interval, openTime);
-            redisTemplate.opsForValue().set(cacheKey, kline, 3600, TimeUnit.SECONDS);
+            // 持久化并更新Redis缓存（含最新K线窗口）
+            KlineCacheBatch cacheBatch = new KlineCacheBatch();
+            cacheBatch.put(buildCacheKey(symbol, interval, openTime), kline, 3600);
+            publish(cacheBatch);
 
             log.info("Kline marked as completed: symbol={}, interval={}, openTime={}",
                     symbol, interval, Instant.ofEpochSecond(openTime));
@@ -0,0 +1,328 @@
+package com.hkd.market.application.service;
+
+import com.hkd.market.application.resilience.CircuitBreaker;
+import com.hkd.market.application.resilience.KlineSpillCheckpointStore;
+import com.hkd.market.application.resilience.KlineSpillLog;
+import com.hkd.market.domain.entity.Kline;
+import com.hkd.market.domain.repository.KlineRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * K线持久化阶段
+ *
+ * 一笔（或一批）成交聚合出的所有K线在一个事务内写入PostgreSQL，外层熔断器保护：
+ * - 熔断打开、或溢写日志仍有积压时，K线本批次新增的成交（增量）追加到本地溢写日志（KlineSpillLog），聚合不受影响
+ * - 定时回放积压：同一K线的增量按顺序累加，通过 KlineRepository.mergeTrades 合并进数据库中的K线；
+ *   积压分批回放，每批连同回放位置（KlineSpillCheckpointStore）在一个事务内提交，
+ *   数据库再次不可用时整批回滚；已提交的批次不会再次回放，成交不会重复累加
+ * - 非连接类错误（例如唯一约束冲突）不触发熔断，逐根重试，冲突时同样按增量合并，新成交不会被丢弃
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+public class KlinePersistenceStage {
+
+    private final KlineRepository klineRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final KlineSpillLog spillLog;
+    private final KlineSpillCheckpointStore checkpointStore;
+    private final CircuitBreaker breaker;
+
+    public KlinePersistenceStage(KlineRepository klineRepository,
+                                 TransactionTemplate transactionTemplate,
+                                 KlineSpillLog spillLog,
+                                 KlineSpillCheckpointStore checkpointStore,
+                                 @Qualifier("databaseCircuitBreaker") CircuitBreaker breaker) {
+        this.klineRepository = klineRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.spillLog = spillLog;
+        this.checkpointStore = checkpointStore;
+        this.breaker = breaker;
+    }
+
+    /**
+     * 查询已持久化的K线
+     *
+     * 在读写事务内查询，读写分离时固定读主库：聚合以查到的状态为基础累加，副本延迟会导致覆盖更新的版本。
+     * 熔断未关闭时不访问数据库，直接返回空
+     */
+    public Optional<Kline> findExisting(String symbol, String interval, long openTime) {
+        if (!breaker.isClosed()) {
+            return Optional.empty();
+        }
+        try {
+            return transactionTemplate.execute(status ->
+                    klineRepository.findBySymbolAndIntervalAndOpenTime(symbol, interval, openTime));
+        } catch (RuntimeException e) {
+            if (!isOutage(e)) {
+                throw e;
+            }
+            breaker.recordFailure();
+            log.warn("Database unavailable while loading kline: symbol={}, interval={}, openTime={}",
+                    symbol, interval, openTime, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 持久化K线
+     *
+     * 新插入的K线会回填主键；写入被回滚或溢写时保持主键为空。
+     * 与数据库中的版本冲突时按增量合并，合并后的状态写回K线
+     *
+     * @param klines 本次聚合更新的K线
+     * @param deltas 每根K线本次新增的成交，与 klines 一一对应，没有新增成交的位置为null
+     */
+    public void persist(List<Kline> klines, List<Kline> deltas) {
+        if (klines.isEmpty()) {
+            return;
+        }
+        if (spillLog.hasBacklog() || !breaker.allowRequest()) {
+            spill(klines, deltas);
+            return;
+        }
+
+        List<Kline> inserted = klines.stream().filter(kline -> kline.getId() == null).toList();
+        long start = System.currentTimeMillis();
+        try {
+            transactionTemplate.executeWithoutResult(status -> klines.forEach(klineRepository::save));
+            breaker.record(System.currentTimeMillis() - start, false);
+        } catch (RuntimeException e) {
+            // 事务已回滚，插入时回填的主键无效
+            inserted.forEach(kline -> kline.setId(null));
+
+            if (isOutage(e)) {
+                breaker.recordFailure();
+                log.warn("Database unavailable, spilling klines: count={}", klines.size(), e);
+                spill(klines, deltas);
+            } else {
+                breaker.recordSuccess();
+                log.warn("Kline batch write failed, retrying individually: count={}", klines.size(), e);
+                for (int i = 0; i < klines.size(); i++) {
+                    persistIndividually(klines.get(i), deltaOf(klines.get(i), deltas.get(i)));
+                }
+            }
+        }
+    }
+
+    /**
+     * 回放溢写日志
+     */
+    @Scheduled(fixedDelayString = "${hkd.market.kline.degradation.spill.replay-interval:5000}")
+    public void replay() {
+        if (!spillLog.hasBacklog() || !breaker.allowRequest()) {
+            return;
+        }
+
+        try {
+            int replayed = spillLog.drain(new CheckpointedReplayer());
+            breaker.recordSuccess();
+            if (replayed > 0) {
+                log.info("Replayed spilled klines: count={}", replayed);
+            }
+        } catch (RuntimeException e) {
+            if (isOutage(e)) {
+                breaker.recordFailure();
+            } else {
+                breaker.recordSuccess();
+            }
+            log.warn("Failed to replay spilled klines, will retry", e);
+        }
+    }
+
+    /**
+     * 回放一批溢写的增量
+     *
+     * @param segment 溢写段
+     * @param fromOffset 本批起始偏移
+     * @param toOffset 本批结束偏移
+     * @param spilled 本批增量
+     */
+    private void replayBatch(String segment, long fromOffset, long toOffset, List<Kline> spilled) {
+        // 同一K线的增量按溢写顺序累加
+        Map<String, Kline> combined = new LinkedHashMap<>();
+        for (Kline delta : spilled) {
+            combined.merge(delta.getSymbol() + ":" + delta.getInterval() + ":" + delta.getOpenTime(), delta,
+                    KlinePersistenceStage::combine);
+        }
+
+        // 整批一个事务，每根K线一个保存点：数据本身无法写入的K线单独回滚，数据库不可用时整批回滚
+        TransactionTemplate savepoint = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        savepoint.setPropagationBehavior(TransactionDefinition.PROPAGATION_NESTED);
+        transactionTemplate.executeWithoutResult(status -> {
+            // 回放位置与K线在同一事务内推进；位置不一致说明本批已由其他回放提交，整批回滚
+            if (!checkpointStore.advance(segment, fromOffset, toOffset)) {
+                throw new IllegalStateException("Spill segment " + segment + " is no longer at offset " + fromOffset);
+            }
+            for (Kline delta : combined.values()) {
+                try {
+                    savepoint.executeWithoutResult(nested -> klineRepository.mergeTrades(delta, delta));
+                } catch (RuntimeException e) {
+                    if (isOutage(e)) {
+                        throw e;
+                    }
+                    // 重试也不会成功，丢弃并记录
+                    log.error("Dropping spilled kline that cannot be persisted: {}", delta, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * 带回放位置的溢写回放
+     */
+    private final class CheckpointedReplayer implements KlineSpillLog.Replayer {
+
+        @Override
+        public long replayedOffset(String segment) {
+            return checkpointStore.find(segment);
+        }
+
+        @Override
+        public void replay(String segment, long fromOffset, long toOffset, List<Kline> klines) {
+            replayBatch(segment, fromOffset, toOffset, klines);
+        }
+
+        @Override
+        public void complete(String segment) {
+            checkpointStore.remove(segment);
+        }
+    }
+
+    private void persistIndividually(Kline kline, Kline delta) {
+        Long originalId = kline.getId();
+        try {
+            transactionTemplate.executeWithoutResult(status -> klineRepository.save(kline));
+        } catch (DuplicateKeyException e) {
+            // 数据库中已有同一根K线（例如熔断期间新建的K线），把本次成交合并进去
+            kline.setId(originalId);
+            try {
+                Kline merged = transactionTemplate.execute(status -> klineRepository.mergeTrades(kline, delta));
+                applyMerged(kline, merged);
+                log.warn("Merged conflicting kline: symbol={}, interval={}, openTime={}, tradeCount={}",
+                        kline.getSymbol(), kline.getInterval(), kline.getOpenTime(), kline.getTradeCount());
+            } catch (RuntimeException retryError) {
+                log.error("Failed to persist kline: {}", kline, retryError);
+            }
+        } catch (RuntimeException e) {
+            kline.setId(originalId);
+            log.error("Failed to persist kline: {}", kline, e);
+        }
+    }
+
+    /**
+     * 合并后的数据库状态写回K线，随后登记和写入Redis的是合并结果
+     */
+    private static void applyMerged(Kline kline, Kline merged) {
+        kline.setId(merged.getId());
+        kline.setOpen(merged.getOpen());
+        kline.setHigh(merged.getHigh());
+        kline.setLow(merged.getLow());
+        kline.setClose(merged.getClose());
+        kline.setVolume(merged.getVolume());
+        kline.setAmount(merged.getAmount());
+        kline.setTradeCount(merged.getTradeCount());
+        kline.setCompleted(merged.getCompleted());
+        kline.setCreatedAt(merged.getCreatedAt());
+        kline.setUpdatedAt(merged.getUpdatedAt());
+    }
+
+    private void spill(List<Kline> klines, List<Kline> deltas) {
+        // 溢写的是增量，回放时合并进数据库中的K线，主键由数据库对齐
+        List<Kline> snapshot = new ArrayList<>(klines.size());
+        for (int i = 0; i < klines.size(); i++) {
+            Kline delta = deltaOf(klines.get(i), deltas.get(i));
+            snapshot.add(delta.toBuilder().id(null).build());
+        }
+        spillLog.append(snapshot);
+    }
+
+    /**
+     * 没有新增成交（例如只标记完成）时的增量：成交量为0，价格为空，只携带完成标记
+     */
+    private static Kline deltaOf(Kline kline, Kline delta) {
+        if (delta != null) {
+            return delta;
+        }
+        return kline.toBuilder()
+                .id(null)
+                .open(null)
+                .high(null)
+                .low(null)
+                .close(null)
+                .volume(BigDecimal.ZERO)
+                .amount(BigDecimal.ZERO)
+                .tradeCount(0)
+                .build();
+    }
+
+    /**
+     * 累加同一根K线先后两段增量
+     */
+    private static Kline combine(Kline earlier, Kline later) {
+        Kline combined = earlier.toBuilder().build();
+        if (combined.getOpen() == null) {
+            combined.setOpen(later.getOpen());
+        }
+        if (later.getHigh() != null) {
+            combined.setHigh(combined.getHigh() == null ? later.getHigh() : combined.getHigh().max(later.getHigh()));
+        }
+        if (later.getLow() != null) {
+            combined.setLow(combined.getLow() == null ? later.getLow() : combined.getLow().min(later.getLow()));
+        }
+        if (later.getClose() != null) {
+            combined.setClose(later.getClose());
+        }
+        combined.setVolume(orZero(combined.getVolume()).add(orZero(later.getVolume())));
+        combined.setAmount(orZero(combined.getAmount()).add(orZero(later.getAmount())));
+        combined.setTradeCount(tradeCount(combined) + tradeCount(later));
+        combined.setCompleted(Boolean.TRUE.equals(combined.getCompleted()) || Boolean.TRUE.equals(later.getCompleted()));
+        return combined;
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO : value;
+    }
+
+    private static int tradeCount(Kline kline) {
+        return kline.getTradeCount() == null ? 0 : kline.getTradeCount();
+    }
+
+    /**
+     * 是否为连接/可用性类错误（触发熔断和溢写）
+     */
+    static boolean isOutage(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof TransientDataAccessException
+                    || t instanceof DataAccessResourceFailureException
+                    || t instanceof RecoverableDataAccessException
+                    || t instanceof CannotCreateTransactionException
+                    || t instanceof SQLTransientException
+                    || t instanceof SQLRecoverableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,71 @@
+package com.hkd.market.application.service;
+
+import com.hkd.market.domain.entity.Kline;
+import com.hkd.market.domain.repository.KlineRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * K线查询服务
+ *
+ * 面向行情页面的读取入口，优先使用进程内状态，缺失部分再查询Repository
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class KlineQueryService {
+
+    private final KlineRepository klineRepository;
+    private final OpenKlineRegistry openKlineRegistry;
+
+    /**
+     * 批量查询多个交易对的最新K线
+     *
+     * 全市场Ticker页面一次需要几百个交易对，逐个查询会产生几百次数据库往返：
+     * 1. 本实例正在聚合的交易对直接从 OpenKlineRegistry 读取
+     * 2. 其余交易对合并为一次批量查询
+     *
+     * @param symbols 交易对集合
+     * @param interval K线周期
+     * @return 交易对 -> 最新K线（按入参顺序，无K线的交易对不包含在结果中）
+     */
+    public Map<String, Kline> findLatestKlines(Collection<String> symbols, String interval) {
+        Map<String, Kline> inMemory = openKlineRegistry.getAll(symbols, interval);
+
+        List<String> missing = new ArrayList<>();
+        for (String symbol : symbols) {
+            if (!inMemory.containsKey(symbol)) {
+                missing.add(symbol);
+            }
+        }
+
+        Map<String, Kline> loaded = new LinkedHashMap<>();
+        if (!missing.isEmpty()) {
+            for (Kline kline : klineRepository.findLatestKlinesBySymbols(missing, interval)) {
+                loaded.put(kline.getSymbol(), kline);
+            }
+        }
+
+        log.debug("Batch latest klines: interval={}, requested={}, inMemory={}, loaded={}",
+                interval, symbols.size(), inMemory.size(), loaded.size());
+
+        Map<String, Kline> result = new LinkedHashMap<>();
+        for (String symbol : symbols) {
+            Kline kline = inMemory.containsKey(symbol) ? inMemory.get(symbol) : loaded.get(symbol);
+            if (kline != null) {
+                result.put(symbol, kline);
+            }
+        }
+        return result;
+    }
+}
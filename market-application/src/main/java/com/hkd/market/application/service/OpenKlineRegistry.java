@@ -0,0 +1,78 @@
+package com.hkd.market.application.service;
+
+import com.hkd.market.domain.entity.Kline;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 进程内最新K线状态
+ *
+ * 记录本实例聚合过的每个 (interval, symbol) 的最新一根K线（通常是当前未收盘K线），
+ * 由 KlineAggregationService 在每次更新后写入。
+ * 只覆盖本实例消费到的交易对，查询方需要对缺失的交易对回退到Repository。
+ *
+ * 注意：存入的K线实例写入后不再修改，读取方不得修改返回的实例。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Component
+public class OpenKlineRegistry {
+
+    /**
+     * Key: K线周期 -> 交易对
+     * Value: 最新K线
+     */
+    private final Map<String, Map<String, Kline>> latestKlines = new ConcurrentHashMap<>();
+
+    /**
+     * 记录K线，只接受开盘时间不早于当前记录的版本
+     *
+     * @param kline K线
+     */
+    public void update(Kline kline) {
+        latestKlines
+                .computeIfAbsent(kline.getInterval(), k -> new ConcurrentHashMap<>())
+                .merge(kline.getSymbol(), kline,
+                        (current, candidate) -> candidate.getOpenTime() >= current.getOpenTime() ? candidate : current);
+    }
+
+    /**
+     * 获取最新K线
+     *
+     * @param symbol 交易对
+     * @param interval K线周期
+     * @return 最新K线，本实例未聚合过返回null
+     */
+    public Kline get(String symbol, String interval) {
+        Map<String, Kline> bySymbol = latestKlines.get(interval);
+        return bySymbol == null ? null : bySymbol.get(symbol);
+    }
+
+    /**
+     * 批量获取最新K线
+     *
+     * @param symbols 交易对集合
+     * @param interval K线周期
+     * @return 交易对 -> 最新K线，只包含本实例有状态的交易对
+     */
+    public Map<String, Kline> getAll(Collection<String> symbols, String interval) {
+        Map<String, Kline> result = new LinkedHashMap<>();
+        Map<String, Kline> bySymbol = latestKlines.get(interval);
+        if (bySymbol == null) {
+            return result;
+        }
+
+        for (String symbol : symbols) {
+            Kline kline = bySymbol.get(symbol);
+            if (kline != null) {
+                result.put(symbol, kline);
+            }
+        }
+        return result;
+    }
+}
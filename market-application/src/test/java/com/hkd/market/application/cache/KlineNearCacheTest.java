@@ -0,0 +1,120 @@
+package com.hkd.market.application.cache;
+
+import com.hkd.market.domain.entity.Kline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * KlineNearCache 单元测试
+ *
+ * 测试重点：
+ * 1. 超过陈旧度上界的窗口不再返回
+ * 2. 更新的K线按开盘时间替换或插入，裁剪到窗口大小
+ * 3. 更新消息编解码
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@DisplayName("K线近端缓存测试")
+class KlineNearCacheTest {
+
+    private static final String SYMBOL = "BTC-USDT";
+    private static final String INTERVAL = "1m";
+
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private KlineNearCache nearCache;
+
+    @BeforeEach
+    void setUp() {
+        nearCache = new KlineNearCache(true, 1000, 100, 3, now::get);
+    }
+
+    @Test
+    @DisplayName("测试陈旧度上界")
+    void testMaxStaleness() {
+        nearCache.put(SYMBOL, INTERVAL, List.of(bar(120, "3"), bar(60, "2")));
+
+        now.addAndGet(1000);
+        assertEquals(2, nearCache.get(SYMBOL, INTERVAL).size());
+
+        // 应用更新不延长陈旧度期限
+        nearCache.apply(bar(120, "4"));
+        now.addAndGet(1);
+        assertNull(nearCache.get(SYMBOL, INTERVAL));
+    }
+
+    @Test
+    @DisplayName("测试替换、插入和裁剪")
+    void testApplyUpserts() {
+        nearCache.put(SYMBOL, INTERVAL, List.of(bar(120, "3"), bar(60, "2"), bar(0, "1")));
+
+        // 替换当前K线
+        nearCache.apply(bar(120, "3.5"));
+        List<Kline> window = nearCache.get(SYMBOL, INTERVAL);
+        assertEquals(3, window.size());
+        assertEquals(new BigDecimal("3.5"), window.get(0).getClose());
+
+        // 新K线插入头部，最旧的一根被裁剪
+        nearCache.apply(bar(180, "4"));
+        window = nearCache.get(SYMBOL, INTERVAL);
+        assertEquals(List.of(180L, 120L, 60L), window.stream().map(Kline::getOpenTime).toList());
+
+        // 未缓存的窗口不创建
+        nearCache.apply(Kline.builder().symbol("ETH-USDT").interval(INTERVAL).openTime(0L).build());
+        assertNull(nearCache.get("ETH-USDT", INTERVAL));
+    }
+
+    @Test
+    @DisplayName("测试更新消息编解码")
+    void testUpdateMessage() {
+        nearCache.put(SYMBOL, INTERVAL, List.of(bar(60, "2")));
+
+        byte[] message = KlineNearCache.encodeUpdates(List.of(bar(60, "2.5"), bar(120, "3")), SERIALIZER);
+        nearCache.onMessage(message, SERIALIZER);
+
+        List<Kline> window = nearCache.get(SYMBOL, INTERVAL);
+        assertEquals(List.of(120L, 60L), window.stream().map(Kline::getOpenTime).toList());
+        assertEquals(new BigDecimal("2.5"), window.get(1).getClose());
+    }
+
+    private static Kline bar(long openTime, String close) {
+        return Kline.builder()
+                .symbol(SYMBOL)
+                .interval(INTERVAL)
+                .openTime(openTime)
+                .close(new BigDecimal(close))
+                .build();
+    }
+
+    /**
+     * 测试用序列化：symbol|interval|openTime|close
+     */
+    private static final RedisSerializer<Kline> SERIALIZER = new RedisSerializer<>() {
+        @Override
+        public byte[] serialize(Kline kline) {
+            return String.join("|", kline.getSymbol(), kline.getInterval(),
+                    String.valueOf(kline.getOpenTime()), kline.getClose().toPlainString())
+                    .getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public Kline deserialize(byte[] bytes) {
+            String[] parts = new String(bytes, StandardCharsets.UTF_8).split("\\|");
+            return Kline.builder()
+                    .symbol(parts[0])
+                    .interval(parts[1])
+                    .openTime(Long.parseLong(parts[2]))
+                    .close(new BigDecimal(parts[3]))
+                    .build();
+        }
+    };
+}
@@ -0,0 +1,99 @@
+package com.hkd.market.application.resilience;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CircuitBreaker 单元测试
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@DisplayName("熔断器测试")
+class CircuitBreakerTest {
+
+    private AtomicLong now;
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        now = new AtomicLong(0);
+        breaker = new CircuitBreaker("test", 3, 100, 1000, now::get);
+    }
+
+    @Test
+    @DisplayName("连续失败达到阈值后熔断")
+    void testOpensAfterConsecutiveFailures() {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertTrue(breaker.allowRequest());
+
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertFalse(breaker.isClosed());
+    }
+
+    @Test
+    @DisplayName("成功调用重置连续失败计数")
+    void testSuccessResetsFailures() {
+        breaker.recordFailure();
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    @DisplayName("慢调用按失败计入")
+    void testSlowCallCountsAsFailure() {
+        breaker.record(150, false);
+        breaker.record(150, false);
+        breaker.record(150, false);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    @DisplayName("熔断时间结束后只放行一次试探，成功则恢复")
+    void testHalfOpenTrialSuccess() {
+        openBreaker();
+
+        now.set(1000);
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        breaker.record(10, false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    @DisplayName("试探失败重新熔断")
+    void testHalfOpenTrialFailure() {
+        openBreaker();
+
+        now.set(1000);
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        now.set(1500);
+        assertFalse(breaker.allowRequest());
+        now.set(2000);
+        assertTrue(breaker.allowRequest());
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure();
+        }
+    }
+}
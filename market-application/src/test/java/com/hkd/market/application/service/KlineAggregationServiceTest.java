@@ -1,22 +1,37 @@
 package com.hkd.market.application.service;
 
 import com.hkd.market.api.enums.KlineInterval;
+import com.hkd.market.api.event.TradeExecutedEvent;
+import com.hkd.market.application.cache.KlineHotCache;
+import com.hkd.market.application.cache.KlineNearCache;
+import com.hkd.market.application.event.KlineUpdatedEvent;
+import com.hkd.market.application.resilience.CircuitBreaker;
+import com.hkd.market.application.resilience.KlineSpillCheckpointStore;
+import com.hkd.market.application.resilience.KlineSpillLog;
 import com.hkd.market.domain.entity.Kline;
 import com.hkd.market.domain.repository.KlineRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.mockito.ArgumentCaptor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.ZoneOffset;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
@@ -30,8 +45,8 @@ import static org.mockito.Mockito.*;
  * 测试重点：
  * 1. 时间对齐算法（alignToInterval）- 所有9种周期
  * 2. OHLCV更新逻辑
- * 3. Redis缓存机制
- * 4. 数据库持久化
+ * 3. Redis缓存机制（批次合并、管道写入）
+ * 4. 数据库持久化（批次合并）
  *
  * @author HKD Development Team
  * @version 1.0.0
@@ -44,18 +59,40 @@ class KlineAggregationServiceTest {
     private KlineRepository klineRepository;
 
     @Mock
-    private RedisTemplate<String, Object> redisTemplate;
+    private RedisTemplate<String, Kline> redisTemplate;
 
     @Mock
-    private ValueOperations<String, Object> valueOperations;
+    private ValueOperations<String, Kline> valueOperations;
+
+    @Spy
+    private OpenKlineRegistry openKlineRegistry = new OpenKlineRegistry();
+
+    @Mock
+    private ZSetOperations<String, Kline> pipelinedWindowOps;
+
+    @Mock
+    private KlineSpillLog klineSpillLog;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private SimpleMeterRegistry meterRegistry;
 
-    @InjectMocks
     private KlineAggregationService klineAggregationService;
 
     @BeforeEach
     void setUp() {
         // Mock RedisTemplate.opsForValue()
         when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+
+        meterRegistry = new SimpleMeterRegistry();
+        KlineHotCache klineHotCache = new KlineHotCache(redisTemplate, new KlineNearCache(false, 1000, 100, 100),
+                new CircuitBreaker("redis", 5, 1000, 5000), meterRegistry, 100);
+        KlinePersistenceStage persistenceStage = new KlinePersistenceStage(klineRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), klineSpillLog,
+                mock(KlineSpillCheckpointStore.class), new CircuitBreaker("database", 3, 2000, 10000));
+        klineAggregationService = new KlineAggregationService(persistenceStage, klineHotCache, openKlineRegistry,
+                eventPublisher);
     }
 
     @Test
@@ -324,13 +361,63 @@ class KlineAggregationServiceTest {
 
         klineAggregationService.aggregateTrade(symbol, price, quantity, timestamp);
 
-        // 验证Redis缓存被调用 - 每个周期一次
-        verify(valueOperations, times(9)).set(
+        // 验证9个周期的写入在一次管道中提交，每个周期一次SET
+        ValueOperations<String, Kline> pipelinedOps = executePipelinedCallback();
+        verify(pipelinedOps, times(9)).set(
                 anyString(),
                 any(Kline.class),
                 anyLong(),
                 eq(TimeUnit.SECONDS)
         );
+        verify(valueOperations, never()).set(anyString(), any(), anyLong(), any(TimeUnit.class));
+
+        // 9次GET + 1次管道
+        assertEquals(9.0, meterRegistry.get("market.redis.round.trips").tag("operation", "get").counter().count());
+        assertEquals(1.0, meterRegistry.get("market.redis.round.trips").tag("operation", "pipeline").counter().count());
+    }
+
+    @Test
+    @DisplayName("测试批量聚合 - 同一K线的多次更新合并为一次写入")
+    void testAggregateTradesCoalescesCacheWrites() {
+        Instant timestamp = Instant.parse("2024-11-17T10:30:00Z");
+
+        when(valueOperations.get(anyString())).thenReturn(null);
+        when(klineRepository.findBySymbolAndIntervalAndOpenTime(anyString(), anyString(), anyLong()))
+                .thenReturn(Optional.empty());
+        when(klineRepository.save(any(Kline.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        klineAggregationService.aggregateTrades(List.of(
+                trade("BTC-USDT", "50000", "0.1", timestamp),
+                trade("BTC-USDT", "51000", "0.2", timestamp.plusSeconds(10))
+        ));
+
+        // 第二笔成交从批次中取K线，不再访问Redis
+        verify(valueOperations, times(9)).get(anyString());
+        verify(klineRepository, times(9)).save(any(Kline.class));
+
+        // 每个周期只写入一次，且为合并后的最终状态
+        ArgumentCaptor<Kline> cachedCaptor = ArgumentCaptor.forClass(Kline.class);
+        ValueOperations<String, Kline> pipelinedOps = executePipelinedCallback();
+        verify(pipelinedOps, times(9)).set(anyString(), cachedCaptor.capture(), anyLong(), eq(TimeUnit.SECONDS));
+        Kline min1Kline = cachedCaptor.getAllValues().stream()
+                .filter(k -> k.getInterval().equals("1m"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(2, min1Kline.getTradeCount());
+        assertEquals(new BigDecimal("51000"), min1Kline.getHigh());
+        assertEquals(new BigDecimal("0.3"), min1Kline.getVolume());
+
+        // 最新K线窗口：替换同一开盘时间的旧版本并裁剪到100根
+        double score = timestamp.getEpochSecond();
+        verify(pipelinedWindowOps).removeRangeByScore("market:kline:window:BTC-USDT:1m", score, score);
+        verify(pipelinedWindowOps).add("market:kline:window:BTC-USDT:1m", min1Kline, score);
+        verify(pipelinedWindowOps, times(9)).removeRange(anyString(), eq(0L), eq(-101L));
+
+        // 一个批次发布一次更新事件，包含合并后的全部K线
+        ArgumentCaptor<KlineUpdatedEvent> eventCaptor = ArgumentCaptor.forClass(KlineUpdatedEvent.class);
+        verify(eventPublisher).publishEvent(eventCaptor.capture());
+        assertEquals(9, eventCaptor.getValue().getKlines().size());
+        assertTrue(eventCaptor.getValue().getKlines().contains(min1Kline));
     }
 
     @Test
@@ -442,11 +529,37 @@ class KlineAggregationServiceTest {
         assertTrue(klineCaptor.getValue().getCompleted());
 
         // 验证Redis缓存被更新
-        verify(valueOperations).set(
+        ValueOperations<String, Kline> pipelinedOps = executePipelinedCallback();
+        verify(pipelinedOps).set(
                 anyString(),
                 any(Kline.class),
                 eq(3600L),
                 eq(TimeUnit.SECONDS)
         );
     }
+
+    /**
+     * 取出提交给 executePipelined 的回调并在模拟的管道上执行
+     */
+    @SuppressWarnings("unchecked")
+    private ValueOperations<String, Kline> executePipelinedCallback() {
+        ArgumentCaptor<SessionCallback<Object>> callbackCaptor = ArgumentCaptor.forClass(SessionCallback.class);
+        verify(redisTemplate).executePipelined(callbackCaptor.capture());
+
+        RedisOperations<String, Kline> operations = mock(RedisOperations.class);
+        ValueOperations<String, Kline> pipelinedOps = mock(ValueOperations.class);
+        when(operations.opsForValue()).thenReturn(pipelinedOps);
+        when(operations.opsForZSet()).thenReturn(pipelinedWindowOps);
+        callbackCaptor.getValue().execute(operations);
+        return pipelinedOps;
+    }
+
+    private TradeExecutedEvent.TradePayload trade(String symbol, String price, String quantity, Instant timestamp) {
+        return TradeExecutedEvent.TradePayload.builder()
+                .symbol(symbol)
+                .price(price)
+                .quantity(quantity)
+                .timestamp(timestamp)
+                .build();
+    }
 }
@@ -0,0 +1,204 @@
+package com.hkd.market.application.service;
+
+import com.hkd.market.application.resilience.CircuitBreaker;
+import com.hkd.market.application.resilience.KlineSpillCheckpointStore;
+import com.hkd.market.application.resilience.KlineSpillLog;
+import com.hkd.market.domain.entity.Kline;
+import com.hkd.market.domain.repository.KlineRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * KlinePersistenceStage 单元测试
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("K线持久化阶段测试")
+class KlinePersistenceStageTest {
+
+    @Mock
+    private KlineRepository klineRepository;
+
+    @Mock
+    private KlineSpillLog spillLog;
+
+    @Mock
+    private KlineSpillCheckpointStore checkpointStore;
+
+    private CircuitBreaker breaker;
+
+    private KlinePersistenceStage persistenceStage;
+
+    @BeforeEach
+    void setUp() {
+        breaker = new CircuitBreaker("database", 1, 2000, 60000);
+        persistenceStage = new KlinePersistenceStage(klineRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), spillLog, checkpointStore, breaker);
+    }
+
+    @Test
+    @DisplayName("数据库不可用时溢写并熔断")
+    void testSpillOnOutage() {
+        when(klineRepository.save(any(Kline.class)))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        Kline kline = kline(1000L, 3);
+        persistenceStage.persist(List.of(kline), List.of(kline(1000L, 1)));
+
+        verify(spillLog).append(argThat(klines -> klines.size() == 1));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertNull(kline.getId());
+
+        // 熔断期间不再访问数据库
+        persistenceStage.persist(List.of(kline(1060L, 1)), List.of(kline(1060L, 1)));
+        verify(klineRepository, times(1)).save(any(Kline.class));
+        verify(spillLog, times(2)).append(anyCollection());
+        assertTrue(persistenceStage.findExisting("BTC-USDT", "1m", 1000L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("有积压时新K线继续溢写，保证回放顺序")
+    void testSpillWhileBacklogExists() {
+        when(spillLog.hasBacklog()).thenReturn(true);
+
+        persistenceStage.persist(List.of(kline(1000L, 1)), List.of(kline(1000L, 1)));
+
+        verify(spillLog).append(anyCollection());
+        verify(klineRepository, never()).save(any(Kline.class));
+    }
+
+    @Test
+    @DisplayName("溢写的是本批次新增成交的增量")
+    @SuppressWarnings("unchecked")
+    void testSpillDeltas() {
+        when(spillLog.hasBacklog()).thenReturn(true);
+
+        Kline state = kline(1000L, 8);
+        state.setId(10L);
+        Kline completedOnly = kline(1060L, 3);
+        persistenceStage.persist(List.of(state, completedOnly), Arrays.asList(kline(1000L, 2), null));
+
+        ArgumentCaptor<Collection<Kline>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(spillLog).append(captor.capture());
+        List<Kline> spilled = List.copyOf(captor.getValue());
+        assertEquals(2, spilled.get(0).getTradeCount());
+        assertNull(spilled.get(0).getId());
+        assertEquals(0, spilled.get(1).getTradeCount());
+        assertNull(spilled.get(1).getHigh());
+    }
+
+    @Test
+    @DisplayName("回放时同一K线的增量累加后合并进数据库")
+    void testReplayMergesDeltas() {
+        when(spillLog.hasBacklog()).thenReturn(true);
+        Kline second = kline(1000L, 3);
+        second.setHigh(new BigDecimal("50100"));
+        second.setClose(new BigDecimal("50050"));
+        doAnswer(invocation -> {
+            KlineSpillLog.Replayer replayer = invocation.getArgument(0);
+            replayer.replay("segment", 0L, 300L, List.of(kline(1000L, 2), second, kline(1060L, 1)));
+            return 3;
+        }).when(spillLog).drain(any());
+        when(checkpointStore.advance("segment", 0L, 300L)).thenReturn(true);
+        when(klineRepository.mergeTrades(any(Kline.class), any(Kline.class)))
+                .thenAnswer(invocation -> invocation.getArgument(1));
+
+        persistenceStage.replay();
+
+        verify(checkpointStore).advance("segment", 0L, 300L);
+
+        ArgumentCaptor<Kline> captor = ArgumentCaptor.forClass(Kline.class);
+        verify(klineRepository, times(2)).mergeTrades(any(Kline.class), captor.capture());
+        Kline merged = captor.getAllValues().get(0);
+        assertEquals(1000L, merged.getOpenTime());
+        assertEquals(5, merged.getTradeCount());
+        assertEquals(0, new BigDecimal("0.2").compareTo(merged.getVolume()));
+        assertEquals(0, new BigDecimal("50100").compareTo(merged.getHigh()));
+        assertEquals(0, new BigDecimal("50050").compareTo(merged.getClose()));
+        assertEquals(1, captor.getAllValues().get(1).getTradeCount());
+        verify(klineRepository, never()).save(any(Kline.class));
+    }
+
+    @Test
+    @DisplayName("回放位置已被推进过的批次不再合并")
+    void testReplaySkipsCommittedBatch() {
+        when(spillLog.hasBacklog()).thenReturn(true);
+        doAnswer(invocation -> {
+            KlineSpillLog.Replayer replayer = invocation.getArgument(0);
+            replayer.replay("segment", 0L, 100L, List.of(kline(1000L, 2)));
+            return 1;
+        }).when(spillLog).drain(any());
+        when(checkpointStore.advance("segment", 0L, 100L)).thenReturn(false);
+
+        persistenceStage.replay();
+
+        verify(klineRepository, never()).mergeTrades(any(Kline.class), any(Kline.class));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    @DisplayName("写入冲突时把新成交合并进已持久化的K线，不丢弃")
+    void testDuplicateKeyMergesTrades() {
+        when(klineRepository.save(any(Kline.class))).thenThrow(new DuplicateKeyException("uk_klines"));
+        Kline persisted = kline(1000L, 7);
+        persisted.setId(10L);
+        when(klineRepository.mergeTrades(any(Kline.class), any(Kline.class))).thenReturn(persisted);
+
+        Kline kline = kline(1000L, 2);
+        Kline delta = kline(1000L, 1);
+        persistenceStage.persist(List.of(kline), List.of(delta));
+
+        verify(klineRepository).mergeTrades(kline, delta);
+        assertEquals(10L, kline.getId());
+        assertEquals(7, kline.getTradeCount());
+        verify(spillLog, never()).append(anyCollection());
+    }
+
+    @Test
+    @DisplayName("回放时数据库仍不可用则保留积压")
+    void testReplayOutageKeepsBacklog() {
+        when(spillLog.hasBacklog()).thenReturn(true);
+        when(spillLog.drain(any())).thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        persistenceStage.replay();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private Kline kline(long openTime, int tradeCount) {
+        return Kline.builder()
+                .symbol("BTC-USDT")
+                .interval("1m")
+                .openTime(openTime)
+                .closeTime(openTime + 60)
+                .open(new BigDecimal("50000"))
+                .high(new BigDecimal("50000"))
+                .low(new BigDecimal("50000"))
+                .close(new BigDecimal("50000"))
+                .volume(new BigDecimal("0.1"))
+                .amount(new BigDecimal("5000"))
+                .tradeCount(tradeCount)
+                .completed(false)
+                .build();
+    }
+}
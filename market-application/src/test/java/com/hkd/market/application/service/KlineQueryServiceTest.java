@@ -0,0 +1,94 @@
+package com.hkd.market.application.service;
+
+import com.hkd.market.domain.entity.Kline;
+import com.hkd.market.domain.repository.KlineRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * KlineQueryService 单元测试
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("K线查询服务测试")
+class KlineQueryServiceTest {
+
+    @Mock
+    private KlineRepository klineRepository;
+
+    @Spy
+    private OpenKlineRegistry openKlineRegistry = new OpenKlineRegistry();
+
+    @InjectMocks
+    private KlineQueryService klineQueryService;
+
+    @Test
+    @DisplayName("测试批量最新K线 - 内存命中的交易对不查库，其余合并为一次查询")
+    void testFindLatestKlines_MergesRegistryAndBatchQuery() {
+        openKlineRegistry.update(buildKline("BTC-USDT", 1700000040L));
+
+        when(klineRepository.findLatestKlinesBySymbols(eq(List.of("ETH-USDT", "SOL-USDT")), eq("1m")))
+                .thenReturn(List.of(buildKline("ETH-USDT", 1700000000L)));
+
+        Map<String, Kline> result = klineQueryService.findLatestKlines(
+                List.of("BTC-USDT", "ETH-USDT", "SOL-USDT"), "1m");
+
+        assertEquals(List.of("BTC-USDT", "ETH-USDT"), List.copyOf(result.keySet()));
+        assertEquals(1700000040L, result.get("BTC-USDT").getOpenTime());
+        verify(klineRepository, times(1)).findLatestKlinesBySymbols(anyCollection(), anyString());
+    }
+
+    @Test
+    @DisplayName("测试批量最新K线 - 全部内存命中时不查库")
+    void testFindLatestKlines_AllInMemory() {
+        openKlineRegistry.update(buildKline("BTC-USDT", 1700000040L));
+        openKlineRegistry.update(buildKline("ETH-USDT", 1700000040L));
+
+        Map<String, Kline> result = klineQueryService.findLatestKlines(List.of("BTC-USDT", "ETH-USDT"), "1m");
+
+        assertEquals(2, result.size());
+        verifyNoInteractions(klineRepository);
+    }
+
+    @Test
+    @DisplayName("测试内存状态不会被更早的K线覆盖")
+    void testRegistryKeepsLatestOpenTime() {
+        openKlineRegistry.update(buildKline("BTC-USDT", 1700000040L));
+        openKlineRegistry.update(buildKline("BTC-USDT", 1700000000L));
+
+        assertEquals(1700000040L, openKlineRegistry.get("BTC-USDT", "1m").getOpenTime());
+    }
+
+    private Kline buildKline(String symbol, long openTime) {
+        BigDecimal price = new BigDecimal("50000");
+        return Kline.builder()
+                .symbol(symbol)
+                .interval("1m")
+                .openTime(openTime)
+                .closeTime(openTime + 60)
+                .open(price)
+                .high(price)
+                .low(price)
+                .close(price)
+                .volume(BigDecimal.ONE)
+                .amount(price)
+                .tradeCount(1)
+                .completed(false)
+                .build();
+    }
+}
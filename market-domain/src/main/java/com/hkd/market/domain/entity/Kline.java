@@ -15,9 +15,10 @@ import java.time.LocalDateTime;
  * K线实体
  *
  * 存储在TimescaleDB中，按open_time分区
+ * 由KlineMapper直接映射（列名按下划线转驼峰），无独立持久化对象
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @TableName("klines")
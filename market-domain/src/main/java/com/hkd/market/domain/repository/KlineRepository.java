@@ -2,8 +2,10 @@ package com.hkd.market.domain.repository;
 
 import com.hkd.market.domain.entity.Kline;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * K线Repository接口
@@ -24,6 +26,18 @@ public interface KlineRepository {
      */
     Kline save(Kline kline);
 
+    /**
+     * 把一段新增成交合并进已持久化的K线（按 symbol + interval + openTime upsert）
+     *
+     * 不存在时按 kline 插入；已存在时成交量、成交额、成交笔数累加增量，最高/最低价取极值，
+     * 收盘价取增量的收盘价（增量没有成交时保持不变），不会用旧状态覆盖数据库中更新的版本
+     *
+     * @param kline 插入时使用的完整状态
+     * @param delta 新增成交（volume/amount/tradeCount 为增量，没有成交时high/low/close为null）
+     * @return 合并后数据库中的K线
+     */
+    Kline mergeTrades(Kline kline, Kline delta);
+
     /**
      * 查询指定交易对、周期、开盘时间的K线
      *
@@ -46,6 +60,20 @@ public interface KlineRepository {
      */
     List<Kline> findByTimeRange(String symbol, String interval, Long startTime, Long endTime, Integer limit);
 
+    /**
+     * 流式读取指定时间范围的K线
+     *
+     * 逐条回调，不在内存中累积结果集，适用于多年1m数据导出等大范围读取
+     *
+     * @param symbol 交易对
+     * @param interval K线周期
+     * @param startTime 开始时间 (时间戳秒)
+     * @param endTime 结束时间 (时间戳秒)
+     * @param consumer K线回调（按时间正序）
+     * @return 读取的K线数量
+     */
+    long streamByTimeRange(String symbol, String interval, Long startTime, Long endTime, Consumer<Kline> consumer);
+
     /**
      * 查询最新的N条K线
      *
@@ -65,6 +93,17 @@ public interface KlineRepository {
      */
     Optional<Kline> findLatestKline(String symbol, String interval);
 
+    /**
+     * 批量查询多个交易对的最新一条K线
+     *
+     * 一次数据库往返完成，替代逐个调用 findLatestKline
+     *
+     * @param symbols 交易对集合
+     * @param interval K线周期
+     * @return 每个交易对的最新K线（无K线的交易对不包含在结果中）
+     */
+    List<Kline> findLatestKlinesBySymbols(Collection<String> symbols, String interval);
+
     /**
      * 统计K线数量
      *
@@ -73,4 +112,22 @@ public interface KlineRepository {
      * @return 数量
      */
     Long countBySymbolAndInterval(String symbol, String interval);
+
+    /**
+     * 查询最早一根K线的开盘时间
+     *
+     * @param symbol 交易对
+     * @param interval K线周期
+     * @return 开盘时间 (时间戳秒)，没有K线时为空
+     */
+    Optional<Long> findEarliestOpenTime(String symbol, String interval);
+
+    /**
+     * 查询最新一根K线的开盘时间
+     *
+     * @param symbol 交易对
+     * @param interval K线周期
+     * @return 开盘时间 (时间戳秒)，没有K线时为空
+     */
+    Optional<Long> findLatestOpenTime(String symbol, String interval);
 }
@@ -0,0 +1,347 @@
+package com.hkd.market.infrastructure.cache;
+
+import com.hkd.market.domain.entity.Kline;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * K线二进制编解码
+ *
+ * Redis中K线值的紧凑格式，替代带类元数据的通用序列化。
+ *
+ * 格式（版本1，大端序）：
+ * <pre>
+ * byte    版本号
+ * byte    字段存在标志 (见 FLAG_*)
+ * string  symbol / interval       (u16长度 + UTF-8，0xFFFF 表示null)
+ * long    id / openTime / closeTime  (标志位存在时写入)
+ * decimal open/high/low/close/volume/amount
+ * int     tradeCount              (标志位存在时写入)
+ * time    createdAt / updatedAt   (标志位存在时写入，UTC秒 long + 纳秒 int)
+ * </pre>
+ *
+ * decimal：首字节为精度 0..18 时后跟放大后的 long（原值 = long / 10^精度，精度原样保留）；
+ * 超出 long 范围或精度时首字节为 DECIMAL_BIG，后跟 int 精度 + u16长度 + 非标度值字节；
+ * DECIMAL_NULL 表示null。
+ *
+ * 分片格式：版本号 + long chunkStart + long sealedUntil + int 数量 + 逐根 (int 长度 + K线)。
+ *
+ * 格式变化时递增版本号，解码时拒绝未知版本。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+public final class KlineBinaryCodec {
+
+    public static final byte VERSION = 1;
+
+    private static final int FLAG_ID = 1;
+    private static final int FLAG_OPEN_TIME = 1 << 1;
+    private static final int FLAG_CLOSE_TIME = 1 << 2;
+    private static final int FLAG_TRADE_COUNT = 1 << 3;
+    private static final int FLAG_COMPLETED_PRESENT = 1 << 4;
+    private static final int FLAG_COMPLETED = 1 << 5;
+    private static final int FLAG_CREATED_AT = 1 << 6;
+    private static final int FLAG_UPDATED_AT = 1 << 7;
+
+    private static final int MAX_LONG_SCALE = 18;
+    private static final byte DECIMAL_BIG = 0x7E;
+    private static final byte DECIMAL_NULL = 0x7F;
+    private static final int NULL_STRING = 0xFFFF;
+
+    private KlineBinaryCodec() {
+    }
+
+    /**
+     * 编码K线
+     */
+    public static byte[] encode(Kline kline) {
+        ByteBuffer buffer = ByteBuffer.allocate(sizeOf(kline));
+        write(buffer, kline);
+        return buffer.array();
+    }
+
+    /**
+     * 解码K线
+     *
+     * @throws IllegalArgumentException 版本号未知或数据不完整
+     */
+    public static Kline decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            Kline kline = read(buffer);
+            if (buffer.hasRemaining()) {
+                throw new IllegalArgumentException("Trailing bytes after kline: " + buffer.remaining());
+            }
+            return kline;
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated kline value", e);
+        }
+    }
+
+    /**
+     * 编码K线分片
+     */
+    public static byte[] encodeChunk(KlineChunk chunk) {
+        List<Kline> bars = chunk.bars();
+        int size = 1 + 8 + 8 + 4;
+        int[] sizes = new int[bars.size()];
+        for (int i = 0; i < bars.size(); i++) {
+            sizes[i] = sizeOf(bars.get(i));
+            size += 4 + sizes[i];
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(VERSION);
+        buffer.putLong(chunk.chunkStart());
+        buffer.putLong(chunk.sealedUntil());
+        buffer.putInt(bars.size());
+        for (int i = 0; i < bars.size(); i++) {
+            buffer.putInt(sizes[i]);
+            write(buffer, bars.get(i));
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 解码K线分片
+     *
+     * @throws IllegalArgumentException 版本号未知或数据不完整
+     */
+    public static KlineChunk decodeChunk(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            checkVersion(buffer.get());
+            long chunkStart = buffer.getLong();
+            long sealedUntil = buffer.getLong();
+            int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining()) {
+                throw new IllegalArgumentException("Invalid kline chunk size: " + count);
+            }
+
+            List<Kline> bars = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int length = buffer.getInt();
+                int end = buffer.position() + length;
+                bars.add(read(buffer));
+                if (buffer.position() != end) {
+                    throw new IllegalArgumentException("Kline length mismatch in chunk at index " + i);
+                }
+            }
+            return new KlineChunk(chunkStart, sealedUntil, bars);
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated kline chunk value", e);
+        }
+    }
+
+    private static int sizeOf(Kline kline) {
+        int size = 2;
+        size += sizeOf(kline.getSymbol());
+        size += sizeOf(kline.getInterval());
+        size += kline.getId() != null ? 8 : 0;
+        size += kline.getOpenTime() != null ? 8 : 0;
+        size += kline.getCloseTime() != null ? 8 : 0;
+        size += sizeOf(kline.getOpen());
+        size += sizeOf(kline.getHigh());
+        size += sizeOf(kline.getLow());
+        size += sizeOf(kline.getClose());
+        size += sizeOf(kline.getVolume());
+        size += sizeOf(kline.getAmount());
+        size += kline.getTradeCount() != null ? 4 : 0;
+        size += kline.getCreatedAt() != null ? 12 : 0;
+        size += kline.getUpdatedAt() != null ? 12 : 0;
+        return size;
+    }
+
+    private static void write(ByteBuffer buffer, Kline kline) {
+        int flags = 0;
+        if (kline.getId() != null) {
+            flags |= FLAG_ID;
+        }
+        if (kline.getOpenTime() != null) {
+            flags |= FLAG_OPEN_TIME;
+        }
+        if (kline.getCloseTime() != null) {
+            flags |= FLAG_CLOSE_TIME;
+        }
+        if (kline.getTradeCount() != null) {
+            flags |= FLAG_TRADE_COUNT;
+        }
+        if (kline.getCompleted() != null) {
+            flags |= FLAG_COMPLETED_PRESENT;
+            if (kline.getCompleted()) {
+                flags |= FLAG_COMPLETED;
+            }
+        }
+        if (kline.getCreatedAt() != null) {
+            flags |= FLAG_CREATED_AT;
+        }
+        if (kline.getUpdatedAt() != null) {
+            flags |= FLAG_UPDATED_AT;
+        }
+
+        buffer.put(VERSION);
+        buffer.put((byte) flags);
+        writeString(buffer, kline.getSymbol());
+        writeString(buffer, kline.getInterval());
+        if (kline.getId() != null) {
+            buffer.putLong(kline.getId());
+        }
+        if (kline.getOpenTime() != null) {
+            buffer.putLong(kline.getOpenTime());
+        }
+        if (kline.getCloseTime() != null) {
+            buffer.putLong(kline.getCloseTime());
+        }
+        writeDecimal(buffer, kline.getOpen());
+        writeDecimal(buffer, kline.getHigh());
+        writeDecimal(buffer, kline.getLow());
+        writeDecimal(buffer, kline.getClose());
+        writeDecimal(buffer, kline.getVolume());
+        writeDecimal(buffer, kline.getAmount());
+        if (kline.getTradeCount() != null) {
+            buffer.putInt(kline.getTradeCount());
+        }
+        if (kline.getCreatedAt() != null) {
+            writeTime(buffer, kline.getCreatedAt());
+        }
+        if (kline.getUpdatedAt() != null) {
+            writeTime(buffer, kline.getUpdatedAt());
+        }
+    }
+
+    private static Kline read(ByteBuffer buffer) {
+        checkVersion(buffer.get());
+        int flags = buffer.get() & 0xFF;
+
+        Kline.KlineBuilder builder = Kline.builder()
+                .symbol(readString(buffer))
+                .interval(readString(buffer));
+        if ((flags & FLAG_ID) != 0) {
+            builder.id(buffer.getLong());
+        }
+        if ((flags & FLAG_OPEN_TIME) != 0) {
+            builder.openTime(buffer.getLong());
+        }
+        if ((flags & FLAG_CLOSE_TIME) != 0) {
+            builder.closeTime(buffer.getLong());
+        }
+        builder.open(readDecimal(buffer))
+                .high(readDecimal(buffer))
+                .low(readDecimal(buffer))
+                .close(readDecimal(buffer))
+                .volume(readDecimal(buffer))
+                .amount(readDecimal(buffer));
+        if ((flags & FLAG_TRADE_COUNT) != 0) {
+            builder.tradeCount(buffer.getInt());
+        }
+        if ((flags & FLAG_COMPLETED_PRESENT) != 0) {
+            builder.completed((flags & FLAG_COMPLETED) != 0);
+        }
+        if ((flags & FLAG_CREATED_AT) != 0) {
+            builder.createdAt(readTime(buffer));
+        }
+        if ((flags & FLAG_UPDATED_AT) != 0) {
+            builder.updatedAt(readTime(buffer));
+        }
+        return builder.build();
+    }
+
+    private static void checkVersion(byte version) {
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported kline codec version: " + version);
+        }
+    }
+
+    private static int sizeOf(String value) {
+        return 2 + (value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static void writeString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NULL_STRING) {
+            throw new IllegalArgumentException("String too long for kline codec: " + bytes.length);
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        if (length == NULL_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean fitsLong(BigDecimal value) {
+        return value.scale() >= 0 && value.scale() <= MAX_LONG_SCALE
+                && value.unscaledValue().bitLength() < 64;
+    }
+
+    private static int sizeOf(BigDecimal value) {
+        if (value == null) {
+            return 1;
+        }
+        if (fitsLong(value)) {
+            return 1 + 8;
+        }
+        return 1 + 4 + 2 + value.unscaledValue().toByteArray().length;
+    }
+
+    private static void writeDecimal(ByteBuffer buffer, BigDecimal value) {
+        if (value == null) {
+            buffer.put(DECIMAL_NULL);
+        } else if (fitsLong(value)) {
+            buffer.put((byte) value.scale());
+            buffer.putLong(value.unscaledValue().longValue());
+        } else {
+            byte[] unscaled = value.unscaledValue().toByteArray();
+            buffer.put(DECIMAL_BIG);
+            buffer.putInt(value.scale());
+            buffer.putShort((short) unscaled.length);
+            buffer.put(unscaled);
+        }
+    }
+
+    private static BigDecimal readDecimal(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        if (tag == DECIMAL_NULL) {
+            return null;
+        }
+        if (tag == DECIMAL_BIG) {
+            int scale = buffer.getInt();
+            byte[] unscaled = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(unscaled);
+            return new BigDecimal(new BigInteger(unscaled), scale);
+        }
+        if (tag < 0 || tag > MAX_LONG_SCALE) {
+            throw new IllegalArgumentException("Invalid decimal tag: " + tag);
+        }
+        return BigDecimal.valueOf(buffer.getLong(), tag);
+    }
+
+    private static void writeTime(ByteBuffer buffer, LocalDateTime time) {
+        buffer.putLong(time.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(time.getNano());
+    }
+
+    private static LocalDateTime readTime(ByteBuffer buffer) {
+        long epochSecond = buffer.getLong();
+        int nano = buffer.getInt();
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,25 @@
+package com.hkd.market.infrastructure.cache;
+
+import com.hkd.market.domain.entity.Kline;
+
+import java.util.List;
+
+/**
+ * 已完成K线分片
+ *
+ * 一个分片覆盖 [chunkStart, chunkStart + chunkSize * 周期秒数) 的开盘时间范围，
+ * sealedUntil 之前的K线均已收盘、不会再变化。sealedUntil 达到分片结束时间即为完整分片。
+ *
+ * 构造时复制每一根K线，分片不与调用方共享 Kline 实例；从分片读出的K线交给缓存外部前同样需要复制
+ * （见 CachingKlineRepository），分片内容始终不被修改。
+ *
+ * @param chunkStart 分片起始时间（时间戳秒）
+ * @param sealedUntil 已封存的开盘时间上界（不含，时间戳秒）
+ * @param bars 分片内已封存的K线（按时间正序，不可变，元素为分片私有的副本）
+ */
+public record KlineChunk(long chunkStart, long sealedUntil, List<Kline> bars) {
+
+    public KlineChunk {
+        bars = bars.stream().map(kline -> kline.toBuilder().build()).toList();
+    }
+}
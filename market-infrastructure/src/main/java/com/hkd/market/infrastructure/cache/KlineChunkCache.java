@@ -0,0 +1,112 @@
+package com.hkd.market.infrastructure.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已完成K线分片缓存
+ *
+ * 两级缓存：
+ * - L1: 进程内Guava缓存，按K线根数计权重，超出上限按LRU淘汰
+ * - L2: Redis，多实例共享，TTL过期，值为 KlineBinaryCodec 二进制格式
+ *
+ * 分片内容只包含已收盘的K线，写入后不再变化，因此无需失效通知；
+ * 仅在迟到成交改写了已封存K线时由调用方显式evict。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class KlineChunkCache {
+
+    private final RedisTemplate<String, KlineChunk> klineChunkRedisTemplate;
+
+    @Value("${hkd.market.kline.cache.l1-max-bars:500000}")
+    private long l1MaxBars;
+
+    @Value("${hkd.market.kline.cache.l2-ttl:86400}")
+    private long l2TtlSeconds;
+
+    private Cache<String, KlineChunk> l1;
+
+    @PostConstruct
+    public void init() {
+        l1 = CacheBuilder.newBuilder()
+                .maximumWeight(l1MaxBars)
+                .weigher((String key, KlineChunk chunk) -> chunk.bars().size() + 1)
+                .build();
+    }
+
+    /**
+     * 读取分片（先L1后L2，L2命中时回填L1）
+     *
+     * @return 分片，未命中返回null
+     */
+    public KlineChunk get(String symbol, String interval, long chunkStart) {
+        String key = buildCacheKey(symbol, interval, chunkStart);
+
+        KlineChunk chunk = l1.getIfPresent(key);
+        if (chunk != null) {
+            return chunk;
+        }
+
+        try {
+            KlineChunk l2Chunk = klineChunkRedisTemplate.opsForValue().get(key);
+            if (l2Chunk != null) {
+                l1.put(key, l2Chunk);
+                return l2Chunk;
+            }
+        } catch (Exception e) {
+            // L2不可用时降级为只用L1
+            log.warn("Failed to read kline chunk from Redis: key={}", key, e);
+        }
+        return null;
+    }
+
+    /**
+     * 写入分片到L1和L2
+     */
+    public void put(String symbol, String interval, KlineChunk chunk) {
+        String key = buildCacheKey(symbol, interval, chunk.chunkStart());
+        l1.put(key, chunk);
+
+        try {
+            klineChunkRedisTemplate.opsForValue().set(key, chunk, l2TtlSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("Failed to write kline chunk to Redis: key={}", key, e);
+        }
+    }
+
+    /**
+     * 失效分片（已封存K线被迟到成交改写时调用）
+     */
+    public void evict(String symbol, String interval, long chunkStart) {
+        String key = buildCacheKey(symbol, interval, chunkStart);
+        l1.invalidate(key);
+
+        try {
+            klineChunkRedisTemplate.delete(key);
+        } catch (Exception e) {
+            log.warn("Failed to evict kline chunk from Redis: key={}", key, e);
+        }
+    }
+
+    /**
+     * 构建分片缓存Key
+     *
+     * 格式: market:kline:chunk:{symbol}:{interval}:{chunkStart}
+     */
+    private String buildCacheKey(String symbol, String interval, long chunkStart) {
+        return "market:kline:chunk:" + symbol + ":" + interval + ":" + chunkStart;
+    }
+}
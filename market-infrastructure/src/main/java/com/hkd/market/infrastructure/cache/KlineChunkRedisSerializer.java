@@ -0,0 +1,37 @@
+package com.hkd.market.infrastructure.cache;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * K线分片Redis值序列化器（KlineBinaryCodec）
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+public class KlineChunkRedisSerializer implements RedisSerializer<KlineChunk> {
+
+    @Override
+    public byte[] serialize(KlineChunk chunk) throws SerializationException {
+        if (chunk == null) {
+            return null;
+        }
+        try {
+            return KlineBinaryCodec.encodeChunk(chunk);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Failed to encode kline chunk", e);
+        }
+    }
+
+    @Override
+    public KlineChunk deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            return KlineBinaryCodec.decodeChunk(bytes);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Failed to decode kline chunk", e);
+        }
+    }
+}
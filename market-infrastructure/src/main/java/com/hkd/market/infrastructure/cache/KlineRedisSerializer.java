@@ -0,0 +1,38 @@
+package com.hkd.market.infrastructure.cache;
+
+import com.hkd.market.domain.entity.Kline;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * K线Redis值序列化器（KlineBinaryCodec）
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+public class KlineRedisSerializer implements RedisSerializer<Kline> {
+
+    @Override
+    public byte[] serialize(Kline kline) throws SerializationException {
+        if (kline == null) {
+            return null;
+        }
+        try {
+            return KlineBinaryCodec.encode(kline);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Failed to encode kline", e);
+        }
+    }
+
+    @Override
+    public Kline deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            return KlineBinaryCodec.decode(bytes);
+        } catch (RuntimeException e) {
+            throw new SerializationException("Failed to decode kline", e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.hkd.market.infrastructure.cache;
+
+import com.hkd.market.api.enums.KlineInterval;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * K线封存规则
+ *
+ * 开盘时间早于 (当前周期起点 - 一个周期) 的K线视为已封存：已收盘，
+ * 且超过一个周期的迟到成交宽限期，之后内容不再变化。
+ * 周期起点与聚合时的对齐方式一致：周线从周一 00:00 UTC 开始，月线按自然月（UTC）计算。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+public final class KlineSealPolicy {
+
+    private KlineSealPolicy() {
+    }
+
+    /**
+     * 计算封存时间
+     *
+     * @param interval K线周期
+     * @param now 当前时间（时间戳秒）
+     * @return 开盘时间早于该值的K线已封存（时间戳秒）
+     */
+    public static long sealedTime(KlineInterval interval, long now) {
+        ZonedDateTime time = Instant.ofEpochSecond(now).atZone(ZoneOffset.UTC);
+        return switch (interval) {
+            case WEEK_1 -> time.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                    .truncatedTo(ChronoUnit.DAYS)
+                    .minusWeeks(1)
+                    .toEpochSecond();
+            case MONTH_1 -> time.with(TemporalAdjusters.firstDayOfMonth())
+                    .truncatedTo(ChronoUnit.DAYS)
+                    .minusMonths(1)
+                    .toEpochSecond();
+            default -> Math.floorDiv(now, interval.getSeconds()) * interval.getSeconds() - interval.getSeconds();
+        };
+    }
+
+    /**
+     * 按当前系统时间计算封存时间
+     */
+    public static long sealedTime(KlineInterval interval) {
+        return sealedTime(interval, System.currentTimeMillis() / 1000);
+    }
+}
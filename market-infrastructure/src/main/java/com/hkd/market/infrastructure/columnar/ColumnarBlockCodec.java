@@ -0,0 +1,395 @@
+package com.hkd.market.infrastructure.columnar;
+
+import com.hkd.market.domain.entity.Kline;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 列式K线块编解码
+ *
+ * 一个块内每列独立编码为字节数组，所有整数使用ZigZag变长编码：
+ * - id: 与上一行的差值
+ * - open_time: delta-of-delta（固定周期下几乎全部为0，每行1字节）
+ * - duration: close_time - open_time
+ * - open/high/low/close/volume/amount: 按8位小数放大为long后与上一行的差值
+ * - trade_count: 与上一行的差值
+ *
+ * 价格、数量超出long范围、小数位超过8位或字段为null时紧凑编码失败，
+ * 该块改用兼容编码（encodeFallback：逐行保存原值，不做差分），任何数值都能无损落盘。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+final class ColumnarBlockCodec {
+
+    static final int ID = 0;
+    static final int OPEN_TIME = 1;
+    static final int DURATION = 2;
+    static final int OPEN = 3;
+    static final int HIGH = 4;
+    static final int LOW = 5;
+    static final int CLOSE = 6;
+    static final int VOLUME = 7;
+    static final int AMOUNT = 8;
+    static final int TRADE_COUNT = 9;
+
+    static final int COLUMN_COUNT = 10;
+
+    static final String[] COLUMN_NAMES = {
+            "id", "open_time", "duration", "open", "high", "low", "close", "volume", "amount", "trade_count"
+    };
+
+    /**
+     * 价格、数量的放大位数（与表结构 NUMERIC(*, 8) 一致）
+     */
+    static final int SCALE = 8;
+
+    private ColumnarBlockCodec() {
+    }
+
+    /**
+     * 判断一个块能否紧凑编码
+     *
+     * 逐行检查：字段均不为null、价格数量小数位不超过 SCALE、放大后的值及与上一行的差值都在long范围内。
+     * 返回true时 encode 不会抛出异常
+     *
+     * @param bars K线（按开盘时间正序）
+     * @return 可以紧凑编码时返回true
+     */
+    static boolean isCompactEncodable(List<Kline> bars) {
+        long[] previous = new long[COLUMN_COUNT];
+        for (Kline kline : bars) {
+            if (kline.getId() == null || kline.getCloseTime() == null || kline.getTradeCount() == null) {
+                return false;
+            }
+            if (!fitsDelta(previous, ID, kline.getId())
+                    || !fitsScaledDelta(previous, OPEN, kline.getOpen())
+                    || !fitsScaledDelta(previous, HIGH, kline.getHigh())
+                    || !fitsScaledDelta(previous, LOW, kline.getLow())
+                    || !fitsScaledDelta(previous, CLOSE, kline.getClose())
+                    || !fitsScaledDelta(previous, VOLUME, kline.getVolume())
+                    || !fitsScaledDelta(previous, AMOUNT, kline.getAmount())
+                    || !fitsDelta(previous, TRADE_COUNT, kline.getTradeCount())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 编码一个块
+     *
+     * 调用方应先用 isCompactEncodable 判断，不能紧凑编码的块改用 encodeFallback
+     *
+     * @param bars K线（按开盘时间正序）
+     * @return 每列的编码结果，下标为列编号
+     * @throws ArithmeticException 数值无法无损放大为long
+     */
+    static byte[][] encode(List<Kline> bars) {
+        ColumnBuffer[] columns = new ColumnBuffer[COLUMN_COUNT];
+        for (int c = 0; c < COLUMN_COUNT; c++) {
+            columns[c] = new ColumnBuffer(bars.size() * 2);
+        }
+
+        long[] previous = new long[COLUMN_COUNT];
+        long previousTimeDelta = 0;
+
+        for (int i = 0; i < bars.size(); i++) {
+            Kline kline = bars.get(i);
+
+            putDelta(columns, previous, ID, kline.getId());
+
+            long openTime = kline.getOpenTime();
+            long timeDelta = openTime - previous[OPEN_TIME];
+            columns[OPEN_TIME].putVarLong(timeDelta - previousTimeDelta);
+            previous[OPEN_TIME] = openTime;
+            previousTimeDelta = i == 0 ? 0 : timeDelta;
+
+            columns[DURATION].putVarLong(kline.getCloseTime() - openTime);
+
+            putDelta(columns, previous, OPEN, toScaled(kline.getOpen()));
+            putDelta(columns, previous, HIGH, toScaled(kline.getHigh()));
+            putDelta(columns, previous, LOW, toScaled(kline.getLow()));
+            putDelta(columns, previous, CLOSE, toScaled(kline.getClose()));
+            putDelta(columns, previous, VOLUME, toScaled(kline.getVolume()));
+            putDelta(columns, previous, AMOUNT, toScaled(kline.getAmount()));
+            putDelta(columns, previous, TRADE_COUNT, kline.getTradeCount());
+        }
+
+        byte[][] encoded = new byte[COLUMN_COUNT][];
+        for (int c = 0; c < COLUMN_COUNT; c++) {
+            encoded[c] = columns[c].toByteArray();
+        }
+        return encoded;
+    }
+
+    /**
+     * 解码一个块
+     *
+     * @param symbol 交易对
+     * @param interval K线周期
+     * @param columns 每列数据，position指向块起始，读取后position前移
+     * @param rowCount 行数
+     * @return K线（按开盘时间正序）
+     */
+    static List<Kline> decode(String symbol, String interval, ByteBuffer[] columns, int rowCount) {
+        List<Kline> bars = new ArrayList<>(rowCount);
+
+        long[] previous = new long[COLUMN_COUNT];
+        long previousTimeDelta = 0;
+
+        for (int i = 0; i < rowCount; i++) {
+            long id = readDelta(columns, previous, ID);
+
+            long openTime = previous[OPEN_TIME] + previousTimeDelta + readVarLong(columns[OPEN_TIME]);
+            previousTimeDelta = i == 0 ? 0 : openTime - previous[OPEN_TIME];
+            previous[OPEN_TIME] = openTime;
+
+            long closeTime = openTime + readVarLong(columns[DURATION]);
+
+            bars.add(Kline.builder()
+                    .id(id)
+                    .symbol(symbol)
+                    .interval(interval)
+                    .openTime(openTime)
+                    .closeTime(closeTime)
+                    .open(fromScaled(readDelta(columns, previous, OPEN)))
+                    .high(fromScaled(readDelta(columns, previous, HIGH)))
+                    .low(fromScaled(readDelta(columns, previous, LOW)))
+                    .close(fromScaled(readDelta(columns, previous, CLOSE)))
+                    .volume(fromScaled(readDelta(columns, previous, VOLUME)))
+                    .amount(fromScaled(readDelta(columns, previous, AMOUNT)))
+                    .tradeCount((int) readDelta(columns, previous, TRADE_COUNT))
+                    .completed(true)   // 只有已封存的K线才会落盘
+                    .build());
+        }
+        return bars;
+    }
+
+    /**
+     * 兼容编码一个块
+     *
+     * 每列逐行写入原值：整数列为 存在标记(1字节) + ZigZag变长整数，
+     * 小数列为 存在标记 + 小数位 + 非标度值长度 + 非标度值字节；open_time 不允许为null。
+     *
+     * @param bars K线（按开盘时间正序）
+     * @return 每列的编码结果，下标为列编号
+     */
+    static byte[][] encodeFallback(List<Kline> bars) {
+        ColumnBuffer[] columns = new ColumnBuffer[COLUMN_COUNT];
+        for (int c = 0; c < COLUMN_COUNT; c++) {
+            columns[c] = new ColumnBuffer(bars.size() * 4);
+        }
+
+        for (Kline kline : bars) {
+            long openTime = kline.getOpenTime();
+            Long closeTime = kline.getCloseTime();
+            Integer tradeCount = kline.getTradeCount();
+
+            columns[ID].putNullableLong(kline.getId());
+            columns[OPEN_TIME].putVarLong(openTime);
+            columns[DURATION].putNullableLong(closeTime == null ? null : closeTime - openTime);
+            columns[OPEN].putNullableDecimal(kline.getOpen());
+            columns[HIGH].putNullableDecimal(kline.getHigh());
+            columns[LOW].putNullableDecimal(kline.getLow());
+            columns[CLOSE].putNullableDecimal(kline.getClose());
+            columns[VOLUME].putNullableDecimal(kline.getVolume());
+            columns[AMOUNT].putNullableDecimal(kline.getAmount());
+            columns[TRADE_COUNT].putNullableLong(tradeCount == null ? null : tradeCount.longValue());
+        }
+
+        byte[][] encoded = new byte[COLUMN_COUNT][];
+        for (int c = 0; c < COLUMN_COUNT; c++) {
+            encoded[c] = columns[c].toByteArray();
+        }
+        return encoded;
+    }
+
+    /**
+     * 解码一个兼容块
+     *
+     * @see #decode(String, String, ByteBuffer[], int)
+     */
+    static List<Kline> decodeFallback(String symbol, String interval, ByteBuffer[] columns, int rowCount) {
+        List<Kline> bars = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            Long id = readNullableLong(columns[ID]);
+            long openTime = readVarLong(columns[OPEN_TIME]);
+            Long duration = readNullableLong(columns[DURATION]);
+            BigDecimal open = readNullableDecimal(columns[OPEN]);
+            BigDecimal high = readNullableDecimal(columns[HIGH]);
+            BigDecimal low = readNullableDecimal(columns[LOW]);
+            BigDecimal close = readNullableDecimal(columns[CLOSE]);
+            BigDecimal volume = readNullableDecimal(columns[VOLUME]);
+            BigDecimal amount = readNullableDecimal(columns[AMOUNT]);
+            Long tradeCount = readNullableLong(columns[TRADE_COUNT]);
+
+            bars.add(Kline.builder()
+                    .id(id)
+                    .symbol(symbol)
+                    .interval(interval)
+                    .openTime(openTime)
+                    .closeTime(duration == null ? null : openTime + duration)
+                    .open(open)
+                    .high(high)
+                    .low(low)
+                    .close(close)
+                    .volume(volume)
+                    .amount(amount)
+                    .tradeCount(tradeCount == null ? null : tradeCount.intValue())
+                    .completed(true)
+                    .build());
+        }
+        return bars;
+    }
+
+    static long toScaled(BigDecimal value) {
+        return value.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    static BigDecimal fromScaled(long scaled) {
+        return BigDecimal.valueOf(scaled, SCALE);
+    }
+
+    /**
+     * 小数能否无损放大为long，且与上一行的差值不溢出
+     */
+    private static boolean fitsScaledDelta(long[] previous, int column, BigDecimal value) {
+        if (value == null) {
+            return false;
+        }
+        // 整数部分超过19位必然溢出，提前返回，避免为极大的指数构造BigInteger
+        if (value.precision() - value.scale() > 19) {
+            return false;
+        }
+        if (value.scale() > SCALE && value.stripTrailingZeros().scale() > SCALE) {
+            return false;
+        }
+        BigInteger unscaled = value.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue();
+        return unscaled.bitLength() < Long.SIZE && fitsDelta(previous, column, unscaled.longValue());
+    }
+
+    /**
+     * 与上一行的差值是否在long范围内（与 Math.subtractExact 的溢出判断一致）
+     */
+    private static boolean fitsDelta(long[] previous, int column, long value) {
+        long delta = value - previous[column];
+        if (((value ^ previous[column]) & (value ^ delta)) < 0) {
+            return false;
+        }
+        previous[column] = value;
+        return true;
+    }
+
+    private static void putDelta(ColumnBuffer[] columns, long[] previous, int column, long value) {
+        columns[column].putVarLong(Math.subtractExact(value, previous[column]));
+        previous[column] = value;
+    }
+
+    private static long readDelta(ByteBuffer[] columns, long[] previous, int column) {
+        long value = previous[column] + readVarLong(columns[column]);
+        previous[column] = value;
+        return value;
+    }
+
+    /**
+     * 读取ZigZag变长整数
+     */
+    static long readVarLong(ByteBuffer buffer) {
+        long zigzag = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private static Long readNullableLong(ByteBuffer buffer) {
+        return buffer.get() == 0 ? null : readVarLong(buffer);
+    }
+
+    private static BigDecimal readNullableDecimal(ByteBuffer buffer) {
+        if (buffer.get() == 0) {
+            return null;
+        }
+        int scale = (int) readVarLong(buffer);
+        byte[] unscaled = new byte[(int) readVarLong(buffer)];
+        buffer.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    /**
+     * 可增长的列缓冲区
+     */
+    static final class ColumnBuffer {
+
+        private byte[] bytes;
+        private int size;
+
+        ColumnBuffer(int initialCapacity) {
+            this.bytes = new byte[Math.max(initialCapacity, 16)];
+        }
+
+        /**
+         * 写入ZigZag变长整数
+         */
+        void putVarLong(long value) {
+            ensureCapacity(10);
+            long zigzag = (value << 1) ^ (value >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            bytes[size++] = (byte) zigzag;
+        }
+
+        /**
+         * 写入可为null的整数（存在标记 + ZigZag变长整数）
+         */
+        void putNullableLong(Long value) {
+            putPresence(value != null);
+            if (value != null) {
+                putVarLong(value);
+            }
+        }
+
+        /**
+         * 写入可为null的小数（存在标记 + 小数位 + 非标度值长度 + 非标度值字节）
+         */
+        void putNullableDecimal(BigDecimal value) {
+            putPresence(value != null);
+            if (value != null) {
+                byte[] unscaled = value.unscaledValue().toByteArray();
+                putVarLong(value.scale());
+                putVarLong(unscaled.length);
+                ensureCapacity(unscaled.length);
+                System.arraycopy(unscaled, 0, bytes, size, unscaled.length);
+                size += unscaled.length;
+            }
+        }
+
+        private void putPresence(boolean present) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) (present ? 1 : 0);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.hkd.market.infrastructure.columnar;
+
+import com.hkd.market.api.enums.KlineInterval;
+import com.hkd.market.application.resilience.KlineSpillLog;
+import com.hkd.market.domain.entity.Kline;
+import com.hkd.market.infrastructure.cache.KlineSealPolicy;
+import com.hkd.market.infrastructure.persistence.repository.KlineRepositoryImpl;
+import com.hkd.market.infrastructure.persistence.stats.KlineStats;
+import com.hkd.market.infrastructure.persistence.stats.KlineStatsTracker;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 列式存储归档任务
+ *
+ * 定时把PostgreSQL中已封存的K线按块追加到 ColumnarKlineStore：
+ * - 每块最多 block-size 根，不足 min-block-rows 根时等待下次积累，保证压缩率
+ * - 数值无法紧凑编码的块改用兼容编码落盘（见 ColumnarKlineSeries.append），水位照常推进，
+ *   个别异常数值不会让该 (symbol, interval) 停止归档
+ * - 需要归档的 (symbol, interval) 取自 KlineStatsTracker，不扫描klines表
+ * - 块落盘后不可修改，因此只归档不会再被修正的K线：本地溢写日志有积压时整轮跳过
+ *   （回放会把积压的成交合并进已封存的K线），并且只归档封存超过 archive-delay 的K线，
+ *   为其他实例的溢写回放、写入冲突后的合并留出时间
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "hkd.market.kline.columnar.enabled", havingValue = "true")
+public class ColumnarKlineArchiver {
+
+    private final ColumnarKlineStore columnarKlineStore;
+    private final KlineRepositoryImpl klineRepositoryImpl;
+    private final KlineStatsTracker klineStatsTracker;
+    private final KlineSpillLog klineSpillLog;
+    private final int blockSize;
+    private final int minBlockRows;
+    private final long archiveDelaySeconds;
+
+    public ColumnarKlineArchiver(ColumnarKlineStore columnarKlineStore,
+                                 KlineRepositoryImpl klineRepositoryImpl,
+                                 KlineStatsTracker klineStatsTracker,
+                                 KlineSpillLog klineSpillLog,
+                                 @Value("${hkd.market.kline.columnar.block-size:1024}") int blockSize,
+                                 @Value("${hkd.market.kline.columnar.min-block-rows:128}") int minBlockRows,
+                                 @Value("${hkd.market.kline.columnar.archive-delay:3600000}") long archiveDelay) {
+        this.columnarKlineStore = columnarKlineStore;
+        this.klineRepositoryImpl = klineRepositoryImpl;
+        this.klineStatsTracker = klineStatsTracker;
+        this.klineSpillLog = klineSpillLog;
+        this.blockSize = blockSize;
+        this.minBlockRows = minBlockRows;
+        this.archiveDelaySeconds = archiveDelay / 1000;
+    }
+
+    /**
+     * 归档所有 (symbol, interval)
+     */
+    @Scheduled(fixedDelayString = "${hkd.market.kline.columnar.archive-interval:60000}",
+            initialDelayString = "${hkd.market.kline.columnar.archive-interval:60000}")
+    public void archive() {
+        if (klineSpillLog.hasBacklog()) {
+            log.debug("Spill log has backlog, columnar archive skipped");
+            return;
+        }
+
+        long now = System.currentTimeMillis() / 1000;
+        Collection<KlineStats> knownSeries = klineStatsTracker.getAll();
+
+        int archived = 0;
+        for (KlineStats key : knownSeries) {
+            try {
+                archived += archiveSeries(key.getSymbol(), key.getInterval(), now);
+            } catch (Exception e) {
+                log.error("Failed to archive klines: symbol={}, interval={}", key.getSymbol(), key.getInterval(), e);
+            }
+        }
+
+        if (archived > 0) {
+            log.info("Columnar archive finished: series={}, archivedBars={}", knownSeries.size(), archived);
+        }
+    }
+
+    /**
+     * 归档单个 (symbol, interval) 中封存超过 archive-delay 的K线
+     *
+     * @param now 当前时间（时间戳秒）
+     * @return 本次归档的K线数量
+     */
+    int archiveSeries(String symbol, String interval, long now) throws Exception {
+        if (!KlineInterval.isValid(interval)) {
+            return 0;
+        }
+
+        long sealedTime = KlineSealPolicy.sealedTime(KlineInterval.fromCode(interval), now - archiveDelaySeconds);
+        ColumnarKlineSeries series = columnarKlineStore.getOrCreateSeries(symbol, interval);
+
+        int archived = 0;
+        while (true) {
+            long lastOpenTime = series.lastOpenTime();
+            long from = lastOpenTime == Long.MIN_VALUE ? 0 : lastOpenTime + 1;
+
+            List<Kline> batch = klineRepositoryImpl.findByTimeRange(symbol, interval, from, sealedTime, blockSize);
+            if (batch.size() < minBlockRows) {
+                return archived;
+            }
+
+            series.append(batch);
+            archived += batch.size();
+
+            if (batch.size() < blockSize) {
+                return archived;
+            }
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.hkd.market.infrastructure.columnar;
+
+import com.hkd.market.domain.entity.Kline;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * 单个 (symbol, interval) 的列式K线存储
+ *
+ * 目录结构：
+ * - {column}.col: 每列一个文件，按块追加编码数据（见 ColumnarBlockCodec）
+ * - blocks.idx: 定长块索引，记录每块的时间范围、行数及各列的偏移和长度；
+ *   行数的最高位标记兼容编码的块（见 ColumnarBlockCodec.encodeFallback），已有文件格式不变
+ *
+ * 写入顺序为先列文件后索引并分别fsync，启动时按索引截断未完成的列数据，
+ * 保证崩溃后只丢失最后一个未提交的块。
+ * 列文件以只读方式内存映射，读取时按块二分定位后解码。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Slf4j
+public class ColumnarKlineSeries implements Closeable {
+
+    private static final String INDEX_FILE = "blocks.idx";
+
+    /**
+     * 索引项: firstOpenTime(8) + lastOpenTime(8) + rowCount(4) + 每列 offset(8) + length(4)
+     */
+    private static final int INDEX_ENTRY_SIZE = 20 + ColumnarBlockCodec.COLUMN_COUNT * 12;
+
+    /**
+     * 索引项行数中的兼容编码标记位
+     */
+    private static final int FALLBACK_FLAG = Integer.MIN_VALUE;
+
+    private final String symbol;
+    private final String interval;
+    private final FileChannel indexChannel;
+    private final FileChannel[] columnChannels = new FileChannel[ColumnarBlockCodec.COLUMN_COUNT];
+    private final MappedByteBuffer[] mappedColumns = new MappedByteBuffer[ColumnarBlockCodec.COLUMN_COUNT];
+    private final List<BlockMeta> blocks = new ArrayList<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private ColumnarKlineSeries(String symbol, String interval, Path directory) throws IOException {
+        this.symbol = symbol;
+        this.interval = interval;
+
+        Files.createDirectories(directory);
+        this.indexChannel = FileChannel.open(directory.resolve(INDEX_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        for (int c = 0; c < ColumnarBlockCodec.COLUMN_COUNT; c++) {
+            columnChannels[c] = FileChannel.open(directory.resolve(ColumnarBlockCodec.COLUMN_NAMES[c] + ".col"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        recover();
+        remap();
+    }
+
+    /**
+     * 打开（不存在则创建）存储目录
+     */
+    public static ColumnarKlineSeries open(String symbol, String interval, Path directory) throws IOException {
+        return new ColumnarKlineSeries(symbol, interval, directory);
+    }
+
+    /**
+     * 已落盘的最后一根K线开盘时间，空存储返回 Long.MIN_VALUE
+     */
+    public long lastOpenTime() {
+        lock.readLock().lock();
+        try {
+            return blocks.isEmpty() ? Long.MIN_VALUE : blocks.get(blocks.size() - 1).lastOpenTime();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 已落盘的K线总数
+     */
+    public long rowCount() {
+        lock.readLock().lock();
+        try {
+            long count = 0;
+            for (BlockMeta block : blocks) {
+                count += block.rowCount();
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 追加一个块
+     *
+     * 优先使用紧凑编码；数值无法无损放大（超精度、超范围或为null）时改用兼容编码，块总能落盘
+     *
+     * @param bars 已封存的K线（按开盘时间正序，且全部晚于 lastOpenTime()）
+     */
+    public void append(List<Kline> bars) throws IOException {
+        if (bars.isEmpty()) {
+            return;
+        }
+
+        byte[][] encoded;
+        boolean fallback = !ColumnarBlockCodec.isCompactEncodable(bars);
+        if (fallback) {
+            log.warn("Columnar block not compactly encodable, using fallback encoding: symbol={}, interval={}, "
+                    + "firstOpenTime={}", symbol, interval, bars.get(0).getOpenTime());
+            encoded = ColumnarBlockCodec.encodeFallback(bars);
+        } else {
+            encoded = ColumnarBlockCodec.encode(bars);
+        }
+
+        lock.writeLock().lock();
+        try {
+            long firstOpenTime = bars.get(0).getOpenTime();
+            long lastOpenTime = bars.get(bars.size() - 1).getOpenTime();
+            if (!blocks.isEmpty() && firstOpenTime <= blocks.get(blocks.size() - 1).lastOpenTime()) {
+                throw new IllegalArgumentException("Block overlaps stored range: firstOpenTime=" + firstOpenTime);
+            }
+
+            // 1. 写列数据
+            long[] offsets = new long[ColumnarBlockCodec.COLUMN_COUNT];
+            int[] lengths = new int[ColumnarBlockCodec.COLUMN_COUNT];
+            for (int c = 0; c < ColumnarBlockCodec.COLUMN_COUNT; c++) {
+                offsets[c] = columnChannels[c].size();
+                lengths[c] = encoded[c].length;
+                writeFully(columnChannels[c], ByteBuffer.wrap(encoded[c]), offsets[c]);
+                columnChannels[c].force(false);
+            }
+
+            // 2. 提交索引
+            BlockMeta block = new BlockMeta(firstOpenTime, lastOpenTime, bars.size(), fallback, offsets, lengths);
+            ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+            block.writeTo(entry);
+            entry.flip();
+            writeFully(indexChannel, entry, (long) blocks.size() * INDEX_ENTRY_SIZE);
+            indexChannel.force(false);
+
+            blocks.add(block);
+            remap();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 范围查询
+     *
+     * @return 开盘时间在 [startTime, endTime) 内的K线（正序，最多limit根）
+     */
+    public List<Kline> read(long startTime, long endTime, int limit) {
+        List<Kline> result = new ArrayList<>();
+        stream(startTime, endTime, limit, result::add);
+        return result;
+    }
+
+    /**
+     * 范围流式读取，按块解码后逐根回调
+     *
+     * @return 回调的K线数量
+     */
+    public long stream(long startTime, long endTime, long limit, Consumer<Kline> consumer) {
+        lock.readLock().lock();
+        try {
+            long count = 0;
+            for (int b = firstBlockEndingAtOrAfter(startTime); b < blocks.size() && count < limit; b++) {
+                BlockMeta block = blocks.get(b);
+                if (block.firstOpenTime() >= endTime) {
+                    break;
+                }
+                for (Kline kline : decode(block)) {
+                    long openTime = kline.getOpenTime();
+                    if (openTime >= startTime && openTime < endTime) {
+                        consumer.accept(kline);
+                        if (++count == limit) {
+                            break;
+                        }
+                    }
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询最近的K线
+     *
+     * @param beforeTime 开盘时间上界（不含）
+     * @param limit 最大数量
+     * @return K线（按时间倒序）
+     */
+    public List<Kline> readLatest(long beforeTime, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Kline> result = new ArrayList<>(limit);
+            for (int b = blocks.size() - 1; b >= 0 && result.size() < limit; b--) {
+                BlockMeta block = blocks.get(b);
+                if (block.firstOpenTime() >= beforeTime) {
+                    continue;
+                }
+                List<Kline> bars = decode(block);
+                for (int i = bars.size() - 1; i >= 0 && result.size() < limit; i--) {
+                    if (bars.get(i).getOpenTime() < beforeTime) {
+                        result.add(bars.get(i));
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            indexChannel.close();
+            for (FileChannel channel : columnChannels) {
+                channel.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Kline> decode(BlockMeta block) {
+        ByteBuffer[] columns = new ByteBuffer[ColumnarBlockCodec.COLUMN_COUNT];
+        for (int c = 0; c < ColumnarBlockCodec.COLUMN_COUNT; c++) {
+            int offset = Math.toIntExact(block.offsets()[c]);
+            columns[c] = mappedColumns[c].duplicate()
+                    .limit(offset + block.lengths()[c])
+                    .position(offset);
+        }
+        return block.fallback()
+                ? ColumnarBlockCodec.decodeFallback(symbol, interval, columns, block.rowCount())
+                : ColumnarBlockCodec.decode(symbol, interval, columns, block.rowCount());
+    }
+
+    /**
+     * 二分查找第一个 lastOpenTime >= time 的块
+     */
+    private int firstBlockEndingAtOrAfter(long time) {
+        int low = 0;
+        int high = blocks.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (blocks.get(mid).lastOpenTime() < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 加载索引并丢弃崩溃时未完整写入的块
+     */
+    private void recover() throws IOException {
+        long entryCount = indexChannel.size() / INDEX_ENTRY_SIZE;
+        ByteBuffer index = ByteBuffer.allocate(Math.toIntExact(entryCount * INDEX_ENTRY_SIZE));
+        readFully(indexChannel, index, 0);
+        index.flip();
+
+        long[] columnSizes = new long[ColumnarBlockCodec.COLUMN_COUNT];
+        for (int c = 0; c < ColumnarBlockCodec.COLUMN_COUNT; c++) {
+            columnSizes[c] = columnChannels[c].size();
+        }
+
+        while (index.remaining() >= INDEX_ENTRY_SIZE) {
+            BlockMeta block = BlockMeta.readFrom(index);
+            if (!block.fitsWithin(columnSizes)) {
+                log.warn("Dropping incomplete columnar block: symbol={}, interval={}, firstOpenTime={}",
+                        symbol, interval, block.firstOpenTime());
+                break;
+            }
+            blocks.add(block);
+        }
+
+        // 截断未提交的索引和列数据
+        indexChannel.truncate((long) blocks.size() * INDEX_ENTRY_SIZE);
+        for (int c = 0; c < ColumnarBlockCodec.COLUMN_COUNT; c++) {
+            long end = blocks.isEmpty() ? 0 : blocks.get(blocks.size() - 1).columnEnd(c);
+            columnChannels[c].truncate(end);
+        }
+    }
+
+    private void remap() throws IOException {
+        for (int c = 0; c < ColumnarBlockCodec.COLUMN_COUNT; c++) {
+            mappedColumns[c] = columnChannels[c].map(FileChannel.MapMode.READ_ONLY, 0, columnChannels[c].size());
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * 块索引项
+     */
+    private record BlockMeta(long firstOpenTime, long lastOpenTime, int rowCount, boolean fallback,
+                             long[] offsets, int[] lengths) {
+
+        static BlockMeta readFrom(ByteBuffer buffer) {
+            long firstOpenTime = buffer.getLong();
+            long lastOpenTime = buffer.getLong();
+            int storedRowCount = buffer.getInt();
+            long[] offsets = new long[ColumnarBlockCodec.COLUMN_COUNT];
+            int[] lengths = new int[ColumnarBlockCodec.COLUMN_COUNT];
+            for (int c = 0; c < ColumnarBlockCodec.COLUMN_COUNT; c++) {
+                offsets[c] = buffer.getLong();
+                lengths[c] = buffer.getInt();
+            }
+            return new BlockMeta(firstOpenTime, lastOpenTime, storedRowCount & ~FALLBACK_FLAG,
+                    (storedRowCount & FALLBACK_FLAG) != 0, offsets, lengths);
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            buffer.putLong(firstOpenTime).putLong(lastOpenTime).putInt(fallback ? rowCount | FALLBACK_FLAG : rowCount);
+            for (int c = 0; c < ColumnarBlockCodec.COLUMN_COUNT; c++) {
+                buffer.putLong(offsets[c]).putInt(lengths[c]);
+            }
+        }
+
+        long columnEnd(int column) {
+            return offsets[column] + lengths[column];
+        }
+
+        boolean fitsWithin(long[] columnSizes) {
+            for (int c = 0; c < ColumnarBlockCodec.COLUMN_COUNT; c++) {
+                if (columnEnd(c) > columnSizes[c]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.hkd.market.infrastructure.columnar;
+
+import com.hkd.market.api.enums.KlineInterval;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 本地列式K线存储引擎
+ *
+ * 为已封存的历史K线提供压缩的本地存储，每个 (symbol, interval) 一个目录：
+ * {path}/{URL编码的symbol}/{周期枚举名}/
+ * 周期目录使用枚举名（MIN_1/MONTH_1），避免 1m/1M 在大小写不敏感的文件系统上冲突。
+ *
+ * 默认关闭，通过 hkd.market.kline.columnar.enabled=true 开启。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "hkd.market.kline.columnar.enabled", havingValue = "true")
+public class ColumnarKlineStore {
+
+    @Value("${hkd.market.kline.columnar.path:data/klines}")
+    private String basePath;
+
+    private final Map<String, ColumnarKlineSeries> series = new ConcurrentHashMap<>();
+
+    /**
+     * 获取已存在的存储，目录不存在时返回null（读路径不创建目录）
+     */
+    public ColumnarKlineSeries findSeries(String symbol, String interval) {
+        ColumnarKlineSeries existing = series.get(seriesKey(symbol, interval));
+        if (existing != null) {
+            return existing;
+        }
+        if (!KlineInterval.isValid(interval) || !Files.isDirectory(seriesDirectory(symbol, interval))) {
+            return null;
+        }
+        return getOrCreateSeries(symbol, interval);
+    }
+
+    /**
+     * 获取存储，不存在则创建
+     */
+    public ColumnarKlineSeries getOrCreateSeries(String symbol, String interval) {
+        return series.computeIfAbsent(seriesKey(symbol, interval), key -> {
+            try {
+                ColumnarKlineSeries opened = ColumnarKlineSeries.open(
+                        symbol, interval, seriesDirectory(symbol, interval));
+                log.info("Columnar kline series opened: symbol={}, interval={}, rows={}",
+                        symbol, interval, opened.rowCount());
+                return opened;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open columnar kline series: " + key, e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Map.Entry<String, ColumnarKlineSeries> entry : series.entrySet()) {
+            try {
+                entry.getValue().close();
+            } catch (IOException e) {
+                log.warn("Failed to close columnar kline series: {}", entry.getKey(), e);
+            }
+        }
+        series.clear();
+    }
+
+    private Path seriesDirectory(String symbol, String interval) {
+        return Paths.get(basePath,
+                URLEncoder.encode(symbol, StandardCharsets.UTF_8),
+                KlineInterval.fromCode(interval).name());
+    }
+
+    private String seriesKey(String symbol, String interval) {
+        return symbol + ":" + interval;
+    }
+}
@@ -0,0 +1,58 @@
+package com.hkd.market.infrastructure.config;
+
+import com.hkd.market.application.cache.KlineHotCache;
+import com.hkd.market.domain.repository.KlineRepository;
+import com.hkd.market.infrastructure.cache.KlineChunkCache;
+import com.hkd.market.infrastructure.columnar.ColumnarKlineStore;
+import com.hkd.market.infrastructure.persistence.repository.CachingKlineRepository;
+import com.hkd.market.infrastructure.persistence.repository.ColumnarKlineRepository;
+import com.hkd.market.infrastructure.persistence.repository.KlineRepositoryImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * K线Repository装配
+ *
+ * 对外暴露的KlineRepository由数据库实现逐层装饰：
+ * KlineRepositoryImpl (PostgreSQL)
+ *   -> ColumnarKlineRepository (本地列式历史存储，可选)
+ *   -> CachingKlineRepository (Redis最新K线窗口 + 已完成K线分片缓存)
+ */
+@Slf4j
+@Configuration
+public class KlineRepositoryConfig {
+
+    @Value("${hkd.market.kline.cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    @Value("${hkd.market.kline.cache.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${hkd.market.kline.cache.max-chunks-per-query:8}")
+    private int maxChunksPerQuery;
+
+    @Bean
+    @Primary
+    public KlineRepository klineRepository(KlineRepositoryImpl klineRepositoryImpl,
+                                           KlineChunkCache klineChunkCache,
+                                           KlineHotCache klineHotCache,
+                                           ObjectProvider<ColumnarKlineStore> columnarKlineStore) {
+        KlineRepository repository = klineRepositoryImpl;
+
+        ColumnarKlineStore store = columnarKlineStore.getIfAvailable();
+        if (store != null) {
+            log.info("Columnar kline store enabled for historical range queries");
+            repository = new ColumnarKlineRepository(repository, store);
+        }
+
+        if (cacheEnabled) {
+            log.info("Kline chunk cache enabled: chunkSize={}, maxChunksPerQuery={}", chunkSize, maxChunksPerQuery);
+            repository = new CachingKlineRepository(repository, klineChunkCache, klineHotCache, chunkSize, maxChunksPerQuery);
+        }
+        return repository;
+    }
+}
@@ -0,0 +1,91 @@
+package com.hkd.market.infrastructure.config;
+
+import com.hkd.market.infrastructure.datasource.ReadReplicaRoutingDataSource;
+import com.hkd.market.infrastructure.datasource.ReplicaLagMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * 读写分离数据源配置
+ *
+ * 开启 hkd.market.datasource.replica.enabled 后：
+ * - 主库连接池沿用 spring.datasource 配置，承载聚合写入
+ * - 副本连接池使用 hkd.market.datasource.replica 配置，独立设置连接数
+ * - 只读Repository方法路由到副本，副本延迟超过 max-lag 时回到主库
+ *
+ * 未开启时不注册任何Bean，沿用Spring Boot自动配置的单一连接池。
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "hkd.market.datasource.replica.enabled", havingValue = "true")
+public class ReadReplicaDataSourceConfig {
+
+    /**
+     * 主库连接池
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * 副本连接池
+     */
+    @Bean
+    @ConfigurationProperties("hkd.market.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(
+            DataSourceProperties properties,
+            @Value("${hkd.market.datasource.replica.url}") String url,
+            @Value("${hkd.market.datasource.replica.username:${spring.datasource.username}}") String username,
+            @Value("${hkd.market.datasource.replica.password:${spring.datasource.password}}") String password) {
+        return DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(
+            @Qualifier("replicaDataSource") DataSource replicaDataSource,
+            @Value("${hkd.market.datasource.replica.max-lag:5000}") long maxLagMillis,
+            @Value("${hkd.market.datasource.replica.lag-check-interval:1000}") long checkIntervalMillis) {
+        return new ReplicaLagMonitor(replicaDataSource, maxLagMillis, checkIntervalMillis);
+    }
+
+    /**
+     * 对外暴露的数据源：延迟获取连接 + 读写路由
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 ReplicaLagMonitor replicaLagMonitor) {
+        ReadReplicaRoutingDataSource routing = new ReadReplicaRoutingDataSource(replicaLagMonitor);
+        routing.setTargetDataSources(Map.of(
+                ReadReplicaRoutingDataSource.PRIMARY, primaryDataSource,
+                ReadReplicaRoutingDataSource.REPLICA, replicaDataSource
+        ));
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+
+        log.info("Read replica routing enabled for read-only transactions");
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -0,0 +1,66 @@
+package com.hkd.market.infrastructure.config;
+
+import com.hkd.market.application.cache.KlineNearCache;
+import com.hkd.market.domain.entity.Kline;
+import com.hkd.market.infrastructure.cache.KlineChunk;
+import com.hkd.market.infrastructure.cache.KlineChunkRedisSerializer;
+import com.hkd.market.infrastructure.cache.KlineRedisSerializer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Redis配置
+ *
+ * K线相关的值使用 KlineBinaryCodec 紧凑二进制格式（类型化RedisTemplate），
+ * Key统一使用UTF-8字符串。
+ * 开启K线近端缓存时订阅K线更新频道，把其他副本写入的K线应用到本地窗口。
+ */
+@Configuration
+public class RedisConfig {
+
+    /**
+     * 当前K线缓存
+     */
+    @Bean
+    public RedisTemplate<String, Kline> klineRedisTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, Kline> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(new KlineRedisSerializer());
+        return template;
+    }
+
+    /**
+     * 已完成K线分片缓存（L2）
+     */
+    @Bean
+    public RedisTemplate<String, KlineChunk> klineChunkRedisTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, KlineChunk> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(new KlineChunkRedisSerializer());
+        return template;
+    }
+
+    /**
+     * K线更新订阅（近端缓存）
+     */
+    @Bean
+    @ConditionalOnProperty(name = "hkd.market.kline.near-cache.enabled", havingValue = "true", matchIfMissing = true)
+    public RedisMessageListenerContainer klineUpdateListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                      KlineNearCache klineNearCache) {
+        KlineRedisSerializer serializer = new KlineRedisSerializer();
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(
+                (message, pattern) -> klineNearCache.onMessage(message.getBody(), serializer),
+                new ChannelTopic(KlineNearCache.UPDATE_CHANNEL));
+        return container;
+    }
+}
@@ -0,0 +1,37 @@
+package com.hkd.market.infrastructure.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 读写分离路由数据源
+ *
+ * 只读事务（@Transactional(readOnly = true)）路由到副本连接池，其余路由到主库。
+ * 副本延迟超限或不可达时只读查询也回到主库。
+ *
+ * 需要包装在 LazyConnectionDataSourceProxy 中使用：事务开始时还未标记只读，
+ * 延迟到第一条语句执行时再获取物理连接才能拿到正确的路由键。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+
+    private final ReplicaLagMonitor replicaLagMonitor;
+
+    public ReadReplicaRoutingDataSource(ReplicaLagMonitor replicaLagMonitor) {
+        this.replicaLagMonitor = replicaLagMonitor;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && replicaLagMonitor.isReplicaAvailable()) {
+            return REPLICA;
+        }
+        return PRIMARY;
+    }
+}
@@ -0,0 +1,112 @@
+package com.hkd.market.infrastructure.datasource;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 只读副本延迟监控
+ *
+ * 定时查询副本的复制延迟，延迟超过阈值或副本不可达时标记为不可用，
+ * ReadReplicaRoutingDataSource 据此把只读查询切回主库。
+ *
+ * 副本已回放完所有已接收的WAL时视为无延迟，避免主库空闲时
+ * pg_last_xact_replay_timestamp() 停留在旧值导致误判。
+ *
+ * 检查运行在独立的单线程调度器上，不与 @Scheduled 任务（列存归档、统计刷新、溢写回放）共用线程：
+ * 这些任务耗时较长时不会推迟延迟检查，副本落后时能及时切回主库。
+ * 查询设置超时，副本卡住时本次检查失败并切回主库。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private static final String LAG_QUERY = "SELECT CASE " +
+            "WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM (now() - pg_last_xact_replay_timestamp())) * 1000, 0) " +
+            "END::bigint";
+
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final long maxLagMillis;
+    private final long checkIntervalMillis;
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile boolean replicaAvailable = false;
+    private volatile long lastLagMillis = -1;
+
+    public ReplicaLagMonitor(DataSource replicaDataSource, long maxLagMillis, long checkIntervalMillis) {
+        this(new JdbcTemplate(replicaDataSource), maxLagMillis, checkIntervalMillis);
+    }
+
+    ReplicaLagMonitor(JdbcTemplate replicaJdbcTemplate, long maxLagMillis, long checkIntervalMillis) {
+        this.replicaJdbcTemplate = replicaJdbcTemplate;
+        this.replicaJdbcTemplate.setQueryTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(maxLagMillis)));
+        this.maxLagMillis = maxLagMillis;
+        this.checkIntervalMillis = checkIntervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Replica-Lag-Monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkLag, 0, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 检查副本延迟
+     */
+    public void checkLag() {
+        boolean available;
+        try {
+            Long lag = replicaJdbcTemplate.queryForObject(LAG_QUERY, Long.class);
+            lastLagMillis = lag == null ? -1 : lag;
+            available = lag != null && lag <= maxLagMillis;
+        } catch (Exception e) {
+            lastLagMillis = -1;
+            available = false;
+            if (replicaAvailable) {
+                log.warn("Replica lag check failed, routing reads to primary", e);
+            }
+        }
+
+        if (available != replicaAvailable) {
+            log.info("Replica routing changed: available={}, lagMillis={}, maxLagMillis={}",
+                    available, lastLagMillis, maxLagMillis);
+        }
+        replicaAvailable = available;
+    }
+
+    /**
+     * 副本是否可用于只读查询
+     */
+    public boolean isReplicaAvailable() {
+        return replicaAvailable;
+    }
+
+    /**
+     * 最近一次检查的延迟（毫秒），检查失败为-1
+     */
+    public long getLastLagMillis() {
+        return lastLagMillis;
+    }
+}
@@ -1,11 +1,15 @@
 package com.hkd.market.infrastructure.persistence.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
-import com.hkd.market.infrastructure.persistence.po.KlinePO;
+import com.hkd.market.domain.entity.Kline;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -13,11 +17,43 @@ import java.util.List;
  *
  * MyBatis Plus 映射接口
  *
+ * 直接映射到domain实体Kline（已携带@TableName/@TableId），
+ * 读写路径不再经过持久化对象中转
+ *
  * @author HKD Development Team
  * @version 1.0.0
  */
 @Mapper
-public interface KlineMapper extends BaseMapper<KlinePO> {
+public interface KlineMapper extends BaseMapper<Kline> {
+
+    /**
+     * 合并成交增量（upsert）
+     *
+     * 不存在时插入完整状态；已存在时累加成交量、成交额、成交笔数，最高/最低价取极值，
+     * 开盘价保持数据库中的值。增量没有成交时high/low/close为null，GREATEST/LEAST忽略null。
+     * 必须在事务内调用（INSERT 通过 @Select 执行以取回 RETURNING 结果）
+     *
+     * @param kline 插入时使用的完整状态（已分配ID）
+     * @param delta 新增成交
+     * @return 合并后的K线
+     */
+    @Select("INSERT INTO klines (id, symbol, interval, open_time, close_time, open, high, low, close, " +
+            "volume, amount, trade_count, completed, created_at, updated_at) " +
+            "VALUES (#{kline.id}, #{kline.symbol}, #{kline.interval}, #{kline.openTime}, #{kline.closeTime}, " +
+            "#{kline.open}, #{kline.high}, #{kline.low}, #{kline.close}, #{kline.volume}, #{kline.amount}, " +
+            "#{kline.tradeCount}, #{kline.completed}, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (symbol, interval, open_time) DO UPDATE SET " +
+            "high = GREATEST(klines.high, #{delta.high,jdbcType=NUMERIC}), " +
+            "low = LEAST(klines.low, #{delta.low,jdbcType=NUMERIC}), " +
+            "close = COALESCE(#{delta.close,jdbcType=NUMERIC}, klines.close), " +
+            "volume = klines.volume + #{delta.volume}, " +
+            "amount = klines.amount + #{delta.amount}, " +
+            "trade_count = klines.trade_count + #{delta.tradeCount}, " +
+            "completed = klines.completed OR COALESCE(#{delta.completed,jdbcType=BOOLEAN}, FALSE), " +
+            "updated_at = CURRENT_TIMESTAMP " +
+            "RETURNING *")
+    @Options(flushCache = Options.FlushCachePolicy.TRUE, useCache = false)
+    Kline mergeTrades(@Param("kline") Kline kline, @Param("delta") Kline delta);
 
     /**
      * 查询指定时间范围的K线
@@ -36,7 +72,7 @@ public interface KlineMapper extends BaseMapper<KlinePO> {
             "AND open_time < #{endTime} " +
             "ORDER BY open_time ASC " +
             "LIMIT #{limit}")
-    List<KlinePO> findByTimeRange(
+    List<Kline> findByTimeRange(
             @Param("symbol") String symbol,
             @Param("interval") String interval,
             @Param("startTime") Long startTime,
@@ -44,6 +80,33 @@ public interface KlineMapper extends BaseMapper<KlinePO> {
             @Param("limit") Integer limit
     );
 
+    /**
+     * 流式查询指定时间范围的K线
+     *
+     * 返回MyBatis Cursor逐行读取，fetchSize控制PostgreSQL驱动每批拉取的行数，
+     * 内存占用与查询范围无关。
+     * 注意：PostgreSQL只有在非自动提交模式下才会按fetchSize分批读取，必须在事务内调用。
+     *
+     * @param symbol 交易对
+     * @param interval K线周期
+     * @param startTime 开始时间（时间戳秒）
+     * @param endTime 结束时间（时间戳秒）
+     * @return K线游标（按时间正序）
+     */
+    @Select("SELECT * FROM klines " +
+            "WHERE symbol = #{symbol} " +
+            "AND interval = #{interval} " +
+            "AND open_time >= #{startTime} " +
+            "AND open_time < #{endTime} " +
+            "ORDER BY open_time ASC")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = 1000)
+    Cursor<Kline> streamByTimeRange(
+            @Param("symbol") String symbol,
+            @Param("interval") String interval,
+            @Param("startTime") Long startTime,
+            @Param("endTime") Long endTime
+    );
+
     /**
      * 查询最新的N条K线
      *
@@ -57,7 +120,7 @@ public interface KlineMapper extends BaseMapper<KlinePO> {
             "AND interval = #{interval} " +
             "ORDER BY open_time DESC " +
             "LIMIT #{limit}")
-    List<KlinePO> findLatestKlines(
+    List<Kline> findLatestKlines(
             @Param("symbol") String symbol,
             @Param("interval") String interval,
             @Param("limit") Integer limit
@@ -75,23 +138,35 @@ public interface KlineMapper extends BaseMapper<KlinePO> {
             "AND interval = #{interval} " +
             "ORDER BY open_time DESC " +
             "LIMIT 1")
-    KlinePO findLatestKline(
+    Kline findLatestKline(
             @Param("symbol") String symbol,
             @Param("interval") String interval
     );
 
     /**
-     * 统计K线数量
+     * 批量查询多个交易对的最新一条K线
      *
-     * @param symbol 交易对
+     * LATERAL子查询对每个交易对走 (symbol, interval, open_time DESC) 索引取一行，
+     * 避免 DISTINCT ON 扫描每个交易对的全部历史
+     *
+     * @param symbols 交易对集合（不能为空）
      * @param interval K线周期
-     * @return 数量
+     * @return 每个交易对的最新K线
      */
-    @Select("SELECT COUNT(*) FROM klines " +
-            "WHERE symbol = #{symbol} " +
-            "AND interval = #{interval}")
-    Long countBySymbolAndInterval(
-            @Param("symbol") String symbol,
+    @Select("<script>" +
+            "SELECT k.* FROM (VALUES " +
+            "<foreach collection='symbols' item='symbol' separator=','>(#{symbol})</foreach>" +
+            ") AS s(symbol) " +
+            "CROSS JOIN LATERAL (" +
+            "SELECT * FROM klines " +
+            "WHERE klines.symbol = s.symbol " +
+            "AND klines.interval = #{interval} " +
+            "ORDER BY klines.open_time DESC " +
+            "LIMIT 1" +
+            ") k" +
+            "</script>")
+    List<Kline> findLatestKlinesBySymbols(
+            @Param("symbols") Collection<String> symbols,
             @Param("interval") String interval
     );
 }
@@ -0,0 +1,67 @@
+package com.hkd.market.infrastructure.persistence.mapper;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+/**
+ * 溢写日志回放位置 Mapper
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Mapper
+public interface KlineSpillCheckpointMapper {
+
+    /**
+     * 查询段的回放位置
+     *
+     * @param segment 段名
+     * @return 已回放到的字节偏移，没有记录时为null
+     */
+    @Select("SELECT replayed_offset FROM kline_spill_checkpoints WHERE segment = #{segment}")
+    Long findOffset(@Param("segment") String segment);
+
+    /**
+     * 记录段的第一批回放
+     *
+     * @param segment 段名
+     * @param toOffset 新位置
+     * @return 影响行数（已有记录时为0）
+     */
+    @Insert("INSERT INTO kline_spill_checkpoints (segment, replayed_offset, updated_at) " +
+            "VALUES (#{segment}, #{toOffset}, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (segment) DO NOTHING")
+    int insert(
+            @Param("segment") String segment,
+            @Param("toOffset") long toOffset
+    );
+
+    /**
+     * 从期望的位置推进段的回放位置
+     *
+     * @param segment 段名
+     * @param fromOffset 期望的当前位置
+     * @param toOffset 新位置
+     * @return 影响行数（当前位置不一致时为0）
+     */
+    @Update("UPDATE kline_spill_checkpoints SET replayed_offset = #{toOffset}, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE segment = #{segment} AND replayed_offset = #{fromOffset}")
+    int advance(
+            @Param("segment") String segment,
+            @Param("fromOffset") long fromOffset,
+            @Param("toOffset") long toOffset
+    );
+
+    /**
+     * 删除段的回放位置
+     *
+     * @param segment 段名
+     * @return 影响行数
+     */
+    @Delete("DELETE FROM kline_spill_checkpoints WHERE segment = #{segment}")
+    int delete(@Param("segment") String segment);
+}
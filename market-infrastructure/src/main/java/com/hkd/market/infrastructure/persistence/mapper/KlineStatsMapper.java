@@ -0,0 +1,50 @@
+package com.hkd.market.infrastructure.persistence.mapper;
+
+import com.hkd.market.infrastructure.persistence.stats.KlineStats;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+
+/**
+ * K线统计 Mapper
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Mapper
+public interface KlineStatsMapper {
+
+    /**
+     * 记录一根新增K线
+     *
+     * 数量加一并扩展开盘时间范围，需要与K线插入处于同一事务
+     *
+     * @param symbol 交易对
+     * @param interval K线周期
+     * @param openTime 新K线的开盘时间（时间戳秒）
+     * @return 影响行数
+     */
+    @Insert("INSERT INTO kline_stats (symbol, interval, bar_count, earliest_open_time, latest_open_time, updated_at) " +
+            "VALUES (#{symbol}, #{interval}, 1, #{openTime}, #{openTime}, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (symbol, interval) DO UPDATE SET " +
+            "bar_count = kline_stats.bar_count + 1, " +
+            "earliest_open_time = LEAST(kline_stats.earliest_open_time, EXCLUDED.earliest_open_time), " +
+            "latest_open_time = GREATEST(kline_stats.latest_open_time, EXCLUDED.latest_open_time), " +
+            "updated_at = CURRENT_TIMESTAMP")
+    int recordInsert(
+            @Param("symbol") String symbol,
+            @Param("interval") String interval,
+            @Param("openTime") Long openTime
+    );
+
+    /**
+     * 查询全部统计
+     *
+     * @return 所有 (symbol, interval) 的统计
+     */
+    @Select("SELECT symbol, interval, bar_count, earliest_open_time, latest_open_time FROM kline_stats")
+    List<KlineStats> findAll();
+}
@@ -0,0 +1,261 @@
+package com.hkd.market.infrastructure.persistence.repository;
+
+import com.hkd.market.api.enums.KlineInterval;
+import com.hkd.market.application.cache.KlineHotCache;
+import com.hkd.market.domain.entity.Kline;
+import com.hkd.market.domain.repository.KlineRepository;
+import com.hkd.market.infrastructure.cache.KlineChunk;
+import com.hkd.market.infrastructure.cache.KlineChunkCache;
+import com.hkd.market.infrastructure.cache.KlineSealPolicy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * 带已完成K线缓存的Repository装饰器
+ *
+ * 读取策略：
+ * 1. 时间轴按 chunkSize 根K线切分为分片，已封存部分从 KlineChunkCache (L1/L2) 读取
+ * 2. 只有最近的未封存K线（当前K线及上一根）实时查询数据库
+ * 3. 当前分片随时间推进增量补齐新封存的K线，不重复加载整片
+ * 4. 最新N根K线优先从Redis最新K线窗口一次读取，窗口不足或不连续时再走分片
+ *
+ * 封存规则见 KlineSealPolicy。
+ * 分片中的K线在多次查询之间共享，返回给调用方的是副本，调用方修改结果不会影响缓存。
+ *
+ * 写入、单根查询和流式导出直接透传给底层Repository。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Slf4j
+public class CachingKlineRepository implements KlineRepository {
+
+    private final KlineRepository delegate;
+    private final KlineChunkCache chunkCache;
+    private final KlineHotCache hotCache;
+    private final int chunkSize;
+    private final int maxChunksPerQuery;
+
+    public CachingKlineRepository(KlineRepository delegate, KlineChunkCache chunkCache, KlineHotCache hotCache,
+                                  int chunkSize, int maxChunksPerQuery) {
+        this.delegate = delegate;
+        this.chunkCache = chunkCache;
+        this.hotCache = hotCache;
+        this.chunkSize = chunkSize;
+        this.maxChunksPerQuery = maxChunksPerQuery;
+    }
+
+    @Override
+    public Kline save(Kline kline) {
+        Kline saved = delegate.save(kline);
+        evictSealed(kline);
+        return saved;
+    }
+
+    @Override
+    public Kline mergeTrades(Kline kline, Kline delta) {
+        Kline merged = delegate.mergeTrades(kline, delta);
+        evictSealed(kline);
+        return merged;
+    }
+
+    @Override
+    public Optional<Kline> findBySymbolAndIntervalAndOpenTime(String symbol, String interval, Long openTime) {
+        return delegate.findBySymbolAndIntervalAndOpenTime(symbol, interval, openTime);
+    }
+
+    @Override
+    public List<Kline> findByTimeRange(String symbol, String interval, Long startTime, Long endTime, Integer limit) {
+        KlineInterval klineInterval = resolveInterval(interval);
+        if (klineInterval == null || limit == null) {
+            return delegate.findByTimeRange(symbol, interval, startTime, endTime, limit);
+        }
+
+        long sealedTime = KlineSealPolicy.sealedTime(klineInterval);
+        long cachedEnd = Math.min(endTime, sealedTime);
+        long firstChunk = chunkStart(klineInterval, startTime);
+        long span = chunkSpan(klineInterval);
+
+        // 范围内无已封存数据，或跨越分片过多（例如从0开始的全量范围），直接查库
+        if (cachedEnd <= startTime || (cachedEnd - firstChunk) / span >= maxChunksPerQuery) {
+            return delegate.findByTimeRange(symbol, interval, startTime, endTime, limit);
+        }
+
+        List<Kline> result = new ArrayList<>(Math.min(limit, chunkSize));
+        for (long chunkStart = firstChunk; chunkStart < cachedEnd && result.size() < limit; chunkStart += span) {
+            KlineChunk chunk = loadChunk(symbol, klineInterval, chunkStart, sealedTime);
+            for (Kline kline : chunk.bars()) {
+                long openTime = kline.getOpenTime();
+                if (openTime >= startTime && openTime < cachedEnd) {
+                    result.add(kline.toBuilder().build());
+                    if (result.size() == limit) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        // 未封存的尾部实时查询
+        if (result.size() < limit && endTime > cachedEnd) {
+            result.addAll(delegate.findByTimeRange(
+                    symbol, interval, Math.max(startTime, cachedEnd), endTime, limit - result.size()));
+        }
+        return result;
+    }
+
+    @Override
+    public long streamByTimeRange(String symbol, String interval, Long startTime, Long endTime,
+                                  Consumer<Kline> consumer) {
+        return delegate.streamByTimeRange(symbol, interval, startTime, endTime, consumer);
+    }
+
+    @Override
+    public List<Kline> findLatestKlines(String symbol, String interval, Integer limit) {
+        KlineInterval klineInterval = resolveInterval(interval);
+        if (klineInterval == null || limit == null) {
+            return delegate.findLatestKlines(symbol, interval, limit);
+        }
+
+        // 0. Redis最新K线窗口（含当前未收盘K线）；管道写入失败会在窗口中留下空洞，只接受连续的窗口
+        List<Kline> window = hotCache.findLatestWindow(symbol, interval, limit);
+        if (window.size() >= limit && isContiguous(window, klineInterval)) {
+            return window;
+        }
+
+        long sealedTime = KlineSealPolicy.sealedTime(klineInterval);
+
+        // 1. 未封存的尾部实时查询（最多两三根）；按时间正序返回，取整段后只保留最新的 limit 根
+        List<Kline> tail = delegate.findByTimeRange(symbol, interval, sealedTime, Long.MAX_VALUE, Integer.MAX_VALUE);
+        List<Kline> result = new ArrayList<>(limit);
+        for (int i = tail.size() - 1; i >= 0 && result.size() < limit; i--) {
+            result.add(tail.get(i));
+        }
+
+        // 2. 从最近的封存分片向前回溯
+        long span = chunkSpan(klineInterval);
+        long chunkStart = chunkStart(klineInterval, sealedTime - 1);
+        for (int walked = 0; result.size() < limit; walked++, chunkStart -= span) {
+            if (walked >= maxChunksPerQuery) {
+                // 历史较短或存在长时间无成交的空档，回退到数据库
+                return delegate.findLatestKlines(symbol, interval, limit);
+            }
+
+            List<Kline> bars = loadChunk(symbol, klineInterval, chunkStart, sealedTime).bars();
+            for (int i = bars.size() - 1; i >= 0 && result.size() < limit; i--) {
+                result.add(bars.get(i).toBuilder().build());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<Kline> findLatestKline(String symbol, String interval) {
+        return delegate.findLatestKline(symbol, interval);
+    }
+
+    @Override
+    public List<Kline> findLatestKlinesBySymbols(Collection<String> symbols, String interval) {
+        return delegate.findLatestKlinesBySymbols(symbols, interval);
+    }
+
+    @Override
+    public Long countBySymbolAndInterval(String symbol, String interval) {
+        return delegate.countBySymbolAndInterval(symbol, interval);
+    }
+
+    @Override
+    public Optional<Long> findEarliestOpenTime(String symbol, String interval) {
+        return delegate.findEarliestOpenTime(symbol, interval);
+    }
+
+    @Override
+    public Optional<Long> findLatestOpenTime(String symbol, String interval) {
+        return delegate.findLatestOpenTime(symbol, interval);
+    }
+
+    /**
+     * 加载分片的已封存部分
+     *
+     * 缓存中的分片封存上界不足时，只增量查询新封存的K线并追加
+     */
+    private KlineChunk loadChunk(String symbol, KlineInterval interval, long chunkStart, long sealedTime) {
+        long requiredUntil = Math.min(chunkStart + chunkSpan(interval), sealedTime);
+
+        KlineChunk cached = chunkCache.get(symbol, interval.getCode(), chunkStart);
+        if (cached != null && cached.sealedUntil() >= requiredUntil) {
+            return cached;
+        }
+
+        KlineChunk loaded;
+        if (cached != null) {
+            List<Kline> bars = new ArrayList<>(cached.bars());
+            bars.addAll(delegate.findByTimeRange(
+                    symbol, interval.getCode(), cached.sealedUntil(), requiredUntil, chunkSize + 1));
+            loaded = new KlineChunk(chunkStart, requiredUntil, bars);
+        } else {
+            loaded = new KlineChunk(chunkStart, requiredUntil, delegate.findByTimeRange(
+                    symbol, interval.getCode(), chunkStart, requiredUntil, chunkSize + 1));
+        }
+
+        chunkCache.put(symbol, interval.getCode(), loaded);
+        log.debug("Kline chunk loaded: symbol={}, interval={}, chunkStart={}, sealedUntil={}, bars={}",
+                symbol, interval.getCode(), chunkStart, requiredUntil, loaded.bars().size());
+        return loaded;
+    }
+
+    /**
+     * 迟到成交改写了已封存K线，失效对应分片
+     */
+    private void evictSealed(Kline kline) {
+        KlineInterval interval = resolveInterval(kline.getInterval());
+        if (interval != null && kline.getOpenTime() < KlineSealPolicy.sealedTime(interval)) {
+            chunkCache.evict(kline.getSymbol(), kline.getInterval(), chunkStart(interval, kline.getOpenTime()));
+        }
+    }
+
+    /**
+     * 窗口（按时间倒序）中相邻K线的开盘时间是否恰好相差一个周期
+     *
+     * 长时间无成交产生的正常空档同样判定为不连续，这种情况回退到分片/数据库读取，结果仍然正确
+     */
+    private static boolean isContiguous(List<Kline> window, KlineInterval interval) {
+        for (int i = 1; i < window.size(); i++) {
+            long newer = window.get(i - 1).getOpenTime();
+            long older = window.get(i).getOpenTime();
+            if (nextOpenTime(interval, older) != newer) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 下一根K线的开盘时间（月线按自然月计算）
+     */
+    private static long nextOpenTime(KlineInterval interval, long openTime) {
+        if (interval == KlineInterval.MONTH_1) {
+            return Instant.ofEpochSecond(openTime).atZone(ZoneOffset.UTC).plusMonths(1).toEpochSecond();
+        }
+        return openTime + interval.getSeconds();
+    }
+
+    private long chunkSpan(KlineInterval interval) {
+        return (long) interval.getSeconds() * chunkSize;
+    }
+
+    private long chunkStart(KlineInterval interval, long openTime) {
+        long span = chunkSpan(interval);
+        return Math.floorDiv(openTime, span) * span;
+    }
+
+    private KlineInterval resolveInterval(String interval) {
+        return KlineInterval.isValid(interval) ? KlineInterval.fromCode(interval) : null;
+    }
+}
@@ -0,0 +1,139 @@
+package com.hkd.market.infrastructure.persistence.repository;
+
+import com.hkd.market.domain.entity.Kline;
+import com.hkd.market.domain.repository.KlineRepository;
+import com.hkd.market.infrastructure.columnar.ColumnarKlineSeries;
+import com.hkd.market.infrastructure.columnar.ColumnarKlineStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * 列式存储Repository装饰器
+ *
+ * 已归档的历史范围从本地列式存储读取，未归档的尾部（含当前K线）回退到PostgreSQL。
+ * 归档水位 = 列式存储中最后一根K线的开盘时间，水位之后的数据只在数据库中。
+ * 数据库只按 openTime > 水位 查询尾部，已归档的范围不再访问数据库。
+ *
+ * 写入和单根查询直接透传给底层Repository。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Slf4j
+public class ColumnarKlineRepository implements KlineRepository {
+
+    private final KlineRepository delegate;
+    private final ColumnarKlineStore columnarKlineStore;
+
+    public ColumnarKlineRepository(KlineRepository delegate, ColumnarKlineStore columnarKlineStore) {
+        this.delegate = delegate;
+        this.columnarKlineStore = columnarKlineStore;
+    }
+
+    @Override
+    public Kline save(Kline kline) {
+        return delegate.save(kline);
+    }
+
+    @Override
+    public Kline mergeTrades(Kline kline, Kline delta) {
+        return delegate.mergeTrades(kline, delta);
+    }
+
+    @Override
+    public Optional<Kline> findBySymbolAndIntervalAndOpenTime(String symbol, String interval, Long openTime) {
+        return delegate.findBySymbolAndIntervalAndOpenTime(symbol, interval, openTime);
+    }
+
+    @Override
+    public List<Kline> findByTimeRange(String symbol, String interval, Long startTime, Long endTime, Integer limit) {
+        ColumnarKlineSeries series = columnarKlineStore.findSeries(symbol, interval);
+        long watermark = series == null ? Long.MIN_VALUE : series.lastOpenTime();
+        if (watermark == Long.MIN_VALUE || startTime > watermark || limit == null) {
+            return delegate.findByTimeRange(symbol, interval, startTime, endTime, limit);
+        }
+
+        // 1. 已归档部分
+        List<Kline> result = series.read(startTime, Math.min(endTime, watermark + 1), limit);
+
+        // 2. 未归档的尾部
+        if (result.size() < limit && endTime > watermark + 1) {
+            result.addAll(delegate.findByTimeRange(
+                    symbol, interval, watermark + 1, endTime, limit - result.size()));
+        }
+        return result;
+    }
+
+    @Override
+    public long streamByTimeRange(String symbol, String interval, Long startTime, Long endTime,
+                                  Consumer<Kline> consumer) {
+        ColumnarKlineSeries series = columnarKlineStore.findSeries(symbol, interval);
+        long watermark = series == null ? Long.MIN_VALUE : series.lastOpenTime();
+        if (watermark == Long.MIN_VALUE || startTime > watermark) {
+            return delegate.streamByTimeRange(symbol, interval, startTime, endTime, consumer);
+        }
+
+        long count = series.stream(startTime, Math.min(endTime, watermark + 1), Long.MAX_VALUE, consumer);
+        if (endTime > watermark + 1) {
+            count += delegate.streamByTimeRange(symbol, interval, watermark + 1, endTime, consumer);
+        }
+        return count;
+    }
+
+    @Override
+    public List<Kline> findLatestKlines(String symbol, String interval, Integer limit) {
+        ColumnarKlineSeries series = columnarKlineStore.findSeries(symbol, interval);
+        long watermark = series == null ? Long.MIN_VALUE : series.lastOpenTime();
+        if (watermark == Long.MIN_VALUE || limit == null) {
+            return delegate.findLatestKlines(symbol, interval, limit);
+        }
+
+        // 1. 数据库只查询水位之后的尾部（通常只有未归档的少量K线）
+        List<Kline> tail = delegate.findByTimeRange(symbol, interval, watermark + 1, Long.MAX_VALUE, limit);
+        if (tail.size() >= limit) {
+            // 尾部已够limit根，结果全部在数据库中
+            return delegate.findLatestKlines(symbol, interval, limit);
+        }
+
+        List<Kline> result = new ArrayList<>(limit);
+        for (int i = tail.size() - 1; i >= 0; i--) {
+            result.add(tail.get(i));
+        }
+
+        // 2. 不足部分从列式存储倒序补齐
+        if (result.size() < limit) {
+            result.addAll(series.readLatest(watermark + 1, limit - result.size()));
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<Kline> findLatestKline(String symbol, String interval) {
+        return delegate.findLatestKline(symbol, interval);
+    }
+
+    @Override
+    public List<Kline> findLatestKlinesBySymbols(Collection<String> symbols, String interval) {
+        return delegate.findLatestKlinesBySymbols(symbols, interval);
+    }
+
+    @Override
+    public Long countBySymbolAndInterval(String symbol, String interval) {
+        return delegate.countBySymbolAndInterval(symbol, interval);
+    }
+
+    @Override
+    public Optional<Long> findEarliestOpenTime(String symbol, String interval) {
+        return delegate.findEarliestOpenTime(symbol, interval);
+    }
+
+    @Override
+    public Optional<Long> findLatestOpenTime(String symbol, String interval) {
+        return delegate.findLatestOpenTime(symbol, interval);
+    }
+}
@@ -1,26 +1,36 @@
 package com.hkd.market.infrastructure.persistence.repository;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.hkd.market.domain.entity.Kline;
 import com.hkd.market.domain.repository.KlineRepository;
 import com.hkd.market.infrastructure.persistence.mapper.KlineMapper;
-import com.hkd.market.infrastructure.persistence.po.KlinePO;
+import com.hkd.market.infrastructure.persistence.stats.KlineStats;
+import com.hkd.market.infrastructure.persistence.stats.KlineStatsTracker;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 /**
  * K线Repository实现
  *
  * 职责：
  * 1. 实现domain层的KlineRepository接口
- * 2. 将domain实体转换为持久化对象
- * 3. 调用MyBatis Plus进行数据库操作
+ * 2. 调用MyBatis Plus进行数据库操作
+ *
+ * KlineMapper直接映射domain实体，读写都不做PO/实体之间的字段拷贝
+ * 查询方法标记为只读事务，开启读写分离时路由到副本（在写事务内调用时沿用主库连接）
+ * 数量和开盘时间范围由 KlineStatsTracker 在内存中维护，不扫描klines表
  *
  * @author HKD Development Team
  * @version 1.0.0
@@ -31,122 +41,119 @@ import java.util.stream.Collectors;
 public class KlineRepositoryImpl implements KlineRepository {
 
     private final KlineMapper klineMapper;
+    private final KlineStatsTracker klineStatsTracker;
 
     @Override
     public Kline save(Kline kline) {
-        KlinePO po = toKlinePO(kline);
-
-        if (po.getId() == null) {
-            // 新增
-            klineMapper.insert(po);
+        if (kline.getId() == null) {
+            // 新增（MyBatis Plus 回填雪花ID到实体）
+            klineMapper.insert(kline);
+            klineStatsTracker.recordInsert(kline.getSymbol(), kline.getInterval(), kline.getOpenTime());
             log.debug("Inserted new kline: id={}, symbol={}, interval={}, openTime={}",
-                    po.getId(), po.getSymbol(), po.getInterval(), po.getOpenTime());
+                    kline.getId(), kline.getSymbol(), kline.getInterval(), kline.getOpenTime());
         } else {
             // 更新
-            po.setUpdatedAt(LocalDateTime.now());
-            klineMapper.updateById(po);
+            kline.setUpdatedAt(LocalDateTime.now());
+            klineMapper.updateById(kline);
             log.debug("Updated kline: id={}, symbol={}, interval={}, openTime={}",
-                    po.getId(), po.getSymbol(), po.getInterval(), po.getOpenTime());
+                    kline.getId(), kline.getSymbol(), kline.getInterval(), kline.getOpenTime());
         }
 
-        return toKline(po);
+        return kline;
+    }
+
+    /**
+     * 单条 INSERT ... ON CONFLICT DO UPDATE 合并成交增量
+     *
+     * 插入时预先分配雪花ID，返回行的ID与之相同说明是新插入的K线
+     */
+    @Override
+    public Kline mergeTrades(Kline kline, Kline delta) {
+        long id = IdWorker.getId();
+        Kline merged = klineMapper.mergeTrades(kline.toBuilder().id(id).build(), delta);
+        if (merged.getId() == id) {
+            klineStatsTracker.recordInsert(merged.getSymbol(), merged.getInterval(), merged.getOpenTime());
+        }
+        log.debug("Merged kline trades: id={}, symbol={}, interval={}, openTime={}, tradeCount={}",
+                merged.getId(), merged.getSymbol(), merged.getInterval(), merged.getOpenTime(),
+                merged.getTradeCount());
+        return merged;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<Kline> findBySymbolAndIntervalAndOpenTime(String symbol, String interval, Long openTime) {
-        LambdaQueryWrapper<KlinePO> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(KlinePO::getSymbol, symbol)
-                .eq(KlinePO::getInterval, interval)
-                .eq(KlinePO::getOpenTime, openTime);
+        LambdaQueryWrapper<Kline> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(Kline::getSymbol, symbol)
+                .eq(Kline::getInterval, interval)
+                .eq(Kline::getOpenTime, openTime);
 
-        KlinePO po = klineMapper.selectOne(wrapper);
-        return Optional.ofNullable(po).map(this::toKline);
+        return Optional.ofNullable(klineMapper.selectOne(wrapper));
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Kline> findByTimeRange(String symbol, String interval, Long startTime, Long endTime, Integer limit) {
-        List<KlinePO> poList = klineMapper.findByTimeRange(symbol, interval, startTime, endTime, limit);
-        return poList.stream()
-                .map(this::toKline)
-                .collect(Collectors.toList());
+        return klineMapper.findByTimeRange(symbol, interval, startTime, endTime, limit);
     }
 
+    /**
+     * 流式读取K线
+     *
+     * 游标需要在事务内保持连接打开，每行映射后直接交给consumer，不保留中间列表
+     */
     @Override
-    public List<Kline> findLatestKlines(String symbol, String interval, Integer limit) {
-        List<KlinePO> poList = klineMapper.findLatestKlines(symbol, interval, limit);
-        return poList.stream()
-                .map(this::toKline)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public long streamByTimeRange(String symbol, String interval, Long startTime, Long endTime,
+                                  Consumer<Kline> consumer) {
+        long count = 0;
+        try (Cursor<Kline> cursor = klineMapper.streamByTimeRange(symbol, interval, startTime, endTime)) {
+            for (Kline kline : cursor) {
+                consumer.accept(kline);
+                count++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close kline cursor", e);
+        }
+
+        log.debug("Streamed {} klines: symbol={}, interval={}, range=[{}, {})",
+                count, symbol, interval, startTime, endTime);
+        return count;
     }
 
     @Override
-    public Optional<Kline> findLatestKline(String symbol, String interval) {
-        KlinePO po = klineMapper.findLatestKline(symbol, interval);
-        return Optional.ofNullable(po).map(this::toKline);
+    @Transactional(readOnly = true)
+    public List<Kline> findLatestKlines(String symbol, String interval, Integer limit) {
+        return klineMapper.findLatestKlines(symbol, interval, limit);
     }
 
     @Override
-    public Long countBySymbolAndInterval(String symbol, String interval) {
-        return klineMapper.countBySymbolAndInterval(symbol, interval);
+    @Transactional(readOnly = true)
+    public Optional<Kline> findLatestKline(String symbol, String interval) {
+        return Optional.ofNullable(klineMapper.findLatestKline(symbol, interval));
     }
 
-    /**
-     * 将domain实体转换为持久化对象
-     *
-     * @param kline domain实体
-     * @return 持久化对象
-     */
-    private KlinePO toKlinePO(Kline kline) {
-        if (kline == null) {
-            return null;
+    @Override
+    @Transactional(readOnly = true)
+    public List<Kline> findLatestKlinesBySymbols(Collection<String> symbols, String interval) {
+        if (symbols.isEmpty()) {
+            return List.of();
         }
+        return klineMapper.findLatestKlinesBySymbols(symbols, interval);
+    }
 
-        return KlinePO.builder()
-                .id(kline.getId())
-                .symbol(kline.getSymbol())
-                .interval(kline.getInterval())
-                .openTime(kline.getOpenTime())
-                .closeTime(kline.getCloseTime())
-                .open(kline.getOpen())
-                .high(kline.getHigh())
-                .low(kline.getLow())
-                .close(kline.getClose())
-                .volume(kline.getVolume())
-                .amount(kline.getAmount())
-                .tradeCount(kline.getTradeCount())
-                .completed(kline.getCompleted())
-                .createdAt(kline.getCreatedAt())
-                .updatedAt(kline.getUpdatedAt())
-                .build();
+    @Override
+    public Long countBySymbolAndInterval(String symbol, String interval) {
+        return klineStatsTracker.get(symbol, interval).map(KlineStats::getBarCount).orElse(0L);
     }
 
-    /**
-     * 将持久化对象转换为domain实体
-     *
-     * @param po 持久化对象
-     * @return domain实体
-     */
-    private Kline toKline(KlinePO po) {
-        if (po == null) {
-            return null;
-        }
+    @Override
+    public Optional<Long> findEarliestOpenTime(String symbol, String interval) {
+        return klineStatsTracker.get(symbol, interval).map(KlineStats::getEarliestOpenTime);
+    }
 
-        return Kline.builder()
-                .id(po.getId())
-                .symbol(po.getSymbol())
-                .interval(po.getInterval())
-                .openTime(po.getOpenTime())
-                .closeTime(po.getCloseTime())
-                .open(po.getOpen())
-                .high(po.getHigh())
-                .low(po.getLow())
-                .close(po.getClose())
-                .volume(po.getVolume())
-                .amount(po.getAmount())
-                .tradeCount(po.getTradeCount())
-                .completed(po.getCompleted())
-                .createdAt(po.getCreatedAt())
-                .updatedAt(po.getUpdatedAt())
-                .build();
+    @Override
+    public Optional<Long> findLatestOpenTime(String symbol, String interval) {
+        return klineStatsTracker.get(symbol, interval).map(KlineStats::getLatestOpenTime);
     }
 }
@@ -0,0 +1,44 @@
+package com.hkd.market.infrastructure.persistence.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * K线统计
+ *
+ * 对应 kline_stats 表的一行：单个 (symbol, interval) 的K线数量和开盘时间范围
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KlineStats {
+
+    /**
+     * 交易对
+     */
+    private String symbol;
+
+    /**
+     * K线周期
+     */
+    private String interval;
+
+    /**
+     * K线数量
+     */
+    private Long barCount;
+
+    /**
+     * 最早开盘时间（时间戳秒）
+     */
+    private Long earliestOpenTime;
+
+    /**
+     * 最新开盘时间（时间戳秒）
+     */
+    private Long latestOpenTime;
+}
@@ -0,0 +1,128 @@
+package com.hkd.market.infrastructure.persistence.stats;
+
+import com.hkd.market.infrastructure.persistence.mapper.KlineStatsMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * K线统计跟踪器
+ *
+ * 在内存中维护每个 (symbol, interval) 的K线数量和开盘时间范围，
+ * 数量、最早/最新开盘时间查询为O(1)，不再扫描klines表。
+ *
+ * 维护方式：
+ * 1. 启动时从 kline_stats 表加载一次
+ * 2. 每插入一根K线，在同一事务内更新 kline_stats，事务提交后再更新内存，回滚时内存不变
+ * 3. 定时从表中合并一次，纳入其他实例写入的K线（数量和范围只增不减，按最大值合并）
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class KlineStatsTracker {
+
+    private final KlineStatsMapper klineStatsMapper;
+
+    /**
+     * key: symbol:interval，value 不可变替换
+     */
+    private final Map<String, KlineStats> statsMap = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        refresh();
+        log.info("Kline stats loaded: series={}", statsMap.size());
+    }
+
+    /**
+     * 从 kline_stats 表合并统计
+     */
+    @Scheduled(fixedDelayString = "${hkd.market.kline.stats.refresh-interval:60000}",
+            initialDelayString = "${hkd.market.kline.stats.refresh-interval:60000}")
+    public void refresh() {
+        List<KlineStats> rows = klineStatsMapper.findAll();
+        for (KlineStats row : rows) {
+            statsMap.merge(key(row.getSymbol(), row.getInterval()), row, KlineStatsTracker::merge);
+        }
+    }
+
+    /**
+     * 记录一根新插入的K线
+     *
+     * 必须在K线插入之后、同一事务内调用
+     *
+     * @param symbol 交易对
+     * @param interval K线周期
+     * @param openTime 开盘时间（时间戳秒）
+     */
+    public void recordInsert(String symbol, String interval, Long openTime) {
+        klineStatsMapper.recordInsert(symbol, interval, openTime);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyInsert(symbol, interval, openTime);
+                }
+            });
+        } else {
+            applyInsert(symbol, interval, openTime);
+        }
+    }
+
+    /**
+     * 查询统计
+     *
+     * @param symbol 交易对
+     * @param interval K线周期
+     * @return 统计（没有K线时为空）
+     */
+    public Optional<KlineStats> get(String symbol, String interval) {
+        return Optional.ofNullable(statsMap.get(key(symbol, interval)));
+    }
+
+    /**
+     * 查询全部统计
+     *
+     * @return 所有已知 (symbol, interval) 的统计
+     */
+    public Collection<KlineStats> getAll() {
+        return List.copyOf(statsMap.values());
+    }
+
+    private void applyInsert(String symbol, String interval, Long openTime) {
+        statsMap.compute(key(symbol, interval), (k, current) -> {
+            if (current == null) {
+                return new KlineStats(symbol, interval, 1L, openTime, openTime);
+            }
+            return new KlineStats(symbol, interval,
+                    current.getBarCount() + 1,
+                    Math.min(current.getEarliestOpenTime(), openTime),
+                    Math.max(current.getLatestOpenTime(), openTime));
+        });
+    }
+
+    private static KlineStats merge(KlineStats current, KlineStats loaded) {
+        return new KlineStats(current.getSymbol(), current.getInterval(),
+                Math.max(current.getBarCount(), loaded.getBarCount()),
+                Math.min(current.getEarliestOpenTime(), loaded.getEarliestOpenTime()),
+                Math.max(current.getLatestOpenTime(), loaded.getLatestOpenTime()));
+    }
+
+    private static String key(String symbol, String interval) {
+        return symbol + ":" + interval;
+    }
+}
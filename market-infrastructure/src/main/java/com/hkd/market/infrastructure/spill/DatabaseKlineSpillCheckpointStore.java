@@ -0,0 +1,38 @@
+package com.hkd.market.infrastructure.spill;
+
+import com.hkd.market.application.resilience.KlineSpillCheckpointStore;
+import com.hkd.market.infrastructure.persistence.mapper.KlineSpillCheckpointMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * 基于 kline_spill_checkpoints 表的溢写回放位置
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Component
+@RequiredArgsConstructor
+public class DatabaseKlineSpillCheckpointStore implements KlineSpillCheckpointStore {
+
+    private final KlineSpillCheckpointMapper checkpointMapper;
+
+    @Override
+    public long find(String segment) {
+        Long offset = checkpointMapper.findOffset(segment);
+        return offset == null ? 0L : offset;
+    }
+
+    @Override
+    public boolean advance(String segment, long fromOffset, long toOffset) {
+        if (fromOffset == 0L) {
+            return checkpointMapper.insert(segment, toOffset) == 1;
+        }
+        return checkpointMapper.advance(segment, fromOffset, toOffset) == 1;
+    }
+
+    @Override
+    public void remove(String segment) {
+        checkpointMapper.delete(segment);
+    }
+}
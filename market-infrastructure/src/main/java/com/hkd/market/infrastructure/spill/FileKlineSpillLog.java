@@ -0,0 +1,289 @@
+package com.hkd.market.infrastructure.spill;
+
+import com.hkd.market.application.resilience.KlineSpillLog;
+import com.hkd.market.domain.entity.Kline;
+import com.hkd.market.infrastructure.cache.KlineBinaryCodec;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 本地文件K线溢写日志
+ *
+ * 文件布局（{path} 目录下）：
+ * - active.wal：当前追加的文件
+ * - replaying-{segment}.wal：正在回放的段，由 active.wal 改名而来，段名为随机UUID（全局唯一）；
+ *   回放完成后删除，进程崩溃后启动时继续回放
+ *
+ * 记录格式：int 长度 + int CRC32 + KlineBinaryCodec 编码的K线。
+ * 每次追加后 force 到磁盘；读取时遇到截断或校验失败的尾部记录即停止（崩溃时未写完的记录），
+ * 启动时把 active.wal 截断到最后一条完整记录，之后的追加不会接在损坏的记录后面。
+ *
+ * 回放按 batch-size 条记录分批读取，从 Replayer 给出的已提交偏移开始，内存占用与积压大小无关。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+public class FileKlineSpillLog implements KlineSpillLog {
+
+    private static final String ACTIVE_FILE = "active.wal";
+    private static final String LEGACY_REPLAYING_FILE = "replaying.wal";
+    private static final String SEGMENT_PREFIX = "replaying-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final int HEADER_BYTES = 8;
+
+    private final Path dir;
+    private final int batchSize;
+
+    private Path activePath;
+    private FileChannel activeChannel;
+
+    private volatile boolean backlog;
+
+    public FileKlineSpillLog(@Value("${hkd.market.kline.degradation.spill.path:data/kline-spill}") String path,
+                             @Value("${hkd.market.kline.degradation.spill.replay-batch-size:1000}") int batchSize) {
+        this.dir = Paths.get(path);
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        Files.createDirectories(dir);
+        activePath = dir.resolve(ACTIVE_FILE);
+
+        if (Files.exists(activePath)) {
+            truncateTornTail(activePath);
+        }
+
+        // 旧版本留下的回放文件没有段名，作为新段回放
+        Path legacy = dir.resolve(LEGACY_REPLAYING_FILE);
+        if (Files.exists(legacy) && findSegment().isEmpty()) {
+            Files.move(legacy, dir.resolve(SEGMENT_PREFIX + UUID.randomUUID() + SEGMENT_SUFFIX),
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        backlog = findSegment().isPresent() || (Files.exists(activePath) && Files.size(activePath) > 0);
+        if (backlog) {
+            log.warn("Found spilled klines from previous run, will replay: dir={}", dir.toAbsolutePath());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (activeChannel != null) {
+            activeChannel.close();
+            activeChannel = null;
+        }
+    }
+
+    @Override
+    public synchronized void append(Collection<Kline> klines) {
+        if (klines.isEmpty()) {
+            return;
+        }
+
+        List<byte[]> records = new ArrayList<>(klines.size());
+        int size = 0;
+        for (Kline kline : klines) {
+            byte[] bytes = KlineBinaryCodec.encode(kline);
+            records.add(bytes);
+            size += HEADER_BYTES + bytes.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        CRC32 crc = new CRC32();
+        for (byte[] bytes : records) {
+            crc.reset();
+            crc.update(bytes);
+            buffer.putInt(bytes.length);
+            buffer.putInt((int) crc.getValue());
+            buffer.put(bytes);
+        }
+        buffer.flip();
+
+        try {
+            if (activeChannel == null) {
+                activeChannel = FileChannel.open(activePath,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            while (buffer.hasRemaining()) {
+                activeChannel.write(buffer);
+            }
+            activeChannel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to spill klines to " + activePath, e);
+        }
+
+        backlog = true;
+        log.debug("Spilled klines: count={}", klines.size());
+    }
+
+    @Override
+    public boolean hasBacklog() {
+        return backlog;
+    }
+
+    @Override
+    public int drain(Replayer replayer) {
+        try {
+            Path segmentPath;
+            synchronized (this) {
+                // 上次回放未完成时先继续回放旧段
+                Optional<Path> existing = findSegment();
+                if (existing.isPresent()) {
+                    segmentPath = existing.get();
+                } else {
+                    if (!Files.exists(activePath) || Files.size(activePath) == 0) {
+                        backlog = false;
+                        return 0;
+                    }
+                    close();
+                    segmentPath = dir.resolve(SEGMENT_PREFIX + UUID.randomUUID() + SEGMENT_SUFFIX);
+                    Files.move(activePath, segmentPath, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+
+            String segment = segmentName(segmentPath);
+            long offset = replayer.replayedOffset(segment);
+            int replayed = 0;
+            try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ)) {
+                while (true) {
+                    List<Kline> batch = new ArrayList<>(batchSize);
+                    long next = read(channel, segmentPath, offset, batch);
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+                    replayer.replay(segment, offset, next, batch);
+                    offset = next;
+                    replayed += batch.size();
+                }
+            }
+
+            Files.delete(segmentPath);
+            replayer.complete(segment);
+
+            synchronized (this) {
+                backlog = Files.exists(activePath) && Files.size(activePath) > 0;
+            }
+            return replayed;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to drain spilled klines", e);
+        }
+    }
+
+    /**
+     * 从 offset 开始读取最多 batchSize 条完整记录
+     *
+     * @return 最后一条读取的记录之后的偏移
+     */
+    private long read(FileChannel channel, Path file, long offset, List<Kline> klines) throws IOException {
+        long position = offset;
+        while (klines.size() < batchSize) {
+            byte[] bytes = readRecord(channel, file, position);
+            if (bytes == null) {
+                break;
+            }
+            klines.add(KlineBinaryCodec.decode(bytes));
+            position += HEADER_BYTES + bytes.length;
+        }
+        return position;
+    }
+
+    /**
+     * 读取 position 处的一条记录
+     *
+     * @return 记录内容，到达文件末尾、记录被截断或校验失败时返回null
+     */
+    private byte[] readRecord(FileChannel channel, Path file, long position) throws IOException {
+        long remaining = channel.size() - position;
+        if (remaining < HEADER_BYTES) {
+            if (remaining > 0) {
+                log.warn("Truncated spilled kline record, ignoring tail: file={}, offset={}", file, position);
+            }
+            return null;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(channel, header, position);
+        header.flip();
+        int length = header.getInt();
+        int checksum = header.getInt();
+        if (length < 0 || length > remaining - HEADER_BYTES) {
+            log.warn("Truncated spilled kline record, ignoring tail: file={}, offset={}", file, position);
+            return null;
+        }
+
+        ByteBuffer body = ByteBuffer.allocate(length);
+        readFully(channel, body, position + HEADER_BYTES);
+        byte[] bytes = body.array();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        if ((int) crc.getValue() != checksum) {
+            log.warn("Corrupted spilled kline record, ignoring tail: file={}, offset={}", file, position);
+            return null;
+        }
+        return bytes;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of spill file");
+            }
+        }
+    }
+
+    /**
+     * 把文件截断到最后一条完整记录
+     */
+    private void truncateTornTail(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long position = 0;
+            byte[] bytes;
+            while ((bytes = readRecord(channel, file, position)) != null) {
+                position += HEADER_BYTES + bytes.length;
+            }
+            if (position < channel.size()) {
+                log.warn("Truncating torn spill file tail: file={}, from={}, to={}", file, channel.size(), position);
+                channel.truncate(position);
+                channel.force(true);
+            }
+        }
+    }
+
+    private Optional<Path> findSegment() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().findFirst();
+        }
+    }
+
+    private static String segmentName(Path segmentPath) {
+        String name = segmentPath.getFileName().toString();
+        return name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length());
+    }
+}
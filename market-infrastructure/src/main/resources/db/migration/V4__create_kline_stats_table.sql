@@ -0,0 +1,27 @@
+-- ========================================
+-- V4: 创建K线统计表
+-- ========================================
+
+-- 每个 (symbol, interval) 一行，随K线新增增量维护，
+-- 替代在 klines 上执行 COUNT(*) / MIN / MAX
+CREATE TABLE IF NOT EXISTS kline_stats (
+    symbol VARCHAR(20) NOT NULL,               -- 交易对
+    interval VARCHAR(10) NOT NULL,             -- K线周期
+    bar_count BIGINT NOT NULL DEFAULT 0,       -- K线数量
+    earliest_open_time BIGINT NOT NULL,        -- 最早开盘时间 (时间戳秒)
+    latest_open_time BIGINT NOT NULL,          -- 最新开盘时间 (时间戳秒)
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,   -- 更新时间
+    PRIMARY KEY (symbol, interval)
+);
+
+-- 回填已有数据 (仅迁移时执行一次)
+INSERT INTO kline_stats (symbol, interval, bar_count, earliest_open_time, latest_open_time)
+SELECT symbol, interval, COUNT(*), MIN(open_time), MAX(open_time)
+FROM klines
+GROUP BY symbol, interval
+ON CONFLICT (symbol, interval) DO NOTHING;
+
+COMMENT ON TABLE kline_stats IS 'K线统计表 (按交易对和周期增量维护)';
+COMMENT ON COLUMN kline_stats.bar_count IS 'K线数量';
+COMMENT ON COLUMN kline_stats.earliest_open_time IS '最早开盘时间 (时间戳秒)';
+COMMENT ON COLUMN kline_stats.latest_open_time IS '最新开盘时间 (时间戳秒)';
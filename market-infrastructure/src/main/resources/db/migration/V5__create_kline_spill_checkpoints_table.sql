@@ -0,0 +1,15 @@
+-- ========================================
+-- V5: 创建溢写日志回放位置表
+-- ========================================
+
+-- 每个溢写段一行，与回放写入的K线在同一事务内推进，
+-- 回放提交后进程崩溃时从已提交的位置继续，不重复累加成交
+CREATE TABLE IF NOT EXISTS kline_spill_checkpoints (
+    segment VARCHAR(64) PRIMARY KEY,           -- 溢写段名 (全局唯一)
+    replayed_offset BIGINT NOT NULL,           -- 已回放到的字节偏移
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP    -- 更新时间
+);
+
+COMMENT ON TABLE kline_spill_checkpoints IS 'K线溢写日志回放位置';
+COMMENT ON COLUMN kline_spill_checkpoints.segment IS '溢写段名';
+COMMENT ON COLUMN kline_spill_checkpoints.replayed_offset IS '已回放到的字节偏移';
@@ -0,0 +1,100 @@
+package com.hkd.market.infrastructure.cache;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.hkd.market.domain.entity.Kline;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * K线二进制编解码耗时对比
+ *
+ * 不属于单元测试（类名不匹配surefire默认规则），通过 benchmark profile 运行：
+ * mvn -pl market-infrastructure test -Pbenchmark
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@DisplayName("K线二进制编解码耗时对比")
+class KlineBinaryCodecBenchmark {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    @Test
+    @DisplayName("对比通用JSON序列化的值大小和编解码耗时")
+    void benchmarkAgainstGenericJson() {
+        Kline kline = sampleKline();
+
+        // 通用JSON序列化（携带类型信息，与 GenericJackson2JsonRedisSerializer 等价）
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        objectMapper.activateDefaultTyping(objectMapper.getPolymorphicTypeValidator(),
+                ObjectMapper.DefaultTyping.NON_FINAL, JsonTypeInfo.As.PROPERTY);
+
+        Function<Kline, byte[]> jsonEncoder = value -> {
+            try {
+                return objectMapper.writeValueAsBytes(value);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        Function<byte[], Kline> jsonDecoder = bytes -> {
+            try {
+                return objectMapper.readValue(bytes, Kline.class);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+        long binaryNanos = measure(kline, KlineBinaryCodec::encode, KlineBinaryCodec::decode);
+        long jsonNanos = measure(kline, jsonEncoder, jsonDecoder);
+
+        System.out.printf("Kline value size: binary=%d bytes, json=%d bytes%n",
+                KlineBinaryCodec.encode(kline).length, jsonEncoder.apply(kline).length);
+        System.out.printf("Kline encode+decode: binary=%d ns/op, json=%d ns/op%n", binaryNanos, jsonNanos);
+    }
+
+    private long measure(Kline kline, Function<Kline, byte[]> encoder, Function<byte[], Kline> decoder) {
+        long sink = 0;
+
+        for (int i = 0; i < WARMUP; i++) {
+            sink += decoder.apply(encoder.apply(kline)).getTradeCount();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += decoder.apply(encoder.apply(kline)).getTradeCount();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        assertTrue(sink > 0);
+        return elapsed / ITERATIONS;
+    }
+
+    private Kline sampleKline() {
+        return Kline.builder()
+                .id(1734567890123456789L)
+                .symbol("BTC-USDT")
+                .interval("1m")
+                .openTime(1700000000L)
+                .closeTime(1700000060L)
+                .open(new BigDecimal("50000.12000000"))
+                .high(new BigDecimal("50100.50000000"))
+                .low(new BigDecimal("49950.00000000"))
+                .close(new BigDecimal("50050.25000000"))
+                .volume(new BigDecimal("12.34567890"))
+                .amount(new BigDecimal("617530.12345678"))
+                .tradeCount(345)
+                .completed(true)
+                .createdAt(LocalDateTime.of(2023, 11, 14, 22, 13, 20, 123456000))
+                .updatedAt(LocalDateTime.of(2023, 11, 14, 22, 14, 20))
+                .build();
+    }
+}
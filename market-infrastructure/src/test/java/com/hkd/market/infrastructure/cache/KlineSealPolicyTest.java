@@ -0,0 +1,78 @@
+package com.hkd.market.infrastructure.cache;
+
+import com.hkd.market.api.enums.KlineInterval;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * KlineSealPolicy 单元测试
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+class KlineSealPolicyTest {
+
+    @Test
+    @DisplayName("分钟线：当前K线和上一根K线都未封存")
+    void testMinute() {
+        long now = utc(2024, 8, 31, 12, 34, 56);
+
+        long sealedTime = KlineSealPolicy.sealedTime(KlineInterval.MIN_1, now);
+
+        assertEquals(utc(2024, 8, 31, 12, 33, 0), sealedTime);
+    }
+
+    @Test
+    @DisplayName("小时线：恰好位于周期起点时上一根K线仍未封存")
+    void testHourBoundary() {
+        long now = utc(2024, 8, 31, 12, 0, 0);
+
+        long sealedTime = KlineSealPolicy.sealedTime(KlineInterval.HOUR_1, now);
+
+        assertEquals(utc(2024, 8, 31, 11, 0, 0), sealedTime);
+    }
+
+    @Test
+    @DisplayName("周线：按周一对齐，周五时上一周的K线仍未封存")
+    void testWeekAlignedToMonday() {
+        // 2024-08-30 是周五，本周从 2024-08-26（周一）开始
+        long now = utc(2024, 8, 30, 12, 0, 0);
+
+        long sealedTime = KlineSealPolicy.sealedTime(KlineInterval.WEEK_1, now);
+
+        assertEquals(utc(2024, 8, 19, 0, 0, 0), sealedTime);
+        assertTrue(utc(2024, 8, 12, 0, 0, 0) < sealedTime);
+    }
+
+    @Test
+    @DisplayName("月线：按自然月计算，月末时上个月的K线仍未封存")
+    void testMonthAtEndOfMonth() {
+        // 按31天近似时，8月31日会把7月K线误判为已封存
+        long now = utc(2024, 8, 31, 23, 59, 59);
+
+        long sealedTime = KlineSealPolicy.sealedTime(KlineInterval.MONTH_1, now);
+
+        assertEquals(utc(2024, 7, 1, 0, 0, 0), sealedTime);
+        assertTrue(utc(2024, 6, 1, 0, 0, 0) < sealedTime);
+    }
+
+    @Test
+    @DisplayName("月线：跨年时封存到上一年12月")
+    void testMonthAcrossYear() {
+        long now = utc(2025, 1, 1, 0, 0, 0);
+
+        long sealedTime = KlineSealPolicy.sealedTime(KlineInterval.MONTH_1, now);
+
+        assertEquals(utc(2024, 12, 1, 0, 0, 0), sealedTime);
+    }
+
+    private static long utc(int year, int month, int day, int hour, int minute, int second) {
+        return LocalDateTime.of(year, month, day, hour, minute, second).toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,126 @@
+package com.hkd.market.infrastructure.columnar;
+
+import com.hkd.market.application.resilience.KlineSpillLog;
+import com.hkd.market.domain.entity.Kline;
+import com.hkd.market.infrastructure.persistence.repository.KlineRepositoryImpl;
+import com.hkd.market.infrastructure.persistence.stats.KlineStatsTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 列式存储归档任务测试
+ *
+ * 测试重点：
+ * 1. 溢写日志有积压时不归档
+ * 2. 只归档封存超过 archive-delay 的K线
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@DisplayName("列式存储归档任务测试")
+class ColumnarKlineArchiverTest {
+
+    private static final String SYMBOL = "BTC-USDT";
+    private static final long HOUR = 3600;
+    private static final long NOW = 1700000000L / HOUR * HOUR + 1800;
+
+    @TempDir
+    Path tempDir;
+
+    private ColumnarKlineStore columnarKlineStore;
+    private KlineRepositoryImpl klineRepositoryImpl;
+    private KlineStatsTracker klineStatsTracker;
+    private KlineSpillLog klineSpillLog;
+    private ColumnarKlineSeries series;
+    private ColumnarKlineArchiver archiver;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        columnarKlineStore = mock(ColumnarKlineStore.class);
+        klineRepositoryImpl = mock(KlineRepositoryImpl.class);
+        klineStatsTracker = mock(KlineStatsTracker.class);
+        klineSpillLog = mock(KlineSpillLog.class);
+
+        series = ColumnarKlineSeries.open(SYMBOL, "1h", tempDir);
+        when(columnarKlineStore.getOrCreateSeries(SYMBOL, "1h")).thenReturn(series);
+
+        // 延迟3小时，块大小4，不足2根不归档
+        archiver = new ColumnarKlineArchiver(columnarKlineStore, klineRepositoryImpl, klineStatsTracker,
+                klineSpillLog, 4, 2, 3 * HOUR * 1000);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        series.close();
+    }
+
+    @Test
+    @DisplayName("测试溢写日志有积压时跳过归档")
+    void testSkipWhileSpillBacklog() {
+        when(klineSpillLog.hasBacklog()).thenReturn(true);
+
+        archiver.archive();
+
+        verifyNoInteractions(klineStatsTracker, klineRepositoryImpl, columnarKlineStore);
+    }
+
+    @Test
+    @DisplayName("测试只归档封存超过 archive-delay 的K线")
+    void testArchiveOnlyBarsPastDelay() throws Exception {
+        // 不延迟时封存时间为 NOW所在小时 - 1小时；延迟3小时后再往前推3小时
+        long delayedSealedTime = NOW / HOUR * HOUR - 4 * HOUR;
+        when(klineRepositoryImpl.findByTimeRange(eq(SYMBOL), eq("1h"), anyLong(), anyLong(), anyInt()))
+                .thenReturn(buildBars(delayedSealedTime - 3 * HOUR, 3));
+
+        int archived = archiver.archiveSeries(SYMBOL, "1h", NOW);
+
+        assertEquals(3, archived);
+        verify(klineRepositoryImpl).findByTimeRange(SYMBOL, "1h", 0L, delayedSealedTime, 4);
+        assertEquals(delayedSealedTime - HOUR, series.lastOpenTime());
+    }
+
+    @Test
+    @DisplayName("测试未积累到最小块行数时不归档")
+    void testWaitForMinBlockRows() throws Exception {
+        when(klineRepositoryImpl.findByTimeRange(eq(SYMBOL), eq("1h"), anyLong(), anyLong(), anyInt()))
+                .thenReturn(buildBars(NOW / HOUR * HOUR - 10 * HOUR, 1));
+
+        assertEquals(0, archiver.archiveSeries(SYMBOL, "1h", NOW));
+        assertEquals(Long.MIN_VALUE, series.lastOpenTime());
+    }
+
+    private List<Kline> buildBars(long startTime, int count) {
+        List<Kline> bars = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long openTime = startTime + i * HOUR;
+            bars.add(Kline.builder()
+                    .id(openTime)
+                    .symbol(SYMBOL)
+                    .interval("1h")
+                    .openTime(openTime)
+                    .closeTime(openTime + HOUR)
+                    .open(new BigDecimal("50000"))
+                    .high(new BigDecimal("50100"))
+                    .low(new BigDecimal("49900"))
+                    .close(new BigDecimal("50050"))
+                    .volume(BigDecimal.ONE)
+                    .amount(new BigDecimal("50050"))
+                    .tradeCount(1)
+                    .completed(true)
+                    .build());
+        }
+        return bars;
+    }
+}
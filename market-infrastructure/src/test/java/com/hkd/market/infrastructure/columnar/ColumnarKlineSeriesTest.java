@@ -0,0 +1,207 @@
+package com.hkd.market.infrastructure.columnar;
+
+import com.hkd.market.domain.entity.Kline;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 列式K线存储测试
+ *
+ * 测试重点：
+ * 1. 块编解码无损（delta-of-delta时间戳、放大后的价格差值）
+ * 2. 范围查询、倒序查询跨块正确
+ * 3. 崩溃后未提交的块被丢弃
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@DisplayName("列式K线存储测试")
+class ColumnarKlineSeriesTest {
+
+    private static final long BASE_TIME = 1700000000L / 60 * 60;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("测试块编解码无损")
+    void testCodecRoundTrip() {
+        List<Kline> bars = buildBars(BASE_TIME, 100);
+
+        byte[][] encoded = ColumnarBlockCodec.encode(bars);
+        ByteBuffer[] columns = new ByteBuffer[ColumnarBlockCodec.COLUMN_COUNT];
+        for (int c = 0; c < ColumnarBlockCodec.COLUMN_COUNT; c++) {
+            columns[c] = ByteBuffer.wrap(encoded[c]);
+        }
+        List<Kline> decoded = ColumnarBlockCodec.decode("BTC-USDT", "1m", columns, bars.size());
+
+        assertEquals(bars.size(), decoded.size());
+        for (int i = 0; i < bars.size(); i++) {
+            assertBarEquals(bars.get(i), decoded.get(i));
+        }
+
+        // 固定周期下时间列每行只占1字节
+        assertTrue(encoded[ColumnarBlockCodec.OPEN_TIME].length <= bars.size() + 8);
+    }
+
+    @Test
+    @DisplayName("测试超出精度的价格编码失败")
+    void testCodecRejectsExcessScale() {
+        List<Kline> bars = buildBars(BASE_TIME, 1);
+        bars.get(0).setClose(new BigDecimal("1.123456789"));
+
+        assertFalse(ColumnarBlockCodec.isCompactEncodable(bars));
+        assertThrows(ArithmeticException.class, () -> ColumnarBlockCodec.encode(bars));
+    }
+
+    @Test
+    @DisplayName("测试编码前判断能否紧凑编码")
+    void testCompactEncodableCheck() {
+        assertTrue(ColumnarBlockCodec.isCompactEncodable(buildBars(BASE_TIME, 10)));
+
+        // 末尾多余的0不影响
+        List<Kline> trailingZeros = buildBars(BASE_TIME, 1);
+        trailingZeros.get(0).setClose(new BigDecimal("1.1234567800"));
+        assertTrue(ColumnarBlockCodec.isCompactEncodable(trailingZeros));
+
+        List<Kline> nullField = buildBars(BASE_TIME, 2);
+        nullField.get(1).setTradeCount(null);
+        assertFalse(ColumnarBlockCodec.isCompactEncodable(nullField));
+
+        List<Kline> overflow = buildBars(BASE_TIME, 1);
+        overflow.get(0).setVolume(new BigDecimal("1E+40"));
+        assertFalse(ColumnarBlockCodec.isCompactEncodable(overflow));
+
+        // 单值放得下，但与上一行的差值溢出
+        List<Kline> deltaOverflow = buildBars(BASE_TIME, 2);
+        deltaOverflow.get(0).setAmount(new BigDecimal("-90000000000"));
+        deltaOverflow.get(1).setAmount(new BigDecimal("90000000000"));
+        assertFalse(ColumnarBlockCodec.isCompactEncodable(deltaOverflow));
+        assertThrows(ArithmeticException.class, () -> ColumnarBlockCodec.encode(deltaOverflow));
+    }
+
+    @Test
+    @DisplayName("测试跨块范围查询和倒序查询")
+    void testReadAcrossBlocks() throws Exception {
+        try (ColumnarKlineSeries series = ColumnarKlineSeries.open("BTC-USDT", "1m", tempDir)) {
+            series.append(buildBars(BASE_TIME, 50));
+            series.append(buildBars(BASE_TIME + 50 * 60, 50));
+
+            assertEquals(BASE_TIME + 99 * 60, series.lastOpenTime());
+            assertEquals(100, series.rowCount());
+
+            List<Kline> range = series.read(BASE_TIME + 40 * 60, BASE_TIME + 60 * 60, 1000);
+            assertEquals(20, range.size());
+            assertEquals(BASE_TIME + 40 * 60, range.get(0).getOpenTime());
+            assertEquals(BASE_TIME + 59 * 60, range.get(19).getOpenTime());
+
+            List<Kline> limited = series.read(BASE_TIME, Long.MAX_VALUE, 5);
+            assertEquals(5, limited.size());
+
+            List<Kline> latest = series.readLatest(BASE_TIME + 55 * 60, 10);
+            assertEquals(10, latest.size());
+            assertEquals(BASE_TIME + 54 * 60, latest.get(0).getOpenTime());
+            assertEquals(BASE_TIME + 45 * 60, latest.get(9).getOpenTime());
+        }
+    }
+
+    @Test
+    @DisplayName("测试重新打开后数据保留、未提交的列数据被截断")
+    void testRecoverAfterTornWrite() throws Exception {
+        try (ColumnarKlineSeries series = ColumnarKlineSeries.open("BTC-USDT", "1m", tempDir)) {
+            series.append(buildBars(BASE_TIME, 30));
+        }
+
+        // 模拟崩溃：列文件写了一半，索引未提交
+        try (FileChannel channel = FileChannel.open(tempDir.resolve("close.col"), StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}));
+        }
+
+        try (ColumnarKlineSeries series = ColumnarKlineSeries.open("BTC-USDT", "1m", tempDir)) {
+            assertEquals(30, series.rowCount());
+            series.append(buildBars(BASE_TIME + 30 * 60, 10));
+
+            List<Kline> all = series.read(BASE_TIME, Long.MAX_VALUE, 1000);
+            assertEquals(40, all.size());
+            assertBarEquals(buildBars(BASE_TIME + 30 * 60, 10).get(9), all.get(39));
+        }
+    }
+
+    @Test
+    @DisplayName("测试无法紧凑编码的块以兼容编码落盘，水位推进且重新打开后可读")
+    void testFallbackEncodingAdvancesWatermark() throws Exception {
+        List<Kline> bad = buildBars(BASE_TIME + 10 * 60, 10);
+        bad.get(3).setClose(new BigDecimal("1.123456789"));
+        bad.get(5).setVolume(new BigDecimal("1E+40"));
+        bad.get(7).setAmount(null);
+
+        try (ColumnarKlineSeries series = ColumnarKlineSeries.open("BTC-USDT", "1m", tempDir)) {
+            series.append(buildBars(BASE_TIME, 10));
+            series.append(bad);
+            series.append(buildBars(BASE_TIME + 20 * 60, 10));
+            assertEquals(BASE_TIME + 29 * 60, series.lastOpenTime());
+        }
+
+        try (ColumnarKlineSeries series = ColumnarKlineSeries.open("BTC-USDT", "1m", tempDir)) {
+            List<Kline> all = series.read(BASE_TIME, Long.MAX_VALUE, 1000);
+            assertEquals(30, all.size());
+            assertEquals(new BigDecimal("1.123456789"), all.get(13).getClose());
+            assertEquals(0, new BigDecimal("1E+40").compareTo(all.get(15).getVolume()));
+            assertNull(all.get(17).getAmount());
+            assertBarEquals(bad.get(0), all.get(10));
+            assertBarEquals(buildBars(BASE_TIME + 20 * 60, 10).get(0), all.get(20));
+
+            List<Kline> latest = series.readLatest(BASE_TIME + 20 * 60, 2);
+            assertEquals(BASE_TIME + 19 * 60, latest.get(0).getOpenTime());
+        }
+    }
+
+    private List<Kline> buildBars(long startTime, int count) {
+        List<Kline> bars = new ArrayList<>(count);
+        BigDecimal price = new BigDecimal("50000.12345678");
+        for (int i = 0; i < count; i++) {
+            long openTime = startTime + i * 60L;
+            BigDecimal close = price.add(new BigDecimal(i % 7 - 3));
+            bars.add(Kline.builder()
+                    .id(1800000000000000000L + openTime)
+                    .symbol("BTC-USDT")
+                    .interval("1m")
+                    .openTime(openTime)
+                    .closeTime(openTime + 60)
+                    .open(price)
+                    .high(close.add(BigDecimal.TEN))
+                    .low(close.subtract(BigDecimal.TEN))
+                    .close(close)
+                    .volume(new BigDecimal("1.5").multiply(new BigDecimal(i + 1)))
+                    .amount(close.multiply(new BigDecimal("1.5")))
+                    .tradeCount(i * 3)
+                    .completed(true)
+                    .build());
+        }
+        return bars;
+    }
+
+    private void assertBarEquals(Kline expected, Kline actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getOpenTime(), actual.getOpenTime());
+        assertEquals(expected.getCloseTime(), actual.getCloseTime());
+        assertEquals(0, expected.getOpen().compareTo(actual.getOpen()));
+        assertEquals(0, expected.getHigh().compareTo(actual.getHigh()));
+        assertEquals(0, expected.getLow().compareTo(actual.getLow()));
+        assertEquals(0, expected.getClose().compareTo(actual.getClose()));
+        assertEquals(0, expected.getVolume().compareTo(actual.getVolume()));
+        assertEquals(0, expected.getAmount().compareTo(actual.getAmount()));
+        assertEquals(expected.getTradeCount(), actual.getTradeCount());
+    }
+}
@@ -0,0 +1,116 @@
+package com.hkd.market.infrastructure.datasource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * ReadReplicaRoutingDataSource 单元测试
+ *
+ * 事务由只维护事务同步状态的事务管理器开启，路由键与真实事务中的判断一致
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+class ReadReplicaRoutingDataSourceTest {
+
+    private JdbcTemplate lagQuery;
+    private ReplicaLagMonitor monitor;
+    private ReadReplicaRoutingDataSource routing;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setUp() {
+        lagQuery = mock(JdbcTemplate.class);
+        monitor = new ReplicaLagMonitor(lagQuery, 5000, 1000);
+        routing = new ReadReplicaRoutingDataSource(monitor);
+
+        SynchronizationOnlyTransactionManager transactionManager = new SynchronizationOnlyTransactionManager();
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readWrite = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    @DisplayName("只读事务在副本可用时路由到副本")
+    void testReadOnlyRoutesToReplica() {
+        lag(100L);
+
+        assertEquals(ReadReplicaRoutingDataSource.REPLICA, readOnly.execute(status -> routing.determineCurrentLookupKey()));
+        assertEquals(ReadReplicaRoutingDataSource.PRIMARY, readWrite.execute(status -> routing.determineCurrentLookupKey()));
+        // 事务之外
+        assertEquals(ReadReplicaRoutingDataSource.PRIMARY, routing.determineCurrentLookupKey());
+    }
+
+    @Test
+    @DisplayName("副本延迟超过阈值或检查失败时只读事务回到主库")
+    void testFallbackToPrimary() {
+        lag(6000L);
+        assertEquals(ReadReplicaRoutingDataSource.PRIMARY, readOnly.execute(status -> routing.determineCurrentLookupKey()));
+
+        lag(100L);
+        assertEquals(ReadReplicaRoutingDataSource.REPLICA, readOnly.execute(status -> routing.determineCurrentLookupKey()));
+
+        when(lagQuery.queryForObject(anyString(), eq(Long.class)))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+        monitor.checkLag();
+        assertEquals(ReadReplicaRoutingDataSource.PRIMARY, readOnly.execute(status -> routing.determineCurrentLookupKey()));
+    }
+
+    @Test
+    @DisplayName("读写事务内调用只读方法仍使用主库")
+    void testReadOnlyInsideReadWriteStaysOnPrimary() {
+        lag(100L);
+
+        Object key = readWrite.execute(status -> readOnly.execute(nested -> routing.determineCurrentLookupKey()));
+
+        assertEquals(ReadReplicaRoutingDataSource.PRIMARY, key);
+    }
+
+    private void lag(long lagMillis) {
+        when(lagQuery.queryForObject(anyString(), eq(Long.class))).thenReturn(lagMillis);
+        monitor.checkLag();
+    }
+
+    /**
+     * 不连接数据库，只按传播行为维护事务同步状态（包括只读标记）
+     */
+    private static class SynchronizationOnlyTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return TransactionSynchronizationManager.isActualTransactionActive();
+        }
+
+        @Override
+        protected boolean isExistingTransaction(Object transaction) {
+            return (Boolean) transaction;
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.hkd.market.infrastructure.datasource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * ReplicaLagMonitor 单元测试
+ *
+ * 不启动调度器，直接调用 checkLag 模拟一次检查
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+class ReplicaLagMonitorTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ReplicaLagMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        monitor = new ReplicaLagMonitor(jdbcTemplate, 5000, 1000);
+    }
+
+    @Test
+    @DisplayName("首次检查前副本不可用")
+    void testUnavailableBeforeFirstCheck() {
+        assertFalse(monitor.isReplicaAvailable());
+        assertEquals(-1, monitor.getLastLagMillis());
+        verify(jdbcTemplate).setQueryTimeout(5);
+    }
+
+    @Test
+    @DisplayName("延迟不超过阈值时副本可用，超过后不可用，恢复后重新可用")
+    void testLagThreshold() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(5000L);
+        monitor.checkLag();
+        assertTrue(monitor.isReplicaAvailable());
+        assertEquals(5000, monitor.getLastLagMillis());
+
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(5001L);
+        monitor.checkLag();
+        assertFalse(monitor.isReplicaAvailable());
+        assertEquals(5001, monitor.getLastLagMillis());
+
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(0L);
+        monitor.checkLag();
+        assertTrue(monitor.isReplicaAvailable());
+    }
+
+    @Test
+    @DisplayName("查询失败或没有结果时副本不可用")
+    void testQueryFailure() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(10L);
+        monitor.checkLag();
+        assertTrue(monitor.isReplicaAvailable());
+
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class)))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+        monitor.checkLag();
+        assertFalse(monitor.isReplicaAvailable());
+        assertEquals(-1, monitor.getLastLagMillis());
+
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(null);
+        monitor.checkLag();
+        assertFalse(monitor.isReplicaAvailable());
+    }
+}
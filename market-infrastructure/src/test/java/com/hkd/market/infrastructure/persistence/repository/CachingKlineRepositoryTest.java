@@ -0,0 +1,318 @@
+package com.hkd.market.infrastructure.persistence.repository;
+
+import com.hkd.market.api.enums.KlineInterval;
+import com.hkd.market.application.cache.KlineHotCache;
+import com.hkd.market.domain.entity.Kline;
+import com.hkd.market.domain.repository.KlineRepository;
+import com.hkd.market.infrastructure.cache.KlineChunk;
+import com.hkd.market.infrastructure.cache.KlineChunkCache;
+import com.hkd.market.infrastructure.cache.KlineSealPolicy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * CachingKlineRepository 单元测试
+ *
+ * 使用日线，测试数据相对当前封存时间构造：当前K线和上一根K线未封存，更早的K线已封存。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+class CachingKlineRepositoryTest {
+
+    private static final String SYMBOL = "BTC-USDT";
+    private static final String INTERVAL = "1d";
+    private static final long DAY = 86400L;
+    private static final int CHUNK_SIZE = 10;
+    private static final long SPAN = DAY * CHUNK_SIZE;
+
+    private KlineRepository delegate;
+    private KlineHotCache hotCache;
+    private MapChunkCache chunkCache;
+    private CachingKlineRepository repository;
+
+    private List<Kline> store;
+    private long sealedTime;
+
+    @BeforeEach
+    void setUp() {
+        sealedTime = KlineSealPolicy.sealedTime(KlineInterval.DAY_1);
+
+        // 已封存25根 + 上一根 + 当前K线
+        store = new ArrayList<>();
+        for (long openTime = sealedTime - 25 * DAY; openTime <= sealedTime + DAY; openTime += DAY) {
+            store.add(kline(openTime));
+        }
+
+        delegate = mock(KlineRepository.class);
+        when(delegate.findByTimeRange(anyString(), anyString(), anyLong(), anyLong(), anyInt()))
+                .thenAnswer(invocation -> range(invocation.getArgument(2), invocation.getArgument(3),
+                        invocation.getArgument(4)));
+        when(delegate.findLatestKlines(anyString(), anyString(), anyInt()))
+                .thenAnswer(invocation -> latest(invocation.getArgument(2)));
+        when(delegate.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(delegate.mergeTrades(any(), any()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        hotCache = mock(KlineHotCache.class);
+        when(hotCache.findLatestWindow(anyString(), anyString(), anyInt())).thenReturn(List.of());
+
+        chunkCache = new MapChunkCache();
+        repository = new CachingKlineRepository(delegate, chunkCache, hotCache, CHUNK_SIZE, 10);
+    }
+
+    @Test
+    @DisplayName("最新1根K线：返回当前未收盘K线而非最早的未封存K线")
+    void testLatestOneIsCurrentBar() {
+        List<Kline> result = repository.findLatestKlines(SYMBOL, INTERVAL, 1);
+
+        assertEquals(1, result.size());
+        assertEquals(sealedTime + DAY, result.get(0).getOpenTime());
+    }
+
+    @Test
+    @DisplayName("最新N根K线：尾部与已封存分片拼接，按时间倒序且连续")
+    void testLatestFromTailAndChunks() {
+        List<Kline> result = repository.findLatestKlines(SYMBOL, INTERVAL, 15);
+
+        assertEquals(latest(15).stream().map(Kline::getOpenTime).toList(),
+                result.stream().map(Kline::getOpenTime).toList());
+        assertEquals(sealedTime + DAY, result.get(0).getOpenTime());
+        assertEquals(sealedTime, result.get(1).getOpenTime());
+        assertEquals(sealedTime - DAY, result.get(2).getOpenTime());
+    }
+
+    @Test
+    @DisplayName("Redis窗口根数足够且连续：直接返回，不查数据库")
+    void testLatestFromContiguousWindow() {
+        List<Kline> window = latest(5);
+        when(hotCache.findLatestWindow(SYMBOL, INTERVAL, 5)).thenReturn(window);
+
+        List<Kline> result = repository.findLatestKlines(SYMBOL, INTERVAL, 5);
+
+        assertEquals(openTimes(window), openTimes(result));
+        verify(delegate, never()).findByTimeRange(anyString(), anyString(), anyLong(), anyLong(), anyInt());
+        verify(delegate, never()).findLatestKlines(anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    @DisplayName("月线窗口按自然月判断连续")
+    void testLatestFromContiguousMonthWindow() {
+        List<Kline> window = List.of(
+                monthKline(LocalDate.of(2024, 3, 1)),
+                monthKline(LocalDate.of(2024, 2, 1)),
+                monthKline(LocalDate.of(2024, 1, 1)));
+        when(hotCache.findLatestWindow(SYMBOL, "1M", 3)).thenReturn(window);
+
+        List<Kline> result = repository.findLatestKlines(SYMBOL, "1M", 3);
+
+        assertEquals(openTimes(window), openTimes(result));
+        verify(delegate, never()).findByTimeRange(anyString(), anyString(), anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Redis窗口根数不足：回退到尾部+分片路径")
+    void testShortWindowFallsBack() {
+        when(hotCache.findLatestWindow(SYMBOL, INTERVAL, 15)).thenReturn(latest(5));
+
+        List<Kline> result = repository.findLatestKlines(SYMBOL, INTERVAL, 15);
+
+        assertEquals(openTimes(latest(15)), openTimes(result));
+        verify(delegate).findByTimeRange(eq(SYMBOL), eq(INTERVAL), eq(sealedTime), eq(Long.MAX_VALUE), anyInt());
+    }
+
+    @Test
+    @DisplayName("Redis窗口中间缺K线：回退到尾部+分片路径")
+    void testGappedWindowFallsBack() {
+        List<Kline> gapped = new ArrayList<>(latest(6));
+        gapped.remove(3);
+        when(hotCache.findLatestWindow(SYMBOL, INTERVAL, 5)).thenReturn(gapped);
+
+        List<Kline> result = repository.findLatestKlines(SYMBOL, INTERVAL, 5);
+
+        assertEquals(openTimes(latest(5)), openTimes(result));
+        verify(delegate).findByTimeRange(eq(SYMBOL), eq(INTERVAL), eq(sealedTime), eq(Long.MAX_VALUE), anyInt());
+    }
+
+    @Test
+    @DisplayName("时间范围查询跨越分片边界：结果与数据库一致，再次查询只查未封存尾部")
+    void testRangeAcrossChunkBoundaries() {
+        long start = sealedTime - 20 * DAY;
+        long end = sealedTime + 2 * DAY;
+
+        List<Kline> first = repository.findByTimeRange(SYMBOL, INTERVAL, start, end, 100);
+        assertEquals(openTimes(range(start, end, 100)), openTimes(first));
+
+        clearInvocations(delegate);
+        List<Kline> second = repository.findByTimeRange(SYMBOL, INTERVAL, start, end, 100);
+
+        assertEquals(openTimes(first), openTimes(second));
+        verify(delegate, times(1)).findByTimeRange(anyString(), anyString(), anyLong(), anyLong(), anyInt());
+        verify(delegate).findByTimeRange(eq(SYMBOL), eq(INTERVAL), eq(sealedTime), eq(end), anyInt());
+    }
+
+    @Test
+    @DisplayName("分片按 chunkSize 根对齐，已封存部分截止于封存时间")
+    void testChunkAlignment() {
+        repository.findByTimeRange(SYMBOL, INTERVAL, sealedTime - 20 * DAY, sealedTime + 2 * DAY, 100);
+
+        for (KlineChunk chunk : chunkCache.chunks.values()) {
+            assertEquals(0, Math.floorMod(chunk.chunkStart(), SPAN));
+            assertEquals(Math.min(chunk.chunkStart() + SPAN, sealedTime), chunk.sealedUntil());
+            for (Kline kline : chunk.bars()) {
+                assertTrue(kline.getOpenTime() >= chunk.chunkStart());
+                assertTrue(kline.getOpenTime() < chunk.sealedUntil());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("当前分片增量补齐：只查询上次封存上界之后新封存的K线")
+    void testIncrementalChunkExtension() {
+        long chunkStart = Math.floorDiv(sealedTime - 1, SPAN) * SPAN;
+        long oldSealedUntil = Math.max(chunkStart, sealedTime - 2 * DAY);
+        chunkCache.put(SYMBOL, INTERVAL, new KlineChunk(chunkStart, oldSealedUntil,
+                range(chunkStart, oldSealedUntil, CHUNK_SIZE + 1)));
+
+        List<Kline> result = repository.findByTimeRange(SYMBOL, INTERVAL, chunkStart, sealedTime, 100);
+
+        assertEquals(openTimes(range(chunkStart, sealedTime, 100)), openTimes(result));
+        verify(delegate).findByTimeRange(eq(SYMBOL), eq(INTERVAL), eq(oldSealedUntil), eq(sealedTime), anyInt());
+        verify(delegate, times(1)).findByTimeRange(anyString(), anyString(), anyLong(), anyLong(), anyInt());
+        assertEquals(sealedTime, chunkCache.get(SYMBOL, INTERVAL, chunkStart).sealedUntil());
+    }
+
+    @Test
+    @DisplayName("迟到成交改写已封存K线时失效所在分片，未封存K线不失效")
+    void testEvictOnSealedWrite() {
+        long lateOpenTime = sealedTime - 5 * DAY;
+        long lateChunk = Math.floorDiv(lateOpenTime, SPAN) * SPAN;
+        repository.findByTimeRange(SYMBOL, INTERVAL, sealedTime - 20 * DAY, sealedTime, 100);
+        assertNotNull(chunkCache.get(SYMBOL, INTERVAL, lateChunk));
+
+        repository.save(kline(sealedTime));
+        repository.save(kline(sealedTime + DAY));
+        assertTrue(chunkCache.evicted.isEmpty());
+
+        repository.save(kline(lateOpenTime));
+        assertEquals(List.of(lateChunk), chunkCache.evicted);
+        assertNull(chunkCache.get(SYMBOL, INTERVAL, lateChunk));
+    }
+
+    @Test
+    @DisplayName("合并迟到成交到已封存K线时失效所在分片")
+    void testEvictOnMergeTrades() {
+        long lateOpenTime = sealedTime - 12 * DAY;
+        long lateChunk = Math.floorDiv(lateOpenTime, SPAN) * SPAN;
+        repository.findByTimeRange(SYMBOL, INTERVAL, sealedTime - 20 * DAY, sealedTime, 100);
+
+        repository.mergeTrades(kline(lateOpenTime), kline(lateOpenTime));
+
+        assertEquals(List.of(lateChunk), chunkCache.evicted);
+        assertNull(chunkCache.get(SYMBOL, INTERVAL, lateChunk));
+    }
+
+    private List<Kline> range(long start, long end, int limit) {
+        return store.stream()
+                .filter(kline -> kline.getOpenTime() >= start && kline.getOpenTime() < end)
+                .sorted(Comparator.comparing(Kline::getOpenTime))
+                .limit(limit)
+                .map(kline -> kline.toBuilder().build())
+                .toList();
+    }
+
+    private List<Kline> latest(int limit) {
+        return store.stream()
+                .sorted(Comparator.comparing(Kline::getOpenTime).reversed())
+                .limit(limit)
+                .map(kline -> kline.toBuilder().build())
+                .toList();
+    }
+
+    private static List<Long> openTimes(List<Kline> klines) {
+        return klines.stream().map(Kline::getOpenTime).toList();
+    }
+
+    private static Kline kline(long openTime) {
+        BigDecimal price = BigDecimal.valueOf(openTime % 1000);
+        return Kline.builder()
+                .symbol(SYMBOL)
+                .interval(INTERVAL)
+                .openTime(openTime)
+                .closeTime(openTime + DAY - 1)
+                .open(price)
+                .high(price)
+                .low(price)
+                .close(price)
+                .volume(BigDecimal.ONE)
+                .amount(price)
+                .tradeCount(1)
+                .completed(openTime < KlineSealPolicy.sealedTime(KlineInterval.DAY_1) + DAY)
+                .build();
+    }
+
+    private static Kline monthKline(LocalDate month) {
+        long openTime = month.atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+        return kline(openTime).toBuilder()
+                .interval("1M")
+                .closeTime(month.plusMonths(1).atStartOfDay(ZoneOffset.UTC).toEpochSecond() - 1)
+                .build();
+    }
+
+    /**
+     * 以HashMap代替L1/L2的分片缓存
+     */
+    private static class MapChunkCache extends KlineChunkCache {
+
+        private final Map<String, KlineChunk> chunks = new HashMap<>();
+        private final List<Long> evicted = new ArrayList<>();
+
+        @SuppressWarnings("unchecked")
+        MapChunkCache() {
+            super(mock(RedisTemplate.class));
+        }
+
+        @Override
+        public KlineChunk get(String symbol, String interval, long chunkStart) {
+            return chunks.get(symbol + ":" + interval + ":" + chunkStart);
+        }
+
+        @Override
+        public void put(String symbol, String interval, KlineChunk chunk) {
+            chunks.put(symbol + ":" + interval + ":" + chunk.chunkStart(), chunk);
+        }
+
+        @Override
+        public void evict(String symbol, String interval, long chunkStart) {
+            chunks.remove(symbol + ":" + interval + ":" + chunkStart);
+            evicted.add(chunkStart);
+        }
+    }
+}
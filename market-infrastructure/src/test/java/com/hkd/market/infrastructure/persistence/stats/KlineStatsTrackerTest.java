@@ -0,0 +1,74 @@
+package com.hkd.market.infrastructure.persistence.stats;
+
+import com.hkd.market.infrastructure.persistence.mapper.KlineStatsMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * KlineStatsTracker 单元测试
+ */
+class KlineStatsTrackerTest {
+
+    private KlineStatsMapper klineStatsMapper;
+    private KlineStatsTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        klineStatsMapper = mock(KlineStatsMapper.class);
+        when(klineStatsMapper.findAll()).thenReturn(List.of(
+                new KlineStats("BTC-USDT", "1m", 100L, 60L, 6000L)
+        ));
+        tracker = new KlineStatsTracker(klineStatsMapper);
+        tracker.init();
+    }
+
+    @Test
+    @DisplayName("启动时加载统计表")
+    void shouldSeedFromTable() {
+        KlineStats stats = tracker.get("BTC-USDT", "1m").orElseThrow();
+
+        assertEquals(100L, stats.getBarCount());
+        assertEquals(60L, stats.getEarliestOpenTime());
+        assertEquals(6000L, stats.getLatestOpenTime());
+        assertTrue(tracker.get("ETH-USDT", "1m").isEmpty());
+    }
+
+    @Test
+    @DisplayName("新增K线时数量加一并扩展时间范围")
+    void shouldApplyInsert() {
+        tracker.recordInsert("BTC-USDT", "1m", 6060L);
+        tracker.recordInsert("ETH-USDT", "1m", 120L);
+
+        verify(klineStatsMapper).recordInsert("BTC-USDT", "1m", 6060L);
+        KlineStats btc = tracker.get("BTC-USDT", "1m").orElseThrow();
+        assertEquals(101L, btc.getBarCount());
+        assertEquals(60L, btc.getEarliestOpenTime());
+        assertEquals(6060L, btc.getLatestOpenTime());
+
+        KlineStats eth = tracker.get("ETH-USDT", "1m").orElseThrow();
+        assertEquals(1L, eth.getBarCount());
+        assertEquals(120L, eth.getEarliestOpenTime());
+        assertEquals(120L, eth.getLatestOpenTime());
+    }
+
+    @Test
+    @DisplayName("合并表数据时不回退内存中更新的统计")
+    void shouldNotRegressOnRefresh() {
+        tracker.recordInsert("BTC-USDT", "1m", 6060L);
+
+        tracker.refresh();
+
+        KlineStats stats = tracker.get("BTC-USDT", "1m").orElseThrow();
+        assertEquals(101L, stats.getBarCount());
+        assertEquals(6060L, stats.getLatestOpenTime());
+    }
+}
@@ -0,0 +1,241 @@
+package com.hkd.market.infrastructure.spill;
+
+import com.hkd.market.application.resilience.KlineSpillLog;
+import com.hkd.market.domain.entity.Kline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * FileKlineSpillLog 单元测试
+ *
+ * 回放位置保存在内存中的 RecordingReplayer 里，模拟与K线同事务提交的数据库表；
+ * 用新的 FileKlineSpillLog 实例打开同一目录模拟进程重启。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+class FileKlineSpillLogTest {
+
+    @TempDir
+    Path dir;
+
+    private RecordingReplayer replayer;
+
+    @BeforeEach
+    void setUp() {
+        replayer = new RecordingReplayer();
+    }
+
+    @Test
+    @DisplayName("按批次大小分批回放，回放完成后删除段并清理回放位置")
+    void testDrainInBatches() throws IOException {
+        FileKlineSpillLog spillLog = open(2);
+        spillLog.append(List.of(kline(60), kline(120), kline(180)));
+        spillLog.append(List.of(kline(240), kline(300)));
+        assertTrue(spillLog.hasBacklog());
+
+        assertEquals(5, spillLog.drain(replayer));
+
+        assertEquals(List.of(2, 2, 1), replayer.batchSizes);
+        assertEquals(List.of(60L, 120L, 180L, 240L, 300L), replayer.openTimes);
+        assertFalse(spillLog.hasBacklog());
+        assertTrue(replayer.offsets.isEmpty());
+        assertEquals(List.of(), walFiles());
+        assertEquals(0, spillLog.drain(replayer));
+    }
+
+    @Test
+    @DisplayName("截断的尾部记录在启动时被截掉，之后的追加仍可回放")
+    void testTornTail() throws IOException {
+        FileKlineSpillLog spillLog = open(10);
+        spillLog.append(List.of(kline(60), kline(120)));
+        spillLog.close();
+        // 崩溃时只写了一半的记录
+        Files.write(dir.resolve("active.wal"), new byte[]{0, 0, 0, 50, 1}, StandardOpenOption.APPEND);
+
+        FileKlineSpillLog restarted = open(10);
+        restarted.append(List.of(kline(180)));
+
+        assertEquals(3, restarted.drain(replayer));
+        assertEquals(List.of(60L, 120L, 180L), replayer.openTimes);
+    }
+
+    @Test
+    @DisplayName("校验失败的记录及其之后的内容被丢弃")
+    void testCorruptedRecord() throws IOException {
+        FileKlineSpillLog spillLog = open(10);
+        spillLog.append(List.of(kline(60), kline(120)));
+        spillLog.close();
+        Path active = dir.resolve("active.wal");
+        byte[] bytes = Files.readAllBytes(active);
+        bytes[bytes.length - 1] ^= 0x5A;
+        Files.write(active, bytes);
+
+        FileKlineSpillLog restarted = open(10);
+
+        assertEquals(1, restarted.drain(replayer));
+        assertEquals(List.of(60L), replayer.openTimes);
+    }
+
+    @Test
+    @DisplayName("回放中途失败后重启，从已提交的位置继续，不重复回放")
+    void testResumeLeftoverSegment() throws IOException {
+        FileKlineSpillLog spillLog = open(2);
+        spillLog.append(List.of(kline(60), kline(120), kline(180), kline(240), kline(300)));
+        replayer.failAtBatch = 2;
+
+        assertThrows(IllegalStateException.class, () -> spillLog.drain(replayer));
+        assertEquals(List.of(60L, 120L), replayer.openTimes);
+        assertEquals(1, walFiles().size());
+
+        replayer.failAtBatch = -1;
+        FileKlineSpillLog restarted = open(2);
+        assertTrue(restarted.hasBacklog());
+
+        assertEquals(3, restarted.drain(replayer));
+        assertEquals(List.of(60L, 120L, 180L, 240L, 300L), replayer.openTimes);
+        assertEquals(List.of(), walFiles());
+    }
+
+    @Test
+    @DisplayName("全部批次已提交但段文件未删除时，重启后只删除文件")
+    void testResumeFullyCommittedSegment() throws IOException {
+        FileKlineSpillLog spillLog = open(10);
+        spillLog.append(List.of(kline(60), kline(120)));
+        replayer.failOnComplete = true;
+
+        assertThrows(IllegalStateException.class, () -> spillLog.drain(replayer));
+        assertEquals(2, replayer.openTimes.size());
+
+        // 模拟文件删除前崩溃：把已删除的段恢复出来
+        replayer.failOnComplete = false;
+        Files.write(dir.resolve("replaying-" + replayer.lastSegment + ".wal"), replayer.lastSegmentBytes);
+
+        FileKlineSpillLog restarted = open(10);
+        assertTrue(restarted.hasBacklog());
+        assertEquals(0, restarted.drain(replayer));
+        assertEquals(2, replayer.openTimes.size());
+        assertEquals(List.of(), walFiles());
+    }
+
+    @Test
+    @DisplayName("回放期间追加的K线写入新的活动文件，留到下一次回放")
+    void testAppendDuringDrain() throws IOException {
+        FileKlineSpillLog spillLog = open(10);
+        spillLog.append(List.of(kline(60)));
+        replayer.onReplay = () -> spillLog.append(List.of(kline(120)));
+
+        assertEquals(1, spillLog.drain(replayer));
+        assertTrue(spillLog.hasBacklog());
+
+        replayer.onReplay = null;
+        assertEquals(1, spillLog.drain(replayer));
+        assertEquals(List.of(60L, 120L), replayer.openTimes);
+        assertFalse(spillLog.hasBacklog());
+    }
+
+    private FileKlineSpillLog open(int batchSize) throws IOException {
+        FileKlineSpillLog spillLog = new FileKlineSpillLog(dir.toString(), batchSize);
+        spillLog.init();
+        return spillLog;
+    }
+
+    private List<String> walFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith("replaying") || (name.equals("active.wal") && size(file(name)) > 0))
+                    .toList();
+        }
+    }
+
+    private Path file(String name) {
+        return dir.resolve(name);
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Kline kline(long openTime) {
+        return Kline.builder()
+                .symbol("BTC-USDT")
+                .interval("1m")
+                .openTime(openTime)
+                .closeTime(openTime + 60)
+                .volume(new BigDecimal("0.1"))
+                .amount(new BigDecimal("5000"))
+                .tradeCount(1)
+                .build();
+    }
+
+    /**
+     * 记录回放结果，回放位置按段保存在内存中
+     */
+    private class RecordingReplayer implements KlineSpillLog.Replayer {
+
+        private final Map<String, Long> offsets = new HashMap<>();
+        private final List<Integer> batchSizes = new ArrayList<>();
+        private final List<Long> openTimes = new ArrayList<>();
+        private int failAtBatch = -1;
+        private boolean failOnComplete;
+        private Runnable onReplay;
+        private String lastSegment;
+        private byte[] lastSegmentBytes;
+
+        @Override
+        public long replayedOffset(String segment) {
+            return offsets.getOrDefault(segment, 0L);
+        }
+
+        @Override
+        public void replay(String segment, long fromOffset, long toOffset, List<Kline> klines) {
+            if (batchSizes.size() + 1 == failAtBatch) {
+                throw new IllegalStateException("database unavailable");
+            }
+            assertEquals(replayedOffset(segment), fromOffset);
+            assertTrue(toOffset > fromOffset);
+            offsets.put(segment, toOffset);
+            batchSizes.add(klines.size());
+            klines.forEach(kline -> openTimes.add(kline.getOpenTime()));
+            lastSegment = segment;
+            try {
+                lastSegmentBytes = Files.readAllBytes(file("replaying-" + segment + ".wal"));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            if (onReplay != null) {
+                onReplay.run();
+            }
+        }
+
+        @Override
+        public void complete(String segment) {
+            if (failOnComplete) {
+                throw new IllegalStateException("crashed before cleanup");
+            }
+            offsets.remove(segment);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.hkd.market.websocket.admission;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.util.ReferenceCountUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * 连接准入处理器
+ *
+ * Pipeline中的第一个处理器，连接建立时（读取任何HTTP数据之前）向 ConnectionAdmission 申请准入：
+ * - 超过上限的连接以 SO_LINGER=0 直接关闭（RST，不进入TIME_WAIT），不解析、不聚合升级请求
+ * - 准入的连接在关闭时释放计数
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class AdmissionHandler extends ChannelInboundHandlerAdapter {
+
+    private final ConnectionAdmission admission;
+
+    private InetAddress address;
+    private boolean admitted;
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        address = addressOf(ctx.channel().remoteAddress());
+        AdmissionResult result = admission.tryAdmit(address);
+        if (result != AdmissionResult.ADMITTED) {
+            log.debug("WebSocket connection rejected: remote={}, reason={}", address, result.getCode());
+            ctx.channel().config().setOption(ChannelOption.SO_LINGER, 0);
+            ctx.close();
+            return;
+        }
+
+        admitted = true;
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (admitted) {
+            admitted = false;
+            admission.release(address);
+            super.channelInactive(ctx);
+        }
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (admitted) {
+            super.channelRead(ctx, msg);
+        } else {
+            // 被拒绝的连接在关闭前读到的数据直接丢弃
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    private static InetAddress addressOf(SocketAddress remoteAddress) {
+        return remoteAddress instanceof InetSocketAddress socketAddress ? socketAddress.getAddress() : null;
+    }
+}
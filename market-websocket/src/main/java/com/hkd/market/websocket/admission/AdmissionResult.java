@@ -0,0 +1,34 @@
+package com.hkd.market.websocket.admission;
+
+import lombok.Getter;
+
+/**
+ * 连接准入结果
+ */
+@Getter
+public enum AdmissionResult {
+
+    /**
+     * 准入
+     */
+    ADMITTED("admitted"),
+
+    /**
+     * 全局连接数已达上限
+     */
+    GLOBAL_LIMIT("global_limit"),
+
+    /**
+     * 单个IP的连接数已达上限
+     */
+    IP_LIMIT("ip_limit");
+
+    /**
+     * 结果代码（指标标签）
+     */
+    private final String code;
+
+    AdmissionResult(String code) {
+        this.code = code;
+    }
+}
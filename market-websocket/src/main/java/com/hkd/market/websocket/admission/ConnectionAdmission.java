@@ -0,0 +1,136 @@
+package com.hkd.market.websocket.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 连接准入控制
+ *
+ * 在HTTP升级之前按连接数准入：
+ * - 全局连接数上限（hkd.market.websocket.max-connections）
+ * - 单个IP的连接数上限（hkd.market.websocket.max-connections-per-ip，0表示不限制）
+ *
+ * 计数只用原子操作，不加锁；IP计数归零后移除，不随历史连接增长。指标：
+ * - market.websocket.connections：当前准入的连接数
+ * - market.websocket.admission.rejected{reason=global_limit|ip_limit}：被拒绝的连接数
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+public class ConnectionAdmission {
+
+    @Getter
+    private final int maxConnections;
+
+    @Getter
+    private final int maxConnectionsPerIp;
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final Map<InetAddress, AtomicInteger> connectionsByIp = new ConcurrentHashMap<>();
+    private final Map<AdmissionResult, Counter> rejections = new EnumMap<>(AdmissionResult.class);
+
+    public ConnectionAdmission(@Value("${hkd.market.websocket.max-connections:100000}") int maxConnections,
+                               @Value("${hkd.market.websocket.max-connections-per-ip:100}") int maxConnectionsPerIp,
+                               MeterRegistry meterRegistry) {
+        this.maxConnections = maxConnections;
+        this.maxConnectionsPerIp = maxConnectionsPerIp;
+
+        Gauge.builder("market.websocket.connections", connections, AtomicInteger::get)
+                .description("Admitted WebSocket connections")
+                .register(meterRegistry);
+        for (AdmissionResult result : AdmissionResult.values()) {
+            if (result != AdmissionResult.ADMITTED) {
+                rejections.put(result, Counter.builder("market.websocket.admission.rejected")
+                        .description("WebSocket connections rejected before the HTTP upgrade")
+                        .tag("reason", result.getCode())
+                        .register(meterRegistry));
+            }
+        }
+    }
+
+    /**
+     * 尝试准入一个连接
+     *
+     * 准入成功后必须在连接关闭时调用 release
+     *
+     * @param address 客户端IP（未知时只检查全局上限）
+     * @return 准入结果
+     */
+    public AdmissionResult tryAdmit(InetAddress address) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            return reject(AdmissionResult.GLOBAL_LIMIT);
+        }
+
+        if (address != null && maxConnectionsPerIp > 0) {
+            AtomicInteger perIp = connectionsByIp.compute(address, (key, count) -> {
+                AtomicInteger current = count != null ? count : new AtomicInteger();
+                current.incrementAndGet();
+                return current;
+            });
+            if (perIp.get() > maxConnectionsPerIp) {
+                releaseIp(address);
+                connections.decrementAndGet();
+                return reject(AdmissionResult.IP_LIMIT);
+            }
+        }
+        return AdmissionResult.ADMITTED;
+    }
+
+    /**
+     * 释放一个已准入的连接
+     *
+     * @param address 准入时的客户端IP
+     */
+    public void release(InetAddress address) {
+        if (address != null && maxConnectionsPerIp > 0) {
+            releaseIp(address);
+        }
+        connections.decrementAndGet();
+    }
+
+    /**
+     * 当前准入的连接数
+     */
+    public int getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * 某个IP当前准入的连接数
+     */
+    public int getConnections(InetAddress address) {
+        AtomicInteger count = connectionsByIp.get(address);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * 累计拒绝的连接数
+     */
+    public long getRejections(AdmissionResult reason) {
+        Counter counter = rejections.get(reason);
+        return counter == null ? 0 : (long) counter.count();
+    }
+
+    private void releaseIp(InetAddress address) {
+        connectionsByIp.computeIfPresent(address, (key, count) -> count.decrementAndGet() <= 0 ? null : count);
+    }
+
+    private AdmissionResult reject(AdmissionResult reason) {
+        rejections.get(reason).increment();
+        return reason;
+    }
+}
@@ -0,0 +1,34 @@
+package com.hkd.market.websocket.backpressure;
+
+import lombok.Getter;
+
+/**
+ * 连接消费状态
+ */
+@Getter
+public enum ConsumerState {
+
+    /**
+     * 正常
+     */
+    NORMAL("normal"),
+
+    /**
+     * 出站缓冲区超过高水位，暂停推送
+     */
+    SLOW("slow"),
+
+    /**
+     * 已降级为仅快照推送
+     */
+    SNAPSHOT_ONLY("snapshot_only");
+
+    /**
+     * 指标标签值
+     */
+    private final String code;
+
+    ConsumerState(String code) {
+        this.code = code;
+    }
+}
@@ -0,0 +1,97 @@
+package com.hkd.market.websocket.backpressure;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 慢连接处理器
+ *
+ * 根据出站缓冲区水位（WRITE_BUFFER_WATER_MARK）切换连接状态：
+ * - 超过高水位（不可写）：DROP/DISCONNECT 策略进入 SLOW，SNAPSHOT 策略进入 SNAPSHOT_ONLY；
+ *   DISCONNECT 策略在宽限期内未恢复则关闭连接
+ * - 回落到低水位以下（可写）：SLOW 立即恢复 NORMAL；SNAPSHOT_ONLY 连续可写满宽限期后恢复
+ *
+ * 推送方（ConflatingPublisher）根据状态和可写性决定是否写入，处理器本身不拦截写操作。
+ * 所有回调都在连接的EventLoop上执行。
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class SlowConsumerHandler extends ChannelInboundHandlerAdapter {
+
+    private final SlowConsumerMonitor monitor;
+
+    private ScheduledFuture<?> pendingTask;
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        monitor.register(ctx.channel());
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        cancelPendingTask();
+        monitor.unregister(ctx.channel());
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable()) {
+            onWritable(ctx);
+        } else {
+            onUnwritable(ctx);
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    private void onUnwritable(ChannelHandlerContext ctx) {
+        Channel channel = ctx.channel();
+        cancelPendingTask();
+
+        switch (monitor.getPolicy()) {
+            case DROP -> monitor.transition(channel, ConsumerState.SLOW);
+            case SNAPSHOT -> monitor.transition(channel, ConsumerState.SNAPSHOT_ONLY);
+            case DISCONNECT -> {
+                monitor.transition(channel, ConsumerState.SLOW);
+                pendingTask = ctx.executor().schedule(() -> {
+                    if (channel.isActive() && !channel.isWritable()) {
+                        log.warn("Closing slow WebSocket consumer: channel={}, pendingBytes={}",
+                                channel.id().asShortText(), channel.unsafe().outboundBuffer() == null
+                                        ? 0 : channel.unsafe().outboundBuffer().totalPendingWriteBytes());
+                        monitor.recordDisconnect();
+                        channel.close();
+                    }
+                }, monitor.getGracePeriodMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void onWritable(ChannelHandlerContext ctx) {
+        Channel channel = ctx.channel();
+        cancelPendingTask();
+
+        if (SlowConsumerMonitor.stateOf(channel) == ConsumerState.SNAPSHOT_ONLY) {
+            pendingTask = ctx.executor().schedule(() -> {
+                if (channel.isActive() && channel.isWritable()) {
+                    monitor.transition(channel, ConsumerState.NORMAL);
+                }
+            }, monitor.getGracePeriodMillis(), TimeUnit.MILLISECONDS);
+        } else {
+            monitor.transition(channel, ConsumerState.NORMAL);
+        }
+    }
+
+    private void cancelPendingTask() {
+        if (pendingTask != null) {
+            pendingTask.cancel(false);
+            pendingTask = null;
+        }
+    }
+}
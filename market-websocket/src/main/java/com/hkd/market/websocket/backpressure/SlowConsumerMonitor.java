@@ -0,0 +1,110 @@
+package com.hkd.market.websocket.backpressure;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 慢连接监控
+ *
+ * 保存慢连接策略配置，记录每个连接的消费状态（Channel属性），并上报指标：
+ * - market.websocket.clients{state=normal|slow|snapshot_only}：各状态连接数
+ * - market.websocket.slow.disconnects：因慢消费被断开的连接数
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+public class SlowConsumerMonitor {
+
+    private static final AttributeKey<ConsumerState> STATE = AttributeKey.valueOf("hkd.consumerState");
+
+    @Getter
+    private final SlowConsumerPolicy policy;
+
+    @Getter
+    private final long gracePeriodMillis;
+
+    private final Map<ConsumerState, AtomicInteger> clients = new EnumMap<>(ConsumerState.class);
+    private final Counter disconnects;
+
+    public SlowConsumerMonitor(@Value("${hkd.market.websocket.slow-consumer.policy:drop}") String policy,
+                               @Value("${hkd.market.websocket.slow-consumer.grace-period:10000}") long gracePeriodMillis,
+                               MeterRegistry meterRegistry) {
+        this.policy = SlowConsumerPolicy.fromCode(policy);
+        this.gracePeriodMillis = gracePeriodMillis;
+
+        for (ConsumerState state : ConsumerState.values()) {
+            AtomicInteger count = new AtomicInteger();
+            clients.put(state, count);
+            Gauge.builder("market.websocket.clients", count, AtomicInteger::get)
+                    .description("WebSocket connections by consumer state")
+                    .tag("state", state.getCode())
+                    .register(meterRegistry);
+        }
+        this.disconnects = Counter.builder("market.websocket.slow.disconnects")
+                .description("WebSocket connections closed for consuming too slowly")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 连接当前状态（未登记的连接视为正常）
+     */
+    public static ConsumerState stateOf(Channel channel) {
+        ConsumerState state = channel.attr(STATE).get();
+        return state == null ? ConsumerState.NORMAL : state;
+    }
+
+    /**
+     * 连接是否接收逐笔流推送（不合并的频道）
+     */
+    public static boolean acceptsStream(Channel channel) {
+        return channel.isWritable() && stateOf(channel) == ConsumerState.NORMAL;
+    }
+
+    void register(Channel channel) {
+        if (channel.attr(STATE).setIfAbsent(ConsumerState.NORMAL) == null) {
+            clients.get(ConsumerState.NORMAL).incrementAndGet();
+        }
+    }
+
+    void transition(Channel channel, ConsumerState next) {
+        ConsumerState previous = channel.attr(STATE).get();
+        if (previous == null || previous == next) {
+            return;
+        }
+        channel.attr(STATE).set(next);
+        clients.get(previous).decrementAndGet();
+        clients.get(next).incrementAndGet();
+        log.debug("Consumer state changed: channel={}, {} -> {}", channel.id().asShortText(), previous, next);
+    }
+
+    void unregister(Channel channel) {
+        ConsumerState previous = channel.attr(STATE).getAndSet(null);
+        if (previous != null) {
+            clients.get(previous).decrementAndGet();
+        }
+    }
+
+    void recordDisconnect() {
+        disconnects.increment();
+    }
+
+    /**
+     * 某个状态的连接数
+     */
+    public int getClientCount(ConsumerState state) {
+        return clients.get(state).get();
+    }
+}
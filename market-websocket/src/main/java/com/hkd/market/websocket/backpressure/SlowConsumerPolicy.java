@@ -0,0 +1,53 @@
+package com.hkd.market.websocket.backpressure;
+
+import lombok.Getter;
+
+/**
+ * 慢连接处理策略
+ *
+ * 连接出站缓冲区超过高水位（不可写）后的处理方式
+ */
+@Getter
+public enum SlowConsumerPolicy {
+
+    /**
+     * 丢弃中间更新：不可写期间不推送，恢复后只收到合并后的最新状态
+     */
+    DROP("drop"),
+
+    /**
+     * 降级为仅快照：不再推送逐笔流（成交等），只推送合并后的最新状态；
+     * 连续可写超过宽限期后恢复
+     */
+    SNAPSHOT("snapshot"),
+
+    /**
+     * 断开：不可写持续超过宽限期后关闭连接
+     */
+    DISCONNECT("disconnect");
+
+    /**
+     * 配置代码
+     */
+    private final String code;
+
+    SlowConsumerPolicy(String code) {
+        this.code = code;
+    }
+
+    /**
+     * 根据code获取枚举值
+     *
+     * @param code 策略代码
+     * @return SlowConsumerPolicy枚举
+     * @throws IllegalArgumentException 如果code不存在
+     */
+    public static SlowConsumerPolicy fromCode(String code) {
+        for (SlowConsumerPolicy policy : values()) {
+            if (policy.code.equalsIgnoreCase(code)) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("Invalid slow consumer policy: " + code);
+    }
+}
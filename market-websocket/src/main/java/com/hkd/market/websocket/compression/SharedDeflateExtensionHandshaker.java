@@ -0,0 +1,66 @@
+package com.hkd.market.websocket.compression;
+
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionData;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilter;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionFilterProvider;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtension;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandshaker;
+import io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateServerExtensionHandshaker;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 支持共享预压缩帧的 permessage-deflate 握手
+ *
+ * 在Netty标准握手的基础上：
+ * - 始终协商 server_no_context_takeover（RFC 7692 允许服务端在客户端未请求时加入），
+ *   每条消息独立压缩，预压缩的帧对所有连接都能解压，也不会破坏逐连接压缩的滑动窗口
+ * - 不接受 server_max_window_bits（请求该参数的客户端不启用压缩），保证共享帧使用的15位窗口兼容
+ * - 小于 minSize 的帧不压缩（RSV1=0原样发送）
+ */
+public class SharedDeflateExtensionHandshaker implements WebSocketServerExtensionHandshaker {
+
+    static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+    private static final String SERVER_NO_CONTEXT = "server_no_context_takeover";
+    private static final int MAX_WINDOW_SIZE = 15;
+
+    private final PerMessageDeflateServerExtensionHandshaker delegate;
+
+    public SharedDeflateExtensionHandshaker(int compressionLevel, int minSize) {
+        this.delegate = new PerMessageDeflateServerExtensionHandshaker(
+                compressionLevel,
+                false,              // 不接受 server_max_window_bits
+                MAX_WINDOW_SIZE,    // client_max_window_bits
+                true,               // 使用 server_no_context_takeover
+                false,              // 不要求 client_no_context_takeover
+                new MinSizeFilterProvider(minSize));
+    }
+
+    @Override
+    public WebSocketServerExtension handshakeExtension(WebSocketExtensionData extensionData) {
+        if (!PERMESSAGE_DEFLATE.equals(extensionData.name())) {
+            return null;
+        }
+
+        Map<String, String> parameters = new HashMap<>(extensionData.parameters());
+        parameters.put(SERVER_NO_CONTEXT, null);
+        return delegate.handshakeExtension(new WebSocketExtensionData(extensionData.name(), parameters));
+    }
+
+    /**
+     * 出站帧小于 minSize 时跳过压缩
+     */
+    private record MinSizeFilterProvider(int minSize) implements WebSocketExtensionFilterProvider {
+
+        @Override
+        public WebSocketExtensionFilter encoderFilter() {
+            return frame -> frame.content().readableBytes() < minSize;
+        }
+
+        @Override
+        public WebSocketExtensionFilter decoderFilter() {
+            return WebSocketExtensionFilter.NEVER_SKIP;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.hkd.market.websocket.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandler;
+import io.netty.util.AttributeKey;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.zip.Deflater;
+
+/**
+ * 共享压缩
+ *
+ * 广播时每条消息只压缩一次（无上下文接管的raw deflate，去掉同步刷新尾部 00 00 FF FF），
+ * 压缩结果以 RSV1 帧共享给所有协商了 permessage-deflate 的连接；Netty的逐连接压缩编码器
+ * 遇到已置 RSV1 的帧直接放行。未协商压缩的连接收到原始帧。
+ *
+ * 单条回复（订阅确认、错误等）仍由逐连接编码器压缩。
+ */
+@Component
+public class SharedDeflater {
+
+    /**
+     * Netty安装的逐连接压缩编码器在Pipeline中的名称（WebSocketServerExtensionHandler 以类名命名）
+     */
+    private static final String DEFLATE_ENCODER_NAME =
+            "io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateEncoder";
+
+    private static final AttributeKey<Boolean> NEGOTIATED = AttributeKey.valueOf("hkd.deflateNegotiated");
+
+    private static final byte[] SYNC_FLUSH_TAIL = {0x00, 0x00, (byte) 0xFF, (byte) 0xFF};
+
+    @Getter
+    private final boolean enabled;
+
+    @Getter
+    private final int compressionLevel;
+
+    @Getter
+    private final int minSize;
+
+    private final ThreadLocal<Deflater> deflaters;
+
+    public SharedDeflater(@Value("${hkd.market.websocket.compression.enabled:true}") boolean enabled,
+                          @Value("${hkd.market.websocket.compression.level:6}") int compressionLevel,
+                          @Value("${hkd.market.websocket.compression.min-size:256}") int minSize) {
+        this.enabled = enabled;
+        this.compressionLevel = compressionLevel;
+        this.minSize = minSize;
+        this.deflaters = ThreadLocal.withInitial(() -> new Deflater(compressionLevel, true));
+    }
+
+    /**
+     * 创建握手处理器（未启用压缩时返回null）
+     */
+    public WebSocketServerExtensionHandler newExtensionHandler() {
+        if (!enabled) {
+            return null;
+        }
+        return new WebSocketServerExtensionHandler(new SharedDeflateExtensionHandshaker(compressionLevel, minSize));
+    }
+
+    /**
+     * 消息是否需要压缩（与逐连接编码器的最小长度一致）
+     */
+    public boolean shouldCompress(ByteBuf payload) {
+        return enabled && payload.readableBytes() >= minSize;
+    }
+
+    /**
+     * 连接是否协商了 permessage-deflate
+     */
+    public static boolean negotiated(Channel channel) {
+        Boolean negotiated = channel.attr(NEGOTIATED).get();
+        if (negotiated == null) {
+            negotiated = channel.pipeline().context(DEFLATE_ENCODER_NAME) != null;
+            channel.attr(NEGOTIATED).set(negotiated);
+        }
+        return negotiated;
+    }
+
+    /**
+     * 压缩为一条完整的 permessage-deflate 消息（引用计数为1，由调用方释放）
+     *
+     * @param payload 原始消息（不改变读索引）
+     */
+    public ByteBuf compress(ByteBuf payload, ByteBufAllocator allocator) {
+        byte[] input = new byte[payload.readableBytes()];
+        payload.getBytes(payload.readerIndex(), input);
+
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setInput(input);
+
+        ByteBuf out = allocator.directBuffer(input.length / 2 + 64);
+        try {
+            byte[] chunk = new byte[Math.max(64, input.length / 2)];
+            int written;
+            do {
+                written = deflater.deflate(chunk, 0, chunk.length, Deflater.SYNC_FLUSH);
+                out.writeBytes(chunk, 0, written);
+            } while (written == chunk.length);
+
+            // RFC 7692 7.2.1：去掉同步刷新产生的空块尾部
+            int tail = out.writerIndex() - SYNC_FLUSH_TAIL.length;
+            if (tail < 0 || !endsWithSyncFlushTail(out, tail)) {
+                throw new IllegalStateException("Unexpected deflate output without sync flush tail");
+            }
+            out.writerIndex(tail);
+            return out;
+        } catch (RuntimeException e) {
+            out.release();
+            throw e;
+        }
+    }
+
+    private static boolean endsWithSyncFlushTail(ByteBuf out, int tail) {
+        for (int i = 0; i < SYNC_FLUSH_TAIL.length; i++) {
+            if (out.getByte(tail + i) != SYNC_FLUSH_TAIL[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -2,31 +2,65 @@ package com.hkd.market.websocket.handler;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hkd.market.api.enums.WebSocketMessageType;
+import com.hkd.market.websocket.protocol.ControlFrameParser;
+import com.hkd.market.websocket.protocol.PongFrame;
 import com.hkd.market.websocket.protocol.WebSocketMessage;
+import com.hkd.market.websocket.protocol.WireFormat;
+import com.hkd.market.websocket.push.ConflatingPublisher;
+import com.hkd.market.websocket.push.KlineHistory;
 import com.hkd.market.websocket.subscription.SubscriptionManager;
+import com.hkd.market.websocket.subscription.Topic;
+import com.hkd.market.websocket.subscription.TopicPattern;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
 import io.netty.handler.timeout.IdleState;
 import io.netty.handler.timeout.IdleStateEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * WebSocket业务处理器
  *
  * 处理客户端消息：
  * - PING/PONG心跳
- * - SUBSCRIBE订阅
+ * - SUBSCRIBE订阅（kline频道可携带 snapshot 请求最近N根K线）
  * - UNSUBSCRIBE取消订阅
+ * - RESYNC增量推送重新同步（kline频道可携带 delta 开启增量推送）
+ * - RESUME断线重连后按 seq 恢复订阅，只重放缺失的推送
+ * - 批量订阅/取消订阅：topics 数组（可含通配符，见 TopicPattern），一条消息只回复一帧
+ *
+ * 客户端消息始终为JSON文本帧；握手协商 hkd-bin.v1 的连接数据推送使用二进制帧（见 WireFormat）。
+ * PING 和简单的单主题订阅/取消订阅先由 ControlFrameParser 直接在帧内容上识别，
+ * 不转换为 String、不经过 Jackson；PING 回复共享的预编码 PongFrame。其他消息走完整解析。
  */
 @Slf4j
 @RequiredArgsConstructor
 public class WebSocketServerHandler extends SimpleChannelInboundHandler<WebSocketFrame> {
 
+    private static final String KLINE_CHANNEL = "kline";
+
+    /**
+     * 单条消息最多的主题表达式数
+     */
+    private static final int MAX_BATCH_TOPICS = 1000;
+
     private final SubscriptionManager subscriptionManager;
     private final ObjectMapper objectMapper;
+    private final KlineHistory klineHistory;
+    private final ConflatingPublisher conflatingPublisher;
+
+    /**
+     * 控制消息快速解析（每个连接一个实例）
+     */
+    private final ControlFrameParser controlFrameParser = new ControlFrameParser();
 
     @Override
     public void channelActive(ChannelHandlerContext ctx) throws Exception {
@@ -52,9 +86,19 @@ public class WebSocketServerHandler extends SimpleChannelInboundHandler<WebSocke
             return;
         }
 
-        String text = textFrame.text();
-        log.debug("Received message from {}: {}", ctx.channel().id().asShortText(), text);
+        ByteBuf content = textFrame.content();
+        if (log.isDebugEnabled()) {
+            log.debug("Received message from {}: {}", ctx.channel().id().asShortText(),
+                    content.toString(StandardCharsets.UTF_8));
+        }
+
+        // 快速路径：心跳和简单订阅不创建 String / WebSocketMessage
+        if (controlFrameParser.parse(content)) {
+            handleControl(ctx, controlFrameParser);
+            return;
+        }
 
+        String text = textFrame.text();
         try {
             // 解析消息
             WebSocketMessage message = objectMapper.readValue(text, WebSocketMessage.class);
@@ -78,6 +122,8 @@ public class WebSocketServerHandler extends SimpleChannelInboundHandler<WebSocke
                 case PING -> handlePing(ctx);
                 case SUBSCRIBE -> handleSubscribe(ctx, message);
                 case UNSUBSCRIBE -> handleUnsubscribe(ctx, message);
+                case RESYNC -> handleResync(ctx, message);
+                case RESUME -> handleResume(ctx, message);
                 default -> sendError(ctx, "UNSUPPORTED_MESSAGE_TYPE", "Unsupported message type: " + message.getType());
             }
         } catch (IllegalArgumentException e) {
@@ -88,48 +134,110 @@ public class WebSocketServerHandler extends SimpleChannelInboundHandler<WebSocke
         }
     }
 
+    /**
+     * 处理快速路径识别的消息
+     */
+    private void handleControl(ChannelHandlerContext ctx, ControlFrameParser parsed) {
+        try {
+            switch (parsed.getType()) {
+                case PING -> handlePing(ctx);
+                case SUBSCRIBE -> subscribe(ctx, parsed.getChannel(), parsed.getSymbol(), parsed.getInterval(),
+                        null, null);
+                case UNSUBSCRIBE -> unsubscribe(ctx, parsed.getChannel(), parsed.getSymbol(), parsed.getInterval());
+                default -> sendError(ctx, "UNSUPPORTED_MESSAGE_TYPE",
+                        "Unsupported message type: " + parsed.getType().getCode());
+            }
+        } catch (Exception e) {
+            log.error("Failed to handle message", e);
+            sendError(ctx, "INTERNAL_ERROR", "Internal server error");
+        }
+    }
+
     /**
      * 处理PING消息
      */
     private void handlePing(ChannelHandlerContext ctx) {
-        sendMessage(ctx, WebSocketMessage.pong());
+        ctx.writeAndFlush(PongFrame.frame(), ctx.voidPromise());
     }
 
     /**
      * 处理SUBSCRIBE消息
      */
     private void handleSubscribe(ChannelHandlerContext ctx, WebSocketMessage message) {
-        String channel = message.getChannel();
-        String symbol = message.getSymbol();
-        String interval = message.getInterval();
+        if (message.getTopics() != null) {
+            handleBatch(ctx, message.getTopics(), true);
+            return;
+        }
+
+        subscribe(ctx, message.getChannel(), message.getSymbol(), message.getInterval(),
+                message.getSnapshot(), message.getDelta());
+    }
 
+    /**
+     * 订阅单个主题
+     */
+    private void subscribe(ChannelHandlerContext ctx, String channel, String symbol, String interval,
+                           Integer snapshot, Boolean delta) {
         // 验证参数
         if (channel == null || symbol == null) {
             sendError(ctx, "INVALID_PARAMS", "Missing required parameters: channel and symbol");
             return;
         }
 
-        // 订阅
-        subscriptionManager.subscribe(ctx.channel(), channel, symbol, interval);
+        boolean isKline = KLINE_CHANNEL.equals(channel) && interval != null;
+        boolean withSnapshot = isKline && snapshot != null && snapshot > 0;
+        // 增量推送只用于JSON连接（hkd-bin.v1 的完整K线已足够紧凑）
+        boolean withDelta = isKline && Boolean.TRUE.equals(delta)
+                && WireFormat.of(ctx.channel()) == WireFormat.JSON;
 
-        // 发送订阅成功响应
-        sendMessage(ctx, WebSocketMessage.subscribed(channel, symbol, interval));
+        // 订阅
+        Topic topic;
+        try {
+            if (withSnapshot) {
+                // 先发送订阅成功响应，再发送快照，之后的推送与快照衔接
+                topic = klineHistory.subscribe(ctx.channel(), symbol, interval, snapshot,
+                        subscribed -> sendMessage(ctx, WebSocketMessage.subscribed(channel, symbol, interval)));
+            } else {
+                topic = subscriptionManager.subscribe(ctx.channel(), channel, symbol, interval);
+                // 发送订阅成功响应
+                sendMessage(ctx, WebSocketMessage.subscribed(channel, symbol, interval));
+            }
+        } catch (IllegalArgumentException e) {
+            sendError(ctx, "INVALID_PARAMS", e.getMessage());
+            return;
+        } catch (IllegalStateException e) {
+            sendError(ctx, "SUBSCRIPTION_LIMIT", e.getMessage());
+            return;
+        }
+        if (isKline) {
+            conflatingPublisher.enableDelta(ctx.channel(), topic, withDelta);
+        }
 
-        log.info("Channel {} subscribed to {}:{}{}",
+        log.info("Channel {} subscribed to {}:{}{}{}{}",
                 ctx.channel().id().asShortText(),
                 channel,
                 symbol,
-                interval != null ? ":" + interval : "");
+                interval != null ? ":" + interval : "",
+                withSnapshot ? " with snapshot " + snapshot : "",
+                withDelta ? " (delta)" : "");
     }
 
     /**
      * 处理UNSUBSCRIBE消息
      */
     private void handleUnsubscribe(ChannelHandlerContext ctx, WebSocketMessage message) {
-        String channel = message.getChannel();
-        String symbol = message.getSymbol();
-        String interval = message.getInterval();
+        if (message.getTopics() != null) {
+            handleBatch(ctx, message.getTopics(), false);
+            return;
+        }
+
+        unsubscribe(ctx, message.getChannel(), message.getSymbol(), message.getInterval());
+    }
 
+    /**
+     * 取消订阅单个主题
+     */
+    private void unsubscribe(ChannelHandlerContext ctx, String channel, String symbol, String interval) {
         // 验证参数
         if (channel == null || symbol == null) {
             sendError(ctx, "INVALID_PARAMS", "Missing required parameters: channel and symbol");
@@ -149,6 +257,117 @@ public class WebSocketServerHandler extends SimpleChannelInboundHandler<WebSocke
                 interval != null ? ":" + interval : "");
     }
 
+    /**
+     * 处理RESYNC消息
+     *
+     * 客户端发现增量推送的 seq 不连续时发送，下一轮推送该主题最新的完整消息
+     */
+    private void handleResync(ChannelHandlerContext ctx, WebSocketMessage message) {
+        Topic topic = message.getChannel() == null || message.getSymbol() == null ? null
+                : subscriptionManager.findTopic(message.getChannel(), message.getSymbol(), message.getInterval());
+        if (topic == null || !topic.getSubscribers().contains(ctx.channel())) {
+            sendError(ctx, "NOT_SUBSCRIBED", "Resync requires an active subscription");
+            return;
+        }
+
+        conflatingPublisher.resync(ctx.channel(), topic);
+        log.debug("Channel {} requested resync of {}", ctx.channel().id().asShortText(), topic.getKey());
+    }
+
+    /**
+     * 处理RESUME消息
+     *
+     * 订阅主题并重放最后收到的 seq 之后的推送；缺口超出重放缓冲、或 epoch 不是当前进程时回退为快照（RESUMED 中 gap=true）
+     */
+    private void handleResume(ChannelHandlerContext ctx, WebSocketMessage message) {
+        String channel = message.getChannel();
+        String symbol = message.getSymbol();
+        String interval = message.getInterval();
+
+        // 验证参数
+        if (channel == null || symbol == null || message.getSeq() == null) {
+            sendError(ctx, "INVALID_PARAMS", "Missing required parameters: channel, symbol and seq");
+            return;
+        }
+
+        ConflatingPublisher.Resumed resumed;
+        try {
+            // 先发送恢复成功响应，再依次重放
+            resumed = conflatingPublisher.resume(ctx.channel(), channel, symbol, interval, message.getSeq(),
+                    message.getEpoch(), result -> sendMessage(ctx, WebSocketMessage.resumed(channel, symbol, interval,
+                            result.seq(), result.epoch(), result.replayed(), result.gap())));
+        } catch (IllegalArgumentException e) {
+            sendError(ctx, "INVALID_PARAMS", e.getMessage());
+            return;
+        } catch (IllegalStateException e) {
+            sendError(ctx, "SUBSCRIPTION_LIMIT", e.getMessage());
+            return;
+        }
+
+        log.info("Channel {} resumed {} from seq {}: replayed={}, gap={}",
+                ctx.channel().id().asShortText(),
+                resumed.topic().getKey(),
+                message.getSeq(),
+                resumed.replayed(),
+                resumed.gap());
+    }
+
+    /**
+     * 处理批量SUBSCRIBE/UNSUBSCRIBE消息
+     *
+     * 通配表达式在这里展开到订阅索引；格式错误、名称不合法或超过主题上限的表达式放入 rejected，不影响其他表达式。
+     * 批量订阅不支持 snapshot。
+     */
+    private void handleBatch(ChannelHandlerContext ctx, List<String> topics, boolean subscribe) {
+        if (topics.isEmpty() || topics.size() > MAX_BATCH_TOPICS) {
+            sendError(ctx, "INVALID_PARAMS", "Topics must contain 1 to " + MAX_BATCH_TOPICS + " entries");
+            return;
+        }
+
+        List<String> accepted = new ArrayList<>(topics.size());
+        List<String> rejected = new ArrayList<>();
+        for (String expression : topics) {
+            TopicPattern pattern;
+            try {
+                pattern = TopicPattern.parse(expression);
+            } catch (IllegalArgumentException e) {
+                rejected.add(expression);
+                continue;
+            }
+
+            try {
+                if (subscribe) {
+                    if (pattern.isWildcard()) {
+                        subscriptionManager.subscribe(ctx.channel(), pattern);
+                    } else {
+                        subscriptionManager.subscribe(ctx.channel(),
+                                pattern.getChannelName(), pattern.getSymbol(), pattern.getInterval());
+                    }
+                } else if (pattern.isWildcard()) {
+                    subscriptionManager.unsubscribe(ctx.channel(), pattern);
+                } else {
+                    subscriptionManager.unsubscribe(ctx.channel(),
+                            pattern.getChannelName(), pattern.getSymbol(), pattern.getInterval());
+                }
+                accepted.add(pattern.getKey());
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                // 名称不合法，或主题数量、连接订阅的主题数已达上限
+                rejected.add(expression);
+            }
+        }
+
+        // 整批只回复一帧
+        sendMessage(ctx, subscribe
+                ? WebSocketMessage.subscribed(accepted, rejected)
+                : WebSocketMessage.unsubscribed(accepted, rejected));
+
+        log.info("Channel {} {} {} topics in batch: rejected={}",
+                ctx.channel().id().asShortText(),
+                subscribe ? "subscribed to" : "unsubscribed from",
+                accepted.size(),
+                rejected.size());
+    }
+
     /**
      * 发送消息
      */
@@ -170,6 +389,13 @@ public class WebSocketServerHandler extends SimpleChannelInboundHandler<WebSocke
 
     @Override
     public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof WebSocketServerProtocolHandler.HandshakeComplete handshake) {
+            // 记录协商的推送编码格式
+            WireFormat format = WireFormat.fromSubprotocol(handshake.selectedSubprotocol());
+            format.bind(ctx.channel());
+            log.debug("WebSocket handshake complete: channel={}, subprotocol={}, format={}",
+                    ctx.channel().id().asShortText(), handshake.selectedSubprotocol(), format);
+        }
         if (evt instanceof IdleStateEvent idleEvent) {
             if (idleEvent.state() == IdleState.READER_IDLE) {
                 log.warn("WebSocket connection idle timeout: {}", ctx.channel().id().asShortText());
@@ -0,0 +1,244 @@
+package com.hkd.market.websocket.protocol;
+
+import com.hkd.market.api.enums.OrderSide;
+import com.hkd.market.api.enums.WebSocketMessageType;
+import com.hkd.market.domain.entity.Kline;
+import com.hkd.market.domain.entity.MarketTrade;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * hkd-bin.v1 二进制帧编解码
+ *
+ * 格式（大端序）：
+ * <pre>
+ * byte    版本号 (1)
+ * byte    消息类型 (1=kline, 2=trade; 3=ticker, 4=depth 预留)
+ * long    timestamp (毫秒)
+ * string  symbol                       (u16长度 + UTF-8)
+ *
+ * kline:
+ * string  interval
+ * long    openTime / closeTime         (秒)
+ * decimal open / high / low / close / volume / amount
+ * int     tradeCount
+ * byte    completed (0/1)
+ *
+ * trade:
+ * long    tradeId
+ * decimal price / quantity / amount
+ * byte    takerSide (0=buy, 1=sell, -1=未知)
+ * long    tradeTime (毫秒)
+ *
+ * 可选尾部:
+ * long    seq                          (主题推送序号，带seq的消息才写入；不读取尾部的解码器不受影响)
+ * long    epoch                        (seq 所属的服务端进程，紧跟 seq 写入)
+ * </pre>
+ *
+ * decimal：首字节为精度 0..18 时后跟放大后的 long（原值 = long / 10^精度）；
+ * 超出范围时首字节为 DECIMAL_BIG，后跟 int 精度 + u16长度 + 非标度值字节；DECIMAL_NULL 表示null。
+ * 空的 long/int 字段写 0。
+ *
+ * 格式变化时递增版本号（子协议名同步升级为 hkd-bin.v2）。
+ */
+public final class BinaryFrameCodec {
+
+    public static final byte VERSION = 1;
+
+    public static final byte TYPE_KLINE = 1;
+    public static final byte TYPE_TRADE = 2;
+    public static final byte TYPE_TICKER = 3;
+    public static final byte TYPE_DEPTH = 4;
+
+    private static final int MAX_LONG_SCALE = 18;
+    private static final byte DECIMAL_BIG = 0x7E;
+    private static final byte DECIMAL_NULL = 0x7F;
+
+    private BinaryFrameCodec() {
+    }
+
+    /**
+     * 消息是否有二进制格式（没有的消息对二进制连接也以JSON推送）
+     */
+    public static boolean supports(WebSocketMessage message) {
+        return message.getData() instanceof Kline || message.getData() instanceof MarketTrade;
+    }
+
+    /**
+     * 编码消息
+     *
+     * @throws IllegalArgumentException 消息不支持二进制格式
+     */
+    public static void encode(WebSocketMessage message, ByteBuf out) {
+        Object data = message.getData();
+        byte type;
+        if (data instanceof Kline) {
+            type = TYPE_KLINE;
+        } else if (data instanceof MarketTrade) {
+            type = TYPE_TRADE;
+        } else {
+            throw new IllegalArgumentException("No binary layout for message: " + message.getType());
+        }
+
+        out.writeByte(VERSION);
+        out.writeByte(type);
+        out.writeLong(orZero(message.getTimestamp()));
+        writeString(out, message.getSymbol());
+
+        if (data instanceof Kline kline) {
+            writeString(out, kline.getInterval());
+            out.writeLong(orZero(kline.getOpenTime()));
+            out.writeLong(orZero(kline.getCloseTime()));
+            writeDecimal(out, kline.getOpen());
+            writeDecimal(out, kline.getHigh());
+            writeDecimal(out, kline.getLow());
+            writeDecimal(out, kline.getClose());
+            writeDecimal(out, kline.getVolume());
+            writeDecimal(out, kline.getAmount());
+            out.writeInt(kline.getTradeCount() == null ? 0 : kline.getTradeCount());
+            out.writeByte(Boolean.TRUE.equals(kline.getCompleted()) ? 1 : 0);
+        } else if (data instanceof MarketTrade trade) {
+            out.writeLong(orZero(trade.getTradeId()));
+            writeDecimal(out, trade.getPrice());
+            writeDecimal(out, trade.getQuantity());
+            writeDecimal(out, trade.getAmount());
+            out.writeByte(trade.getTakerSide() == null ? -1 : trade.getTakerSide().ordinal());
+            out.writeLong(orZero(trade.getTradeTime()));
+        }
+
+        if (message.getSeq() != null) {
+            out.writeLong(message.getSeq());
+            if (message.getEpoch() != null) {
+                out.writeLong(message.getEpoch());
+            }
+        }
+    }
+
+    /**
+     * 解码消息（供Java客户端和测试使用）
+     *
+     * @throws IllegalArgumentException 版本号或消息类型未知、数据不完整
+     */
+    public static WebSocketMessage decode(ByteBuf in) {
+        try {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported binary frame version: " + version);
+            }
+            byte type = in.readByte();
+            long timestamp = in.readLong();
+            String symbol = readString(in);
+
+            Object data;
+            WebSocketMessageType messageType;
+            String interval = null;
+            switch (type) {
+                case TYPE_KLINE -> {
+                    interval = readString(in);
+                    data = Kline.builder()
+                            .symbol(symbol)
+                            .interval(interval)
+                            .openTime(in.readLong())
+                            .closeTime(in.readLong())
+                            .open(readDecimal(in))
+                            .high(readDecimal(in))
+                            .low(readDecimal(in))
+                            .close(readDecimal(in))
+                            .volume(readDecimal(in))
+                            .amount(readDecimal(in))
+                            .tradeCount(in.readInt())
+                            .completed(in.readByte() != 0)
+                            .build();
+                    messageType = WebSocketMessageType.KLINE;
+                }
+                case TYPE_TRADE -> {
+                    MarketTrade.MarketTradeBuilder trade = MarketTrade.builder()
+                            .symbol(symbol)
+                            .tradeId(in.readLong())
+                            .price(readDecimal(in))
+                            .quantity(readDecimal(in))
+                            .amount(readDecimal(in));
+                    byte side = in.readByte();
+                    data = trade.takerSide(side < 0 ? null : OrderSide.values()[side])
+                            .tradeTime(in.readLong())
+                            .build();
+                    messageType = WebSocketMessageType.TRADE;
+                }
+                default -> throw new IllegalArgumentException("Unsupported binary frame type: " + type);
+            }
+
+            WebSocketMessage message = WebSocketMessage.push(messageType, symbol, data);
+            message.setChannel(messageType.getCode());
+            message.setInterval(interval);
+            message.setTimestamp(timestamp);
+            if (in.readableBytes() >= Long.BYTES) {
+                message.setSeq(in.readLong());
+            }
+            if (in.readableBytes() >= Long.BYTES) {
+                message.setEpoch(in.readLong());
+            }
+            return message;
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated binary frame", e);
+        }
+    }
+
+    private static long orZero(Long value) {
+        return value == null ? 0L : value;
+    }
+
+    private static void writeString(ByteBuf out, String value) {
+        String text = value == null ? "" : value;
+        int lengthIndex = out.writerIndex();
+        out.writeShort(0);
+        int length = ByteBufUtil.writeUtf8(out, text);
+        if (length > 0xFFFF) {
+            throw new IllegalArgumentException("String too long for binary frame: " + length);
+        }
+        out.setShort(lengthIndex, length);
+    }
+
+    private static String readString(ByteBuf in) {
+        int length = in.readUnsignedShort();
+        String value = in.toString(in.readerIndex(), length, StandardCharsets.UTF_8);
+        in.skipBytes(length);
+        return value;
+    }
+
+    private static void writeDecimal(ByteBuf out, BigDecimal value) {
+        if (value == null) {
+            out.writeByte(DECIMAL_NULL);
+        } else if (value.scale() >= 0 && value.scale() <= MAX_LONG_SCALE
+                && value.unscaledValue().bitLength() < 64) {
+            out.writeByte(value.scale());
+            out.writeLong(value.unscaledValue().longValue());
+        } else {
+            byte[] unscaled = value.unscaledValue().toByteArray();
+            out.writeByte(DECIMAL_BIG);
+            out.writeInt(value.scale());
+            out.writeShort(unscaled.length);
+            out.writeBytes(unscaled);
+        }
+    }
+
+    private static BigDecimal readDecimal(ByteBuf in) {
+        byte tag = in.readByte();
+        if (tag == DECIMAL_NULL) {
+            return null;
+        }
+        if (tag == DECIMAL_BIG) {
+            int scale = in.readInt();
+            byte[] unscaled = new byte[in.readUnsignedShort()];
+            in.readBytes(unscaled);
+            return new BigDecimal(new BigInteger(unscaled), scale);
+        }
+        if (tag < 0 || tag > MAX_LONG_SCALE) {
+            throw new IllegalArgumentException("Invalid decimal tag: " + tag);
+        }
+        return BigDecimal.valueOf(in.readLong(), tag);
+    }
+}
@@ -0,0 +1,237 @@
+package com.hkd.market.websocket.protocol;
+
+import com.hkd.market.api.enums.WebSocketMessageType;
+import io.netty.buffer.ByteBuf;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 客户端控制消息快速解析
+ *
+ * 直接在文本帧的 ByteBuf 上识别最常见的客户端消息，不创建 String 和 WebSocketMessage：
+ * - {"type":"ping"}
+ * - {"type":"subscribe"|"unsubscribe","channel":"...","symbol":"...","interval":"..."}
+ *
+ * 只接受扁平对象：键只能是 type/channel/symbol/interval，值只能是不含转义的字符串，type 不区分大小写（ASCII）。
+ * 其他任何形式（topics、snapshot、delta、数字、null、转义、未知字段、格式错误等）返回 false，
+ * 由调用方回退到 Jackson 完整解析，两条路径对同一条消息的处理结果相同。
+ *
+ * PING 不产生任何分配；订阅消息的频道匹配到常量，只有 symbol/interval 解码为 String。
+ * 实例保存最近一次的解析结果，每个连接一个实例，只在连接的IO线程访问。
+ */
+@Getter
+public final class ControlFrameParser {
+
+    private static final byte[] KEY_TYPE = ascii("type");
+    private static final byte[] KEY_CHANNEL = ascii("channel");
+    private static final byte[] KEY_SYMBOL = ascii("symbol");
+    private static final byte[] KEY_INTERVAL = ascii("interval");
+
+    /**
+     * 快速路径处理的消息类型
+     */
+    private static final WebSocketMessageType[] TYPES = {
+            WebSocketMessageType.PING,
+            WebSocketMessageType.SUBSCRIBE,
+            WebSocketMessageType.UNSUBSCRIBE
+    };
+    private static final byte[][] TYPE_CODES = new byte[TYPES.length][];
+
+    /**
+     * 已知频道（匹配时直接使用常量，不解码）
+     */
+    private static final String[] CHANNELS = {"kline", "depth", "ticker", "trade"};
+    private static final byte[][] CHANNEL_CODES = new byte[CHANNELS.length][];
+
+    static {
+        for (int i = 0; i < TYPES.length; i++) {
+            TYPE_CODES[i] = ascii(TYPES[i].getCode());
+        }
+        for (int i = 0; i < CHANNELS.length; i++) {
+            CHANNEL_CODES[i] = ascii(CHANNELS[i]);
+        }
+    }
+
+    /**
+     * 消息类型
+     */
+    private WebSocketMessageType type;
+
+    /**
+     * 频道
+     */
+    private String channel;
+
+    /**
+     * 交易对
+     */
+    private String symbol;
+
+    /**
+     * K线周期
+     */
+    private String interval;
+
+    /**
+     * 解析文本帧内容（不移动 readerIndex）
+     *
+     * @param content 文本帧内容（UTF-8 JSON）
+     * @return 是否由快速路径识别；false 时需要完整解析
+     */
+    public boolean parse(ByteBuf content) {
+        type = null;
+        channel = null;
+        symbol = null;
+        interval = null;
+
+        int end = content.writerIndex();
+        int i = skipWhitespace(content, content.readerIndex(), end);
+        if (i >= end || content.getByte(i) != '{') {
+            return false;
+        }
+        i = skipWhitespace(content, i + 1, end);
+
+        while (true) {
+            // "key"
+            if (i >= end || content.getByte(i) != '"') {
+                return false;
+            }
+            int keyStart = i + 1;
+            int keyEnd = stringEnd(content, keyStart, end);
+            if (keyEnd < 0) {
+                return false;
+            }
+
+            i = skipWhitespace(content, keyEnd + 1, end);
+            if (i >= end || content.getByte(i) != ':') {
+                return false;
+            }
+
+            // "value"
+            i = skipWhitespace(content, i + 1, end);
+            if (i >= end || content.getByte(i) != '"') {
+                return false;
+            }
+            int valueStart = i + 1;
+            int valueEnd = stringEnd(content, valueStart, end);
+            if (valueEnd < 0 || !field(content, keyStart, keyEnd, valueStart, valueEnd)) {
+                return false;
+            }
+
+            i = skipWhitespace(content, valueEnd + 1, end);
+            if (i >= end) {
+                return false;
+            }
+            byte next = content.getByte(i);
+            if (next == '}') {
+                break;
+            }
+            if (next != ',') {
+                return false;
+            }
+            i = skipWhitespace(content, i + 1, end);
+        }
+
+        return type != null && skipWhitespace(content, i + 1, end) == end;
+    }
+
+    /**
+     * 记录一个字段
+     *
+     * @return 字段是否由快速路径支持
+     */
+    private boolean field(ByteBuf content, int keyStart, int keyEnd, int valueStart, int valueEnd) {
+        if (equals(content, keyStart, keyEnd, KEY_TYPE, false)) {
+            type = null;
+            for (int t = 0; t < TYPES.length; t++) {
+                if (equals(content, valueStart, valueEnd, TYPE_CODES[t], true)) {
+                    type = TYPES[t];
+                    break;
+                }
+            }
+            return type != null;
+        }
+        if (equals(content, keyStart, keyEnd, KEY_CHANNEL, false)) {
+            channel = null;
+            for (int c = 0; c < CHANNELS.length; c++) {
+                if (equals(content, valueStart, valueEnd, CHANNEL_CODES[c], false)) {
+                    channel = CHANNELS[c];
+                    break;
+                }
+            }
+            if (channel == null) {
+                channel = decode(content, valueStart, valueEnd);
+            }
+            return true;
+        }
+        if (equals(content, keyStart, keyEnd, KEY_SYMBOL, false)) {
+            symbol = decode(content, valueStart, valueEnd);
+            return true;
+        }
+        if (equals(content, keyStart, keyEnd, KEY_INTERVAL, false)) {
+            interval = decode(content, valueStart, valueEnd);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 字符串结束引号的位置
+     *
+     * @return 结束引号下标；含转义、控制字符或未结束时返回-1
+     */
+    private static int stringEnd(ByteBuf content, int start, int end) {
+        for (int i = start; i < end; i++) {
+            byte b = content.getByte(i);
+            if (b == '"') {
+                return i;
+            }
+            if (b == '\\' || (b >= 0 && b < 0x20)) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(ByteBuf content, int start, int end) {
+        int i = start;
+        while (i < end) {
+            byte b = content.getByte(i);
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * 比较 [start, end) 与ASCII常量
+     *
+     * @param ignoreCase 是否忽略ASCII字母大小写（常量必须为小写）
+     */
+    private static boolean equals(ByteBuf content, int start, int end, byte[] expected, boolean ignoreCase) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            byte b = content.getByte(start + i);
+            if (ignoreCase && b >= 'A' && b <= 'Z') {
+                b = (byte) (b + ('a' - 'A'));
+            }
+            if (b != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String decode(ByteBuf content, int start, int end) {
+        return content.toString(start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
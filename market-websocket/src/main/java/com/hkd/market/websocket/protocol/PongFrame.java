@@ -0,0 +1,54 @@
+package com.hkd.market.websocket.protocol;
+
+import com.hkd.market.api.enums.WebSocketMessageType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 预编码的PONG帧
+ *
+ * 所有连接共享同一份编码好的 {"type":"pong","timestamp":...}，回复心跳只创建帧对象和内容的 duplicate。
+ * timestamp 每秒重新编码一次（精度为秒级，心跳只需要判断连接存活）。
+ * 内容为 unreleasable 堆内存，帧写出后的 release 不影响共享内容，替换后的旧内容由GC回收。
+ */
+public final class PongFrame {
+
+    /**
+     * 重新编码的间隔（毫秒）
+     */
+    static final long REFRESH_MILLIS = 1000L;
+
+    private static volatile Encoded cached = encode(System.currentTimeMillis());
+
+    private PongFrame() {
+    }
+
+    /**
+     * PONG帧
+     */
+    public static TextWebSocketFrame frame() {
+        return frame(System.currentTimeMillis());
+    }
+
+    static TextWebSocketFrame frame(long now) {
+        Encoded current = cached;
+        if (now - current.timestamp() >= REFRESH_MILLIS || now < current.timestamp()) {
+            // 多个IO线程同时刷新时各自编码，结果等价，最后写入的生效
+            current = encode(now);
+            cached = current;
+        }
+        return new TextWebSocketFrame(current.content().duplicate());
+    }
+
+    private static Encoded encode(long timestamp) {
+        byte[] json = ("{\"type\":\"" + WebSocketMessageType.PONG.getCode() + "\",\"timestamp\":" + timestamp + "}")
+                .getBytes(StandardCharsets.US_ASCII);
+        return new Encoded(timestamp, Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(json)));
+    }
+
+    private record Encoded(long timestamp, ByteBuf content) {
+    }
+}
@@ -7,13 +7,17 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * WebSocket消息协议
  *
  * 客户端和服务端之间交互的统一消息格式
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -39,6 +43,37 @@ public class WebSocketMessage {
      */
     private String interval;
 
+    /**
+     * 批量订阅/取消订阅的主题表达式 (例如: ["ticker:*","kline:BTC-*:1m"])；
+     * 批量响应中为处理成功的主题表达式
+     */
+    private List<String> topics;
+
+    /**
+     * 批量响应中处理失败的主题表达式
+     */
+    private List<String> rejected;
+
+    /**
+     * 订阅时请求的历史K线根数 (可选，仅kline频道的SUBSCRIBE)
+     */
+    private Integer snapshot;
+
+    /**
+     * 订阅时请求增量推送 (可选，仅kline频道的SUBSCRIBE)
+     */
+    private Boolean delta;
+
+    /**
+     * 主题推送序号 (同一主题连续递增，用于检测丢失的增量；RESUME中为最后收到的序号)
+     */
+    private Long seq;
+
+    /**
+     * seq 所属的服务端进程标识 (进程重启后 seq 从1重新开始，epoch 随之改变；RESUME中为最后收到的epoch)
+     */
+    private Long epoch;
+
     /**
      * 消息数据
      */
@@ -82,6 +117,18 @@ public class WebSocketMessage {
                 .build();
     }
 
+    /**
+     * 创建批量SUBSCRIBED消息
+     */
+    public static WebSocketMessage subscribed(List<String> topics, List<String> rejected) {
+        return WebSocketMessage.builder()
+                .type(WebSocketMessageType.SUBSCRIBED.getCode())
+                .topics(topics)
+                .rejected(rejected.isEmpty() ? null : rejected)
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
     /**
      * 创建UNSUBSCRIBED消息
      */
@@ -95,6 +142,38 @@ public class WebSocketMessage {
                 .build();
     }
 
+    /**
+     * 创建批量UNSUBSCRIBED消息
+     */
+    public static WebSocketMessage unsubscribed(List<String> topics, List<String> rejected) {
+        return WebSocketMessage.builder()
+                .type(WebSocketMessageType.UNSUBSCRIBED.getCode())
+                .topics(topics)
+                .rejected(rejected.isEmpty() ? null : rejected)
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    /**
+     * 创建RESUMED消息
+     */
+    public static WebSocketMessage resumed(String channel, String symbol, String interval,
+                                           long seq, long epoch, int replayed, boolean gap) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("replayed", replayed);
+        result.put("gap", gap);
+        return WebSocketMessage.builder()
+                .type(WebSocketMessageType.RESUMED.getCode())
+                .channel(channel)
+                .symbol(symbol)
+                .interval(interval)
+                .seq(seq)
+                .epoch(epoch)
+                .data(result)
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
     /**
      * 创建ERROR消息
      */
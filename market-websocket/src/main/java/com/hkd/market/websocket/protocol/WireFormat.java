@@ -0,0 +1,57 @@
+package com.hkd.market.websocket.protocol;
+
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import lombok.Getter;
+
+/**
+ * 推送编码格式
+ *
+ * 握手时通过 Sec-WebSocket-Protocol 协商：
+ * - 未指定子协议或指定 hkd-json.v1：JSON文本帧（默认）
+ * - 指定 hkd-bin.v1：数据推送（kline/trade）使用 BinaryFrameCodec 二进制帧，控制消息仍为JSON文本帧
+ */
+@Getter
+public enum WireFormat {
+
+    JSON("hkd-json.v1"),
+    BINARY("hkd-bin.v1");
+
+    /**
+     * 服务端支持的子协议列表（WebSocketServerProtocolHandler 配置格式）
+     */
+    public static final String SUBPROTOCOLS = JSON.subprotocol + "," + BINARY.subprotocol;
+
+    private static final AttributeKey<WireFormat> ATTRIBUTE = AttributeKey.valueOf("hkd.wireFormat");
+
+    /**
+     * 子协议名称
+     */
+    private final String subprotocol;
+
+    WireFormat(String subprotocol) {
+        this.subprotocol = subprotocol;
+    }
+
+    /**
+     * 根据握手选定的子协议获取编码格式（未选定时为JSON）
+     */
+    public static WireFormat fromSubprotocol(String subprotocol) {
+        return BINARY.subprotocol.equals(subprotocol) ? BINARY : JSON;
+    }
+
+    /**
+     * 连接的编码格式
+     */
+    public static WireFormat of(Channel channel) {
+        WireFormat format = channel.attr(ATTRIBUTE).get();
+        return format == null ? JSON : format;
+    }
+
+    /**
+     * 记录连接的编码格式（握手完成时调用）
+     */
+    public void bind(Channel channel) {
+        channel.attr(ATTRIBUTE).set(this);
+    }
+}
@@ -0,0 +1,516 @@
+package com.hkd.market.websocket.push;
+
+import com.hkd.market.api.enums.WebSocketMessageType;
+import com.hkd.market.domain.entity.Kline;
+import com.hkd.market.websocket.backpressure.SlowConsumerMonitor;
+import com.hkd.market.websocket.protocol.WebSocketMessage;
+import com.hkd.market.websocket.subscription.SubscriptionManager;
+import com.hkd.market.websocket.subscription.Topic;
+import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 合并推送发布器
+ *
+ * kline / ticker / depth 频道按主题只保留最新一条消息，每个推送间隔最多向每个连接发送一帧：
+ * - 发布只替换该主题的最新消息，不序列化、不写连接
+ * - 每个频道一个定时任务，到期后把有更新的主题交给 WebSocketBroadcaster（一次序列化）
+ * - 出站缓冲区不可写的连接本轮跳过，该主题保持待推送，连接恢复可写后收到的是当时的最新消息，
+ *   慢连接不会造成消息无限堆积
+ * - K线在一个推送间隔内换根（开盘时间变化）时，上一根K线的最后一次更新（收盘价、成交量、completed）
+ *   不被新K线覆盖，先于新K线单独推送一帧
+ *
+ * 其他频道（例如成交）不合并，直接广播；不可写或已降级为仅快照（SlowConsumerPolicy.SNAPSHOT）的连接不接收。
+ *
+ * 合并后的每一帧按主题分配连续的 seq。开启增量模式的K线订阅（enableDelta）收到 KLINE_DELTA：
+ * - 增量相对该主题上一帧计算，每帧只计算和编码一次，所有同步的连接共享
+ * - 连接上一次收到的 seq 不是上一帧（被跳过、刚订阅、请求了 RESYNC）时改发完整K线
+ * - 每隔 keyframe-interval 帧以及新K线开盘时发送完整K线（关键帧）
+ *
+ * seq 由 ReplayBuffer 分配（合并频道和逐笔流都有），每个主题保留最近若干帧：
+ * 重连的客户端用 RESUME 带上最后收到的 seq 和 epoch（resume），只重放缺失的帧；缺口已超出缓冲、
+ * 或 epoch 不是本进程（服务重启后 seq 重新从1开始）时回退为快照（合并频道发送最新一帧，逐笔流发送缓冲中的全部帧）。
+ * 推送和恢复订阅持有同一主题日志的锁，两者之间不重不漏。
+ * 合并频道的主题暂时没有订阅者时新版本照常记入主题日志，seq 继续推进，之后恢复订阅的客户端能发现缺口。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+public class ConflatingPublisher {
+
+    /**
+     * 连接已发送的各主题版本（Key: 主题ID；合并推送线程写入，订阅快照时由IO线程推进）
+     */
+    private static final AttributeKey<Map<Integer, Long>> SENT_VERSIONS =
+            AttributeKey.valueOf("hkd.conflation.sentVersions");
+
+    /**
+     * 增量模式订阅最后收到的 seq（Key: 主题ID；-1 表示下一帧需要完整K线）
+     */
+    private static final AttributeKey<Map<Integer, Long>> DELTA_SEQS =
+            AttributeKey.valueOf("hkd.conflation.deltaSeqs");
+
+    private static final long RESYNC = -1L;
+
+    private final SubscriptionManager subscriptionManager;
+    private final WebSocketBroadcaster broadcaster;
+    private final Map<String, Lane> lanes = new HashMap<>();
+    private final int keyframeInterval;
+    private final ReplayBuffer replayBuffer;
+
+    private ScheduledExecutorService scheduler;
+
+    public ConflatingPublisher(SubscriptionManager subscriptionManager,
+                               WebSocketBroadcaster broadcaster,
+                               @Value("${hkd.market.kline.push-interval:250}") long klinePushInterval,
+                               @Value("${hkd.market.ticker.push-interval:1000}") long tickerPushInterval,
+                               @Value("${hkd.market.depth.push-interval:100}") long depthPushInterval,
+                               @Value("${hkd.market.kline.delta.keyframe-interval:20}") int keyframeInterval,
+                               @Value("${hkd.market.websocket.replay.buffer-size:256}") int replayBufferSize) {
+        this.subscriptionManager = subscriptionManager;
+        this.broadcaster = broadcaster;
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+        this.replayBuffer = new ReplayBuffer(replayBufferSize, System.currentTimeMillis());
+        lanes.put("kline", new Lane("kline", klinePushInterval));
+        lanes.put("ticker", new Lane("ticker", tickerPushInterval));
+        lanes.put("depth", new Lane("depth", depthPushInterval));
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "WebSocket-Conflation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Lane lane : lanes.values()) {
+            scheduler.scheduleWithFixedDelay(() -> flushSafely(lane),
+                    lane.intervalMillis, lane.intervalMillis, TimeUnit.MILLISECONDS);
+        }
+        log.info("Conflating publisher started: intervals={}",
+                lanes.values().stream().map(lane -> lane.channelName + "=" + lane.intervalMillis + "ms").toList());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 发布消息
+     *
+     * @param channelName 频道
+     * @param symbol 交易对
+     * @param interval K线周期 (可选)
+     * @param message 消息（发布后不得再修改）
+     */
+    public void publish(String channelName, String symbol, String interval, WebSocketMessage message) {
+        Topic topic = subscriptionManager.resolveTopic(channelName, symbol, interval);
+        if (topic == null) {
+            // 从未有连接订阅过
+            return;
+        }
+
+        Lane lane = lanes.get(channelName);
+        if (lane == null) {
+            // 逐笔流不合并，跳过不可写和已降级的连接
+            ReplayBuffer.TopicLog topicLog = replayBuffer.log(topic);
+            synchronized (topicLog) {
+                WebSocketMessage stamped = topicLog.append(message, 0L);
+                List<Channel> targets = topic.getSubscribers().stream()
+                        .filter(SlowConsumerMonitor::acceptsStream)
+                        .toList();
+                broadcaster.broadcast(targets, stamped);
+            }
+            return;
+        }
+        lane.offer(new Latest(topic, message, lane.versions.incrementAndGet()));
+    }
+
+    /**
+     * 把主题当前待推送的版本标记为连接已发送
+     *
+     * 订阅时已通过快照收到该主题最新状态的连接，在加入订阅者集合之前调用，
+     * 避免下一轮合并推送把快照中已包含的更新再发一次。
+     *
+     * @param channel 连接Channel
+     * @param topic 主题
+     */
+    public void fence(Channel channel, Topic topic) {
+        Lane lane = lanes.get(topic.getChannelName());
+        if (lane == null) {
+            return;
+        }
+        Latest message = lane.latest.get(topic.getId());
+        if (message != null) {
+            sentVersions(channel).merge(topic.getId(), message.version(), Math::max);
+        }
+    }
+
+    /**
+     * 开启或关闭连接对某个主题的增量推送
+     *
+     * 开启后的第一帧为完整K线
+     *
+     * @param channel 连接Channel
+     * @param topic 主题（仅kline频道支持增量）
+     * @param enabled 是否开启
+     */
+    public void enableDelta(Channel channel, Topic topic, boolean enabled) {
+        if (enabled) {
+            deltaSeqs(channel).put(topic.getId(), RESYNC);
+        } else {
+            Map<Integer, Long> seqs = channel.attr(DELTA_SEQS).get();
+            if (seqs != null) {
+                seqs.remove(topic.getId());
+            }
+        }
+    }
+
+    /**
+     * 重新同步：下一轮向该连接发送主题最新的完整消息
+     *
+     * @param channel 连接Channel
+     * @param topic 主题
+     */
+    public void resync(Channel channel, Topic topic) {
+        Lane lane = lanes.get(topic.getChannelName());
+        if (lane == null) {
+            return;
+        }
+        Map<Integer, Long> seqs = channel.attr(DELTA_SEQS).get();
+        if (seqs != null) {
+            seqs.replace(topic.getId(), RESYNC);
+        }
+        sentVersions(channel).remove(topic.getId());
+        lane.dirty.add(topic.getId());
+    }
+
+    /**
+     * 恢复订阅：订阅主题并重放 lastSeq 之后的帧
+     *
+     * @param channel 连接Channel
+     * @param channelName 频道
+     * @param symbol 交易对
+     * @param interval K线周期 (可选)
+     * @param lastSeq 客户端最后收到的seq
+     * @param lastEpoch lastSeq 所属的epoch（客户端没有提供时为null，按缺口处理）
+     * @param onSubscribed 订阅成功后、重放前执行（发送RESUMED响应）
+     * @return 恢复结果
+     * @throws IllegalArgumentException 频道、交易对或周期不合法
+     * @throws IllegalStateException 主题数量已达上限
+     */
+    public Resumed resume(Channel channel, String channelName, String symbol, String interval, long lastSeq,
+                          Long lastEpoch, Consumer<Resumed> onSubscribed) {
+        Topic existing = subscriptionManager.findTopic(channelName, symbol, interval);
+        if (existing == null) {
+            // 本进程内该主题没有推送过
+            Topic topic = subscriptionManager.subscribe(channel, channelName, symbol, interval);
+            Resumed resumed = new Resumed(topic, 0L, replayBuffer.epoch(), 0, lastSeq > 0);
+            onSubscribed.accept(resumed);
+            return resumed;
+        }
+
+        boolean conflated = lanes.containsKey(existing.getChannelName());
+        ReplayBuffer.TopicLog topicLog = replayBuffer.log(existing);
+        synchronized (topicLog) {
+            List<WebSocketMessage> missed = topicLog.since(lastSeq, lastEpoch);
+            boolean gap = missed == null;
+            if (gap) {
+                WebSocketMessage latestFrame = topicLog.latest();
+                missed = !conflated ? topicLog.retained()
+                        : latestFrame == null ? List.of() : List.of(latestFrame);
+            }
+            if (conflated) {
+                // 日志中的帧已通过重放送达，合并推送从下一个版本开始
+                sentVersions(channel).merge(existing.getId(), topicLog.version(), Math::max);
+            }
+            Topic topic = subscriptionManager.subscribe(channel, channelName, symbol, interval);
+
+            Resumed resumed = new Resumed(topic, topicLog.seq(), replayBuffer.epoch(), missed.size(), gap);
+            onSubscribed.accept(resumed);
+            for (WebSocketMessage message : missed) {
+                broadcaster.broadcast(List.of(channel), message);
+            }
+            return resumed;
+        }
+    }
+
+    /**
+     * 恢复订阅的结果
+     *
+     * @param topic 主题
+     * @param seq 主题当前的seq
+     * @param epoch 本进程的epoch
+     * @param replayed 重放的帧数
+     * @param gap 缺口是否超出重放缓冲或epoch不一致（此时重放的是快照而不是缺失的帧）
+     */
+    public record Resumed(Topic topic, long seq, long epoch, int replayed, boolean gap) {
+    }
+
+    /**
+     * 立即推送某个频道待推送的消息（定时任务调用）
+     */
+    void flush(String channelName) {
+        flushSafely(lanes.get(channelName));
+    }
+
+    private void flushSafely(Lane lane) {
+        try {
+            lane.flush();
+        } catch (RuntimeException e) {
+            log.error("Conflated push failed: channel={}", lane.channelName, e);
+        }
+    }
+
+    /**
+     * 主题的最新消息
+     */
+    private record Latest(Topic topic, WebSocketMessage message, long version) {
+    }
+
+    /**
+     * 主题最近一次推送的帧（只在合并推送线程访问）
+     */
+    private static final class TopicFrames {
+
+        /**
+         * 对应的消息版本
+         */
+        private long version;
+
+        /**
+         * 帧序号
+         */
+        private long seq;
+
+        /**
+         * 完整消息（带seq）
+         */
+        private WebSocketMessage full;
+
+        /**
+         * 相对上一帧的增量（不能增量时为null）
+         */
+        private WebSocketMessage delta;
+
+        /**
+         * 本帧的K线（计算下一帧增量用）
+         */
+        private Kline kline;
+    }
+
+    /**
+     * 单个频道的合并队列
+     */
+    private final class Lane {
+
+        private final String channelName;
+        private final long intervalMillis;
+        private final AtomicLong versions = new AtomicLong();
+        private final Map<Integer, Latest> latest = new ConcurrentHashMap<>();
+
+        /**
+         * 换根时被新K线顶替、尚未推送的上一根K线（每个主题最多一根，下一轮先于最新消息推送）
+         */
+        private final Map<Integer, Latest> closing = new ConcurrentHashMap<>();
+        private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+        private final Map<Integer, TopicFrames> frames = new HashMap<>();
+
+        private Lane(String channelName, long intervalMillis) {
+            this.channelName = channelName;
+            this.intervalMillis = intervalMillis;
+        }
+
+        private void offer(Latest message) {
+            Integer topicId = message.topic().getId();
+            Latest previous = latest.put(topicId, message);
+            if (previous != null && rolledOver(previous, message)) {
+                // 已经推送过的上一根K线在 flush 时按版本跳过
+                closing.put(topicId, previous);
+            }
+            dirty.add(topicId);
+        }
+
+        /**
+         * 两条消息是否属于不同的K线
+         */
+        private boolean rolledOver(Latest previous, Latest message) {
+            return previous.message().getData() instanceof Kline closed
+                    && message.message().getData() instanceof Kline opened
+                    && !Objects.equals(closed.getOpenTime(), opened.getOpenTime());
+        }
+
+        private void flush() {
+            List<Integer> lagging = new ArrayList<>();
+            for (Iterator<Integer> it = dirty.iterator(); it.hasNext(); ) {
+                Integer topicId = it.next();
+                it.remove();
+
+                Latest closed = closing.remove(topicId);
+                Latest message = latest.get(topicId);
+                if (message == null) {
+                    continue;
+                }
+
+                Set<Channel> subscribers = message.topic().getSubscribers();
+                ReplayBuffer.TopicLog topicLog = replayBuffer.log(message.topic());
+                synchronized (topicLog) {
+                    if (closed != null && closed.version() < message.version() && !framed(closed)) {
+                        // 上一根K线的最终状态先于新K线推送；此时不可写的连接只收到新K线
+                        if (subscribers.isEmpty()) {
+                            frame(closed, topicLog);
+                        } else {
+                            flushTopic(closed, subscribers, topicLog);
+                        }
+                    }
+                    if (subscribers.isEmpty()) {
+                        // 没有订阅者也记入主题日志，seq 继续推进，之后恢复订阅的客户端能发现缺口
+                        frame(message, topicLog);
+                        latest.remove(topicId, message);
+                        continue;
+                    }
+                    if (flushTopic(message, subscribers, topicLog)) {
+                        lagging.add(topicId);
+                    }
+                }
+            }
+
+            // 有连接因不可写被跳过，下一轮继续尝试
+            dirty.addAll(lagging);
+        }
+
+        /**
+         * 推送单个主题（持有主题日志的锁）
+         *
+         * @return 是否有连接因不可写被跳过
+         */
+        private boolean flushTopic(Latest message, Set<Channel> subscribers, ReplayBuffer.TopicLog topicLog) {
+            Integer topicId = message.topic().getId();
+            TopicFrames frame = frame(message, topicLog);
+            List<Channel> targets = new ArrayList<>(subscribers.size());
+            List<Channel> deltaTargets = new ArrayList<>();
+            boolean skipped = false;
+            for (Channel channel : subscribers) {
+                if (!channel.isActive()) {
+                    continue;
+                }
+                Map<Integer, Long> sent = sentVersions(channel);
+                if (sent.getOrDefault(topicId, 0L) >= message.version()) {
+                    continue;
+                }
+                if (!channel.isWritable()) {
+                    skipped = true;
+                    continue;
+                }
+                sent.put(topicId, message.version());
+
+                Map<Integer, Long> seqs = channel.attr(DELTA_SEQS).get();
+                Long lastSeq = seqs == null ? null : seqs.get(topicId);
+                if (lastSeq != null) {
+                    // 与上一帧连续才能应用增量，否则发送完整K线
+                    seqs.put(topicId, frame.seq);
+                    if (frame.delta != null && lastSeq == frame.seq - 1) {
+                        deltaTargets.add(channel);
+                        continue;
+                    }
+                }
+                targets.add(channel);
+            }
+
+            if (!targets.isEmpty()) {
+                broadcaster.broadcast(targets, frame.full);
+            }
+            if (!deltaTargets.isEmpty()) {
+                broadcaster.broadcast(deltaTargets, frame.delta);
+            }
+            return skipped;
+        }
+
+        /**
+         * 该版本或更新的版本是否已经生成过帧
+         */
+        private boolean framed(Latest message) {
+            TopicFrames frame = frames.get(message.topic().getId());
+            return frame != null && frame.full != null && frame.version >= message.version();
+        }
+
+        /**
+         * 主题本轮推送的帧：新版本分配下一个seq并计算增量，同一版本重发（跳过的连接、RESYNC）沿用原帧
+         */
+        private TopicFrames frame(Latest message, ReplayBuffer.TopicLog topicLog) {
+            TopicFrames frame = frames.computeIfAbsent(message.topic().getId(), id -> new TopicFrames());
+            if (frame.full != null && frame.version == message.version()) {
+                return frame;
+            }
+
+            WebSocketMessage full = topicLog.append(message.message(), message.version());
+            long seq = full.getSeq();
+            WebSocketMessage delta = null;
+            Kline kline = full.getData() instanceof Kline current ? current : null;
+            if (kline != null && frame.kline != null && seq % keyframeInterval != 0) {
+                Map<String, Object> changed = KlineDelta.diff(frame.kline, kline);
+                if (changed != null) {
+                    delta = full.toBuilder()
+                            .type(WebSocketMessageType.KLINE_DELTA.getCode())
+                            .data(changed)
+                            .build();
+                }
+            }
+
+            frame.version = message.version();
+            frame.seq = seq;
+            frame.full = full;
+            frame.delta = delta;
+            frame.kline = kline;
+            return frame;
+        }
+    }
+
+    private static Map<Integer, Long> deltaSeqs(Channel channel) {
+        Map<Integer, Long> seqs = channel.attr(DELTA_SEQS).get();
+        if (seqs == null) {
+            Map<Integer, Long> created = new ConcurrentHashMap<>();
+            seqs = channel.attr(DELTA_SEQS).setIfAbsent(created);
+            if (seqs == null) {
+                seqs = created;
+            }
+        }
+        return seqs;
+    }
+
+    private static Map<Integer, Long> sentVersions(Channel channel) {
+        Map<Integer, Long> sent = channel.attr(SENT_VERSIONS).get();
+        if (sent == null) {
+            Map<Integer, Long> created = new ConcurrentHashMap<>();
+            sent = channel.attr(SENT_VERSIONS).setIfAbsent(created);
+            if (sent == null) {
+                sent = created;
+            }
+        }
+        return sent;
+    }
+}
@@ -0,0 +1,55 @@
+package com.hkd.market.websocket.push;
+
+import com.hkd.market.domain.entity.Kline;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * K线增量
+ *
+ * 同一根K线（openTime相同）的两次推送之间只比较可变字段，结果始终带 openTime 用于客户端核对。
+ * 数值按 compareTo 比较，只有标度不同的BigDecimal不算变化。
+ */
+final class KlineDelta {
+
+    private KlineDelta() {
+    }
+
+    /**
+     * 计算相对上一帧变化的字段
+     *
+     * @param previous 上一帧的K线
+     * @param current 本帧的K线
+     * @return 变化的字段（openTime + 变化字段）；不是同一根K线时返回null，需要发送完整K线
+     */
+    static Map<String, Object> diff(Kline previous, Kline current) {
+        if (previous == null || !Objects.equals(previous.getOpenTime(), current.getOpenTime())) {
+            return null;
+        }
+
+        Map<String, Object> changed = new LinkedHashMap<>();
+        changed.put("openTime", current.getOpenTime());
+        putIfChanged(changed, "closeTime", previous.getCloseTime(), current.getCloseTime());
+        putIfChanged(changed, "open", previous.getOpen(), current.getOpen());
+        putIfChanged(changed, "high", previous.getHigh(), current.getHigh());
+        putIfChanged(changed, "low", previous.getLow(), current.getLow());
+        putIfChanged(changed, "close", previous.getClose(), current.getClose());
+        putIfChanged(changed, "volume", previous.getVolume(), current.getVolume());
+        putIfChanged(changed, "amount", previous.getAmount(), current.getAmount());
+        putIfChanged(changed, "tradeCount", previous.getTradeCount(), current.getTradeCount());
+        putIfChanged(changed, "completed", previous.getCompleted(), current.getCompleted());
+        return changed;
+    }
+
+    private static void putIfChanged(Map<String, Object> changed, String field, Object previous, Object current) {
+        boolean same = previous instanceof BigDecimal before && current instanceof BigDecimal after
+                ? before.compareTo(after) == 0
+                : Objects.equals(previous, current);
+        if (!same) {
+            changed.put(field, current);
+        }
+    }
+}
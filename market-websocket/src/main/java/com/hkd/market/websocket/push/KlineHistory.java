@@ -0,0 +1,357 @@
+package com.hkd.market.websocket.push;
+
+import com.hkd.market.api.enums.WebSocketMessageType;
+import com.hkd.market.domain.entity.Kline;
+import com.hkd.market.domain.repository.KlineRepository;
+import com.hkd.market.websocket.protocol.WebSocketMessage;
+import com.hkd.market.websocket.protocol.WireFormat;
+import com.hkd.market.websocket.subscription.SubscriptionManager;
+import com.hkd.market.websocket.subscription.Topic;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * K线推送历史
+ *
+ * 每个 (交易对, 周期) 在内存中保留最近若干根K线（环形窗口），支持订阅时附带历史快照：
+ * - 实时更新在序列锁内写入窗口并交给 ConflatingPublisher
+ * - 带 snapshot 的订阅在同一把锁内完成：标记待推送版本为已发送 → 加入订阅者 → 写入快照帧，
+ *   快照之后的推送从下一次更新开始，既不缺失也不重复
+ * - 快照按 (窗口版本, 根数) 只编码一次，同一时刻大量连接订阅同一序列时共享同一个帧内容
+ *
+ * 窗口在序列收到第一次实时更新时从 KlineRepository 异步补齐更早的K线，补齐完成前快照只包含启动后收到的更新。
+ * 序列只在实时更新时创建：订阅从未有过更新的序列（例如不存在的交易对）收到空快照，不创建序列、不查询Repository，
+ * 客户端输入不会让序列数量无限增长。
+ * 快照帧固定为JSON文本帧（hkd-bin.v1 没有K线列表布局）。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+public class KlineHistory {
+
+    private static final String KLINE_CHANNEL = "kline";
+
+    private final SubscriptionManager subscriptionManager;
+    private final ConflatingPublisher conflatingPublisher;
+    private final WebSocketBroadcaster broadcaster;
+    private final KlineRepository klineRepository;
+    private final Executor loader;
+    private final ExecutorService ownedLoader;
+    private final int capacity;
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+
+    /**
+     * 序列创建与“序列不存在时的订阅”互斥，空快照之后的第一次推送一定晚于订阅
+     */
+    private final Object creationLock = new Object();
+
+    @Autowired
+    public KlineHistory(SubscriptionManager subscriptionManager,
+                        ConflatingPublisher conflatingPublisher,
+                        WebSocketBroadcaster broadcaster,
+                        KlineRepository klineRepository,
+                        @Value("${hkd.market.websocket.snapshot.history-size:200}") int capacity) {
+        this(subscriptionManager, conflatingPublisher, broadcaster, klineRepository, capacity,
+                Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "Kline-History-Loader");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    KlineHistory(SubscriptionManager subscriptionManager,
+                 ConflatingPublisher conflatingPublisher,
+                 WebSocketBroadcaster broadcaster,
+                 KlineRepository klineRepository,
+                 int capacity,
+                 Executor loader) {
+        this.subscriptionManager = subscriptionManager;
+        this.conflatingPublisher = conflatingPublisher;
+        this.broadcaster = broadcaster;
+        this.klineRepository = klineRepository;
+        this.capacity = capacity;
+        this.loader = loader;
+        this.ownedLoader = loader instanceof ExecutorService executorService ? executorService : null;
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (ownedLoader != null) {
+            ownedLoader.shutdownNow();
+        }
+        for (Series s : series.values()) {
+            synchronized (s) {
+                s.releaseEncoded();
+            }
+        }
+    }
+
+    /**
+     * 记录一次K线更新，并在序列锁内执行推送
+     *
+     * @param kline 更新后的K线（不得再修改）
+     * @param publish 推送动作（与带快照的订阅互斥）
+     */
+    public void append(Kline kline, Runnable publish) {
+        Series s = series(kline.getSymbol(), kline.getInterval());
+        synchronized (s) {
+            if (!s.seedScheduled) {
+                s.seedScheduled = true;
+                scheduleSeed(s);
+            }
+            s.append(kline);
+            publish.run();
+        }
+    }
+
+    /**
+     * 订阅K线并发送最近 limit 根K线的快照
+     *
+     * @param channel 连接Channel
+     * @param symbol 交易对
+     * @param interval K线周期
+     * @param limit 快照根数（超过窗口容量时按容量截断）
+     * @param onSubscribed 订阅成功后、快照写入前执行（发送SUBSCRIBED响应）
+     * @return 订阅的主题
+     * @throws IllegalArgumentException 交易对或周期不合法
+     * @throws IllegalStateException 主题数量已达上限
+     */
+    public Topic subscribe(Channel channel, String symbol, String interval, int limit,
+                           Consumer<Topic> onSubscribed) {
+        Series s = series.get(key(symbol, interval));
+        if (s == null) {
+            synchronized (creationLock) {
+                s = series.get(key(symbol, interval));
+                if (s == null) {
+                    // 还没有任何更新：订阅并发送空快照，不创建序列
+                    Topic topic = subscriptionManager.subscribe(channel, KLINE_CHANNEL, symbol, interval);
+                    onSubscribed.accept(topic);
+                    writeSnapshot(channel, encode(symbol, interval, List.of()));
+                    return topic;
+                }
+            }
+        }
+
+        synchronized (s) {
+            Topic existing = subscriptionManager.findTopic(KLINE_CHANNEL, symbol, interval);
+            if (existing != null) {
+                conflatingPublisher.fence(channel, existing);
+            }
+            Topic topic = subscriptionManager.subscribe(channel, KLINE_CHANNEL, symbol, interval);
+            onSubscribed.accept(topic);
+
+            writeSnapshot(channel, s.encoded(Math.min(limit, capacity)));
+            return topic;
+        }
+    }
+
+    private static void writeSnapshot(Channel channel, ByteBuf snapshot) {
+        if (snapshot != null) {
+            // 写入（或在IO线程排队）先于此后任何一次广播任务，快照一定在后续推送之前到达
+            channel.writeAndFlush(new TextWebSocketFrame(snapshot), channel.voidPromise());
+        }
+    }
+
+    /**
+     * 编码快照帧内容，失败时返回null
+     */
+    private ByteBuf encode(String symbol, String interval, List<Kline> bars) {
+        WebSocketMessage message = WebSocketMessage.push(WebSocketMessageType.KLINE_SNAPSHOT, symbol, bars);
+        message.setChannel(KLINE_CHANNEL);
+        message.setInterval(interval);
+
+        try {
+            return broadcaster.encode(message, WireFormat.JSON);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to encode kline snapshot: symbol={}, interval={}", symbol, interval, e);
+            return null;
+        }
+    }
+
+    /**
+     * 序列当前保留的K线根数
+     */
+    int size(String symbol, String interval) {
+        Series s = series.get(key(symbol, interval));
+        if (s == null) {
+            return 0;
+        }
+        synchronized (s) {
+            return s.bars.size();
+        }
+    }
+
+    /**
+     * 查找或创建序列（只在实时更新时调用）
+     */
+    private Series series(String symbol, String interval) {
+        String key = key(symbol, interval);
+        Series existing = series.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        synchronized (creationLock) {
+            return series.computeIfAbsent(key, k -> new Series(symbol, interval));
+        }
+    }
+
+    private void scheduleSeed(Series s) {
+        try {
+            loader.execute(() -> seed(s));
+        } catch (RuntimeException e) {
+            log.warn("Failed to schedule kline history seeding: symbol={}, interval={}", s.symbol, s.interval, e);
+        }
+    }
+
+    /**
+     * 从Repository补齐窗口中更早的K线（不覆盖已收到的实时更新）
+     */
+    private void seed(Series s) {
+        List<Kline> latest;
+        try {
+            latest = klineRepository.findLatestKlines(s.symbol, s.interval, capacity);
+        } catch (RuntimeException e) {
+            log.warn("Failed to seed kline history: symbol={}, interval={}", s.symbol, s.interval, e);
+            return;
+        }
+
+        synchronized (s) {
+            s.prepend(latest);
+        }
+        log.debug("Kline history seeded: symbol={}, interval={}, loaded={}", s.symbol, s.interval, latest.size());
+    }
+
+    private static String key(String symbol, String interval) {
+        return symbol + ":" + interval;
+    }
+
+    /**
+     * 单个 (交易对, 周期) 的K线窗口（所有访问持有自身的锁）
+     */
+    private final class Series {
+
+        private final String symbol;
+        private final String interval;
+        private final ArrayDeque<Kline> bars = new ArrayDeque<>();
+
+        /**
+         * 是否已提交补齐任务
+         */
+        private boolean seedScheduled;
+
+        /**
+         * 窗口版本（每次变化递增）
+         */
+        private long version;
+
+        /**
+         * 最近一次编码的快照
+         */
+        private ByteBuf encoded;
+        private long encodedVersion = -1;
+        private int encodedLimit;
+
+        private Series(String symbol, String interval) {
+            this.symbol = symbol;
+            this.interval = interval;
+        }
+
+        private void append(Kline kline) {
+            Kline last = bars.peekLast();
+            if (last != null && kline.getOpenTime() < last.getOpenTime()) {
+                // 乱序的旧K线不影响窗口
+                return;
+            }
+            if (last != null && kline.getOpenTime().equals(last.getOpenTime())) {
+                bars.pollLast();
+            }
+            bars.addLast(kline);
+            while (bars.size() > capacity) {
+                bars.pollFirst();
+            }
+            version++;
+        }
+
+        /**
+         * 补入早于窗口第一根的K线
+         *
+         * @param latest 最新的K线（按时间倒序）
+         */
+        private void prepend(List<Kline> latest) {
+            Kline first = bars.peekFirst();
+            int room = capacity - bars.size();
+            boolean changed = false;
+            for (Kline kline : latest) {
+                if (room <= 0) {
+                    break;
+                }
+                if (first == null || kline.getOpenTime() < first.getOpenTime()) {
+                    bars.addFirst(kline);
+                    first = kline;
+                    room--;
+                    changed = true;
+                }
+            }
+            if (changed) {
+                version++;
+            }
+        }
+
+        /**
+         * 最近 limit 根K线的快照帧内容（引用计数+1，由调用方写出后释放）
+         */
+        private ByteBuf encoded(int limit) {
+            if (encoded != null && encodedVersion == version && encodedLimit == limit) {
+                return encoded.retainedDuplicate();
+            }
+
+            List<Kline> snapshot = new ArrayList<>(Math.min(limit, bars.size()));
+            Iterator<Kline> it = bars.descendingIterator();
+            while (it.hasNext() && snapshot.size() < limit) {
+                snapshot.add(it.next());
+            }
+            Collections.reverse(snapshot);
+
+            ByteBuf payload = encode(symbol, interval, snapshot);
+            if (payload == null) {
+                return null;
+            }
+
+            releaseEncoded();
+            encoded = payload;
+            encodedVersion = version;
+            encodedLimit = limit;
+            return encoded.retainedDuplicate();
+        }
+
+        private void releaseEncoded() {
+            if (encoded != null) {
+                encoded.release();
+                encoded = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.hkd.market.websocket.push;
+
+import com.hkd.market.api.enums.WebSocketMessageType;
+import com.hkd.market.application.event.KlineUpdatedEvent;
+import com.hkd.market.domain.entity.Kline;
+import com.hkd.market.websocket.protocol.WebSocketMessage;
+import com.hkd.market.websocket.subscription.SubscriptionManager;
+import com.hkd.market.websocket.subscription.Topic;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * K线推送
+ *
+ * 监听 KlineUpdatedEvent，每根更新的K线先写入 KlineHistory（订阅快照用），再交给 ConflatingPublisher
+ * 按推送间隔合并后推送给 kline:{symbol}:{interval} 的订阅者。
+ * 推送间隔内换根（包括迟到成交更新上一根K线）时，两根K线各自的最新状态都会推送，不会互相合并掉。
+ * 主题暂时没有订阅者时仍交给 ConflatingPublisher，记入主题日志推进 seq（断线重连的 RESUME 据此判断缺口）；
+ * 从未被订阅过的主题不推送。
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class KlinePushListener {
+
+    private static final String KLINE_CHANNEL = "kline";
+
+    private final SubscriptionManager subscriptionManager;
+    private final ConflatingPublisher conflatingPublisher;
+    private final KlineHistory klineHistory;
+
+    @EventListener
+    public void onKlineUpdated(KlineUpdatedEvent event) {
+        for (Kline kline : event.getKlines()) {
+            // 写入历史与推送在同一把序列锁内，和带快照的订阅互斥
+            klineHistory.append(kline, () -> push(kline));
+        }
+    }
+
+    private void push(Kline kline) {
+        // 新出现的K线主题在这里创建，并一次性匹配通配订阅 (例如 kline:*:1m)
+        Topic topic = subscriptionManager.resolveTopic(KLINE_CHANNEL, kline.getSymbol(), kline.getInterval());
+        if (topic == null) {
+            return;
+        }
+
+        WebSocketMessage message = WebSocketMessage.push(WebSocketMessageType.KLINE, kline.getSymbol(), kline);
+        message.setChannel(KLINE_CHANNEL);
+        message.setInterval(kline.getInterval());
+
+        conflatingPublisher.publish(KLINE_CHANNEL, kline.getSymbol(), kline.getInterval(), message);
+    }
+}
@@ -0,0 +1,130 @@
+package com.hkd.market.websocket.push;
+
+import com.hkd.market.websocket.protocol.WebSocketMessage;
+import com.hkd.market.websocket.subscription.Topic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 推送重放缓冲
+ *
+ * 每个主题保留最近 capacity 帧完整消息，并分配从1开始连续递增的 seq（进程重启后从1重新开始）。
+ * 每帧同时带上本进程的 epoch（启动时间毫秒），客户端据此区分重启前后的 seq。
+ * 断线重连的客户端带着最后收到的 seq 和 epoch 恢复订阅（RESUME），只重放缺失的部分。
+ */
+final class ReplayBuffer {
+
+    private final int capacity;
+    private final long epoch;
+    private final Map<Integer, TopicLog> logs = new ConcurrentHashMap<>();
+
+    ReplayBuffer(int capacity, long epoch) {
+        this.capacity = Math.max(1, capacity);
+        this.epoch = epoch;
+    }
+
+    /**
+     * 本进程的 epoch
+     */
+    long epoch() {
+        return epoch;
+    }
+
+    /**
+     * 主题的重放日志
+     */
+    TopicLog log(Topic topic) {
+        return logs.computeIfAbsent(topic.getId(), id -> new TopicLog());
+    }
+
+    /**
+     * 单个主题的重放日志
+     *
+     * 追加、推送与恢复订阅都持有日志自身的锁，恢复订阅时看到的日志与之后的推送之间不重不漏
+     */
+    final class TopicLog {
+
+        private final ArrayDeque<WebSocketMessage> entries = new ArrayDeque<>();
+
+        /**
+         * 最后分配的seq
+         */
+        private long seq;
+
+        /**
+         * 最后一帧对应的合并版本（逐笔流不使用）
+         */
+        private long version;
+
+        /**
+         * 分配下一个seq并保留消息
+         *
+         * @param message 消息（不修改）
+         * @param version 合并版本
+         * @return 带seq的消息
+         */
+        WebSocketMessage append(WebSocketMessage message, long version) {
+            WebSocketMessage stamped = message.toBuilder().seq(++seq).epoch(epoch).build();
+            entries.addLast(stamped);
+            while (entries.size() > capacity) {
+                entries.pollFirst();
+            }
+            this.version = version;
+            return stamped;
+        }
+
+        /**
+         * lastSeq 之后的消息
+         *
+         * @param lastSeq 客户端最后收到的seq
+         * @param lastEpoch lastSeq 所属的epoch（客户端没有提供时为null）
+         * @return 缺失的消息（按seq顺序）；已被淘汰或 lastSeq 不属于本次进程时返回null
+         */
+        List<WebSocketMessage> since(long lastSeq, Long lastEpoch) {
+            if (lastEpoch == null || lastEpoch != epoch || lastSeq > seq || lastSeq < 0) {
+                return null;
+            }
+            if (lastSeq == seq) {
+                return List.of();
+            }
+            WebSocketMessage oldest = entries.peekFirst();
+            if (oldest == null || oldest.getSeq() > lastSeq + 1) {
+                return null;
+            }
+
+            List<WebSocketMessage> missed = new ArrayList<>((int) (seq - lastSeq));
+            for (WebSocketMessage entry : entries) {
+                if (entry.getSeq() > lastSeq) {
+                    missed.add(entry);
+                }
+            }
+            return missed;
+        }
+
+        /**
+         * 保留的所有消息
+         */
+        List<WebSocketMessage> retained() {
+            return new ArrayList<>(entries);
+        }
+
+        /**
+         * 最后一帧（没有时返回null）
+         */
+        WebSocketMessage latest() {
+            return entries.peekLast();
+        }
+
+        long seq() {
+            return seq;
+        }
+
+        long version() {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.hkd.market.websocket.push;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hkd.market.websocket.compression.SharedDeflater;
+import com.hkd.market.websocket.protocol.BinaryFrameCodec;
+import com.hkd.market.websocket.protocol.WebSocketMessage;
+import com.hkd.market.websocket.protocol.WireFormat;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtension;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * WebSocket广播器
+ *
+ * 一次推送每种编码格式只序列化一次：
+ * 1. 订阅者按协商的编码格式（WireFormat）分组，JSON用Jackson、hkd-bin.v1用 BinaryFrameCodec
+ *    直接编码到池化的堆外ByteBuf
+ * 2. 每个订阅者写入 retainedDuplicate()（共享同一块内存，只增加引用计数）
+ * 3. 协商了 permessage-deflate 的连接共享一次压缩的结果（SharedDeflater），不再逐连接压缩
+ * 4. 订阅者按EventLoop分组，每个EventLoop提交一个任务，写完该组所有连接后逐个flush
+ *    （避免在非IO线程上对每个连接 writeAndFlush 各提交一次任务）
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+public class WebSocketBroadcaster {
+
+    private final ObjectMapper objectMapper;
+    private final ByteBufAllocator allocator;
+    private final SharedDeflater sharedDeflater;
+
+    @Autowired
+    public WebSocketBroadcaster(ObjectMapper objectMapper, SharedDeflater sharedDeflater) {
+        this(objectMapper, PooledByteBufAllocator.DEFAULT, sharedDeflater);
+    }
+
+    WebSocketBroadcaster(ObjectMapper objectMapper, ByteBufAllocator allocator, SharedDeflater sharedDeflater) {
+        this.objectMapper = objectMapper;
+        this.allocator = allocator;
+        this.sharedDeflater = sharedDeflater;
+    }
+
+    /**
+     * 广播消息
+     *
+     * @param subscribers 订阅者
+     * @param message 消息
+     * @return 写入的连接数
+     */
+    public int broadcast(Collection<Channel> subscribers, WebSocketMessage message) {
+        if (subscribers.isEmpty()) {
+            return 0;
+        }
+
+        // 按连接协商的编码格式分组，每种格式只编码一次
+        List<Channel> jsonSubscribers = new ArrayList<>(subscribers.size());
+        List<Channel> binarySubscribers = new ArrayList<>();
+        boolean binarySupported = BinaryFrameCodec.supports(message);
+        for (Channel channel : subscribers) {
+            if (binarySupported && WireFormat.of(channel) == WireFormat.BINARY) {
+                binarySubscribers.add(channel);
+            } else {
+                jsonSubscribers.add(channel);
+            }
+        }
+
+        return encodeAndBroadcast(jsonSubscribers, message, WireFormat.JSON)
+                + encodeAndBroadcast(binarySubscribers, message, WireFormat.BINARY);
+    }
+
+    private int encodeAndBroadcast(List<Channel> subscribers, WebSocketMessage message, WireFormat format) {
+        if (subscribers.isEmpty()) {
+            return 0;
+        }
+
+        ByteBuf payload;
+        try {
+            payload = encode(message, format);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to encode broadcast message: type={}, symbol={}, format={}",
+                    message.getType(), message.getSymbol(), format, e);
+            return 0;
+        }
+
+        try {
+            if (!sharedDeflater.shouldCompress(payload)) {
+                return broadcast(subscribers, payload, format);
+            }
+
+            // 协商了 permessage-deflate 的连接共享同一份压缩结果
+            List<Channel> deflateSubscribers = new ArrayList<>();
+            List<Channel> plainSubscribers = new ArrayList<>();
+            for (Channel channel : subscribers) {
+                (SharedDeflater.negotiated(channel) ? deflateSubscribers : plainSubscribers).add(channel);
+            }
+            return broadcastCompressed(deflateSubscribers, payload, format)
+                    + broadcast(plainSubscribers, payload, format);
+        } finally {
+            payload.release();
+        }
+    }
+
+    private int broadcastCompressed(List<Channel> subscribers, ByteBuf payload, WireFormat format) {
+        if (subscribers.isEmpty()) {
+            return 0;
+        }
+
+        ByteBuf compressed = sharedDeflater.compress(payload, allocator);
+        try {
+            return dispatch(subscribers, compressed, format, WebSocketExtension.RSV1);
+        } finally {
+            compressed.release();
+        }
+    }
+
+    /**
+     * 广播已编码的帧内容
+     *
+     * 调用方保留 payload 的所有权（本方法不释放调用方持有的引用）
+     *
+     * @param subscribers 订阅者
+     * @param payload 已编码的消息（JSON为UTF-8文本，BINARY为 BinaryFrameCodec 格式）
+     * @param format 编码格式，决定帧类型
+     * @return 写入的连接数
+     */
+    public int broadcast(Collection<Channel> subscribers, ByteBuf payload, WireFormat format) {
+        return dispatch(subscribers, payload, format, 0);
+    }
+
+    /**
+     * 按EventLoop分组写入
+     *
+     * @param rsv 帧的RSV位（预压缩帧为RSV1）
+     */
+    private int dispatch(Collection<Channel> subscribers, ByteBuf payload, WireFormat format, int rsv) {
+        Map<EventLoop, List<Channel>> byEventLoop = new IdentityHashMap<>();
+        for (Channel channel : subscribers) {
+            if (channel.isActive()) {
+                byEventLoop.computeIfAbsent(channel.eventLoop(), loop -> new ArrayList<>()).add(channel);
+            }
+        }
+
+        int written = 0;
+        for (Map.Entry<EventLoop, List<Channel>> group : byEventLoop.entrySet()) {
+            EventLoop eventLoop = group.getKey();
+            List<Channel> channels = group.getValue();
+            written += channels.size();
+
+            // 每组持有一个引用，任务执行完毕后释放
+            ByteBuf groupPayload = payload.retainedDuplicate();
+            if (eventLoop.inEventLoop()) {
+                writeAndFlush(channels, groupPayload, format, rsv);
+            } else {
+                try {
+                    eventLoop.execute(() -> writeAndFlush(channels, groupPayload, format, rsv));
+                } catch (RuntimeException e) {
+                    // EventLoop已关闭
+                    groupPayload.release();
+                    log.warn("Failed to schedule broadcast on event loop, dropping: channels={}", channels.size(), e);
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * 把消息编码为池化堆外ByteBuf（引用计数为1，由调用方释放）
+     */
+    public ByteBuf encode(WebSocketMessage message, WireFormat format) throws IOException {
+        ByteBuf buffer = allocator.directBuffer();
+        try {
+            if (format == WireFormat.BINARY) {
+                BinaryFrameCodec.encode(message, buffer);
+            } else {
+                try (OutputStream out = new ByteBufOutputStream(buffer)) {
+                    objectMapper.writeValue(out, message);
+                }
+            }
+            return buffer;
+        } catch (IOException | RuntimeException e) {
+            buffer.release();
+            throw e;
+        }
+    }
+
+    private static void writeAndFlush(List<Channel> channels, ByteBuf payload, WireFormat format, int rsv) {
+        try {
+            for (Channel channel : channels) {
+                if (channel.isActive()) {
+                    ByteBuf content = payload.retainedDuplicate();
+                    WebSocketFrame frame = format == WireFormat.BINARY
+                            ? new BinaryWebSocketFrame(true, rsv, content)
+                            : new TextWebSocketFrame(true, rsv, content);
+                    channel.write(frame, channel.voidPromise());
+                }
+            }
+            for (Channel channel : channels) {
+                channel.flush();
+            }
+        } finally {
+            payload.release();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.hkd.market.websocket.server;
+
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.incubator.channel.uring.IOUring;
+import io.netty.incubator.channel.uring.IOUringChannelOption;
+import io.netty.incubator.channel.uring.IOUringEventLoopGroup;
+import io.netty.incubator.channel.uring.IOUringServerSocketChannel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Netty传输层
+ *
+ * - EPOLL：Linux原生epoll（默认），支持SO_REUSEPORT多acceptor
+ * - IO_URING：Linux io_uring（孵化模块，需要5.9+内核），支持SO_REUSEPORT
+ * - NIO：JDK NIO，所有平台可用
+ *
+ * 配置 auto 时优先epoll；选择的传输在当前平台不可用时自动回退（io_uring → epoll → nio）。
+ */
+@Slf4j
+@Getter
+public enum NettyTransport {
+
+    NIO("nio"),
+    EPOLL("epoll"),
+    IO_URING("io_uring");
+
+    /**
+     * 配置代码
+     */
+    private final String code;
+
+    NettyTransport(String code) {
+        this.code = code;
+    }
+
+    /**
+     * 按配置选择当前平台可用的传输
+     *
+     * @param code auto / epoll / io_uring / nio
+     * @return 可用的传输
+     */
+    public static NettyTransport select(String code) {
+        if (code == null || code.isBlank() || "auto".equalsIgnoreCase(code)) {
+            return EPOLL.isAvailable() ? EPOLL : NIO;
+        }
+
+        NettyTransport requested = fromCode(code);
+        NettyTransport transport = requested;
+        while (!transport.isAvailable()) {
+            transport = transport.fallback();
+        }
+        if (transport != requested) {
+            log.warn("WebSocket transport {} unavailable on this platform, falling back to {}: cause={}",
+                    requested.code, transport.code, requested.unavailabilityCause());
+        }
+        return transport;
+    }
+
+    /**
+     * 根据code获取枚举值
+     *
+     * @throws IllegalArgumentException 如果code不存在
+     */
+    public static NettyTransport fromCode(String code) {
+        for (NettyTransport transport : values()) {
+            if (transport.code.equalsIgnoreCase(code)) {
+                return transport;
+            }
+        }
+        throw new IllegalArgumentException("Invalid WebSocket transport: " + code);
+    }
+
+    /**
+     * 当前平台是否可用（原生库能否加载）
+     */
+    public boolean isAvailable() {
+        try {
+            return switch (this) {
+                case NIO -> true;
+                case EPOLL -> Epoll.isAvailable();
+                case IO_URING -> IOUring.isAvailable();
+            };
+        } catch (LinkageError e) {
+            // 未打包对应的原生传输模块
+            return false;
+        }
+    }
+
+    /**
+     * 是否支持SO_REUSEPORT（多个acceptor绑定同一端口，由内核分发新连接）
+     */
+    public boolean supportsReusePort() {
+        return this != NIO;
+    }
+
+    public EventLoopGroup newEventLoopGroup(int threads) {
+        return switch (this) {
+            case NIO -> new NioEventLoopGroup(threads);
+            case EPOLL -> new EpollEventLoopGroup(threads);
+            case IO_URING -> new IOUringEventLoopGroup(threads);
+        };
+    }
+
+    public Class<? extends ServerChannel> serverChannelClass() {
+        return switch (this) {
+            case NIO -> NioServerSocketChannel.class;
+            case EPOLL -> EpollServerSocketChannel.class;
+            case IO_URING -> IOUringServerSocketChannel.class;
+        };
+    }
+
+    /**
+     * SO_REUSEPORT选项（NIO不支持，返回null）
+     */
+    public ChannelOption<Boolean> reusePortOption() {
+        return switch (this) {
+            case NIO -> null;
+            case EPOLL -> EpollChannelOption.SO_REUSEPORT;
+            case IO_URING -> IOUringChannelOption.SO_REUSEPORT;
+        };
+    }
+
+    private NettyTransport fallback() {
+        return switch (this) {
+            case IO_URING -> EPOLL;
+            case EPOLL, NIO -> NIO;
+        };
+    }
+
+    private Throwable unavailabilityCause() {
+        try {
+            return switch (this) {
+                case NIO -> null;
+                case EPOLL -> Epoll.unavailabilityCause();
+                case IO_URING -> IOUring.unavailabilityCause();
+            };
+        } catch (LinkageError e) {
+            return e;
+        }
+    }
+}
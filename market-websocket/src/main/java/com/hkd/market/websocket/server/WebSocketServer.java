@@ -1,14 +1,18 @@
 package com.hkd.market.websocket.server;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hkd.market.websocket.admission.ConnectionAdmission;
+import com.hkd.market.websocket.backpressure.SlowConsumerMonitor;
+import com.hkd.market.websocket.compression.SharedDeflater;
+import com.hkd.market.websocket.push.ConflatingPublisher;
+import com.hkd.market.websocket.push.KlineHistory;
 import com.hkd.market.websocket.subscription.SubscriptionManager;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.WriteBufferWaterMark;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
@@ -17,11 +21,15 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
  * Netty WebSocket服务器
  *
  * 功能：
  * - 启动WebSocket服务器
+ * - 选择传输层 (epoll / io_uring / nio)，支持SO_REUSEPORT多acceptor
  * - 管理事件循环组
  * - 优雅关闭
  */
@@ -31,8 +39,13 @@ import org.springframework.stereotype.Component;
 @ConditionalOnProperty(name = "hkd.market.websocket.enabled", havingValue = "true", matchIfMissing = true)
 public class WebSocketServer {
 
+    private final ConnectionAdmission connectionAdmission;
     private final SubscriptionManager subscriptionManager;
     private final ObjectMapper objectMapper;
+    private final SlowConsumerMonitor slowConsumerMonitor;
+    private final SharedDeflater sharedDeflater;
+    private final KlineHistory klineHistory;
+    private final ConflatingPublisher conflatingPublisher;
 
     @Value("${hkd.market.websocket.port:8010}")
     private int port;
@@ -46,15 +59,24 @@ public class WebSocketServer {
     @Value("${hkd.market.websocket.heartbeat-interval:30000}")
     private long heartbeatInterval;
 
+    @Value("${hkd.market.websocket.write-buffer.low-water-mark:32768}")
+    private int writeBufferLowWaterMark;
+
+    @Value("${hkd.market.websocket.write-buffer.high-water-mark:131072}")
+    private int writeBufferHighWaterMark;
+
     @Value("${hkd.market.websocket.boss-threads:1}")
     private int bossThreads;
 
     @Value("${hkd.market.websocket.worker-threads:8}")
     private int workerThreads;
 
+    @Value("${hkd.market.websocket.transport:auto}")
+    private String transportCode;
+
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
-    private Channel serverChannel;
+    private final List<Channel> serverChannels = new CopyOnWriteArrayList<>();
 
     /**
      * 启动WebSocket服务器
@@ -65,43 +87,70 @@ public class WebSocketServer {
             try {
                 log.info("Starting WebSocket server on port {} with path {}", port, path);
 
-                // 创建事件循环组
-                bossGroup = new NioEventLoopGroup(bossThreads);
-                workerGroup = new NioEventLoopGroup(workerThreads);
+                // 选择传输层并创建事件循环组
+                NettyTransport transport = NettyTransport.select(transportCode);
+                bossGroup = transport.newEventLoopGroup(bossThreads);
+                workerGroup = transport.newEventLoopGroup(workerThreads);
 
                 // 配置服务器
                 ServerBootstrap bootstrap = new ServerBootstrap();
                 bootstrap.group(bossGroup, workerGroup)
-                        .channel(NioServerSocketChannel.class)
+                        .channel(transport.serverChannelClass())
                         .option(ChannelOption.SO_BACKLOG, 1024)
                         .option(ChannelOption.SO_REUSEADDR, true)
                         .childOption(ChannelOption.SO_KEEPALIVE, true)
                         .childOption(ChannelOption.TCP_NODELAY, true)
+                        // 出站缓冲区水位：超过高水位后连接不可写，推送方跳过该连接
+                        .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK,
+                                new WriteBufferWaterMark(writeBufferLowWaterMark, writeBufferHighWaterMark))
                         .childHandler(new WebSocketServerInitializer(
+                                connectionAdmission,
                                 path,
                                 maxFrameSize,
                                 heartbeatInterval,
                                 subscriptionManager,
-                                objectMapper
+                                objectMapper,
+                                slowConsumerMonitor,
+                                sharedDeflater,
+                                klineHistory,
+                                conflatingPublisher
                         ));
 
                 // 绑定端口并启动服务器
-                ChannelFuture future = bootstrap.bind(port).sync();
-                serverChannel = future.channel();
+                // 支持SO_REUSEPORT时每个boss线程绑定一个监听Socket，由内核分发新连接，避免单acceptor瓶颈
+                int acceptors = 1;
+                if (transport.supportsReusePort() && bossThreads > 1) {
+                    bootstrap.option(transport.reusePortOption(), true);
+                    acceptors = bossThreads;
+                }
+                for (int i = 0; i < acceptors; i++) {
+                    ChannelFuture future = bootstrap.bind(port).sync();
+                    serverChannels.add(future.channel());
+                }
 
                 log.info("========================================");
                 log.info("   WebSocket Server Started Successfully");
                 log.info("   Port: {}", port);
                 log.info("   Path: {}", path);
+                log.info("   Max Connections: {} (per IP: {})", connectionAdmission.getMaxConnections(),
+                        connectionAdmission.getMaxConnectionsPerIp() > 0 ? connectionAdmission.getMaxConnectionsPerIp() : "unlimited");
                 log.info("   Max Frame Size: {} bytes", maxFrameSize);
                 log.info("   Heartbeat Interval: {} ms", heartbeatInterval);
+                log.info("   Write Buffer Water Mark: {}-{} bytes", writeBufferLowWaterMark, writeBufferHighWaterMark);
+                log.info("   Slow Consumer Policy: {}", slowConsumerMonitor.getPolicy().getCode());
+                log.info("   Compression: {} (level {}, min {} bytes)", sharedDeflater.isEnabled() ? "permessage-deflate" : "off",
+                        sharedDeflater.getCompressionLevel(), sharedDeflater.getMinSize());
+                log.info("   Transport: {}", transport.getCode());
+                log.info("   Acceptors: {}", acceptors);
                 log.info("   Boss Threads: {}", bossThreads);
                 log.info("   Worker Threads: {}", workerThreads);
                 log.info("   WebSocket URL: ws://localhost:{}{}", port, path);
                 log.info("========================================");
 
                 // 等待服务器关闭
-                serverChannel.closeFuture().sync();
+                for (Channel serverChannel : serverChannels) {
+                    serverChannel.closeFuture().sync();
+                }
 
             } catch (InterruptedException e) {
                 log.error("WebSocket server interrupted", e);
@@ -121,8 +170,10 @@ public class WebSocketServer {
     public void shutdown() {
         log.info("Shutting down WebSocket server...");
 
-        if (serverChannel != null && serverChannel.isOpen()) {
-            serverChannel.close();
+        for (Channel serverChannel : serverChannels) {
+            if (serverChannel.isOpen()) {
+                serverChannel.close();
+            }
         }
 
         if (workerGroup != null) {
@@ -1,7 +1,15 @@
 package com.hkd.market.websocket.server;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hkd.market.websocket.admission.AdmissionHandler;
+import com.hkd.market.websocket.admission.ConnectionAdmission;
+import com.hkd.market.websocket.backpressure.SlowConsumerHandler;
+import com.hkd.market.websocket.backpressure.SlowConsumerMonitor;
+import com.hkd.market.websocket.compression.SharedDeflater;
 import com.hkd.market.websocket.handler.WebSocketServerHandler;
+import com.hkd.market.websocket.protocol.WireFormat;
+import com.hkd.market.websocket.push.ConflatingPublisher;
+import com.hkd.market.websocket.push.KlineHistory;
 import com.hkd.market.websocket.subscription.SubscriptionManager;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
@@ -9,7 +17,7 @@ import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.codec.http.websocketx.WebSocketServerProtocolHandler;
-import io.netty.handler.codec.http.websocketx.extensions.compression.WebSocketServerCompressionHandler;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtensionHandler;
 import io.netty.handler.stream.ChunkedWriteHandler;
 import io.netty.handler.timeout.IdleStateHandler;
 import lombok.RequiredArgsConstructor;
@@ -21,26 +29,36 @@ import java.util.concurrent.TimeUnit;
  * WebSocket服务器初始化器
  *
  * 配置Netty Pipeline：
+ * 0. 连接准入 (全局/单IP连接数上限，HTTP解析之前)
  * 1. HTTP编解码
  * 2. HTTP聚合
  * 3. WebSocket协议处理
  * 4. 心跳检测
- * 5. 业务逻辑处理
+ * 5. 慢连接处理
+ * 6. 业务逻辑处理
  */
 @Slf4j
 @RequiredArgsConstructor
 public class WebSocketServerInitializer extends ChannelInitializer<SocketChannel> {
 
+    private final ConnectionAdmission connectionAdmission;
     private final String websocketPath;
     private final int maxFrameSize;
     private final long heartbeatInterval;
     private final SubscriptionManager subscriptionManager;
     private final ObjectMapper objectMapper;
+    private final SlowConsumerMonitor slowConsumerMonitor;
+    private final SharedDeflater sharedDeflater;
+    private final KlineHistory klineHistory;
+    private final ConflatingPublisher conflatingPublisher;
 
     @Override
     protected void initChannel(SocketChannel ch) throws Exception {
         ChannelPipeline pipeline = ch.pipeline();
 
+        // 连接准入 (超过上限的连接在读取任何HTTP数据之前关闭)
+        pipeline.addLast("admission", new AdmissionHandler(connectionAdmission));
+
         // HTTP编解码器
         pipeline.addLast("http-codec", new HttpServerCodec());
 
@@ -50,13 +68,16 @@ public class WebSocketServerInitializer extends ChannelInitializer<SocketChannel
         // HTTP分块写处理器
         pipeline.addLast("http-chunked", new ChunkedWriteHandler());
 
-        // WebSocket压缩扩展
-        pipeline.addLast("websocket-compression", new WebSocketServerCompressionHandler());
+        // WebSocket压缩扩展 (permessage-deflate，无上下文接管，广播帧共享压缩结果)
+        WebSocketServerExtensionHandler compressionHandler = sharedDeflater.newExtensionHandler();
+        if (compressionHandler != null) {
+            pipeline.addLast("websocket-compression", compressionHandler);
+        }
 
         // WebSocket协议处理器
         pipeline.addLast("websocket-protocol", new WebSocketServerProtocolHandler(
                 websocketPath,     // WebSocket路径
-                null,              // 子协议
+                WireFormat.SUBPROTOCOLS,  // 子协议 (hkd-json.v1 / hkd-bin.v1，未指定时为JSON)
                 true,              // 允许扩展
                 maxFrameSize,      // 最大帧大小
                 false,             // 允许mask mismatch
@@ -71,10 +92,15 @@ public class WebSocketServerInitializer extends ChannelInitializer<SocketChannel
                 readerIdleTime, 0, 0, TimeUnit.MILLISECONDS
         ));
 
+        // 慢连接处理器 (出站缓冲区水位变化时切换连接状态)
+        pipeline.addLast("slow-consumer", new SlowConsumerHandler(slowConsumerMonitor));
+
         // 业务逻辑处理器
         pipeline.addLast("websocket-handler", new WebSocketServerHandler(
                 subscriptionManager,
-                objectMapper
+                objectMapper,
+                klineHistory,
+                conflatingPublisher
         ));
 
         log.debug("WebSocket pipeline initialized for channel: {}", ch.id().asShortText());
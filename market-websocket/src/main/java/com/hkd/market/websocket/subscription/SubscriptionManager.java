@@ -1,13 +1,18 @@
 package com.hkd.market.websocket.subscription;
 
 import io.netty.channel.Channel;
+import io.netty.util.AttributeKey;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.BitSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 订阅管理器
@@ -16,43 +21,146 @@ import java.util.concurrent.CopyOnWriteArraySet;
  * - 频道订阅 (kline, depth, ticker, trade)
  * - 连接管理
  * - 订阅查询
+ *
+ * 订阅键驻留为整数ID的 Topic（TopicRegistry），订阅者集合挂在 Topic 上；
+ * 连接订阅了哪些主题（反向索引）保存在Channel属性中，连接关闭后随Channel一起回收。
+ *
+ * 通配订阅（TopicPattern，例如 ticker:*）在订阅时展开为已有的匹配主题；之后新创建的主题在创建时
+ * 匹配一次所有通配订阅，推送路径只按主题查订阅者集合，不再逐条匹配表达式。
+ * 单个连接的通配订阅数有上限，创建主题时匹配的表达式数随连接数线性增长而不是随客户端任意增长。
+ *
+ * 客户端订阅的主题名称先校验（TopicNames：已知频道、合法交易对、kline 必须是有效周期）再驻留；
+ * 客户端创建的主题在最后一个订阅者离开、且从未被发布方使用过时回收（见 TopicRegistry），
+ * 单个连接显式订阅的主题数有上限，未发布主题的总数另有上限，注册表的其余容量留给发布方的真实主题。
  */
 @Slf4j
 @Component
 public class SubscriptionManager {
 
+    private static final int DEFAULT_MAX_TOPICS = 65536;
+    private static final int DEFAULT_MAX_TOPICS_PER_CONNECTION = 1000;
+    private static final int DEFAULT_MAX_UNPUBLISHED_TOPICS = 16384;
+    private static final int DEFAULT_MAX_PATTERNS_PER_CONNECTION = 10;
+
+    /**
+     * 连接订阅的主题ID集合
+     */
+    private static final AttributeKey<ChannelSubscriptions> SUBSCRIPTIONS =
+            AttributeKey.valueOf("hkd.subscriptions");
+
+    /**
+     * 连接的通配订阅
+     */
+    private static final AttributeKey<Set<TopicPattern>> PATTERNS =
+            AttributeKey.valueOf("hkd.subscriptionPatterns");
+
+    private final TopicRegistry topicRegistry;
+    private final int maxTopicsPerConnection;
+    private final int maxPatternsPerConnection;
+
     /**
-     * 订阅关系存储
-     * Key: 订阅键 (例如: kline:BTC-USDT:1m)
-     * Value: 订阅该频道的所有Channel
+     * 通配订阅 -> 订阅该表达式的连接
      */
-    private final Map<String, Set<Channel>> subscriptions = new ConcurrentHashMap<>();
+    private final Map<TopicPattern, Set<Channel>> patternSubscribers = new ConcurrentHashMap<>();
 
     /**
-     * 连接订阅关系存储 (用于快速查找某个连接订阅了哪些频道)
-     * Key: Channel
-     * Value: 该连接订阅的所有订阅键
+     * 至少订阅了一个主题的连接数
      */
-    private final Map<Channel, Set<String>> channelSubscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribedConnections = new AtomicInteger();
+
+    public SubscriptionManager() {
+        this(DEFAULT_MAX_TOPICS);
+    }
+
+    public SubscriptionManager(int maxTopics) {
+        this(maxTopics, DEFAULT_MAX_TOPICS_PER_CONNECTION);
+    }
+
+    public SubscriptionManager(int maxTopics, int maxTopicsPerConnection) {
+        this(maxTopics, maxTopicsPerConnection, DEFAULT_MAX_UNPUBLISHED_TOPICS);
+    }
+
+    public SubscriptionManager(int maxTopics, int maxTopicsPerConnection, int maxUnpublishedTopics) {
+        this(maxTopics, maxTopicsPerConnection, maxUnpublishedTopics, DEFAULT_MAX_PATTERNS_PER_CONNECTION);
+    }
+
+    @Autowired
+    public SubscriptionManager(@Value("${hkd.market.websocket.max-topics:65536}") int maxTopics,
+                               @Value("${hkd.market.websocket.max-topics-per-connection:1000}") int maxTopicsPerConnection,
+                               @Value("${hkd.market.websocket.max-unpublished-topics:16384}") int maxUnpublishedTopics,
+                               @Value("${hkd.market.websocket.max-patterns-per-connection:10}") int maxPatternsPerConnection) {
+        this.topicRegistry = new TopicRegistry(maxTopics, maxUnpublishedTopics, this::attachPatterns);
+        this.maxTopicsPerConnection = maxTopicsPerConnection;
+        this.maxPatternsPerConnection = maxPatternsPerConnection;
+    }
 
     /**
      * 订阅
      *
      * @param channel 连接Channel
-     * @param channel 频道 (kline/depth/ticker/trade)
+     * @param channelName 频道 (kline/depth/ticker/trade)
      * @param symbol 交易对
      * @param interval K线周期 (可选，仅kline频道需要)
+     * @return 订阅的主题
+     * @throws IllegalArgumentException 频道、交易对或周期不合法
+     * @throws IllegalStateException 主题数量或连接订阅的主题数已达上限
+     */
+    public Topic subscribe(Channel channel, String channelName, String symbol, String interval) {
+        TopicNames.validate(channelName, symbol, interval);
+
+        ChannelSubscriptions subscriptions = channel.attr(SUBSCRIPTIONS).get();
+        if (subscriptions != null && subscriptions.size() >= maxTopicsPerConnection
+                && !subscriptions.contains(topicRegistry.find(channelName, symbol, interval))) {
+            throw new IllegalStateException("Too many subscriptions on connection: " + maxTopicsPerConnection);
+        }
+
+        Topic topic = topicRegistry.intern(channelName, symbol, interval, false);
+        addSubscriber(channel, topic);
+        while (!topicRegistry.isRegistered(topic)) {
+            // 加入前主题恰好被回收，重新驻留
+            removeSubscriber(channel, topic);
+            topic = topicRegistry.intern(channelName, symbol, interval, false);
+            addSubscriber(channel, topic);
+        }
+
+        log.debug("Channel {} subscribed to {}", channel.id().asShortText(), topic.getKey());
+        return topic;
+    }
+
+    /**
+     * 通配订阅
+     *
+     * 立即订阅已存在的匹配主题，之后创建的匹配主题自动加入
+     *
+     * @param channel 连接Channel
+     * @param pattern 主题表达式
+     * @return 当前匹配的主题数
+     * @throws IllegalStateException 连接的通配订阅数已达上限
      */
-    public void subscribe(Channel channel, String channelName, String symbol, String interval) {
-        String subscriptionKey = buildSubscriptionKey(channelName, symbol, interval);
+    public int subscribe(Channel channel, TopicPattern pattern) {
+        Set<TopicPattern> channelPatterns = patterns(channel);
+        if (channelPatterns.size() >= maxPatternsPerConnection && !channelPatterns.contains(pattern)) {
+            throw new IllegalStateException("Too many wildcard subscriptions on connection: " + maxPatternsPerConnection);
+        }
 
-        // 添加到订阅关系
-        subscriptions.computeIfAbsent(subscriptionKey, k -> new CopyOnWriteArraySet<>()).add(channel);
+        // 先登记表达式再遍历已有主题：与并发创建的主题至少有一方能看到对方
+        channelPatterns.add(pattern);
+        patternSubscribers.compute(pattern, (key, channels) -> {
+            Set<Channel> subscribers = channels != null ? channels : ConcurrentHashMap.newKeySet();
+            subscribers.add(channel);
+            return subscribers;
+        });
 
-        // 添加到连接订阅关系
-        channelSubscriptions.computeIfAbsent(channel, k -> new CopyOnWriteArraySet<>()).add(subscriptionKey);
+        int matched = 0;
+        for (Topic topic : topicRegistry.snapshot()) {
+            if (pattern.matches(topic)) {
+                addSubscriber(channel, topic);
+                matched++;
+            }
+        }
 
-        log.debug("Channel {} subscribed to {}", channel.id().asShortText(), subscriptionKey);
+        log.debug("Channel {} subscribed to pattern {}: matched={}", channel.id().asShortText(), pattern, matched);
+        return matched;
     }
 
     /**
@@ -64,27 +172,43 @@ public class SubscriptionManager {
      * @param interval K线周期 (可选)
      */
     public void unsubscribe(Channel channel, String channelName, String symbol, String interval) {
-        String subscriptionKey = buildSubscriptionKey(channelName, symbol, interval);
+        Topic topic = topicRegistry.find(channelName, symbol, interval);
+        ChannelSubscriptions subscriptions = channel.attr(SUBSCRIPTIONS).get();
+        if (topic == null || subscriptions == null) {
+            return;
+        }
 
-        // 从订阅关系中移除
-        Set<Channel> channels = subscriptions.get(subscriptionKey);
-        if (channels != null) {
-            channels.remove(channel);
-            if (channels.isEmpty()) {
-                subscriptions.remove(subscriptionKey);
-            }
+        removeSubscriber(channel, topic);
+
+        log.debug("Channel {} unsubscribed from {}", channel.id().asShortText(), topic.getKey());
+    }
+
+    /**
+     * 取消通配订阅
+     *
+     * 连接退出所有匹配该表达式的主题（包括单独订阅过的主题）
+     *
+     * @param channel 连接Channel
+     * @param pattern 主题表达式
+     */
+    public void unsubscribe(Channel channel, TopicPattern pattern) {
+        Set<TopicPattern> channelPatterns = channel.attr(PATTERNS).get();
+        if (channelPatterns != null) {
+            channelPatterns.remove(pattern);
         }
+        removePatternSubscriber(pattern, channel);
 
-        // 从连接订阅关系中移除
-        Set<String> keys = channelSubscriptions.get(channel);
-        if (keys != null) {
-            keys.remove(subscriptionKey);
-            if (keys.isEmpty()) {
-                channelSubscriptions.remove(channel);
+        ChannelSubscriptions subscriptions = channel.attr(SUBSCRIPTIONS).get();
+        if (subscriptions != null) {
+            for (int topicId : subscriptions.ids()) {
+                Topic topic = topicRegistry.get(topicId);
+                if (pattern.matches(topic)) {
+                    removeSubscriber(channel, topic);
+                }
             }
         }
 
-        log.debug("Channel {} unsubscribed from {}", channel.id().asShortText(), subscriptionKey);
+        log.debug("Channel {} unsubscribed from pattern {}", channel.id().asShortText(), pattern);
     }
 
     /**
@@ -93,16 +217,19 @@ public class SubscriptionManager {
      * @param channel 连接Channel
      */
     public void unsubscribeAll(Channel channel) {
-        Set<String> keys = channelSubscriptions.remove(channel);
-        if (keys != null) {
-            for (String key : keys) {
-                Set<Channel> channels = subscriptions.get(key);
-                if (channels != null) {
-                    channels.remove(channel);
-                    if (channels.isEmpty()) {
-                        subscriptions.remove(key);
-                    }
-                }
+        Set<TopicPattern> channelPatterns = channel.attr(PATTERNS).getAndSet(null);
+        if (channelPatterns != null) {
+            for (TopicPattern pattern : channelPatterns) {
+                removePatternSubscriber(pattern, channel);
+            }
+        }
+
+        ChannelSubscriptions subscriptions = channel.attr(SUBSCRIPTIONS).getAndSet(null);
+        if (subscriptions != null) {
+            for (int topicId : subscriptions.clear()) {
+                Topic topic = topicRegistry.get(topicId);
+                topic.getSubscribers().remove(channel);
+                release(topic);
             }
         }
 
@@ -118,8 +245,48 @@ public class SubscriptionManager {
      * @return 订阅该频道的所有Channel
      */
     public Set<Channel> getSubscribers(String channelName, String symbol, String interval) {
-        String subscriptionKey = buildSubscriptionKey(channelName, symbol, interval);
-        return subscriptions.getOrDefault(subscriptionKey, Set.of());
+        Topic topic = topicRegistry.find(channelName, symbol, interval);
+        return topic == null ? Set.of() : topic.getSubscribers();
+    }
+
+    /**
+     * 查找主题（没有任何连接订阅、或已被回收时返回null）
+     */
+    public Topic findTopic(String channelName, String symbol, String interval) {
+        return topicRegistry.find(channelName, symbol, interval);
+    }
+
+    /**
+     * 发布方获取主题
+     *
+     * 主题不存在时创建（创建时匹配一次通配订阅），之后的推送不再匹配表达式；
+     * 主题数量已达上限时返回null。返回的主题标记为已发布，不再回收。
+     */
+    public Topic resolveTopic(String channelName, String symbol, String interval) {
+        while (true) {
+            Topic topic = topicRegistry.find(channelName, symbol, interval);
+            if (topic == null && !patternSubscribers.isEmpty()) {
+                try {
+                    topic = topicRegistry.intern(channelName, symbol, interval, true);
+                } catch (IllegalStateException e) {
+                    return null;
+                }
+            }
+            if (topic == null) {
+                return null;
+            }
+            if (topicRegistry.markPublished(topic)) {
+                return topic;
+            }
+            // 标记前主题恰好被回收，重新查找
+        }
+    }
+
+    /**
+     * 按ID查找主题
+     */
+    public Topic getTopic(int topicId) {
+        return topicRegistry.get(topicId);
     }
 
     /**
@@ -129,35 +296,158 @@ public class SubscriptionManager {
      * @return 该连接订阅的所有订阅键
      */
     public Set<String> getChannelSubscriptions(Channel channel) {
-        return channelSubscriptions.getOrDefault(channel, Set.of());
+        ChannelSubscriptions subscriptions = channel.attr(SUBSCRIPTIONS).get();
+        if (subscriptions == null) {
+            return Set.of();
+        }
+
+        Set<String> keys = new LinkedHashSet<>();
+        for (int topicId : subscriptions.ids()) {
+            keys.add(topicRegistry.get(topicId).getKey());
+        }
+        return keys;
+    }
+
+    /**
+     * 获取连接的通配订阅
+     */
+    public Set<TopicPattern> getChannelPatterns(Channel channel) {
+        Set<TopicPattern> channelPatterns = channel.attr(PATTERNS).get();
+        return channelPatterns == null ? Set.of() : Set.copyOf(channelPatterns);
     }
 
     /**
-     * 获取总订阅数
+     * 获取总订阅数（有订阅者的主题数）
      */
     public int getTotalSubscriptions() {
-        return subscriptions.size();
+        int total = 0;
+        for (Topic topic : topicRegistry.snapshot()) {
+            if (!topic.getSubscribers().isEmpty()) {
+                total++;
+            }
+        }
+        return total;
     }
 
     /**
-     * 获取总连接数
+     * 获取总连接数（至少订阅了一个主题的连接）
      */
     public int getTotalConnections() {
-        return channelSubscriptions.size();
+        return subscribedConnections.get();
+    }
+
+    private void addSubscriber(Channel channel, Topic topic) {
+        ChannelSubscriptions subscriptions = channel.attr(SUBSCRIPTIONS).get();
+        if (subscriptions == null) {
+            ChannelSubscriptions created = new ChannelSubscriptions();
+            subscriptions = channel.attr(SUBSCRIPTIONS).setIfAbsent(created);
+            if (subscriptions == null) {
+                subscriptions = created;
+            }
+        }
+
+        if (subscriptions.add(topic.getId())) {
+            topic.getSubscribers().add(channel);
+        }
     }
 
     /**
-     * 构建订阅键
-     *
-     * @param channelName 频道
-     * @param symbol 交易对
-     * @param interval K线周期 (可选)
-     * @return 订阅键 (例如: kline:BTC-USDT:1m)
+     * 连接退出主题，主题没有订阅者时尝试回收
+     */
+    private void removeSubscriber(Channel channel, Topic topic) {
+        ChannelSubscriptions subscriptions = channel.attr(SUBSCRIPTIONS).get();
+        if (subscriptions != null && subscriptions.remove(topic.getId())) {
+            topic.getSubscribers().remove(channel);
+            release(topic);
+        }
+    }
+
+    private void release(Topic topic) {
+        if (topic.getSubscribers().isEmpty() && topicRegistry.release(topic)) {
+            log.debug("Topic {} released", topic.getKey());
+        }
+    }
+
+    /**
+     * 新主题创建时挂上匹配的通配订阅
+     */
+    private void attachPatterns(Topic topic) {
+        for (Map.Entry<TopicPattern, Set<Channel>> entry : patternSubscribers.entrySet()) {
+            if (entry.getKey().matches(topic)) {
+                for (Channel channel : entry.getValue()) {
+                    addSubscriber(channel, topic);
+                }
+            }
+        }
+    }
+
+    private void removePatternSubscriber(TopicPattern pattern, Channel channel) {
+        patternSubscribers.computeIfPresent(pattern, (key, channels) -> {
+            channels.remove(channel);
+            return channels.isEmpty() ? null : channels;
+        });
+    }
+
+    private static Set<TopicPattern> patterns(Channel channel) {
+        Set<TopicPattern> channelPatterns = channel.attr(PATTERNS).get();
+        if (channelPatterns == null) {
+            Set<TopicPattern> created = ConcurrentHashMap.newKeySet();
+            channelPatterns = channel.attr(PATTERNS).setIfAbsent(created);
+            if (channelPatterns == null) {
+                channelPatterns = created;
+            }
+        }
+        return channelPatterns;
+    }
+
+    /**
+     * 连接订阅的主题ID集合（反向索引）
      */
-    private String buildSubscriptionKey(String channelName, String symbol, String interval) {
-        if (interval != null && !interval.isEmpty()) {
-            return channelName + ":" + symbol + ":" + interval;
+    private final class ChannelSubscriptions {
+
+        private final BitSet topicIds = new BitSet();
+
+        synchronized boolean add(int topicId) {
+            if (topicIds.get(topicId)) {
+                return false;
+            }
+            if (topicIds.isEmpty()) {
+                subscribedConnections.incrementAndGet();
+            }
+            topicIds.set(topicId);
+            return true;
+        }
+
+        synchronized boolean remove(int topicId) {
+            if (!topicIds.get(topicId)) {
+                return false;
+            }
+            topicIds.clear(topicId);
+            if (topicIds.isEmpty()) {
+                subscribedConnections.decrementAndGet();
+            }
+            return true;
+        }
+
+        synchronized boolean contains(Topic topic) {
+            return topic != null && topicIds.get(topic.getId());
+        }
+
+        synchronized int size() {
+            return topicIds.cardinality();
+        }
+
+        synchronized int[] ids() {
+            return topicIds.stream().toArray();
+        }
+
+        synchronized int[] clear() {
+            int[] ids = topicIds.stream().toArray();
+            if (!topicIds.isEmpty()) {
+                subscribedConnections.decrementAndGet();
+                topicIds.clear();
+            }
+            return ids;
         }
-        return channelName + ":" + symbol;
     }
 }
@@ -0,0 +1,74 @@
+package com.hkd.market.websocket.subscription;
+
+import io.netty.channel.Channel;
+import lombok.Getter;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 订阅主题
+ *
+ * 由 TopicRegistry 驻留，每个 (频道, 交易对, 周期) 对应唯一实例和一个稠密的整数ID。
+ * 订阅者集合基于ConcurrentHashMap：加入/离开O(1)，推送时弱一致遍历，不复制数组。
+ */
+@Getter
+public final class Topic {
+
+    /**
+     * 主题ID（从0开始分配，回收的ID会被新主题复用）
+     */
+    private final int id;
+
+    /**
+     * 频道 (kline/depth/ticker/trade)
+     */
+    private final String channelName;
+
+    /**
+     * 交易对
+     */
+    private final String symbol;
+
+    /**
+     * K线周期 (可选)
+     */
+    private final String interval;
+
+    /**
+     * 订阅键 (例如: kline:BTC-USDT:1m)
+     */
+    private final String key;
+
+    /**
+     * 订阅该主题的所有连接
+     */
+    private final Set<Channel> subscribers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 是否被发布方使用过（发布过的主题不回收）
+     */
+    private volatile boolean published;
+
+    Topic(int id, String channelName, String symbol, String interval) {
+        this.id = id;
+        this.channelName = channelName;
+        this.symbol = symbol;
+        this.interval = interval;
+        this.key = interval != null ? channelName + ":" + symbol + ":" + interval : channelName + ":" + symbol;
+    }
+
+    /**
+     * 标记为已发布
+     */
+    void markPublished() {
+        if (!published) {
+            published = true;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return key + "#" + id;
+    }
+}
@@ -0,0 +1,62 @@
+package com.hkd.market.websocket.subscription;
+
+import com.hkd.market.api.enums.KlineInterval;
+
+import java.util.Set;
+
+/**
+ * 主题名称规则
+ *
+ * 客户端订阅在驻留主题之前校验，不合法的名称不占用主题注册表：
+ * - 频道：kline / depth / ticker / trade
+ * - 交易对：1~32 个大写字母、数字、'-' 或 '_'
+ * - 周期：kline 频道必须是 KlineInterval 的代码，其他频道不带周期
+ */
+final class TopicNames {
+
+    static final int MAX_SYMBOL_LENGTH = 32;
+
+    private static final String KLINE_CHANNEL = "kline";
+    private static final Set<String> CHANNELS = Set.of(KLINE_CHANNEL, "depth", "ticker", "trade");
+
+    private TopicNames() {
+    }
+
+    /**
+     * 校验主题名称
+     *
+     * @throws IllegalArgumentException 名称不合法
+     */
+    static void validate(String channelName, String symbol, String interval) {
+        if (!isChannel(channelName)) {
+            throw new IllegalArgumentException("Unknown channel: " + channelName);
+        }
+        if (!isSymbol(symbol)) {
+            throw new IllegalArgumentException("Invalid symbol: " + symbol);
+        }
+        boolean hasInterval = interval != null && !interval.isEmpty();
+        if (KLINE_CHANNEL.equals(channelName) ? !hasInterval || !KlineInterval.isValid(interval) : hasInterval) {
+            throw new IllegalArgumentException("Invalid interval for " + channelName + ": " + interval);
+        }
+    }
+
+    static boolean isChannel(String channelName) {
+        return channelName != null && CHANNELS.contains(channelName);
+    }
+
+    static boolean isSymbol(String symbol) {
+        if (symbol == null || symbol.isEmpty() || symbol.length() > MAX_SYMBOL_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < symbol.length(); i++) {
+            if (!isSymbolChar(symbol.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isSymbolChar(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_';
+    }
+}
@@ -0,0 +1,178 @@
+package com.hkd.market.websocket.subscription;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * 订阅主题表达式
+ *
+ * 格式与订阅键相同：{频道}:{交易对}[:{周期}]，交易对和周期可以包含通配符 *（匹配任意字符），例如：
+ * - ticker:*          所有交易对的Ticker
+ * - kline:BTC-*:1m    BTC开头交易对的1分钟K线
+ * - kline:ETH-USDT:*  ETH-USDT所有周期的K线
+ *
+ * 频道不支持通配符；不带周期的表达式只匹配不带周期的主题。
+ *
+ * 通配符按 glob 线性匹配（不编译为正则，没有回溯）：连续的 * 合并为一个，
+ * 每个片段最长 32 个字符、最多 4 个通配符。
+ */
+@Getter
+@EqualsAndHashCode(of = "key")
+public final class TopicPattern {
+
+    private static final String WILDCARD = "*";
+    private static final int MAX_SEGMENT_LENGTH = TopicNames.MAX_SYMBOL_LENGTH;
+    private static final int MAX_WILDCARDS = 4;
+
+    /**
+     * 频道
+     */
+    private final String channelName;
+
+    /**
+     * 交易对 (可含通配符)
+     */
+    private final String symbol;
+
+    /**
+     * K线周期 (可选，可含通配符)
+     */
+    private final String interval;
+
+    /**
+     * 表达式原文 (规范化后)
+     */
+    private final String key;
+
+    /**
+     * 片段按通配符切分后的字面部分（不含通配符时为null）
+     */
+    private final String[] symbolParts;
+    private final String[] intervalParts;
+
+    private TopicPattern(String channelName, String symbol, String interval) {
+        this.channelName = channelName;
+        this.symbol = symbol;
+        this.interval = interval;
+        this.key = interval != null ? channelName + ":" + symbol + ":" + interval : channelName + ":" + symbol;
+        this.symbolParts = compile(symbol);
+        this.intervalParts = interval == null ? null : compile(interval);
+    }
+
+    /**
+     * 解析主题表达式
+     *
+     * @param expression 表达式 (例如: kline:BTC-*:1m)
+     * @return 主题表达式
+     * @throws IllegalArgumentException 格式错误
+     */
+    public static TopicPattern parse(String expression) {
+        if (expression == null || expression.isBlank()) {
+            throw new IllegalArgumentException("Empty topic");
+        }
+
+        String[] parts = expression.trim().split(":", -1);
+        if (parts.length < 2 || parts.length > 3) {
+            throw new IllegalArgumentException("Invalid topic: " + expression);
+        }
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = collapseWildcards(parts[i]);
+            if (parts[i].isEmpty() || parts[i].length() > MAX_SEGMENT_LENGTH) {
+                throw new IllegalArgumentException("Invalid topic: " + expression);
+            }
+            if (wildcards(parts[i]) > MAX_WILDCARDS) {
+                throw new IllegalArgumentException("Too many wildcards: " + expression);
+            }
+        }
+        if (parts[0].contains(WILDCARD)) {
+            throw new IllegalArgumentException("Wildcard channel is not supported: " + expression);
+        }
+        return new TopicPattern(parts[0], parts[1], parts.length == 3 ? parts[2] : null);
+    }
+
+    /**
+     * 是否包含通配符
+     */
+    public boolean isWildcard() {
+        return symbolParts != null || intervalParts != null;
+    }
+
+    /**
+     * 主题是否匹配
+     */
+    public boolean matches(Topic topic) {
+        if (!channelName.equals(topic.getChannelName())) {
+            return false;
+        }
+        if (!matches(symbolParts, symbol, topic.getSymbol())) {
+            return false;
+        }
+        if (interval == null || topic.getInterval() == null) {
+            return interval == null && topic.getInterval() == null;
+        }
+        return matches(intervalParts, interval, topic.getInterval());
+    }
+
+    private static boolean matches(String[] parts, String literal, String value) {
+        return parts == null ? literal.equals(value) : glob(parts, value);
+    }
+
+    /**
+     * glob匹配
+     *
+     * parts 为按通配符切分的字面部分，首尾两段分别锚定开头和结尾（为空表示以通配符开头/结尾），
+     * 中间各段按顺序取最左匹配：* 匹配任意长度的任意字符，取最左匹配不会错过解，整体为线性扫描
+     */
+    private static boolean glob(String[] parts, String value) {
+        String first = parts[0];
+        String last = parts[parts.length - 1];
+        if (value.length() < first.length() + last.length()
+                || !value.startsWith(first) || !value.endsWith(last)) {
+            return false;
+        }
+
+        int position = first.length();
+        int end = value.length() - last.length();
+        for (int i = 1; i < parts.length - 1; i++) {
+            int index = value.indexOf(parts[i], position);
+            if (index < 0 || index + parts[i].length() > end) {
+                return false;
+            }
+            position = index + parts[i].length();
+        }
+        return true;
+    }
+
+    /**
+     * 把含通配符的片段切分为字面部分（不含通配符返回null，按字面值比较）
+     */
+    private static String[] compile(String segment) {
+        if (!segment.contains(WILDCARD)) {
+            return null;
+        }
+        return segment.split("\\*", -1);
+    }
+
+    private static String collapseWildcards(String segment) {
+        String collapsed = segment;
+        while (collapsed.contains(WILDCARD + WILDCARD)) {
+            collapsed = collapsed.replace(WILDCARD + WILDCARD, WILDCARD);
+        }
+        return collapsed;
+    }
+
+    private static int wildcards(String segment) {
+        int count = 0;
+        for (int i = 0; i < segment.length(); i++) {
+            if (segment.charAt(i) == '*') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+}
@@ -0,0 +1,192 @@
+package com.hkd.market.websocket.subscription;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 主题注册表
+ *
+ * 把 (频道, 交易对, 周期) 驻留为 Topic，分配稠密整数ID：
+ * - 按名称查找：以record为键的ConcurrentHashMap，不拼接字符串
+ * - 按ID查找：数组下标访问
+ *
+ * 客户端订阅任意名称创建的主题，在没有订阅者、且从未被发布方使用过时回收（release），ID放回空闲列表复用；
+ * 发布过的主题（真实的交易对）不回收，推送侧按ID保存的状态（重放日志、合并队列）始终属于同一个主题。
+ * 数量上限限制同时存在的主题数；其中未发布的主题另有上限（maxUnpublished），
+ * 客户端订阅不存在的交易对占满的只是这一部分，剩余容量始终留给发布方的真实主题。
+ * 新主题创建后（返回给调用方之前）回调 onCreated，用于挂上匹配的通配订阅。
+ */
+class TopicRegistry {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final int maxTopics;
+    private final int maxUnpublished;
+    private final Consumer<Topic> onCreated;
+    private final Map<TopicName, Topic> byName = new ConcurrentHashMap<>();
+
+    /**
+     * 写入在synchronized内完成，先写元素再发布数组引用
+     */
+    private volatile Topic[] byId = new Topic[INITIAL_CAPACITY];
+
+    /**
+     * 已分配过的最大ID + 1
+     */
+    private int size;
+
+    /**
+     * 当前存在的主题数
+     */
+    private int count;
+
+    /**
+     * 已发布的主题数（发布过的主题不回收，只增不减）
+     */
+    private int publishedCount;
+
+    /**
+     * 回收后可复用的ID
+     */
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+
+    TopicRegistry(int maxTopics) {
+        this(maxTopics, maxTopics, topic -> { });
+    }
+
+    TopicRegistry(int maxTopics, int maxUnpublished, Consumer<Topic> onCreated) {
+        this.maxTopics = maxTopics;
+        this.maxUnpublished = Math.min(maxUnpublished, maxTopics);
+        this.onCreated = onCreated;
+    }
+
+    /**
+     * 查找或创建主题
+     *
+     * @param published 创建的主题是否直接标记为已发布（发布方创建）
+     * @throws IllegalStateException 主题数量已达上限
+     */
+    Topic intern(String channelName, String symbol, String interval, boolean published) {
+        TopicName name = new TopicName(channelName, symbol, normalize(interval));
+        Topic topic = byName.get(name);
+        if (topic != null) {
+            return topic;
+        }
+
+        Topic created;
+        synchronized (this) {
+            topic = byName.get(name);
+            if (topic != null) {
+                return topic;
+            }
+            if (count >= maxTopics) {
+                throw new IllegalStateException("Too many subscription topics: " + maxTopics);
+            }
+            if (!published && count - publishedCount >= maxUnpublished) {
+                throw new IllegalStateException("Too many unpublished subscription topics: " + maxUnpublished);
+            }
+
+            int id = freeIds.isEmpty() ? size++ : freeIds.pop();
+            topic = new Topic(id, channelName, symbol, name.interval());
+            if (published) {
+                topic.markPublished();
+                publishedCount++;
+            }
+            Topic[] topics = byId;
+            if (id == topics.length) {
+                topics = Arrays.copyOf(topics, topics.length * 2);
+            }
+            topics[id] = topic;
+            count++;
+            byId = topics;
+            byName.put(name, topic);
+            created = topic;
+        }
+
+        onCreated.accept(created);
+        return created;
+    }
+
+    /**
+     * 把主题标记为已发布
+     *
+     * @return 主题是否仍在注册表中（已被回收时返回false，调用方重新驻留）
+     */
+    boolean markPublished(Topic topic) {
+        if (topic.isPublished()) {
+            // 发布过的主题不会被回收
+            return true;
+        }
+        synchronized (this) {
+            if (byId[topic.getId()] != topic) {
+                return false;
+            }
+            if (!topic.isPublished()) {
+                topic.markPublished();
+                publishedCount++;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 回收没有订阅者、且从未发布过的主题
+     *
+     * 与加入订阅者并发时，调用方在操作之后用 isRegistered 确认主题仍然有效
+     *
+     * @return 是否已回收
+     */
+    synchronized boolean release(Topic topic) {
+        if (byId[topic.getId()] != topic || topic.isPublished() || !topic.getSubscribers().isEmpty()) {
+            return false;
+        }
+        byName.remove(new TopicName(topic.getChannelName(), topic.getSymbol(), topic.getInterval()), topic);
+        Topic[] topics = byId;
+        topics[topic.getId()] = null;
+        byId = topics;
+        freeIds.push(topic.getId());
+        count--;
+        return true;
+    }
+
+    /**
+     * 主题是否仍在注册表中（未被回收）
+     */
+    boolean isRegistered(Topic topic) {
+        return get(topic.getId()) == topic;
+    }
+
+    /**
+     * 查找主题，不存在返回null
+     */
+    Topic find(String channelName, String symbol, String interval) {
+        return byName.get(new TopicName(channelName, symbol, normalize(interval)));
+    }
+
+    /**
+     * 按ID查找主题，不存在返回null
+     */
+    Topic get(int id) {
+        Topic[] topics = byId;
+        return id >= 0 && id < topics.length ? topics[id] : null;
+    }
+
+    /**
+     * 当前存在的主题（按ID顺序）
+     */
+    Topic[] snapshot() {
+        return Arrays.stream(byId).filter(Objects::nonNull).toArray(Topic[]::new);
+    }
+
+    private static String normalize(String interval) {
+        return interval == null || interval.isEmpty() ? null : interval;
+    }
+
+    private record TopicName(String channelName, String symbol, String interval) {
+    }
+}
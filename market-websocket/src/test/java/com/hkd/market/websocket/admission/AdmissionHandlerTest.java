@@ -0,0 +1,66 @@
+package com.hkd.market.websocket.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AdmissionHandler / ConnectionAdmission 单元测试
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@DisplayName("连接准入测试")
+class AdmissionHandlerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("超过全局上限的连接在读取数据前关闭，关闭已准入的连接后释放名额")
+    void testGlobalLimit() {
+        ConnectionAdmission admission = new ConnectionAdmission(2, 0, meterRegistry);
+        EmbeddedChannel first = new EmbeddedChannel(new AdmissionHandler(admission));
+        EmbeddedChannel second = new EmbeddedChannel(new AdmissionHandler(admission));
+        EmbeddedChannel rejected = new EmbeddedChannel(new AdmissionHandler(admission));
+
+        assertTrue(first.isActive());
+        assertTrue(second.isActive());
+        assertFalse(rejected.isActive());
+        assertEquals(2, admission.getConnections());
+        assertEquals(1, admission.getRejections(AdmissionResult.GLOBAL_LIMIT));
+        assertEquals(1.0, meterRegistry.get("market.websocket.admission.rejected")
+                .tag("reason", "global_limit").counter().count());
+
+        first.close();
+        assertEquals(1, admission.getConnections());
+        assertEquals(1.0, meterRegistry.get("market.websocket.connections").gauge().value());
+        assertTrue(new EmbeddedChannel(new AdmissionHandler(admission)).isActive());
+    }
+
+    @Test
+    @DisplayName("单个IP超过上限时拒绝，计数归零后移除")
+    void testPerIpLimit() throws Exception {
+        ConnectionAdmission admission = new ConnectionAdmission(100, 2, meterRegistry);
+        InetAddress client = InetAddress.getByName("10.0.0.1");
+        InetAddress other = InetAddress.getByName("10.0.0.2");
+
+        assertEquals(AdmissionResult.ADMITTED, admission.tryAdmit(client));
+        assertEquals(AdmissionResult.ADMITTED, admission.tryAdmit(client));
+        assertEquals(AdmissionResult.IP_LIMIT, admission.tryAdmit(client));
+        assertEquals(AdmissionResult.ADMITTED, admission.tryAdmit(other));
+        assertEquals(3, admission.getConnections());
+        assertEquals(2, admission.getConnections(client));
+        assertEquals(1, admission.getRejections(AdmissionResult.IP_LIMIT));
+
+        admission.release(client);
+        admission.release(client);
+        assertEquals(0, admission.getConnections(client));
+        assertEquals(1, admission.getConnections());
+        assertEquals(AdmissionResult.ADMITTED, admission.tryAdmit(client));
+    }
+}
@@ -0,0 +1,108 @@
+package com.hkd.market.websocket.backpressure;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SlowConsumerHandler 单元测试
+ *
+ * 通过 ChannelOutboundBuffer 的自定义可写位模拟出站缓冲区越过水位
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@DisplayName("慢连接处理器测试")
+class SlowConsumerHandlerTest {
+
+    private static final long GRACE_PERIOD = 1000;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @Test
+    @DisplayName("DROP策略：不可写时暂停推送，可写后立即恢复")
+    void testDropPolicy() {
+        SlowConsumerMonitor monitor = monitor("drop");
+        EmbeddedChannel channel = new EmbeddedChannel(new SlowConsumerHandler(monitor));
+        assertEquals(1, monitor.getClientCount(ConsumerState.NORMAL));
+
+        setWritable(channel, false);
+        assertEquals(ConsumerState.SLOW, SlowConsumerMonitor.stateOf(channel));
+        assertFalse(SlowConsumerMonitor.acceptsStream(channel));
+        assertEquals(1, clients("slow"));
+        assertEquals(0, clients("normal"));
+
+        setWritable(channel, true);
+        assertEquals(ConsumerState.NORMAL, SlowConsumerMonitor.stateOf(channel));
+        assertTrue(SlowConsumerMonitor.acceptsStream(channel));
+        assertEquals(1, clients("normal"));
+    }
+
+    @Test
+    @DisplayName("SNAPSHOT策略：降级为仅快照，连续可写满宽限期后恢复")
+    void testSnapshotPolicy() {
+        SlowConsumerMonitor monitor = monitor("snapshot");
+        EmbeddedChannel channel = new EmbeddedChannel(new SlowConsumerHandler(monitor));
+
+        setWritable(channel, false);
+        setWritable(channel, true);
+        assertEquals(ConsumerState.SNAPSHOT_ONLY, SlowConsumerMonitor.stateOf(channel));
+        assertFalse(SlowConsumerMonitor.acceptsStream(channel));
+
+        channel.advanceTimeBy(GRACE_PERIOD, TimeUnit.MILLISECONDS);
+        channel.runScheduledPendingTasks();
+        assertEquals(ConsumerState.NORMAL, SlowConsumerMonitor.stateOf(channel));
+        assertEquals(0, clients("snapshot_only"));
+    }
+
+    @Test
+    @DisplayName("DISCONNECT策略：宽限期内未恢复则断开")
+    void testDisconnectPolicy() {
+        SlowConsumerMonitor monitor = monitor("disconnect");
+        EmbeddedChannel channel = new EmbeddedChannel(new SlowConsumerHandler(monitor));
+
+        setWritable(channel, false);
+        channel.advanceTimeBy(GRACE_PERIOD - 1, TimeUnit.MILLISECONDS);
+        channel.runScheduledPendingTasks();
+        assertTrue(channel.isActive());
+
+        channel.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        channel.runScheduledPendingTasks();
+        assertFalse(channel.isActive());
+        assertEquals(1.0, meterRegistry.get("market.websocket.slow.disconnects").counter().count());
+        assertEquals(0, clients("slow"));
+    }
+
+    @Test
+    @DisplayName("DISCONNECT策略：宽限期内恢复则保留连接")
+    void testDisconnectPolicyRecovered() {
+        SlowConsumerMonitor monitor = monitor("disconnect");
+        EmbeddedChannel channel = new EmbeddedChannel(new SlowConsumerHandler(monitor));
+
+        setWritable(channel, false);
+        setWritable(channel, true);
+        channel.advanceTimeBy(GRACE_PERIOD, TimeUnit.MILLISECONDS);
+        channel.runScheduledPendingTasks();
+
+        assertTrue(channel.isActive());
+        assertEquals(ConsumerState.NORMAL, SlowConsumerMonitor.stateOf(channel));
+    }
+
+    private SlowConsumerMonitor monitor(String policy) {
+        meterRegistry = new SimpleMeterRegistry();
+        return new SlowConsumerMonitor(policy, GRACE_PERIOD, meterRegistry);
+    }
+
+    private double clients(String state) {
+        return meterRegistry.get("market.websocket.clients").tag("state", state).gauge().value();
+    }
+
+    private void setWritable(EmbeddedChannel channel, boolean writable) {
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, writable);
+    }
+}
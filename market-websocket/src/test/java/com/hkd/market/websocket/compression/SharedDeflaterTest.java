@@ -0,0 +1,134 @@
+package com.hkd.market.websocket.compression;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hkd.market.api.enums.WebSocketMessageType;
+import com.hkd.market.websocket.protocol.WebSocketMessage;
+import com.hkd.market.websocket.push.WebSocketBroadcaster;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtension;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtensionData;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketServerExtension;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SharedDeflater / SharedDeflateExtensionHandshaker 单元测试
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@DisplayName("共享压缩测试")
+class SharedDeflaterTest {
+
+    private static final String DEFLATE_ENCODER_NAME =
+            "io.netty.handler.codec.http.websocketx.extensions.compression.PerMessageDeflateEncoder";
+
+    private final SharedDeflater sharedDeflater = new SharedDeflater(true, 6, 256);
+
+    @Test
+    @DisplayName("压缩结果可按 permessage-deflate 规则独立解压")
+    void testCompressRoundTrip() throws Exception {
+        String text = "{\"type\":\"kline\",\"close\":\"50000\"}".repeat(50);
+        ByteBuf payload = Unpooled.copiedBuffer(text, StandardCharsets.UTF_8);
+
+        ByteBuf compressed = sharedDeflater.compress(payload, UnpooledByteBufAllocator.DEFAULT);
+
+        assertEquals(0, payload.readerIndex());
+        assertTrue(compressed.readableBytes() < payload.readableBytes() / 4);
+        assertEquals(text, inflate(compressed));
+        compressed.release();
+        payload.release();
+    }
+
+    @Test
+    @DisplayName("握手始终加入 server_no_context_takeover，拒绝 server_max_window_bits")
+    void testHandshake() {
+        SharedDeflateExtensionHandshaker handshaker = new SharedDeflateExtensionHandshaker(6, 256);
+
+        WebSocketServerExtension extension = handshaker.handshakeExtension(
+                new WebSocketExtensionData("permessage-deflate", Map.of()));
+        assertNotNull(extension);
+        assertTrue(extension.newReponseData().parameters().containsKey("server_no_context_takeover"));
+
+        assertNull(handshaker.handshakeExtension(
+                new WebSocketExtensionData("permessage-deflate", Map.of("server_max_window_bits", "10"))));
+        assertNull(handshaker.handshakeExtension(new WebSocketExtensionData("x-webkit-deflate-frame", Map.of())));
+    }
+
+    @Test
+    @DisplayName("广播时协商了压缩的连接共享RSV1预压缩帧，其余连接收到原始帧")
+    void testSharedCompressedBroadcast() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        WebSocketBroadcaster broadcaster = new WebSocketBroadcaster(objectMapper, sharedDeflater);
+
+        EmbeddedChannel first = deflateChannel();
+        EmbeddedChannel second = deflateChannel();
+        EmbeddedChannel plain = new EmbeddedChannel();
+        WebSocketMessage message = WebSocketMessage.push(WebSocketMessageType.DEPTH, "BTC-USDT",
+                Map.of("bids", "50000:1.5,".repeat(40)));
+
+        assertEquals(3, broadcaster.broadcast(List.<Channel>of(first, second, plain), message));
+
+        TextWebSocketFrame firstFrame = first.readOutbound();
+        TextWebSocketFrame secondFrame = second.readOutbound();
+        TextWebSocketFrame plainFrame = plain.readOutbound();
+        assertEquals(WebSocketExtension.RSV1, firstFrame.rsv());
+        assertSame(firstFrame.content().unwrap(), secondFrame.content().unwrap());
+        assertEquals(0, plainFrame.rsv());
+        assertEquals(plainFrame.text(), inflate(firstFrame.content()));
+        assertEquals("BTC-USDT", objectMapper.readValue(plainFrame.text(), WebSocketMessage.class).getSymbol());
+
+        firstFrame.release();
+        secondFrame.release();
+        plainFrame.release();
+    }
+
+    @Test
+    @DisplayName("小消息不压缩")
+    void testSmallMessageNotCompressed() {
+        WebSocketBroadcaster broadcaster = new WebSocketBroadcaster(new ObjectMapper(), sharedDeflater);
+        EmbeddedChannel channel = deflateChannel();
+
+        broadcaster.broadcast(List.<Channel>of(channel),
+                WebSocketMessage.push(WebSocketMessageType.TICKER, "BTC-USDT", "50000"));
+
+        TextWebSocketFrame frame = channel.readOutbound();
+        assertEquals(0, frame.rsv());
+        frame.release();
+    }
+
+    /**
+     * 模拟协商了 permessage-deflate 的连接（Pipeline中存在同名编码器）
+     */
+    private EmbeddedChannel deflateChannel() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        channel.pipeline().addLast(DEFLATE_ENCODER_NAME, new ChannelOutboundHandlerAdapter());
+        return channel;
+    }
+
+    private String inflate(ByteBuf compressed) throws Exception {
+        byte[] input = new byte[compressed.readableBytes() + 4];
+        compressed.getBytes(compressed.readerIndex(), input, 0, compressed.readableBytes());
+        System.arraycopy(new byte[]{0x00, 0x00, (byte) 0xFF, (byte) 0xFF}, 0, input, input.length - 4, 4);
+
+        Inflater inflater = new Inflater(true);
+        inflater.setInput(input);
+        byte[] output = new byte[64 * 1024];
+        int length = inflater.inflate(output);
+        inflater.end();
+        return new String(output, 0, length, StandardCharsets.UTF_8);
+    }
+}
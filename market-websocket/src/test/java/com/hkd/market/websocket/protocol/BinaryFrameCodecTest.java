@@ -0,0 +1,158 @@
+package com.hkd.market.websocket.protocol;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hkd.market.api.enums.OrderSide;
+import com.hkd.market.api.enums.WebSocketMessageType;
+import com.hkd.market.domain.entity.Kline;
+import com.hkd.market.domain.entity.MarketTrade;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BinaryFrameCodec 单元测试
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@DisplayName("hkd-bin.v1 二进制帧编解码测试")
+class BinaryFrameCodecTest {
+
+    @Test
+    @DisplayName("K线编解码往返")
+    void testKlineRoundTrip() {
+        Kline kline = kline();
+        WebSocketMessage message = WebSocketMessage.push(WebSocketMessageType.KLINE, "BTC-USDT", kline);
+
+        WebSocketMessage decoded = roundTrip(message);
+
+        assertEquals("kline", decoded.getType());
+        assertEquals("BTC-USDT", decoded.getSymbol());
+        assertEquals("1m", decoded.getInterval());
+        assertEquals(message.getTimestamp(), decoded.getTimestamp());
+        Kline bar = (Kline) decoded.getData();
+        assertEquals(kline.getOpenTime(), bar.getOpenTime());
+        assertEquals(kline.getCloseTime(), bar.getCloseTime());
+        assertEquals(kline.getOpen(), bar.getOpen());
+        assertEquals(kline.getHigh(), bar.getHigh());
+        assertEquals(kline.getLow(), bar.getLow());
+        assertEquals(kline.getClose(), bar.getClose());
+        assertEquals(kline.getVolume(), bar.getVolume());
+        assertEquals(kline.getAmount(), bar.getAmount());
+        assertEquals(kline.getTradeCount(), bar.getTradeCount());
+        assertTrue(bar.getCompleted());
+    }
+
+    @Test
+    @DisplayName("带seq的消息写入可选尾部，不带seq时解码为null")
+    void testOptionalSeq() {
+        WebSocketMessage message = WebSocketMessage.push(WebSocketMessageType.KLINE, "BTC-USDT", kline());
+        assertNull(roundTrip(message).getSeq());
+
+        message.setSeq(42L);
+        assertEquals(42L, roundTrip(message).getSeq());
+        assertNull(roundTrip(message).getEpoch());
+
+        message.setEpoch(1731800000000L);
+        WebSocketMessage decoded = roundTrip(message);
+        assertEquals(42L, decoded.getSeq());
+        assertEquals(1731800000000L, decoded.getEpoch());
+    }
+
+    @Test
+    @DisplayName("成交编解码往返（含超出long范围的数值）")
+    void testTradeRoundTrip() {
+        MarketTrade trade = MarketTrade.builder()
+                .tradeId(123456789L)
+                .symbol("ETH-USDT")
+                .price(new BigDecimal("3000.12"))
+                .quantity(new BigDecimal("0.000000000000000000001"))
+                .amount(new BigDecimal("123456789012345678901234567890.5"))
+                .takerSide(OrderSide.SELL)
+                .tradeTime(1700000000123L)
+                .build();
+
+        WebSocketMessage decoded = roundTrip(WebSocketMessage.push(WebSocketMessageType.TRADE, "ETH-USDT", trade));
+
+        MarketTrade decodedTrade = (MarketTrade) decoded.getData();
+        assertEquals("trade", decoded.getType());
+        assertEquals(trade.getTradeId(), decodedTrade.getTradeId());
+        assertEquals(trade.getPrice(), decodedTrade.getPrice());
+        assertEquals(trade.getQuantity(), decodedTrade.getQuantity());
+        assertEquals(trade.getAmount(), decodedTrade.getAmount());
+        assertEquals(OrderSide.SELL, decodedTrade.getTakerSide());
+        assertEquals(trade.getTradeTime(), decodedTrade.getTradeTime());
+    }
+
+    @Test
+    @DisplayName("二进制帧明显小于JSON")
+    void testSmallerThanJson() throws Exception {
+        WebSocketMessage message = WebSocketMessage.push(WebSocketMessageType.KLINE, "BTC-USDT", kline());
+        message.setChannel("kline");
+        message.setInterval("1m");
+
+        ByteBuf binary = Unpooled.buffer();
+        BinaryFrameCodec.encode(message, binary);
+        byte[] json = new ObjectMapper().findAndRegisterModules().writeValueAsBytes(message);
+
+        assertTrue(binary.readableBytes() * 3 < json.length,
+                "binary=" + binary.readableBytes() + ", json=" + json.length);
+        binary.release();
+    }
+
+    @Test
+    @DisplayName("只有kline和trade有二进制格式")
+    void testSupports() {
+        assertTrue(BinaryFrameCodec.supports(WebSocketMessage.push(WebSocketMessageType.KLINE, "BTC-USDT", kline())));
+        assertFalse(BinaryFrameCodec.supports(WebSocketMessage.push(WebSocketMessageType.TICKER, "BTC-USDT", Map.of())));
+        assertThrows(IllegalArgumentException.class, () -> BinaryFrameCodec.encode(
+                WebSocketMessage.push(WebSocketMessageType.TICKER, "BTC-USDT", Map.of()), Unpooled.buffer()));
+    }
+
+    @Test
+    @DisplayName("拒绝未知版本和截断的帧")
+    void testRejectInvalidFrame() {
+        assertThrows(IllegalArgumentException.class,
+                () -> BinaryFrameCodec.decode(Unpooled.wrappedBuffer(new byte[]{2, 1})));
+
+        ByteBuf truncated = Unpooled.buffer();
+        BinaryFrameCodec.encode(WebSocketMessage.push(WebSocketMessageType.KLINE, "BTC-USDT", kline()), truncated);
+        truncated.writerIndex(truncated.writerIndex() - 3);
+        assertThrows(IllegalArgumentException.class, () -> BinaryFrameCodec.decode(truncated));
+    }
+
+    private WebSocketMessage roundTrip(WebSocketMessage message) {
+        ByteBuf buffer = Unpooled.buffer();
+        try {
+            BinaryFrameCodec.encode(message, buffer);
+            WebSocketMessage decoded = BinaryFrameCodec.decode(buffer);
+            assertFalse(buffer.isReadable());
+            return decoded;
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private Kline kline() {
+        return Kline.builder()
+                .symbol("BTC-USDT")
+                .interval("1m")
+                .openTime(1700000000L)
+                .closeTime(1700000060L)
+                .open(new BigDecimal("50000.00"))
+                .high(new BigDecimal("50100.50"))
+                .low(new BigDecimal("49900.25"))
+                .close(new BigDecimal("50050.75"))
+                .volume(new BigDecimal("12.34567890"))
+                .amount(new BigDecimal("617890.123456"))
+                .tradeCount(42)
+                .completed(true)
+                .build();
+    }
+}
@@ -0,0 +1,111 @@
+package com.hkd.market.websocket.protocol;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hkd.market.api.enums.WebSocketMessageType;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ControlFrameParser / PongFrame 单元测试
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@DisplayName("控制消息快速解析测试")
+class ControlFrameParserTest {
+
+    private final ControlFrameParser parser = new ControlFrameParser();
+
+    @Test
+    @DisplayName("识别PING（不区分大小写，允许空白）")
+    void testPing() {
+        assertTrue(parse("{\"type\":\"ping\"}"));
+        assertEquals(WebSocketMessageType.PING, parser.getType());
+        assertNull(parser.getChannel());
+
+        assertTrue(parse(" {\n  \"type\" : \"PING\" \t}\r\n"));
+        assertEquals(WebSocketMessageType.PING, parser.getType());
+    }
+
+    @Test
+    @DisplayName("识别单主题订阅和取消订阅，已知频道使用常量")
+    void testSubscribe() {
+        assertTrue(parse("{\"type\":\"SUBSCRIBE\",\"channel\":\"kline\",\"symbol\":\"BTC-USDT\",\"interval\":\"1m\"}"));
+        assertEquals(WebSocketMessageType.SUBSCRIBE, parser.getType());
+        assertSame("kline", parser.getChannel());
+        assertEquals("BTC-USDT", parser.getSymbol());
+        assertEquals("1m", parser.getInterval());
+
+        // 字段顺序不限，解析结果不残留上一条消息的字段
+        assertTrue(parse("{\"symbol\":\"ETH-USDT\",\"channel\":\"ticker\",\"type\":\"unsubscribe\"}"));
+        assertEquals(WebSocketMessageType.UNSUBSCRIBE, parser.getType());
+        assertSame("ticker", parser.getChannel());
+        assertEquals("ETH-USDT", parser.getSymbol());
+        assertNull(parser.getInterval());
+    }
+
+    @Test
+    @DisplayName("快速路径不支持的消息交给完整解析")
+    void testFallback() {
+        assertFalse(parse("{\"type\":\"subscribe\",\"channel\":\"kline\",\"symbol\":\"BTC-USDT\",\"interval\":\"1m\",\"snapshot\":100}"));
+        assertFalse(parse("{\"type\":\"subscribe\",\"topics\":[\"ticker:*\"]}"));
+        assertFalse(parse("{\"type\":\"resume\",\"channel\":\"kline\",\"symbol\":\"BTC-USDT\",\"seq\":1}"));
+        assertFalse(parse("{\"type\":\"subscribe\",\"channel\":\"kline\",\"symbol\":\"BTC\\u002dUSDT\"}"));
+        assertFalse(parse("{\"type\":\"subscribe\",\"symbol\":null}"));
+        assertFalse(parse("{\"type\":\"ping\"} x"));
+        assertFalse(parse("{\"type\":\"ping\""));
+        assertFalse(parse("{\"channel\":\"kline\"}"));
+        assertFalse(parse("{}"));
+        assertFalse(parse("ping"));
+    }
+
+    @Test
+    @DisplayName("解析不移动readerIndex")
+    void testReaderIndexUnchanged() {
+        ByteBuf content = Unpooled.copiedBuffer("{\"type\":\"ping\"}", StandardCharsets.UTF_8);
+        try {
+            assertTrue(parser.parse(content));
+            assertEquals(0, content.readerIndex());
+        } finally {
+            content.release();
+        }
+    }
+
+    @Test
+    @DisplayName("PONG帧共享预编码内容，释放帧不影响后续回复，超过刷新间隔后更新timestamp")
+    void testPongFrame() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        long now = System.currentTimeMillis() + PongFrame.REFRESH_MILLIS;
+
+        TextWebSocketFrame first = PongFrame.frame(now);
+        JsonNode pong = objectMapper.readTree(first.text());
+        assertEquals(WebSocketMessageType.PONG.getCode(), pong.get("type").asText());
+        assertEquals(now, pong.get("timestamp").asLong());
+        first.release();
+
+        TextWebSocketFrame second = PongFrame.frame(now + PongFrame.REFRESH_MILLIS - 1);
+        assertEquals(now, objectMapper.readTree(second.text()).get("timestamp").asLong());
+        second.release();
+
+        TextWebSocketFrame refreshed = PongFrame.frame(now + PongFrame.REFRESH_MILLIS);
+        assertEquals(now + PongFrame.REFRESH_MILLIS, objectMapper.readTree(refreshed.text()).get("timestamp").asLong());
+        refreshed.release();
+    }
+
+    private boolean parse(String json) {
+        ByteBuf content = Unpooled.copiedBuffer(json, StandardCharsets.UTF_8);
+        try {
+            return parser.parse(content);
+        } finally {
+            content.release();
+        }
+    }
+}
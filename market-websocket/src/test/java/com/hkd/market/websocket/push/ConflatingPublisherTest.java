@@ -0,0 +1,351 @@
+package com.hkd.market.websocket.push;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hkd.market.api.enums.WebSocketMessageType;
+import com.hkd.market.domain.entity.Kline;
+import com.hkd.market.websocket.compression.SharedDeflater;
+import com.hkd.market.websocket.protocol.WebSocketMessage;
+import com.hkd.market.websocket.subscription.SubscriptionManager;
+import com.hkd.market.websocket.subscription.Topic;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ConflatingPublisher 单元测试
+ *
+ * 不启动定时任务，直接调用 flush 模拟推送间隔到期
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@DisplayName("合并推送发布器测试")
+class ConflatingPublisherTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private SubscriptionManager subscriptionManager;
+    private ConflatingPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        subscriptionManager = new SubscriptionManager();
+        WebSocketBroadcaster broadcaster = new WebSocketBroadcaster(objectMapper, new UnpooledByteBufAllocator(true),
+                new SharedDeflater(false, 6, 256));
+        publisher = new ConflatingPublisher(subscriptionManager, broadcaster, 250, 1000, 100, 20, 256);
+    }
+
+    @Test
+    @DisplayName("推送间隔内的多次更新只推送最新一条")
+    void testConflateToLatest() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        subscriptionManager.subscribe(channel, "kline", "BTC-USDT", "1m");
+
+        publisher.publish("kline", "BTC-USDT", "1m", klineMessage("50000"));
+        publisher.publish("kline", "BTC-USDT", "1m", klineMessage("50100"));
+        publisher.publish("kline", "BTC-USDT", "1m", klineMessage("50200"));
+        assertNull(channel.readOutbound());
+
+        publisher.flush("kline");
+
+        assertEquals("50200", readData(channel));
+        assertNull(channel.readOutbound());
+
+        // 没有新消息时不重复推送
+        publisher.flush("kline");
+        assertNull(channel.readOutbound());
+    }
+
+    @Test
+    @DisplayName("不可写的连接跳过，恢复可写后收到最新消息")
+    void testSkipUnwritableChannel() throws Exception {
+        EmbeddedChannel fast = new EmbeddedChannel();
+        EmbeddedChannel slow = new EmbeddedChannel();
+        subscriptionManager.subscribe(fast, "kline", "BTC-USDT", "1m");
+        subscriptionManager.subscribe(slow, "kline", "BTC-USDT", "1m");
+        slow.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+
+        publisher.publish("kline", "BTC-USDT", "1m", klineMessage("50000"));
+        publisher.flush("kline");
+        assertEquals("50000", readData(fast));
+        assertNull(slow.readOutbound());
+
+        publisher.publish("kline", "BTC-USDT", "1m", klineMessage("50100"));
+        publisher.flush("kline");
+        assertEquals("50100", readData(fast));
+        assertNull(slow.readOutbound());
+
+        slow.unsafe().outboundBuffer().setUserDefinedWritability(1, true);
+        publisher.flush("kline");
+        assertEquals("50100", readData(slow));
+        assertNull(fast.readOutbound());
+    }
+
+    @Test
+    @DisplayName("不合并的频道直接广播")
+    void testPassThroughChannel() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        subscriptionManager.subscribe(channel, "trade", "BTC-USDT", null);
+
+        publisher.publish("trade", "BTC-USDT", null,
+                WebSocketMessage.push(WebSocketMessageType.TRADE, "BTC-USDT", "50000"));
+
+        assertEquals("50000", readData(channel));
+    }
+
+    @Test
+    @DisplayName("增量模式只发送变化字段，seq不连续或到关键帧时发送完整K线")
+    void testDeltaFrames() throws Exception {
+        publisher = new ConflatingPublisher(subscriptionManager, new WebSocketBroadcaster(objectMapper,
+                new UnpooledByteBufAllocator(true), new SharedDeflater(false, 6, 256)), 250, 1000, 100, 3, 256);
+        EmbeddedChannel delta = new EmbeddedChannel();
+        EmbeddedChannel plain = new EmbeddedChannel();
+        Topic topic = subscriptionManager.subscribe(delta, "kline", "BTC-USDT", "1m");
+        subscriptionManager.subscribe(plain, "kline", "BTC-USDT", "1m");
+        publisher.enableDelta(delta, topic, true);
+
+        // 开启后的第一帧为完整K线
+        publishKline("50000", "1");
+        JsonNode first = readFrame(delta);
+        assertEquals(WebSocketMessageType.KLINE.getCode(), first.get("type").asText());
+        assertEquals(1, first.get("seq").asLong());
+
+        publishKline("50100", "1");
+        JsonNode second = readFrame(delta);
+        assertEquals(WebSocketMessageType.KLINE_DELTA.getCode(), second.get("type").asText());
+        assertEquals(2, second.get("seq").asLong());
+        assertEquals(Set.of("openTime", "close"), fieldNames(second.get("data")));
+        // 未开启增量的连接始终收到完整K线
+        assertEquals(1, readFrame(plain).get("seq").asLong());
+        JsonNode plainSecond = readFrame(plain);
+        assertEquals(WebSocketMessageType.KLINE.getCode(), plainSecond.get("type").asText());
+        assertEquals(2, plainSecond.get("seq").asLong());
+
+        // seq 3 为关键帧
+        publishKline("50200", "2");
+        assertEquals(WebSocketMessageType.KLINE.getCode(), readFrame(delta).get("type").asText());
+
+        // 跳过一帧后不能应用增量
+        delta.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        publishKline("50300", "2");
+        delta.unsafe().outboundBuffer().setUserDefinedWritability(1, true);
+        publishKline("50400", "2");
+        JsonNode resumed = readFrame(delta);
+        assertEquals(WebSocketMessageType.KLINE.getCode(), resumed.get("type").asText());
+        assertEquals(5, resumed.get("seq").asLong());
+
+        // RESYNC 重发最新的完整K线，seq 不变
+        publisher.resync(delta, topic);
+        publisher.flush("kline");
+        JsonNode resynced = readFrame(delta);
+        assertEquals(WebSocketMessageType.KLINE.getCode(), resynced.get("type").asText());
+        assertEquals(5, resynced.get("seq").asLong());
+
+        // 其他连接不受 RESYNC 影响
+        for (long seq = 3; seq <= 5; seq++) {
+            assertEquals(seq, readFrame(plain).get("seq").asLong());
+        }
+        assertNull(plain.readOutbound());
+    }
+
+    @Test
+    @DisplayName("恢复订阅只重放缺失的帧，之后的推送不重不漏")
+    void testResumeReplaysGap() throws Exception {
+        EmbeddedChannel live = new EmbeddedChannel();
+        subscriptionManager.subscribe(live, "trade", "BTC-USDT", null);
+        for (int i = 1; i <= 5; i++) {
+            publisher.publish("trade", "BTC-USDT", null,
+                    WebSocketMessage.push(WebSocketMessageType.TRADE, "BTC-USDT", "t" + i));
+        }
+
+        long epoch = readFrame(live).get("epoch").asLong();
+
+        EmbeddedChannel resumed = new EmbeddedChannel();
+        ConflatingPublisher.Resumed result = publisher.resume(resumed, "trade", "BTC-USDT", null, 3L, epoch, r -> { });
+        assertEquals(5L, result.seq());
+        assertEquals(epoch, result.epoch());
+        assertEquals(2, result.replayed());
+        assertFalse(result.gap());
+        assertEquals("t4", readData(resumed));
+        assertEquals("t5", readData(resumed));
+        assertNull(resumed.readOutbound());
+
+        publisher.publish("trade", "BTC-USDT", null,
+                WebSocketMessage.push(WebSocketMessageType.TRADE, "BTC-USDT", "t6"));
+        JsonNode next = readFrame(resumed);
+        assertEquals("t6", next.get("data").asText());
+        assertEquals(6L, next.get("seq").asLong());
+    }
+
+    @Test
+    @DisplayName("缺口超出重放缓冲时合并频道回退为最新一帧")
+    void testResumeFallsBackToSnapshot() throws Exception {
+        publisher = new ConflatingPublisher(subscriptionManager, new WebSocketBroadcaster(objectMapper,
+                new UnpooledByteBufAllocator(true), new SharedDeflater(false, 6, 256)), 250, 1000, 100, 20, 2);
+        EmbeddedChannel live = new EmbeddedChannel();
+        subscriptionManager.subscribe(live, "kline", "BTC-USDT", "1m");
+        for (int i = 0; i < 4; i++) {
+            publisher.publish("kline", "BTC-USDT", "1m", klineMessage("5000" + i));
+            publisher.flush("kline");
+        }
+
+        long epoch = readFrame(live).get("epoch").asLong();
+
+        EmbeddedChannel resumed = new EmbeddedChannel();
+        ConflatingPublisher.Resumed result = publisher.resume(resumed, "kline", "BTC-USDT", "1m", 1L, epoch, r -> { });
+        assertTrue(result.gap());
+        assertEquals(1, result.replayed());
+        assertEquals("50003", readData(resumed));
+
+        // 已通过快照送达的版本不再推送
+        publisher.flush("kline");
+        assertNull(resumed.readOutbound());
+
+        // 本进程内从未推送过的主题（例如服务重启后）
+        ConflatingPublisher.Resumed unknown = publisher.resume(resumed, "kline", "ETH-USDT", "1m", 10L, epoch, r -> { });
+        assertTrue(unknown.gap());
+        assertEquals(0, unknown.replayed());
+        assertEquals(Set.of(resumed), subscriptionManager.getSubscribers("kline", "ETH-USDT", "1m"));
+    }
+
+    @Test
+    @DisplayName("epoch不属于本进程时按缺口处理，即使seq恰好在范围内")
+    void testResumeAfterRestartIsGap() throws Exception {
+        EmbeddedChannel live = new EmbeddedChannel();
+        subscriptionManager.subscribe(live, "trade", "BTC-USDT", null);
+        for (int i = 1; i <= 3; i++) {
+            publisher.publish("trade", "BTC-USDT", null,
+                    WebSocketMessage.push(WebSocketMessageType.TRADE, "BTC-USDT", "t" + i));
+        }
+        long epoch = readFrame(live).get("epoch").asLong();
+
+        EmbeddedChannel resumed = new EmbeddedChannel();
+        ConflatingPublisher.Resumed result = publisher.resume(resumed, "trade", "BTC-USDT", null, 2L, epoch - 1, r -> { });
+        assertTrue(result.gap());
+        assertEquals(3, result.replayed());
+
+        EmbeddedChannel legacy = new EmbeddedChannel();
+        assertTrue(publisher.resume(legacy, "trade", "BTC-USDT", null, 3L, null, r -> { }).gap());
+    }
+
+    @Test
+    @DisplayName("合并频道没有订阅者期间的更新仍推进seq，恢复订阅时能发现缺失")
+    void testIdleTopicAdvancesSeq() throws Exception {
+        EmbeddedChannel live = new EmbeddedChannel();
+        subscriptionManager.subscribe(live, "kline", "BTC-USDT", "1m");
+        publisher.publish("kline", "BTC-USDT", "1m", klineMessage("50000"));
+        publisher.flush("kline");
+        JsonNode first = readFrame(live);
+        assertEquals(1L, first.get("seq").asLong());
+        long epoch = first.get("epoch").asLong();
+
+        // 唯一的订阅者断开期间有两次更新
+        subscriptionManager.unsubscribeAll(live);
+        publisher.publish("kline", "BTC-USDT", "1m", klineMessage("50100"));
+        publisher.flush("kline");
+        publisher.publish("kline", "BTC-USDT", "1m", klineMessage("50200"));
+        publisher.flush("kline");
+
+        EmbeddedChannel resumed = new EmbeddedChannel();
+        ConflatingPublisher.Resumed result = publisher.resume(resumed, "kline", "BTC-USDT", "1m", 1L, epoch, r -> { });
+        assertFalse(result.gap());
+        assertEquals(3L, result.seq());
+        assertEquals(2, result.replayed());
+        assertEquals("50100", readData(resumed));
+        assertEquals("50200", readData(resumed));
+        assertNull(resumed.readOutbound());
+    }
+
+    @Test
+    @DisplayName("推送间隔内K线换根时，上一根K线的最终状态先于新K线推送")
+    void testRolloverKeepsClosedBar() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        subscriptionManager.subscribe(channel, "kline", "BTC-USDT", "1m");
+
+        publisher.publish("kline", "BTC-USDT", "1m", klineMessage(0L, "50000", false));
+        publisher.publish("kline", "BTC-USDT", "1m", klineMessage(0L, "50100", true));
+        publisher.publish("kline", "BTC-USDT", "1m", klineMessage(60L, "50200", false));
+        publisher.flush("kline");
+
+        JsonNode closed = readFrame(channel);
+        assertEquals(1L, closed.get("seq").asLong());
+        assertEquals(0L, closed.get("data").get("openTime").asLong());
+        assertEquals("50100", closed.get("data").get("close").asText());
+        assertTrue(closed.get("data").get("completed").asBoolean());
+        JsonNode opened = readFrame(channel);
+        assertEquals(2L, opened.get("seq").asLong());
+        assertEquals(60L, opened.get("data").get("openTime").asLong());
+        assertNull(channel.readOutbound());
+
+        // 上一根K线已经推送过时，换根只推送新K线
+        publisher.publish("kline", "BTC-USDT", "1m", klineMessage(120L, "50300", false));
+        publisher.flush("kline");
+        JsonNode next = readFrame(channel);
+        assertEquals(3L, next.get("seq").asLong());
+        assertEquals(120L, next.get("data").get("openTime").asLong());
+        assertNull(channel.readOutbound());
+    }
+
+    private void publishKline(String close, String volume) {
+        Kline kline = Kline.builder()
+                .symbol("BTC-USDT")
+                .interval("1m")
+                .openTime(0L)
+                .close(new BigDecimal(close))
+                .volume(new BigDecimal(volume))
+                .build();
+        publisher.publish("kline", "BTC-USDT", "1m", WebSocketMessage.push(WebSocketMessageType.KLINE, "BTC-USDT", kline));
+        publisher.flush("kline");
+    }
+
+    private JsonNode readFrame(EmbeddedChannel channel) throws Exception {
+        TextWebSocketFrame frame = channel.readOutbound();
+        assertNotNull(frame);
+        try {
+            return objectMapper.readTree(frame.text());
+        } finally {
+            frame.release();
+        }
+    }
+
+    private static Set<String> fieldNames(JsonNode node) {
+        Set<String> names = new HashSet<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+
+    private WebSocketMessage klineMessage(long openTime, String close, boolean completed) {
+        Kline kline = Kline.builder()
+                .symbol("BTC-USDT")
+                .interval("1m")
+                .openTime(openTime)
+                .close(new BigDecimal(close))
+                .completed(completed)
+                .build();
+        return WebSocketMessage.push(WebSocketMessageType.KLINE, "BTC-USDT", kline);
+    }
+
+    private WebSocketMessage klineMessage(String close) {
+        return WebSocketMessage.push(WebSocketMessageType.KLINE, "BTC-USDT", close);
+    }
+
+    private String readData(EmbeddedChannel channel) throws Exception {
+        TextWebSocketFrame frame = channel.readOutbound();
+        assertNotNull(frame);
+        try {
+            return (String) objectMapper.readValue(frame.text(), WebSocketMessage.class).getData();
+        } finally {
+            frame.release();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.hkd.market.websocket.push;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hkd.market.api.enums.WebSocketMessageType;
+import com.hkd.market.domain.entity.Kline;
+import com.hkd.market.domain.repository.KlineRepository;
+import com.hkd.market.websocket.compression.SharedDeflater;
+import com.hkd.market.websocket.protocol.WebSocketMessage;
+import com.hkd.market.websocket.subscription.SubscriptionManager;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * KlineHistory 单元测试
+ *
+ * 补齐任务同步执行，直接调用 ConflatingPublisher.flush 模拟推送间隔到期
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@DisplayName("K线推送历史测试")
+class KlineHistoryTest {
+
+    private static final long MINUTE = 60_000L;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private SubscriptionManager subscriptionManager;
+    private ConflatingPublisher publisher;
+    private KlineRepository klineRepository;
+    private KlineHistory history;
+
+    @BeforeEach
+    void setUp() {
+        subscriptionManager = new SubscriptionManager();
+        WebSocketBroadcaster broadcaster = new WebSocketBroadcaster(objectMapper, new UnpooledByteBufAllocator(true),
+                new SharedDeflater(false, 6, 256));
+        publisher = new ConflatingPublisher(subscriptionManager, broadcaster, 250, 1000, 100, 20, 256);
+        klineRepository = mock(KlineRepository.class);
+        when(klineRepository.findLatestKlines(any(), any(), anyInt())).thenReturn(List.of());
+        history = new KlineHistory(subscriptionManager, publisher, broadcaster, klineRepository, 3, Runnable::run);
+    }
+
+    @Test
+    @DisplayName("快照按时间正序返回最近N根，同一根K线的更新只保留最新状态")
+    void testSnapshotLatestBars() throws Exception {
+        append(kline(0, "100"));
+        append(kline(1, "101"));
+        append(kline(1, "102"));
+        append(kline(2, "103"));
+        append(kline(3, "104"));
+
+        EmbeddedChannel channel = new EmbeddedChannel();
+        history.subscribe(channel, "BTC-USDT", "1m", 10,
+                topic -> channel.writeOutbound(new TextWebSocketFrame("subscribed")));
+
+        TextWebSocketFrame ack = channel.readOutbound();
+        assertEquals("subscribed", ack.text());
+        ack.release();
+
+        JsonNode snapshot = readFrame(channel);
+        assertEquals(WebSocketMessageType.KLINE_SNAPSHOT.getCode(), snapshot.get("type").asText());
+        JsonNode bars = snapshot.get("data");
+        assertEquals(3, bars.size());
+        assertEquals("102", bars.get(0).get("close").asText());
+        assertEquals("104", bars.get(2).get("close").asText());
+        assertEquals(1, subscriptionManager.getSubscribers("kline", "BTC-USDT", "1m").size());
+    }
+
+    @Test
+    @DisplayName("快照已包含的更新不再推送，之后的更新正常推送")
+    void testNoGapNoDuplicate() throws Exception {
+        EmbeddedChannel existing = new EmbeddedChannel();
+        subscriptionManager.subscribe(existing, "kline", "BTC-USDT", "1m");
+        append(kline(0, "100"));
+
+        // 合并推送尚未到期时订阅，快照已包含最新状态
+        EmbeddedChannel channel = new EmbeddedChannel();
+        history.subscribe(channel, "BTC-USDT", "1m", 2, topic -> { });
+        assertEquals("100", readFrame(channel).get("data").get(0).get("close").asText());
+
+        publisher.flush("kline");
+        assertNotNull(readFrame(existing));
+        assertNull(channel.readOutbound());
+
+        append(kline(0, "101"));
+        publisher.flush("kline");
+        assertEquals("101", readFrame(channel).get("data").get("close").asText());
+    }
+
+    @Test
+    @DisplayName("从Repository补齐更早的K线，不覆盖实时更新")
+    void testSeedOlderBars() throws Exception {
+        when(klineRepository.findLatestKlines("ETH-USDT", "1m", 3))
+                .thenReturn(List.of(kline("ETH-USDT", 2, "200"), kline("ETH-USDT", 1, "201")));
+
+        history.append(kline("ETH-USDT", 2, "202"), () -> { });
+
+        EmbeddedChannel channel = new EmbeddedChannel();
+        history.subscribe(channel, "ETH-USDT", "1m", 3, topic -> { });
+        JsonNode bars = readFrame(channel).get("data");
+        assertEquals(2, bars.size());
+        assertEquals("201", bars.get(0).get("close").asText());
+        assertEquals("202", bars.get(1).get("close").asText());
+    }
+
+    @Test
+    @DisplayName("订阅没有更新过的序列收到空快照，不创建序列，之后的更新正常推送")
+    void testSubscribeUnknownSeries() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        history.subscribe(channel, "NOPE-USDT", "1m", 5, topic -> { });
+
+        JsonNode snapshot = readFrame(channel);
+        assertEquals(WebSocketMessageType.KLINE_SNAPSHOT.getCode(), snapshot.get("type").asText());
+        assertEquals(0, snapshot.get("data").size());
+        assertEquals(0, history.size("NOPE-USDT", "1m"));
+        verify(klineRepository, never()).findLatestKlines(any(), any(), anyInt());
+
+        append(kline("NOPE-USDT", 0, "1"));
+        publisher.flush("kline");
+        assertEquals("1", readFrame(channel).get("data").get("close").asText());
+        assertEquals(1, history.size("NOPE-USDT", "1m"));
+    }
+
+    private void append(Kline kline) {
+        history.append(kline, () -> {
+            WebSocketMessage message = WebSocketMessage.push(WebSocketMessageType.KLINE, kline.getSymbol(), kline);
+            publisher.publish("kline", kline.getSymbol(), kline.getInterval(), message);
+        });
+    }
+
+    private Kline kline(int minute, String close) {
+        return kline("BTC-USDT", minute, close);
+    }
+
+    private Kline kline(String symbol, int minute, String close) {
+        return Kline.builder()
+                .symbol(symbol)
+                .interval("1m")
+                .openTime(minute * MINUTE)
+                .closeTime((minute + 1) * MINUTE - 1)
+                .close(new BigDecimal(close))
+                .build();
+    }
+
+    private JsonNode readFrame(EmbeddedChannel channel) throws Exception {
+        TextWebSocketFrame frame = channel.readOutbound();
+        assertNotNull(frame);
+        try {
+            return objectMapper.readTree(frame.text());
+        } finally {
+            frame.release();
+        }
+    }
+}
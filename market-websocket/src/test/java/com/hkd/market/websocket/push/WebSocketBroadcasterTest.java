@@ -0,0 +1,137 @@
+package com.hkd.market.websocket.push;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hkd.market.api.enums.WebSocketMessageType;
+import com.hkd.market.domain.entity.Kline;
+import com.hkd.market.websocket.compression.SharedDeflater;
+import com.hkd.market.websocket.protocol.BinaryFrameCodec;
+import com.hkd.market.websocket.protocol.WebSocketMessage;
+import com.hkd.market.websocket.protocol.WireFormat;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * WebSocketBroadcaster 单元测试
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@DisplayName("WebSocket广播器测试")
+class WebSocketBroadcasterTest {
+
+    private ObjectMapper objectMapper;
+    private WebSocketBroadcaster broadcaster;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = spy(new ObjectMapper());
+        broadcaster = new WebSocketBroadcaster(objectMapper, new UnpooledByteBufAllocator(true),
+                new SharedDeflater(false, 6, 256));
+    }
+
+    @Test
+    @DisplayName("一次序列化推送给所有订阅者，共享同一块内存")
+    void testSerializeOnce() throws Exception {
+        EmbeddedChannel first = new EmbeddedChannel();
+        EmbeddedChannel second = new EmbeddedChannel();
+        WebSocketMessage message = WebSocketMessage.push(WebSocketMessageType.KLINE, "BTC-USDT", Map.of("close", "50000"));
+
+        int written = broadcaster.broadcast(List.<Channel>of(first, second), message);
+
+        assertEquals(2, written);
+        verify(objectMapper, times(1)).writeValue(any(java.io.OutputStream.class), eq(message));
+
+        TextWebSocketFrame firstFrame = first.readOutbound();
+        TextWebSocketFrame secondFrame = second.readOutbound();
+        assertEquals(firstFrame.text(), secondFrame.text());
+        assertEquals(message.getSymbol(), objectMapper.readValue(firstFrame.text(), WebSocketMessage.class).getSymbol());
+        assertSame(firstFrame.content().unwrap(), secondFrame.content().unwrap());
+
+        // 两个帧释放后底层内存归还
+        ByteBuf shared = firstFrame.content().unwrap();
+        firstFrame.release();
+        secondFrame.release();
+        assertEquals(0, shared.refCnt());
+    }
+
+    @Test
+    @DisplayName("跳过已关闭的连接")
+    void testSkipInactiveChannel() {
+        EmbeddedChannel active = new EmbeddedChannel();
+        EmbeddedChannel closed = new EmbeddedChannel();
+        closed.close();
+
+        int written = broadcaster.broadcast(List.<Channel>of(active, closed),
+                WebSocketMessage.push(WebSocketMessageType.KLINE, "BTC-USDT", "data"));
+
+        assertEquals(1, written);
+        TextWebSocketFrame frame = active.readOutbound();
+        assertNotNull(frame);
+        frame.release();
+        assertNull(closed.readOutbound());
+    }
+
+    @Test
+    @DisplayName("按协商的编码格式分组，二进制连接收到hkd-bin.v1帧")
+    void testBinarySubscribers() throws Exception {
+        EmbeddedChannel jsonChannel = new EmbeddedChannel();
+        EmbeddedChannel binaryChannel = new EmbeddedChannel();
+        WireFormat.BINARY.bind(binaryChannel);
+        Kline kline = Kline.builder()
+                .symbol("BTC-USDT")
+                .interval("1m")
+                .openTime(1700000000L)
+                .close(new BigDecimal("50000"))
+                .build();
+        WebSocketMessage message = WebSocketMessage.push(WebSocketMessageType.KLINE, "BTC-USDT", kline);
+
+        assertEquals(2, broadcaster.broadcast(List.<Channel>of(jsonChannel, binaryChannel), message));
+
+        TextWebSocketFrame textFrame = jsonChannel.readOutbound();
+        assertEquals("BTC-USDT", objectMapper.readValue(textFrame.text(), WebSocketMessage.class).getSymbol());
+        textFrame.release();
+
+        BinaryWebSocketFrame binaryFrame = binaryChannel.readOutbound();
+        Kline decoded = (Kline) BinaryFrameCodec.decode(binaryFrame.content()).getData();
+        assertEquals(new BigDecimal("50000"), decoded.getClose());
+        binaryFrame.release();
+    }
+
+    @Test
+    @DisplayName("没有二进制格式的消息对二进制连接以JSON推送")
+    void testBinaryFallbackToJson() {
+        EmbeddedChannel binaryChannel = new EmbeddedChannel();
+        WireFormat.BINARY.bind(binaryChannel);
+
+        broadcaster.broadcast(List.<Channel>of(binaryChannel),
+                WebSocketMessage.push(WebSocketMessageType.TICKER, "BTC-USDT", Map.of("last", "50000")));
+
+        Object frame = binaryChannel.readOutbound();
+        assertInstanceOf(TextWebSocketFrame.class, frame);
+        ((TextWebSocketFrame) frame).release();
+    }
+
+    @Test
+    @DisplayName("没有订阅者时不序列化")
+    void testNoSubscribers() throws Exception {
+        int written = broadcaster.broadcast(List.of(),
+                WebSocketMessage.push(WebSocketMessageType.KLINE, "BTC-USDT", "data"));
+
+        assertEquals(0, written);
+        verify(objectMapper, never()).writeValue(any(java.io.OutputStream.class), any());
+    }
+}
@@ -0,0 +1,49 @@
+package com.hkd.market.websocket.server;
+
+import io.netty.channel.epoll.Epoll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * NettyTransport 单元测试
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@DisplayName("Netty传输层选择测试")
+class NettyTransportTest {
+
+    @Test
+    @DisplayName("auto优先epoll，不可用时使用nio")
+    void testAutoSelect() {
+        NettyTransport expected = Epoll.isAvailable() ? NettyTransport.EPOLL : NettyTransport.NIO;
+        assertEquals(expected, NettyTransport.select("auto"));
+        assertEquals(expected, NettyTransport.select(null));
+    }
+
+    @Test
+    @DisplayName("选择的传输不可用时回退到可用的传输")
+    void testFallback() {
+        NettyTransport transport = NettyTransport.select("io_uring");
+        assertTrue(transport.isAvailable());
+
+        assertEquals(NettyTransport.NIO, NettyTransport.select("NIO"));
+    }
+
+    @Test
+    @DisplayName("无效的传输配置")
+    void testInvalidTransport() {
+        assertThrows(IllegalArgumentException.class, () -> NettyTransport.select("kqueue"));
+    }
+
+    @Test
+    @DisplayName("SO_REUSEPORT只在原生传输上启用")
+    void testReusePort() {
+        assertFalse(NettyTransport.NIO.supportsReusePort());
+        assertNull(NettyTransport.NIO.reusePortOption());
+        assertTrue(NettyTransport.EPOLL.supportsReusePort());
+        assertNotNull(NettyTransport.EPOLL.reusePortOption());
+    }
+}
@@ -0,0 +1,227 @@
+package com.hkd.market.websocket.subscription;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SubscriptionManager 单元测试
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@DisplayName("订阅管理器测试")
+class SubscriptionManagerTest {
+
+    private SubscriptionManager subscriptionManager;
+
+    @BeforeEach
+    void setUp() {
+        subscriptionManager = new SubscriptionManager(4);
+    }
+
+    @Test
+    @DisplayName("相同订阅键驻留为同一个主题，ID连续分配")
+    void testTopicInterning() {
+        EmbeddedChannel first = new EmbeddedChannel();
+        EmbeddedChannel second = new EmbeddedChannel();
+
+        Topic kline = subscriptionManager.subscribe(first, "kline", "BTC-USDT", "1m");
+        Topic same = subscriptionManager.subscribe(second, "kline", "BTC-USDT", "1m");
+        Topic ticker = subscriptionManager.subscribe(first, "ticker", "BTC-USDT", "");
+
+        assertSame(kline, same);
+        assertEquals(0, kline.getId());
+        assertEquals(1, ticker.getId());
+        assertEquals("kline:BTC-USDT:1m", kline.getKey());
+        assertEquals("ticker:BTC-USDT", ticker.getKey());
+        assertSame(kline, subscriptionManager.getTopic(0));
+        assertSame(ticker, subscriptionManager.findTopic("ticker", "BTC-USDT", null));
+        assertEquals(Set.of(first, second), subscriptionManager.getSubscribers("kline", "BTC-USDT", "1m"));
+    }
+
+    @Test
+    @DisplayName("取消订阅与反向索引")
+    void testUnsubscribe() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        subscriptionManager.subscribe(channel, "kline", "BTC-USDT", "1m");
+        subscriptionManager.subscribe(channel, "kline", "BTC-USDT", "1m");
+        subscriptionManager.subscribe(channel, "depth", "BTC-USDT", null);
+
+        assertEquals(Set.of("kline:BTC-USDT:1m", "depth:BTC-USDT"), subscriptionManager.getChannelSubscriptions(channel));
+        assertEquals(1, subscriptionManager.getTotalConnections());
+        assertEquals(2, subscriptionManager.getTotalSubscriptions());
+
+        subscriptionManager.unsubscribe(channel, "kline", "BTC-USDT", "1m");
+        assertTrue(subscriptionManager.getSubscribers("kline", "BTC-USDT", "1m").isEmpty());
+        assertEquals(Set.of("depth:BTC-USDT"), subscriptionManager.getChannelSubscriptions(channel));
+        assertEquals(1, subscriptionManager.getTotalSubscriptions());
+
+        subscriptionManager.unsubscribe(channel, "depth", "BTC-USDT", null);
+        assertEquals(0, subscriptionManager.getTotalConnections());
+    }
+
+    @Test
+    @DisplayName("连接关闭时清理所有订阅")
+    void testUnsubscribeAll() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        EmbeddedChannel other = new EmbeddedChannel();
+        subscriptionManager.subscribe(channel, "kline", "BTC-USDT", "1m");
+        subscriptionManager.subscribe(channel, "trade", "BTC-USDT", null);
+        subscriptionManager.subscribe(other, "trade", "BTC-USDT", null);
+
+        subscriptionManager.unsubscribeAll(channel);
+
+        assertTrue(subscriptionManager.getChannelSubscriptions(channel).isEmpty());
+        assertTrue(subscriptionManager.getSubscribers("kline", "BTC-USDT", "1m").isEmpty());
+        assertEquals(Set.of(other), subscriptionManager.getSubscribers("trade", "BTC-USDT", null));
+        assertEquals(1, subscriptionManager.getTotalConnections());
+    }
+
+    @Test
+    @DisplayName("主题数量达到上限后拒绝新主题")
+    void testTopicLimit() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        for (int i = 0; i < 4; i++) {
+            subscriptionManager.subscribe(channel, "trade", "SYM-" + i, null);
+        }
+
+        assertThrows(IllegalStateException.class,
+                () -> subscriptionManager.subscribe(channel, "trade", "SYM-4", null));
+        // 已存在的主题不受影响
+        assertNotNull(subscriptionManager.subscribe(new EmbeddedChannel(), "trade", "SYM-0", null));
+    }
+
+    @Test
+    @DisplayName("没有订阅者且从未发布过的主题被回收，ID复用；发布过的主题保留")
+    void testReleaseUnpublishedTopics() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        for (int i = 0; i < 4; i++) {
+            subscriptionManager.subscribe(channel, "trade", "JUNK-" + i, null);
+        }
+        subscriptionManager.unsubscribeAll(channel);
+        assertNull(subscriptionManager.findTopic("trade", "JUNK-0", null));
+
+        // 回收后不再占用上限
+        Topic real = subscriptionManager.subscribe(channel, "trade", "BTC-USDT", null);
+        assertTrue(real.getId() < 4);
+        assertSame(real, subscriptionManager.resolveTopic("trade", "BTC-USDT", null));
+        subscriptionManager.unsubscribe(channel, "trade", "BTC-USDT", null);
+        assertSame(real, subscriptionManager.findTopic("trade", "BTC-USDT", null));
+
+        Topic junk = subscriptionManager.subscribe(channel, "trade", "JUNK-0", null);
+        assertNotEquals(real.getId(), junk.getId());
+        assertSame(junk, subscriptionManager.getTopic(junk.getId()));
+    }
+
+    @Test
+    @DisplayName("单个连接订阅的主题数达到上限后拒绝，已订阅的主题可以重复订阅")
+    void testTopicLimitPerConnection() {
+        subscriptionManager = new SubscriptionManager(8, 2);
+        EmbeddedChannel channel = new EmbeddedChannel();
+        subscriptionManager.subscribe(channel, "trade", "SYM-0", null);
+        subscriptionManager.subscribe(channel, "trade", "SYM-1", null);
+
+        assertThrows(IllegalStateException.class,
+                () -> subscriptionManager.subscribe(channel, "trade", "SYM-2", null));
+        assertNotNull(subscriptionManager.subscribe(channel, "trade", "SYM-1", null));
+        assertNotNull(subscriptionManager.subscribe(new EmbeddedChannel(), "trade", "SYM-2", null));
+    }
+
+    @Test
+    @DisplayName("频道、交易对或周期不合法时拒绝订阅，不创建主题")
+    void testRejectInvalidNames() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> subscriptionManager.subscribe(channel, "news", "BTC-USDT", null));
+        assertThrows(IllegalArgumentException.class,
+                () -> subscriptionManager.subscribe(channel, "kline", "BTC-USDT", "7m"));
+        assertThrows(IllegalArgumentException.class,
+                () -> subscriptionManager.subscribe(channel, "kline", "BTC-USDT", null));
+        assertThrows(IllegalArgumentException.class,
+                () -> subscriptionManager.subscribe(channel, "ticker", "BTC-USDT", "1m"));
+        assertThrows(IllegalArgumentException.class,
+                () -> subscriptionManager.subscribe(channel, "trade", "btc/usdt", null));
+        assertThrows(IllegalArgumentException.class,
+                () -> subscriptionManager.subscribe(channel, "trade", "A".repeat(33), null));
+
+        assertTrue(subscriptionManager.getChannelSubscriptions(channel).isEmpty());
+        assertNull(subscriptionManager.findTopic("kline", "BTC-USDT", "7m"));
+    }
+
+    @Test
+    @DisplayName("未发布主题达到上限后拒绝客户端新建主题，剩余容量留给发布方")
+    void testReserveCapacityForPublished() {
+        subscriptionManager = new SubscriptionManager(4, 1000, 2);
+        EmbeddedChannel channel = new EmbeddedChannel();
+        subscriptionManager.subscribe(channel, "trade", "SYM-0", null);
+        subscriptionManager.subscribe(channel, "trade", "SYM-1", null);
+
+        assertThrows(IllegalStateException.class,
+                () -> subscriptionManager.subscribe(channel, "trade", "SYM-2", null));
+
+        // 发布过的主题不再计入未发布上限
+        assertNotNull(subscriptionManager.resolveTopic("trade", "SYM-0", null));
+        assertNotNull(subscriptionManager.subscribe(channel, "trade", "SYM-2", null));
+
+        // 发布方创建的主题不受未发布上限影响
+        subscriptionManager.subscribe(new EmbeddedChannel(), TopicPattern.parse("ticker:*"));
+        assertNotNull(subscriptionManager.resolveTopic("ticker", "BTC-USDT", null));
+    }
+
+    @Test
+    @DisplayName("单个连接的通配订阅数达到上限后拒绝，已有的表达式可以重复订阅")
+    void testPatternLimitPerConnection() {
+        subscriptionManager = new SubscriptionManager(8, 1000, 8, 2);
+        EmbeddedChannel channel = new EmbeddedChannel();
+        subscriptionManager.subscribe(channel, TopicPattern.parse("ticker:*"));
+        subscriptionManager.subscribe(channel, TopicPattern.parse("trade:*"));
+
+        assertThrows(IllegalStateException.class,
+                () -> subscriptionManager.subscribe(channel, TopicPattern.parse("depth:*")));
+        assertEquals(0, subscriptionManager.subscribe(channel, TopicPattern.parse("ticker:*")));
+        assertEquals(2, subscriptionManager.getChannelPatterns(channel).size());
+    }
+
+    @Test
+    @DisplayName("通配订阅展开已有主题，之后创建的匹配主题自动加入")
+    void testWildcardSubscription() {
+        EmbeddedChannel explicit = new EmbeddedChannel();
+        EmbeddedChannel wildcard = new EmbeddedChannel();
+        subscriptionManager.subscribe(explicit, "ticker", "BTC-USDT", null);
+        subscriptionManager.subscribe(explicit, "kline", "BTC-USDT", "1m");
+
+        assertEquals(1, subscriptionManager.subscribe(wildcard, TopicPattern.parse("ticker:*")));
+        assertEquals(Set.of(explicit, wildcard), subscriptionManager.getSubscribers("ticker", "BTC-USDT", null));
+        assertFalse(subscriptionManager.getSubscribers("kline", "BTC-USDT", "1m").contains(wildcard));
+
+        // 发布方遇到新主题时创建并匹配通配订阅
+        Topic eth = subscriptionManager.resolveTopic("ticker", "ETH-USDT", null);
+        assertEquals(Set.of(wildcard), eth.getSubscribers());
+        assertEquals(Set.of(TopicPattern.parse("ticker:*")), subscriptionManager.getChannelPatterns(wildcard));
+
+        subscriptionManager.unsubscribe(wildcard, TopicPattern.parse("ticker:*"));
+        assertTrue(eth.getSubscribers().isEmpty());
+        assertEquals(Set.of(explicit), subscriptionManager.getSubscribers("ticker", "BTC-USDT", null));
+
+        // 没有通配订阅时发布方不创建主题
+        assertNull(subscriptionManager.resolveTopic("ticker", "SOL-USDT", null));
+    }
+
+    @Test
+    @DisplayName("连接关闭时清理通配订阅")
+    void testUnsubscribeAllPatterns() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        subscriptionManager.subscribe(channel, TopicPattern.parse("kline:BTC-*:1m"));
+        subscriptionManager.unsubscribeAll(channel);
+
+        assertNull(subscriptionManager.resolveTopic("kline", "BTC-USDT", "1m"));
+        assertTrue(subscriptionManager.getChannelPatterns(channel).isEmpty());
+    }
+}
@@ -0,0 +1,80 @@
+package com.hkd.market.websocket.subscription;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TopicPattern 单元测试
+ *
+ * @author HKD Development Team
+ * @version 1.0.0
+ */
+@DisplayName("订阅主题表达式测试")
+class TopicPatternTest {
+
+    @Test
+    @DisplayName("交易对和周期通配符匹配")
+    void testMatches() {
+        TopicPattern pattern = TopicPattern.parse("kline:BTC-*:1m");
+
+        assertTrue(pattern.isWildcard());
+        assertTrue(pattern.matches(new Topic(0, "kline", "BTC-USDT", "1m")));
+        assertTrue(pattern.matches(new Topic(1, "kline", "BTC-USDC", "1m")));
+        assertFalse(pattern.matches(new Topic(2, "kline", "ETH-USDT", "1m")));
+        assertFalse(pattern.matches(new Topic(3, "kline", "BTC-USDT", "5m")));
+        assertFalse(pattern.matches(new Topic(4, "ticker", "BTC-USDT", null)));
+
+        TopicPattern allIntervals = TopicPattern.parse("kline:ETH-USDT:*");
+        assertTrue(allIntervals.matches(new Topic(5, "kline", "ETH-USDT", "1d")));
+        assertFalse(allIntervals.matches(new Topic(6, "kline", "ETH-USDT", null)));
+    }
+
+    @Test
+    @DisplayName("不带周期的表达式只匹配不带周期的主题，正则字符按字面值处理")
+    void testLiteralSegments() {
+        TopicPattern ticker = TopicPattern.parse("ticker:*");
+        assertTrue(ticker.matches(new Topic(0, "ticker", "BTC-USDT", null)));
+        assertFalse(ticker.matches(new Topic(1, "ticker", "BTC-USDT", "1m")));
+
+        TopicPattern dotted = TopicPattern.parse("trade:A.B*");
+        assertTrue(dotted.matches(new Topic(2, "trade", "A.BC", null)));
+        assertFalse(dotted.matches(new Topic(3, "trade", "AXBC", null)));
+
+        TopicPattern exact = TopicPattern.parse("depth:BTC-USDT");
+        assertFalse(exact.isWildcard());
+        assertEquals("depth:BTC-USDT", exact.getKey());
+    }
+
+    @Test
+    @DisplayName("格式错误的表达式")
+    void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> TopicPattern.parse("ticker"));
+        assertThrows(IllegalArgumentException.class, () -> TopicPattern.parse("kline::1m"));
+        assertThrows(IllegalArgumentException.class, () -> TopicPattern.parse("*:BTC-USDT"));
+        assertThrows(IllegalArgumentException.class, () -> TopicPattern.parse("kline:BTC-USDT:1m:x"));
+        assertThrows(IllegalArgumentException.class, () -> TopicPattern.parse(" "));
+        assertThrows(IllegalArgumentException.class, () -> TopicPattern.parse("ticker:" + "A".repeat(33)));
+        assertThrows(IllegalArgumentException.class, () -> TopicPattern.parse("ticker:*A*B*C*D*E"));
+    }
+
+    @Test
+    @DisplayName("多个通配符按glob匹配，连续的通配符合并")
+    void testGlob() {
+        TopicPattern pattern = TopicPattern.parse("ticker:B*-*T");
+        assertTrue(pattern.matches(new Topic(0, "ticker", "BTC-USDT", null)));
+        assertTrue(pattern.matches(new Topic(1, "ticker", "B-T", null)));
+        assertFalse(pattern.matches(new Topic(2, "ticker", "BTC-USDC", null)));
+        assertFalse(pattern.matches(new Topic(3, "ticker", "BT", null)));
+
+        TopicPattern collapsed = TopicPattern.parse("ticker:A**********B");
+        assertEquals("ticker:A*B", collapsed.getKey());
+        assertTrue(collapsed.matches(new Topic(4, "ticker", "AXXB", null)));
+        assertFalse(collapsed.matches(new Topic(5, "ticker", "AXXBA", null)));
+
+        // 会让回溯正则指数级退化的输入在线性匹配下立即返回
+        TopicPattern adversarial = TopicPattern.parse("ticker:*A*A*A*A");
+        assertFalse(adversarial.matches(new Topic(6, "ticker", "A".repeat(10000) + "B", null)));
+    }
+}